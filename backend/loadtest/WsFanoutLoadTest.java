@@ -0,0 +1,231 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/* ---------------------------------------------------
+ * Load test fan-out WebSocket/STOMP qua nhiều backend node
+ * - Mở N subscriber trên mỗi node, cùng subscribe 1 topic
+ * - 1 publisher gửi M message qua node đầu tiên (SEND thẳng vào /topic/...)
+ * - Đo: số message mỗi node nhận được (relay đúng thì node nào cũng nhận đủ),
+ *   throughput phân phối (message/giây) và độ trễ p50/p99 publish -> nhận
+ * - Chỉ dùng JDK (java.net.http.WebSocket), chạy trực tiếp: java WsFanoutLoadTest.java ...
+ *
+ * Ví dụ (2 node, 200 subscriber/node, 2000 message, 200 msg/s):
+ *   java WsFanoutLoadTest.java --nodes ws://localhost:8081/api/ws/websocket,ws://localhost:8082/api/ws/websocket \
+ *        --token <JWT> --subscribers 200 --messages 2000 --rate 200
+ * @author: K24DTCN210-NVMANH (17/10/2026 16:10)
+ * --------------------------------------------------- */
+public class WsFanoutLoadTest {
+
+    private static final char NUL = '\u0000';
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        List<String> nodes = Arrays.asList(options.getOrDefault("nodes",
+            "ws://localhost:8081/api/ws/websocket,ws://localhost:8082/api/ws/websocket").split(","));
+        String token = options.get("token");
+        int subscribersPerNode = Integer.parseInt(options.getOrDefault("subscribers", "100"));
+        int messages = Integer.parseInt(options.getOrDefault("messages", "1000"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "100"));
+        String topic = options.getOrDefault("topic", "/topic/loadtest/" + System.currentTimeMillis());
+
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        long expectedPerSubscriber = messages;
+        long expectedTotal = expectedPerSubscriber * subscribersPerNode * nodes.size();
+        CountDownLatch allReceived = new CountDownLatch(subscribersPerNode * nodes.size());
+        LatencyRecorder latency = new LatencyRecorder(expectedTotal);
+
+        // 1. Subscriber trên từng node
+        List<StompClient> subscribers = new ArrayList<>();
+        LongAdder[] receivedByNode = new LongAdder[nodes.size()];
+        for (int n = 0; n < nodes.size(); n++) {
+            receivedByNode[n] = new LongAdder();
+            for (int i = 0; i < subscribersPerNode; i++) {
+                StompClient client = new StompClient(httpClient, nodes.get(n), token);
+                int node = n;
+                AtomicLong count = new AtomicLong();
+                client.onMessage = body -> {
+                    long sentAt = Long.parseLong(body.substring(body.indexOf(':') + 1).trim());
+                    latency.record(System.nanoTime() - sentAt);
+                    receivedByNode[node].increment();
+                    if (count.incrementAndGet() == expectedPerSubscriber) {
+                        allReceived.countDown();
+                    }
+                };
+                client.connect().join();
+                client.subscribe(topic);
+                subscribers.add(client);
+            }
+            System.out.printf("Node %d (%s): %d subscribers connected%n", n + 1, nodes.get(n), subscribersPerNode);
+        }
+        Thread.sleep(2000); // chờ SUBSCRIBE tới broker
+
+        // 2. Publisher gửi qua node đầu tiên
+        StompClient publisher = new StompClient(httpClient, nodes.get(0), token);
+        publisher.connect().join();
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        long start = System.nanoTime();
+        for (int seq = 0; seq < messages; seq++) {
+            long due = start + seq * intervalNanos;
+            while (System.nanoTime() < due) {
+                Thread.onSpinWait();
+            }
+            publisher.send(topic, seq + ":" + System.nanoTime()).join();
+        }
+        long publishNanos = System.nanoTime() - start;
+
+        // 3. Chờ nhận đủ (hoặc timeout) rồi in kết quả
+        boolean complete = allReceived.await(Long.parseLong(options.getOrDefault("timeout", "60")), TimeUnit.SECONDS);
+        long elapsedNanos = System.nanoTime() - start;
+
+        long delivered = 0;
+        System.out.println();
+        System.out.printf("Published %d messages in %.2fs via node 1%n", messages, publishNanos / 1e9);
+        for (int n = 0; n < nodes.size(); n++) {
+            long received = receivedByNode[n].sum();
+            delivered += received;
+            System.out.printf("Node %d received %d / %d (%.1f%%)%n", n + 1, received,
+                expectedPerSubscriber * subscribersPerNode, 100.0 * received / (expectedPerSubscriber * subscribersPerNode));
+        }
+        System.out.printf("Delivered %d / %d in %.2fs -> %.0f msg/s fan-out%s%n", delivered, expectedTotal,
+            elapsedNanos / 1e9, delivered / (elapsedNanos / 1e9), complete ? "" : " (TIMEOUT)");
+        System.out.printf("Latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+            latency.percentile(50) / 1e6, latency.percentile(99) / 1e6, latency.percentile(100) / 1e6);
+
+        publisher.close();
+        subscribers.forEach(StompClient::close);
+        System.exit(complete ? 0 : 1);
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    /* STOMP 1.2 client tối giản trên java.net.http.WebSocket */
+    private static class StompClient implements WebSocket.Listener {
+        private final HttpClient httpClient;
+        private final String url;
+        private final String token;
+        private final StringBuilder buffer = new StringBuilder();
+        private final CompletableFuture<Void> connected = new CompletableFuture<>();
+        private WebSocket webSocket;
+        private int subscriptionId;
+        private Consumer<String> onMessage = body -> { };
+
+        StompClient(HttpClient httpClient, String url, String token) {
+            this.httpClient = httpClient;
+            this.url = url;
+            this.token = token;
+        }
+
+        CompletableFuture<Void> connect() {
+            WebSocket.Builder builder = httpClient.newWebSocketBuilder();
+            if (token != null) {
+                builder.header("Authorization", "Bearer " + token);
+            }
+            return builder.buildAsync(URI.create(url), this)
+                .thenCompose(ws -> {
+                    webSocket = ws;
+                    return frame("CONNECT\naccept-version:1.2\nheart-beat:0,0\nhost:localhost\n\n");
+                })
+                .thenCompose(ignored -> connected);
+        }
+
+        void subscribe(String destination) {
+            frame("SUBSCRIBE\nid:sub-" + (subscriptionId++) + "\ndestination:" + destination + "\n\n").join();
+        }
+
+        CompletableFuture<Void> send(String destination, String body) {
+            return frame("SEND\ndestination:" + destination + "\ncontent-type:text/plain\n\n" + body);
+        }
+
+        void close() {
+            if (webSocket != null) {
+                webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+            }
+        }
+
+        private synchronized CompletableFuture<Void> frame(String frame) {
+            return webSocket.sendText(frame + NUL, true).thenApply(ws -> null);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+            buffer.append(data);
+            int end;
+            while ((end = buffer.indexOf(String.valueOf(NUL))) >= 0) {
+                handleFrame(buffer.substring(0, end));
+                buffer.delete(0, end + 1);
+                while (buffer.length() > 0 && (buffer.charAt(0) == '\n' || buffer.charAt(0) == '\r')) {
+                    buffer.deleteCharAt(0); // heart-beat
+                }
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket ws, Throwable error) {
+            connected.completeExceptionally(error);
+            System.err.println("WebSocket error (" + url + "): " + error.getMessage());
+        }
+
+        private void handleFrame(String frame) {
+            String command = frame.substring(0, Math.max(0, frame.indexOf('\n'))).trim();
+            switch (command) {
+                case "CONNECTED" -> connected.complete(null);
+                case "MESSAGE" -> onMessage.accept(frame.substring(frame.indexOf("\n\n") + 2));
+                case "ERROR" -> {
+                    connected.completeExceptionally(new IllegalStateException(frame));
+                    System.err.println("STOMP ERROR (" + url + "): " + frame);
+                }
+                default -> { }
+            }
+        }
+    }
+
+    /* Lưu độ trễ vào mảng cố định để tính percentile cuối bài test */
+    private static class LatencyRecorder {
+        private final long[] samples;
+        private final AtomicLong size = new AtomicLong();
+
+        LatencyRecorder(long capacity) {
+            samples = new long[(int) Math.min(capacity, 10_000_000L)];
+        }
+
+        void record(long nanos) {
+            long index = size.getAndIncrement();
+            if (index < samples.length) {
+                samples[(int) index] = nanos;
+            }
+        }
+
+        long percentile(int p) {
+            int n = (int) Math.min(size.get(), samples.length);
+            if (n == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, n);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(p / 100.0 * n) - 1;
+            return sorted[Math.max(0, Math.min(n - 1, rank))];
+        }
+    }
+}
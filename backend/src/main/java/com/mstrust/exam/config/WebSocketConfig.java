@@ -1,5 +1,7 @@
 package com.mstrust.exam.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
@@ -8,27 +10,76 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 
 /* ---------------------------------------------------
  * Cấu hình WebSocket cho real-time communication
- * - STOMP protocol với Simple Broker
+ * - STOMP protocol với Simple Broker (1 node) hoặc STOMP broker relay ra broker ngoài
+ *   (ActiveMQ/RabbitMQ...) để chạy nhiều node sau nginx: message publish ở node nào
+ *   cũng tới subscriber ở mọi node
  * - SockJS fallback support
  * - Topics: /topic/exam/{examId}, /topic/monitoring
  * - Application prefix: /app
  * @author: K24DTCN210-NVMANH (21/11/2025 01:46)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 16:10) - Thêm chế độ broker relay (exam.websocket.broker=relay)
  * --------------------------------------------------- */
 @Configuration
 @EnableWebSocketMessageBroker
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    /* simple = broker in-memory trong JVM, relay = chuyển tiếp qua broker STOMP ngoài */
+    @Value("${exam.websocket.broker:simple}")
+    private String brokerMode;
+
+    @Value("${exam.websocket.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${exam.websocket.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${exam.websocket.relay.client-login:guest}")
+    private String clientLogin;
+
+    @Value("${exam.websocket.relay.client-passcode:guest}")
+    private String clientPasscode;
+
+    @Value("${exam.websocket.relay.system-login:guest}")
+    private String systemLogin;
+
+    @Value("${exam.websocket.relay.system-passcode:guest}")
+    private String systemPasscode;
+
+    @Value("${exam.websocket.relay.virtual-host:}")
+    private String virtualHost;
+
     /* ---------------------------------------------------
      * Cấu hình Message Broker cho WebSocket
      * - Simple Broker: /topic (broadcast), /queue (point-to-point)
+     * - Relay: cùng các prefix nhưng subscription nằm ở broker ngoài; /user/... được
+     *   resolve qua user registry broadcast giữa các node
      * - Application prefix: /app (client gửi message)
      * @param config MessageBrokerRegistry để cấu hình broker
      * @author: K24DTCN210-NVMANH (21/11/2025 01:46)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 16:10) - Chọn simple broker hoặc relay theo cấu hình
      * --------------------------------------------------- */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable simple broker cho các destination prefix
-        config.enableSimpleBroker("/topic", "/queue");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            var relay = config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(clientLogin)
+                    .setClientPasscode(clientPasscode)
+                    .setSystemLogin(systemLogin)
+                    .setSystemPasscode(systemPasscode)
+                    // Node không có session của user thì broadcast để node đang giữ session gửi tiếp
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (!virtualHost.isBlank()) {
+                relay.setVirtualHost(virtualHost);
+            }
+            log.info("[WebSocket] Using STOMP broker relay at {}:{}", relayHost, relayPort);
+        } else {
+            // Enable simple broker cho các destination prefix
+            config.enableSimpleBroker("/topic", "/queue");
+        }
         
         // Set prefix cho messages từ client
         config.setApplicationDestinationPrefixes("/app");
@@ -1,7 +1,10 @@
 package com.mstrust.exam.controller;
 
 import com.mstrust.exam.dto.*;
+import com.mstrust.exam.dto.monitoring.LiveViewSnapshotDTO;
+import com.mstrust.exam.service.AlertService;
 import com.mstrust.exam.service.ExamTakingService;
+import com.mstrust.exam.service.LiveViewService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -15,6 +18,7 @@ import java.util.Map;
  * REST Controller cho exam session management (teacher control)
  * Base path: /exam-sessions (URL cuối: /api/exam-sessions)
  * @author: K24DTCN210-NVMANH (21/11/2025 02:23)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 17:30) - Thêm snapshot cho live view dạng delta
  * --------------------------------------------------- */
 @RestController
 @RequestMapping("/exam-sessions")
@@ -22,6 +26,8 @@ import java.util.Map;
 public class ExamSessionController {
     
     private final ExamTakingService examTakingService;
+    private final LiveViewService liveViewService;
+    private final AlertService alertService;
     
     /* ---------------------------------------------------
      * POST /exam-sessions/{id}/pause
@@ -90,6 +96,22 @@ public class ExamSessionController {
         return ResponseEntity.ok(liveView);
     }
     
+    /* ---------------------------------------------------
+     * GET /exam-sessions/live/{examId}/snapshot
+     * Trạng thái đầy đủ của live view; sau đó client chỉ nhận các dòng thay đổi
+     * qua /topic/exam/{examId}/live (bỏ qua message có seq <= seq của snapshot)
+     * @param examId ID của exam
+     * @returns LiveViewSnapshotDTO gồm các dòng + alerts chưa review
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    @GetMapping("/live/{examId}/snapshot")
+    @PreAuthorize("hasAnyRole('TEACHER', 'DEPT_MANAGER', 'ADMIN')")
+    public ResponseEntity<LiveViewSnapshotDTO> getLiveViewSnapshot(@PathVariable Long examId) {
+        LiveViewSnapshotDTO snapshot = liveViewService.getSnapshot(examId);
+        snapshot.setAlerts(alertService.getUnreviewedAlertsByExam(examId));
+        return ResponseEntity.ok(snapshot);
+    }
+    
     /* ---------------------------------------------------
      * Helper: Lấy userId từ Authentication
      * @param auth Authentication object
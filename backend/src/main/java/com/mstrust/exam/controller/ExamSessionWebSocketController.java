@@ -2,11 +2,11 @@ package com.mstrust.exam.controller;
 
 import com.mstrust.exam.dto.websocket.ConnectionStatusMessage;
 import com.mstrust.exam.dto.websocket.StudentProgressMessage;
-import com.mstrust.exam.entity.ExamSubmission;
-import com.mstrust.exam.entity.User;
+import com.mstrust.exam.entity.SubmissionStatus;
 import com.mstrust.exam.repository.ExamSubmissionRepository;
-import com.mstrust.exam.repository.StudentAnswerRepository;
-import com.mstrust.exam.repository.UserRepository;
+import com.mstrust.exam.security.PrincipalCache;
+import com.mstrust.exam.security.PrincipalCache.CachedPrincipal;
+import com.mstrust.exam.service.LiveViewService;
 import com.mstrust.exam.service.WebSocketEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,7 +18,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.List;
 
 /* ---------------------------------------------------
  * WebSocket Controller xử lý exam session events
@@ -26,6 +26,9 @@ import java.util.Optional;
  * - Progress updates real-time
  * - Connection monitoring
  * @author: K24DTCN210-NVMANH (21/11/2025 01:49)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 16:40) - Lấy thông tin student từ PrincipalCache, không query bảng users
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 17:30) - Báo trạng thái kết nối cho LiveViewService
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 18:10) - Progress lấy bằng 1 query aggregate (đếm cả answerJson)
  * --------------------------------------------------- */
 @Controller
 @RequiredArgsConstructor
@@ -34,8 +37,8 @@ public class ExamSessionWebSocketController {
     
     private final WebSocketEventService webSocketEventService;
     private final ExamSubmissionRepository examSubmissionRepository;
-    private final StudentAnswerRepository studentAnswerRepository;
-    private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final LiveViewService liveViewService;
     
     /* ---------------------------------------------------
      * Xử lý khi student join exam session
@@ -55,19 +58,18 @@ public class ExamSessionWebSocketController {
             Authentication authentication) {
         
         try {
-            String email = authentication.getName();
-            User student = userRepository.findByEmail(email)
+            CachedPrincipal student = principalCache.resolve(authentication)
                     .orElseThrow(() -> new RuntimeException("User not found"));
             
             String sessionId = headerAccessor.getSessionId();
             
             log.info("Student {} joined exam {} with session {}", 
-                student.getId(), examId, sessionId);
+                student.getUserId(), examId, sessionId);
             
             // Gửi connection status message
             ConnectionStatusMessage message = ConnectionStatusMessage.builder()
                     .examId(examId)
-                    .studentId(student.getId())
+                    .studentId(student.getUserId())
                     .studentName(student.getFullName())
                     .studentEmail(student.getEmail())
                     .status("CONNECTED")
@@ -76,6 +78,7 @@ public class ExamSessionWebSocketController {
                     .build();
             
             webSocketEventService.sendConnectionStatus(message);
+            liveViewService.onStudentJoined(examId, submissionId, sessionId);
             
             // Gửi initial progress update
             sendProgressUpdate(examId, submissionId, student);
@@ -101,8 +104,7 @@ public class ExamSessionWebSocketController {
             Authentication authentication) {
         
         try {
-            String email = authentication.getName();
-            User student = userRepository.findByEmail(email)
+            CachedPrincipal student = principalCache.resolve(authentication)
                     .orElseThrow(() -> new RuntimeException("User not found"));
             
             sendProgressUpdate(examId, submissionId, student);
@@ -128,18 +130,17 @@ public class ExamSessionWebSocketController {
             Authentication authentication) {
         
         try {
-            String email = authentication.getName();
-            User student = userRepository.findByEmail(email)
+            CachedPrincipal student = principalCache.resolve(authentication)
                     .orElseThrow(() -> new RuntimeException("User not found"));
             
             String sessionId = headerAccessor.getSessionId();
             
             log.info("Student {} left exam {} with session {}", 
-                student.getId(), examId, sessionId);
+                student.getUserId(), examId, sessionId);
             
             ConnectionStatusMessage message = ConnectionStatusMessage.builder()
                     .examId(examId)
-                    .studentId(student.getId())
+                    .studentId(student.getUserId())
                     .studentName(student.getFullName())
                     .studentEmail(student.getEmail())
                     .status("DISCONNECTED")
@@ -148,6 +149,7 @@ public class ExamSessionWebSocketController {
                     .build();
             
             webSocketEventService.sendConnectionStatus(message);
+            liveViewService.onStudentLeft(sessionId);
             
         } catch (Exception e) {
             log.error("Error handling student leave for exam {}: {}", examId, e.getMessage());
@@ -158,19 +160,19 @@ public class ExamSessionWebSocketController {
      * Helper method để gửi progress update message
      * @param examId ID của bài thi
      * @param submissionId ID của submission
-     * @param student User entity của student
+     * @param student Thông tin student đã cache
      * @author: K24DTCN210-NVMANH (21/11/2025 01:49)
      * --------------------------------------------------- */
-    private void sendProgressUpdate(Long examId, Long submissionId, User student) {
-        Optional<ExamSubmission> submissionOpt = examSubmissionRepository.findById(submissionId);
+    private void sendProgressUpdate(Long examId, Long submissionId, CachedPrincipal student) {
+        // [status, totalQuestions, answeredQuestions] trong 1 query, không load submission/exam
+        List<Object[]> rows = examSubmissionRepository.findProgressRow(submissionId);
         
-        if (submissionOpt.isPresent()) {
-            ExamSubmission submission = submissionOpt.get();
+        if (!rows.isEmpty()) {
+            Object[] row = rows.get(0);
             
-            // Đếm số câu đã trả lời
-            int totalQuestions = submission.getExam().getExamQuestions().size();
-            long answeredQuestions = studentAnswerRepository
-                    .countBySubmissionIdAndAnswerTextIsNotNull(submissionId);
+            // Đếm số câu đã trả lời (mọi loại câu hỏi)
+            int totalQuestions = ((Number) row[1]).intValue();
+            long answeredQuestions = ((Number) row[2]).longValue();
             
             double completionPercentage = totalQuestions > 0 
                     ? (answeredQuestions * 100.0 / totalQuestions) 
@@ -179,13 +181,13 @@ public class ExamSessionWebSocketController {
             StudentProgressMessage message = StudentProgressMessage.builder()
                     .submissionId(submissionId)
                     .examId(examId)
-                    .studentId(student.getId())
+                    .studentId(student.getUserId())
                     .studentName(student.getFullName())
                     .studentEmail(student.getEmail())
                     .totalQuestions(totalQuestions)
                     .answeredQuestions((int) answeredQuestions)
                     .completionPercentage(completionPercentage)
-                    .status(submission.getStatus().name())
+                    .status(((SubmissionStatus) row[0]).name())
                     .lastUpdateTime(LocalDateTime.now())
                     .build();
             
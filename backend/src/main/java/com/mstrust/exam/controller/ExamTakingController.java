@@ -4,8 +4,10 @@ import com.mstrust.exam.dto.*;
 import com.mstrust.exam.dto.grading.StudentResultDTO;
 import com.mstrust.exam.entity.User;
 import com.mstrust.exam.repository.UserRepository;
+import com.mstrust.exam.service.AnswerWriteBehindService;
 import com.mstrust.exam.service.ExamTakingService;
 import com.mstrust.exam.service.GradingService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -31,6 +33,7 @@ public class ExamTakingController {
     
     private final ExamTakingService examTakingService;
     private final GradingService gradingService;
+    private final AnswerWriteBehindService answerWriteBehindService;
     private final UserRepository userRepository;
     
     /* ---------------------------------------------------
@@ -123,6 +126,7 @@ public class ExamTakingController {
      * @param request SubmitAnswerRequest
      * @returns Map với success message
      * @author: K24DTCN210-NVMANH (19/11/2025 15:32)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 09:45) - Dùng write-behind buffer khi được bật
      * --------------------------------------------------- */
     @PostMapping("/save-answer/{submissionId}")
     @PreAuthorize("hasRole('STUDENT')")
@@ -137,7 +141,9 @@ public class ExamTakingController {
             Long studentId = getCurrentUserId(auth);
             log.info("[Controller] Student ID: {}", studentId);
             
-            Map<String, Object> result = examTakingService.saveAnswer(submissionId, request, studentId);
+            Map<String, Object> result = answerWriteBehindService.isEnabled()
+                ? answerWriteBehindService.saveAnswer(submissionId, request, studentId)
+                : examTakingService.saveAnswer(submissionId, request, studentId);
             
             log.info("[Controller] saveAnswer SUCCESS - result: {}", result);
             return ResponseEntity.ok(result);
@@ -148,6 +154,29 @@ public class ExamTakingController {
         }
     }
     
+    /* ---------------------------------------------------
+     * POST /exam-taking/save-answers/{submissionId}
+     * Lưu nhiều câu trả lời trong 1 request (flush hàng đợi autosave / replay khi có mạng lại)
+     * @param submissionId ID của submission
+     * @param request SaveAnswersBatchRequest
+     * @returns SaveAnswersBatchResponse với kết quả từng câu
+     * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+     * --------------------------------------------------- */
+    @PostMapping("/save-answers/{submissionId}")
+    @PreAuthorize("hasRole('STUDENT')")
+    public ResponseEntity<SaveAnswersBatchResponse> saveAnswersBatch(
+            @PathVariable Long submissionId,
+            @Valid @RequestBody SaveAnswersBatchRequest request,
+            Authentication auth) {
+        Long studentId = getCurrentUserId(auth);
+        SaveAnswersBatchResponse result = answerWriteBehindService.isEnabled()
+            ? answerWriteBehindService.saveAnswersBatch(submissionId, request.getAnswers(), studentId)
+            : examTakingService.saveAnswersBatch(submissionId, request.getAnswers(), studentId);
+        log.info("[Controller] saveAnswersBatch - submissionId: {}, saved: {}, failed: {}",
+            submissionId, result.getSavedCount(), result.getFailedCount());
+        return ResponseEntity.ok(result);
+    }
+    
     /* ---------------------------------------------------
      * POST /exam-taking/submit/{submissionId}
      * Submit bài thi (final submission)
@@ -6,7 +6,12 @@ import com.mstrust.exam.entity.StudentAnswer;
 import com.mstrust.exam.entity.SubmissionStatus;
 import com.mstrust.exam.entity.User;
 import com.mstrust.exam.repository.UserRepository;
+import com.mstrust.exam.exception.BadRequestException;
+import com.mstrust.exam.service.ExamAnalyticsService;
+import com.mstrust.exam.service.ExamResultExportService;
 import com.mstrust.exam.service.GradingService;
+import com.mstrust.exam.service.RegradeService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,6 +22,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -24,6 +30,9 @@ import java.util.Map;
  * Controller xử lý các API chấm điểm bài thi
  * Endpoints: /api/grading/**
  * @author: K24DTCN210-NVMANH (21/11/2025 14:28)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 12:40) - Thêm API chấm lại toàn bộ đề thi
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 18:40) - Thêm API xuất kết quả đề thi (CSV/NDJSON)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 19:10) - Thêm API thống kê đề thi (phân bố điểm + item analysis)
  * --------------------------------------------------- */
 @RestController
 @RequestMapping("/grading")
@@ -32,6 +41,9 @@ import java.util.Map;
 public class GradingController {
     
     private final GradingService gradingService;
+    private final RegradeService regradeService;
+    private final ExamResultExportService examResultExportService;
+    private final ExamAnalyticsService examAnalyticsService;
     private final UserRepository userRepository;
     
     /* ---------------------------------------------------
@@ -157,6 +169,92 @@ public class GradingController {
         return ResponseEntity.ok(stats);
     }
     
+    /* ---------------------------------------------------
+     * Thống kê đề thi: phân bố điểm, difficulty / discrimination index và tần suất
+     * chọn đáp án từng câu (đọc từ bảng tổng hợp)
+     * GET /api/grading/exams/{examId}/analytics
+     * @param examId ID của đề thi
+     * @returns ExamAnalyticsDTO
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+     * --------------------------------------------------- */
+    @GetMapping("/exams/{examId}/analytics")
+    @PreAuthorize("hasAnyRole('TEACHER', 'ADMIN')")
+    public ResponseEntity<ExamAnalyticsDTO> getExamAnalytics(
+            @PathVariable Long examId,
+            Authentication auth) {
+        Long teacherId = getCurrentUserId(auth);
+        return ResponseEntity.ok(examAnalyticsService.getAnalytics(examId, teacherId));
+    }
+    
+    /* ---------------------------------------------------
+     * Chấm lại toàn bộ bài nộp của đề thi (sau khi sửa đáp án/điểm câu hỏi)
+     * Job chạy nền, trả về 202 kèm tiến độ ban đầu
+     * POST /api/grading/exams/{examId}/regrade
+     * @param examId ID của đề thi
+     * @returns RegradeProgressDTO
+     * @author: K24DTCN210-NVMANH (17/10/2026 12:40)
+     * --------------------------------------------------- */
+    @PostMapping("/exams/{examId}/regrade")
+    @PreAuthorize("hasAnyRole('TEACHER', 'ADMIN')")
+    public ResponseEntity<RegradeProgressDTO> startRegrade(
+            @PathVariable Long examId,
+            Authentication auth) {
+        Long teacherId = getCurrentUserId(auth);
+        log.info("POST /api/grading/exams/{}/regrade - teacherId: {}", examId, teacherId);
+        
+        RegradeProgressDTO progress = regradeService.startRegrade(examId, teacherId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(progress);
+    }
+    
+    /* ---------------------------------------------------
+     * Lấy tiến độ job chấm lại của đề thi
+     * GET /api/grading/exams/{examId}/regrade
+     * @param examId ID của đề thi
+     * @returns RegradeProgressDTO
+     * @author: K24DTCN210-NVMANH (17/10/2026 12:40)
+     * --------------------------------------------------- */
+    @GetMapping("/exams/{examId}/regrade")
+    @PreAuthorize("hasAnyRole('TEACHER', 'ADMIN')")
+    public ResponseEntity<RegradeProgressDTO> getRegradeProgress(
+            @PathVariable Long examId,
+            Authentication auth) {
+        Long teacherId = getCurrentUserId(auth);
+        return ResponseEntity.ok(regradeService.getProgress(examId, teacherId));
+    }
+    
+    /* ---------------------------------------------------
+     * Xuất kết quả toàn bộ bài nộp của đề thi, ghi thẳng ra response theo từng chunk
+     * GET /api/grading/exams/{examId}/export?format=csv|ndjson
+     * @param examId ID của đề thi
+     * @param format csv (mặc định, có BOM cho Excel) hoặc ndjson (kèm chi tiết từng câu)
+     * @author: K24DTCN210-NVMANH (17/10/2026 18:40)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 16:55) - ADMIN export được đề của mọi lớp
+     * --------------------------------------------------- */
+    @GetMapping("/exams/{examId}/export")
+    @PreAuthorize("hasAnyRole('TEACHER', 'ADMIN')")
+    public void exportResults(
+            @PathVariable Long examId,
+            @RequestParam(defaultValue = "csv") String format,
+            Authentication auth,
+            HttpServletResponse response) throws IOException {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        if (!ndjson && !"csv".equalsIgnoreCase(format)) {
+            throw new BadRequestException("Unsupported export format: " + format);
+        }
+        Long teacherId = getCurrentUserId(auth);
+        log.info("GET /api/grading/exams/{}/export - teacherId: {}, format: {}", examId, teacherId, format);
+
+        // Kiểm tra quyền trước khi ghi header để lỗi vẫn trả về JSON bình thường
+        boolean admin = auth.getAuthorities().stream()
+            .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        ExamResultExportService.ExportPlan plan = examResultExportService.prepare(examId, teacherId, admin);
+        response.setContentType(ndjson ? "application/x-ndjson" : "text/csv");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition",
+            "attachment; filename=\"exam-" + examId + "-results." + (ndjson ? "ndjson" : "csv") + "\"");
+        examResultExportService.write(plan, ndjson, response.getOutputStream());
+    }
+    
     /* ---------------------------------------------------
      * Lấy ID của user hiện tại từ Authentication
      * JWT token có sub field chứa email, auth.getName() trả về email
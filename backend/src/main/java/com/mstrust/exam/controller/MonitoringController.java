@@ -14,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.Map;
 
 /* ---------------------------------------------------
  * Controller xử lý monitoring APIs cho student client
@@ -39,6 +40,9 @@ public class MonitoringController {
      * @param metadata Metadata khác (JSON)
      * @returns ScreenshotDTO
      * @author: K24DTCN210-NVMANH (21/11/2025 10:15)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 09:30) - Part được container ghi thẳng ra đĩa
+     *   (spring.servlet.multipart.file-size-threshold = 0) và chuyển nguyên file cho pipeline,
+     *   không đọc nội dung ảnh vào heap
      * --------------------------------------------------- */
     @PostMapping("/screenshots")
     @PreAuthorize("hasRole('STUDENT')")
@@ -76,20 +80,21 @@ public class MonitoringController {
     /* ---------------------------------------------------
      * Ghi log activities từ student client (batch)
      * @param request ActivityLogRequest
-     * @returns Danh sách ActivityLogDTO đã lưu
+     * @returns 202 Accepted + số activity đã nhận (ghi DB bất đồng bộ),
+     *          429 + Retry-After nếu hàng đợi đầy
      * @author: K24DTCN210-NVMANH (21/11/2025 10:15)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 14:10) - Trả 202 sau khi đưa vào hàng đợi ingestion
      * --------------------------------------------------- */
     @PostMapping("/activities")
     @PreAuthorize("hasRole('STUDENT')")
-    public ResponseEntity<List<ActivityLogDTO>> logActivities(
+    public ResponseEntity<Map<String, Object>> logActivities(
         @Valid @RequestBody ActivityLogRequest request
     ) {
-        log.info("Log activities request for submission: {} (count: {})", 
-            request.getSubmissionId(), request.getActivities().size());
+        int accepted = activityLogService.logActivities(request);
         
-        List<ActivityLogDTO> result = activityLogService.logActivities(request);
+        log.debug("Accepted {} activities for submission {}", accepted, request.getSubmissionId());
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(result);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("accepted", accepted));
     }
     
     /* ---------------------------------------------------
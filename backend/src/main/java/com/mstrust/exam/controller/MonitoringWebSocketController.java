@@ -1,10 +1,6 @@
 package com.mstrust.exam.controller;
 
-import com.mstrust.exam.dto.websocket.ExamTimerSyncMessage;
-import com.mstrust.exam.entity.Exam;
-import com.mstrust.exam.entity.ExamSubmission;
-import com.mstrust.exam.repository.ExamRepository;
-import com.mstrust.exam.repository.ExamSubmissionRepository;
+import com.mstrust.exam.service.ExamTimerSyncService;
 import com.mstrust.exam.service.WebSocketEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,16 +10,13 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.util.List;
-
 /* ---------------------------------------------------
  * WebSocket Controller cho monitoring và real-time updates
  * - Timer sync cho exams
  * - Teacher monitoring dashboard
  * - System alerts
  * @author: K24DTCN210-NVMANH (21/11/2025 01:51)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 15:10) - Timer sync qua ExamTimerSyncService (1 tick/exam)
  * --------------------------------------------------- */
 @Controller
 @RequiredArgsConstructor
@@ -31,68 +24,19 @@ import java.util.List;
 public class MonitoringWebSocketController {
     
     private final WebSocketEventService webSocketEventService;
-    private final ExamRepository examRepository;
-    private final ExamSubmissionRepository examSubmissionRepository;
+    private final ExamTimerSyncService examTimerSyncService;
     
     /* ---------------------------------------------------
      * Scheduled task gửi timer sync mỗi 5 giây cho active exams
      * Tự động chạy background để đồng bộ timer
      * @author: K24DTCN210-NVMANH (21/11/2025 01:51)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 15:10) - 1 message/exam từ lịch deadline in-memory,
+     *         deadline riêng chỉ gửi tới từng student khi thay đổi
      * --------------------------------------------------- */
-    @Scheduled(fixedRate = 500000) // Chạy mỗi 5 giây
+    @Scheduled(fixedRateString = "${exam.timer-sync.tick-interval-ms:5000}")
     public void syncExamTimers() {
         try {
-            // Lấy tất cả active submissions với eager fetch exam
-            List<ExamSubmission> activeSubmissions = examSubmissionRepository
-                    .findByStatus(com.mstrust.exam.entity.SubmissionStatus.IN_PROGRESS);
-            
-            for (ExamSubmission submission : activeSubmissions) {
-                // Safely get exam - skip if exam not loaded
-                if (submission.getExam() == null) {
-                    continue;
-                }
-                Exam exam = examRepository.findById(submission.getExam().getId())
-                        .orElse(null);
-                if (exam == null) {
-                    continue;
-                }
-                LocalDateTime now = LocalDateTime.now();
-                
-                // Convert Timestamp to LocalDateTime
-                LocalDateTime startTime = submission.getStartedAt() != null 
-                    ? submission.getStartedAt().toLocalDateTime() 
-                    : now;
-                
-                // Tính endTime dựa trên startTime + duration
-                LocalDateTime endTime = null;
-                long remainingSeconds = 0;
-                String status = "ACTIVE";
-                
-                if (exam.getDurationMinutes() != null && exam.getDurationMinutes() > 0) {
-                    endTime = startTime.plusMinutes(exam.getDurationMinutes());
-                    
-                    if (now.isAfter(endTime)) {
-                        status = "ENDED";
-                        remainingSeconds = 0;
-                    } else {
-                        Duration duration = Duration.between(now, endTime);
-                        remainingSeconds = duration.getSeconds();
-                    }
-                }
-                
-                // Gửi timer sync message
-                ExamTimerSyncMessage message = ExamTimerSyncMessage.builder()
-                        .examId(exam.getId())
-                        .startTime(startTime)
-                        .endTime(endTime)
-                        .remainingSeconds(remainingSeconds)
-                        .status(status)
-                        .timestamp(now)
-                        .build();
-                
-                webSocketEventService.sendTimerSync(message);
-            }
-            
+            examTimerSyncService.broadcastTicks();
         } catch (Exception e) {
             log.error("Error syncing exam timers: {}", e.getMessage());
         }
@@ -103,58 +47,13 @@ public class MonitoringWebSocketController {
      * Client gửi message tới: /app/monitoring/exam/{examId}/sync-timer
      * @param examId ID của bài thi cần sync
      * @author: K24DTCN210-NVMANH (21/11/2025 01:51)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 15:10) - Gửi tick + deadline riêng cho mọi student của exam
      * --------------------------------------------------- */
     @MessageMapping("/monitoring/exam/{examId}/sync-timer")
     @PreAuthorize("hasAnyRole('TEACHER', 'DEPT_MANAGER', 'ADMIN')")
     public void forceSyncTimer(@DestinationVariable Long examId) {
         try {
-            // Lấy tất cả submissions của exam này
-            List<ExamSubmission> submissions = examSubmissionRepository
-                    .findByExamIdAndStatus(examId, 
-                        com.mstrust.exam.entity.SubmissionStatus.IN_PROGRESS);
-            
-            if (!submissions.isEmpty()) {
-                ExamSubmission submission = submissions.get(0);
-                // Fetch exam explicitly to avoid lazy loading
-                Exam exam = examRepository.findById(examId)
-                        .orElseThrow(() -> new RuntimeException("Exam not found"));
-                LocalDateTime now = LocalDateTime.now();
-                
-                // Convert Timestamp to LocalDateTime
-                LocalDateTime startTime = submission.getStartedAt() != null 
-                    ? submission.getStartedAt().toLocalDateTime() 
-                    : now;
-                
-                // Tính endTime dựa trên startTime + duration
-                LocalDateTime endTime = null;
-                long remainingSeconds = 0;
-                String status = "ACTIVE";
-                
-                if (exam.getDurationMinutes() != null && exam.getDurationMinutes() > 0) {
-                    endTime = startTime.plusMinutes(exam.getDurationMinutes());
-                    
-                    if (now.isAfter(endTime)) {
-                        status = "ENDED";
-                        remainingSeconds = 0;
-                    } else {
-                        Duration duration = Duration.between(now, endTime);
-                        remainingSeconds = duration.getSeconds();
-                    }
-                }
-                
-                ExamTimerSyncMessage message = ExamTimerSyncMessage.builder()
-                        .examId(exam.getId())
-                        .startTime(startTime)
-                        .endTime(endTime)
-                        .remainingSeconds(remainingSeconds)
-                        .status(status)
-                        .timestamp(now)
-                        .build();
-                
-                webSocketEventService.sendTimerSync(message);
-                // log.info("Force synced timer for exam {}", examId);
-            }
-            
+            examTimerSyncService.forceSync(examId);
         } catch (Exception e) {
             log.error("Error force syncing timer for exam {}: {}", examId, e.getMessage());
         }
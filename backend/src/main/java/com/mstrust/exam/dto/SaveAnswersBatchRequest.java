@@ -0,0 +1,28 @@
+package com.mstrust.exam.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/* ---------------------------------------------------
+ * Request DTO để save nhiều câu trả lời của cùng một submission trong 1 request
+ * (client flush hàng đợi autosave / replay sau khi mất kết nối)
+ * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+ * --------------------------------------------------- */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaveAnswersBatchRequest {
+
+    @NotEmpty(message = "Danh sách câu trả lời không được để trống")
+    @Size(max = 200, message = "Tối đa 200 câu trả lời mỗi lần save")
+    @Valid
+    private List<SubmitAnswerRequest> answers;
+}
@@ -0,0 +1,37 @@
+package com.mstrust.exam.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/* ---------------------------------------------------
+ * Kết quả save batch - mỗi câu trả lời có kết quả riêng
+ * để client chỉ requeue những câu bị lỗi
+ * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+ * --------------------------------------------------- */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaveAnswersBatchResponse {
+    private int savedCount;
+    private int failedCount;
+    private boolean buffered;
+    private List<ItemResult> results;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        private Long questionId;
+        private boolean success;
+        private String message;
+        private Boolean isGraded;
+        private BigDecimal pointsEarned;
+    }
+}
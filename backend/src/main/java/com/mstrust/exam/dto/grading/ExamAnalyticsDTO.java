@@ -0,0 +1,71 @@
+package com.mstrust.exam.dto.grading;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/* ---------------------------------------------------
+ * Thống kê đề thi: phân bố điểm + item analysis từng câu
+ * Các chỉ số tính trên bài đã nộp / đã chấm (SUBMITTED, GRADED)
+ * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+ * --------------------------------------------------- */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamAnalyticsDTO {
+    private Long examId;
+
+    /* Tổng số bài (mọi trạng thái) / đã nộp hoặc đã chấm / đã chấm xong */
+    private Long totalSubmissions;
+    private Long completedCount;
+    private Long gradedCount;
+
+    private Double averageScore;
+    private Double minScore;
+    private Double maxScore;
+    private Double stddevScore;
+    private Long passedCount;
+    private Double passRate;
+    private Double passingScore;
+    private Double examTotalScore;
+
+    /* Số bài theo 10 khoảng % điểm: [0-10), [10-20)... [90-100] */
+    private List<Long> histogram;
+
+    private List<QuestionStats> questions;
+
+    /* Thời điểm tính gần nhất; stale = có bài nộp / chấm mới chưa được tính lại */
+    private LocalDateTime refreshedAt;
+    private Boolean stale;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class QuestionStats {
+        private Long questionId;
+        private Integer questionOrder;
+        private String questionType;
+        private Double maxPoints;
+
+        private Long attempts;
+        private Long answeredCount;
+        private Long correctCount;
+        private Double averagePoints;
+
+        /* 0..1, càng cao càng dễ */
+        private Double difficultyIndex;
+
+        /* -1..1, null nếu chưa đủ 2 bài */
+        private Double discriminationIndex;
+
+        /* Key -> số lần chọn (chỉ câu lựa chọn) */
+        private Map<String, Long> optionCounts;
+    }
+}
@@ -0,0 +1,53 @@
+package com.mstrust.exam.dto.grading;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/* ---------------------------------------------------
+ * Tiến độ job chấm lại (re-grade) toàn bộ bài nộp của một đề thi
+ * @author: K24DTCN210-NVMANH (17/10/2026 12:40)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 16:20) - Thêm answersSkipped
+ * --------------------------------------------------- */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegradeProgressDTO {
+    /* ID của đề thi */
+    private Long examId;
+
+    /* RUNNING, COMPLETED, FAILED */
+    private String status;
+
+    /* Tổng số bài nộp cần chấm lại */
+    private Long totalSubmissions;
+
+    /* Số bài nộp đã xử lý */
+    private Long processedSubmissions;
+
+    /* Số câu trả lời chấm tự động đã kiểm tra */
+    private Long answersChecked;
+
+    /* Số câu trả lời có kết quả thay đổi */
+    private Long answersChanged;
+
+    /* Số câu đã được giáo viên chấm tay nên không chấm lại */
+    private Long answersSkipped;
+
+    /* Số bài nộp đã tính lại tổng điểm/passed */
+    private Long scoresRecomputed;
+
+    /* Phần trăm hoàn thành */
+    private Double percentage;
+
+    /* Thời điểm bắt đầu / kết thúc */
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    /* Lỗi (nếu FAILED) */
+    private String error;
+}
@@ -0,0 +1,26 @@
+package com.mstrust.exam.dto.monitoring;
+
+import com.mstrust.exam.dto.websocket.LiveSessionRow;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/* ---------------------------------------------------
+ * DTO trả về trạng thái đầy đủ của live view 1 exam
+ * Client lấy snapshot 1 lần rồi áp các delta có seq lớn hơn từ /topic/exam/{examId}/live
+ * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+ * --------------------------------------------------- */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveViewSnapshotDTO {
+
+    private Long examId;
+    private Long epoch;
+    private Long seq;
+    private List<LiveSessionRow> rows;
+    private List<AlertDTO> alerts;
+    private LocalDateTime timestamp;
+}
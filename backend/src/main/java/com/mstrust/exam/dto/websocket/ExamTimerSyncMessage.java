@@ -1,5 +1,6 @@
 package com.mstrust.exam.dto.websocket;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -11,9 +12,14 @@ import java.time.LocalDateTime;
  * DTO cho WebSocket message đồng bộ timer bài thi
  * - Gửi từ server tới clients qua topic /topic/exam/{examId}/timer
  * - Cập nhật thời gian còn lại của bài thi real-time
+ * - Tick theo exam: không có submissionId, endTime là thời điểm đóng đề
+ * - Deadline riêng gửi qua /user/queue/timer (theo principal name): có submissionId, endTime là
+ *   thời điểm phải nộp của submission đó
  * @author: K24DTCN210-NVMANH (21/11/2025 01:47)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 15:10) - Thêm submissionId, activeSubmissions; bỏ field null
  * --------------------------------------------------- */
 @Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,6 +28,9 @@ public class ExamTimerSyncMessage {
     /* ID của bài thi */
     private Long examId;
     
+    /* ID của submission (chỉ có ở message deadline riêng) */
+    private Long submissionId;
+    
     /* Thời gian bắt đầu bài thi */
     private LocalDateTime startTime;
     
@@ -31,9 +40,12 @@ public class ExamTimerSyncMessage {
     /* Thời gian còn lại (seconds) */
     private Long remainingSeconds;
     
-    /* Trạng thái: ACTIVE, PAUSED, ENDED */
+    /* Trạng thái: ACTIVE, PAUSED, ENDED, EXPIRED (server đã tự động nộp bài) */
     private String status;
     
+    /* Số submission đang làm bài (chỉ có ở tick theo exam) */
+    private Integer activeSubmissions;
+    
     /* Timestamp khi gửi message */
     private LocalDateTime timestamp;
 }
@@ -0,0 +1,53 @@
+package com.mstrust.exam.dto.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/* ---------------------------------------------------
+ * 1 dòng trong live view của teacher (1 submission)
+ * - Gửi nguyên dòng mỗi khi có field thay đổi (tiến độ, inactive, alert, kết nối, trạng thái)
+ * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+ * --------------------------------------------------- */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveSessionRow {
+
+    /* ID của submission */
+    private Long submissionId;
+
+    /* ID của sinh viên */
+    private Long studentId;
+
+    /* Tên sinh viên */
+    private String studentName;
+
+    /* Mã sinh viên */
+    private String studentCode;
+
+    /* Trạng thái: IN_PROGRESS, PAUSED, SUBMITTED */
+    private String status;
+
+    /* Tổng số câu hỏi */
+    private Integer totalQuestions;
+
+    /* Số câu đã trả lời */
+    private Integer answeredQuestions;
+
+    /* Lần lưu bài gần nhất */
+    private LocalDateTime lastActivity;
+
+    /* Không hoạt động quá 10 phút */
+    private Boolean inactive;
+
+    /* Đang có kết nối WebSocket tới exam (đã join, chưa leave/disconnect) */
+    private Boolean connected;
+
+    /* Số alert chưa review */
+    private Integer unreviewedAlerts;
+}
@@ -0,0 +1,47 @@
+package com.mstrust.exam.dto.websocket;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mstrust.exam.dto.monitoring.AlertDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/* ---------------------------------------------------
+ * DTO cho WebSocket message cập nhật live view của teacher
+ * - Gửi từ server tới teacher qua topic /topic/exam/{examId}/live
+ * - Chỉ chứa các dòng thay đổi kể từ message trước + alert mới / alert đã review
+ * - seq tăng dần theo exam: client bỏ qua message có seq <= seq của snapshot đang giữ
+ * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+ * --------------------------------------------------- */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class LiveViewDeltaMessage {
+
+    /* ID của bài thi */
+    private Long examId;
+
+    /* Lần nạp trạng thái exam trên server; seq chỉ so sánh được trong cùng epoch */
+    private Long epoch;
+
+    /* Số thứ tự message của exam */
+    private Long seq;
+
+    /* Các dòng đã thay đổi (nguyên dòng) */
+    private List<LiveSessionRow> rows;
+
+    /* Alert mới tạo */
+    private List<AlertDTO> newAlerts;
+
+    /* ID các alert vừa được review */
+    private List<Long> reviewedAlertIds;
+
+    /* Timestamp khi gửi message */
+    private LocalDateTime timestamp;
+}
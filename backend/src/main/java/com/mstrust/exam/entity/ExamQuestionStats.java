@@ -0,0 +1,70 @@
+package com.mstrust.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/* ---------------------------------------------------
+ * Bảng tổng hợp phân tích câu hỏi (item analysis) của 1 đề thi, 1 dòng / câu trong đề
+ * - difficulty_index: điểm trung bình / điểm tối đa của câu trên các bài completed
+ *   (câu trắc nghiệm = tỉ lệ làm đúng)
+ * - discrimination_index: (điểm nhóm 27% cao nhất - điểm nhóm 27% thấp nhất) / (cỡ nhóm * điểm câu)
+ * - option_counts_json: số lần chọn từng key (câu MULTIPLE_CHOICE, TRUE_FALSE, MULTIPLE_SELECT)
+ * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+ * --------------------------------------------------- */
+@Entity
+@Table(name = "exam_question_stats",
+    uniqueConstraints = @UniqueConstraint(name = "uk_exam_question_stats", columnNames = {"exam_id", "question_id"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExamQuestionStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "exam_id", nullable = false)
+    private Long examId;
+
+    @Column(name = "question_id", nullable = false)
+    private Long questionId;
+
+    @Column(name = "question_order", nullable = false)
+    private Integer questionOrder;
+
+    @Column(name = "question_type", length = 50)
+    private String questionType;
+
+    @Column(name = "max_points", precision = 5, scale = 2)
+    private BigDecimal maxPoints;
+
+    /* Số bài completed tính thống kê (câu bỏ trống tính 0 điểm) */
+    @Column(name = "attempts", nullable = false)
+    private Long attempts;
+
+    @Column(name = "answered_count", nullable = false)
+    private Long answeredCount;
+
+    @Column(name = "correct_count", nullable = false)
+    private Long correctCount;
+
+    @Column(name = "average_points", precision = 7, scale = 3)
+    private BigDecimal averagePoints;
+
+    @Column(name = "difficulty_index", precision = 5, scale = 4)
+    private BigDecimal difficultyIndex;
+
+    @Column(name = "discrimination_index", precision = 5, scale = 4)
+    private BigDecimal discriminationIndex;
+
+    @Column(name = "option_counts_json", columnDefinition = "TEXT")
+    private String optionCountsJson;
+
+    @Column(name = "refreshed_at", nullable = false)
+    private LocalDateTime refreshedAt;
+}
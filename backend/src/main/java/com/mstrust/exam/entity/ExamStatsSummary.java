@@ -0,0 +1,78 @@
+package com.mstrust.exam.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/* ---------------------------------------------------
+ * Bảng tổng hợp thống kê điểm của 1 đề thi (1 dòng / exam)
+ * Do ExamAnalyticsService tính bằng SQL aggregate và ghi lại sau khi nộp bài / chấm xong,
+ * API thống kê chỉ đọc bảng này thay vì load toàn bộ bài nộp
+ * - completed: bài đã nộp hoặc đã chấm (SUBMITTED, GRADED) có total_score
+ * - graded_*: chỉ bài GRADED (giữ nguyên ý nghĩa của GradingService.getGradingStats)
+ * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+ * --------------------------------------------------- */
+@Entity
+@Table(name = "exam_stats_summary")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExamStatsSummary {
+
+    @Id
+    @Column(name = "exam_id")
+    private Long examId;
+
+    @Column(name = "total_submissions", nullable = false)
+    private Long totalSubmissions;
+
+    @Column(name = "completed_count", nullable = false)
+    private Long completedCount;
+
+    @Column(name = "graded_count", nullable = false)
+    private Long gradedCount;
+
+    @Column(name = "average_score", precision = 7, scale = 2)
+    private BigDecimal averageScore;
+
+    @Column(name = "min_score", precision = 7, scale = 2)
+    private BigDecimal minScore;
+
+    @Column(name = "max_score", precision = 7, scale = 2)
+    private BigDecimal maxScore;
+
+    @Column(name = "stddev_score", precision = 7, scale = 3)
+    private BigDecimal stddevScore;
+
+    @Column(name = "passed_count", nullable = false)
+    private Long passedCount;
+
+    @Column(name = "graded_average_score", precision = 7, scale = 2)
+    private BigDecimal gradedAverageScore;
+
+    @Column(name = "graded_min_score", precision = 7, scale = 2)
+    private BigDecimal gradedMinScore;
+
+    @Column(name = "graded_max_score", precision = 7, scale = 2)
+    private BigDecimal gradedMaxScore;
+
+    @Column(name = "graded_passed_count", nullable = false)
+    private Long gradedPassedCount;
+
+    @Column(name = "passing_score", precision = 5, scale = 2)
+    private BigDecimal passingScore;
+
+    @Column(name = "exam_total_score", precision = 5, scale = 2)
+    private BigDecimal examTotalScore;
+
+    /* Số bài completed theo 10 khoảng % điểm [0-10), [10-20)... [90-100], dạng JSON array */
+    @Column(name = "histogram_json", columnDefinition = "TEXT")
+    private String histogramJson;
+
+    @Column(name = "refreshed_at", nullable = false)
+    private LocalDateTime refreshedAt;
+}
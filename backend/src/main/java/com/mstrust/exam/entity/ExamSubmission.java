@@ -83,11 +83,13 @@ public class ExamSubmission {
 
     /* ---------------------------------------------------
      * Auto-save Tracking
+     * Chỉ SubmissionActivityTracker ghi 2 cột này (bulk UPDATE), JPA không update
+     * để tránh ghi đè bằng snapshot cũ và không bump version
      * --------------------------------------------------- */
-    @Column(name = "last_saved_at")
+    @Column(name = "last_saved_at", updatable = false)
     private Timestamp lastSavedAt;
 
-    @Column(name = "auto_save_count")
+    @Column(name = "auto_save_count", updatable = false)
     private Integer autoSaveCount = 0;
 
     /* ---------------------------------------------------
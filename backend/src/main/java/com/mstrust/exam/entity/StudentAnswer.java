@@ -10,6 +10,7 @@ import java.sql.Timestamp;
  * Entity lưu câu trả lời của student cho từng câu hỏi
  * Hỗ trợ nhiều loại câu trả lời: text, JSON, file upload
  * @author: K24DTCN210-NVMANH (19/11/2025 15:09)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 18:10) - answerJson rỗng ([], {}, null, "") tính là chưa trả lời
  * --------------------------------------------------- */
 @Entity
 @Table(name = "student_answers")
@@ -143,13 +144,35 @@ public class StudentAnswer {
 
     /* ---------------------------------------------------
      * Kiểm tra câu trả lời có rỗng không
+     * (cùng điều kiện với StudentAnswerRepository.ANSWERED dùng cho các query đếm tiến độ)
      * @returns true nếu chưa trả lời
      * @author: K24DTCN210-NVMANH (19/11/2025 15:09)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 18:10) - Dùng hasAnswerJson / hasTextOrFile
      * --------------------------------------------------- */
     public boolean isEmpty() {
-        return (answerText == null || answerText.trim().isEmpty()) 
-            && (answerJson == null || answerJson.trim().isEmpty())
-            && (uploadedFileUrl == null || uploadedFileUrl.trim().isEmpty());
+        return !hasAnswerJson(answerJson) && !hasTextOrFile(answerText, uploadedFileUrl);
+    }
+
+    /* ---------------------------------------------------
+     * answerJson có chứa câu trả lời không (chọn đáp án, matching, điền chỗ trống...)
+     * Bỏ đi trắc nghiệm bị bỏ chọn hết ([]), matching chưa ghép ({}), null và chuỗi rỗng
+     * @param answerJson Giá trị JSON đã serialize
+     * @returns true nếu đã trả lời
+     * @author: K24DTCN210-NVMANH (17/10/2026 18:10)
+     * --------------------------------------------------- */
+    public static boolean hasAnswerJson(String answerJson) {
+        if (answerJson == null) {
+            return false;
+        }
+        String value = answerJson.trim();
+        return !value.isEmpty() && !value.equals("null") && !value.equals("[]")
+            && !value.equals("{}") && !value.equals("\"\"");
+    }
+
+    /* answerText (essay, short answer, coding) hoặc file upload có nội dung không */
+    public static boolean hasTextOrFile(String answerText, String uploadedFileUrl) {
+        return (answerText != null && !answerText.trim().isEmpty())
+            || (uploadedFileUrl != null && !uploadedFileUrl.trim().isEmpty());
     }
 
     /* ---------------------------------------------------
@@ -103,6 +103,11 @@ public class User {
     @Column(name = "locked_until")
     private LocalDateTime lockedUntil;
 
+    /* Tăng khi đổi role / active / xóa user: JWT cấp trước đó mang version cũ phải load lại quyền từ DB */
+    @Column(name = "auth_version", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    @Builder.Default
+    private Long authVersion = 0L;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -179,6 +184,14 @@ public class User {
         this.lockedUntil = null;
     }
 
+    /* ---------------------------------------------------
+     * Đánh dấu trạng thái xác thực (role, active, xóa) đã thay đổi
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:00)
+     * --------------------------------------------------- */
+    public void bumpAuthVersion() {
+        this.authVersion = (authVersion == null ? 0L : authVersion) + 1;
+    }
+
     /* ---------------------------------------------------
      * Cập nhật thời gian đăng nhập gần nhất
      * @author: K24DTCN210-NVMANH (13/11/2025 14:48)
@@ -1,6 +1,7 @@
 package com.mstrust.exam.exception;
 
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -120,6 +121,24 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    /* ---------------------------------------------------
+     * Xử lý TooManyRequestsException (hàng đợi xử lý đầy)
+     * @param ex Exception
+     * @returns ResponseEntity với HTTP 429 và header Retry-After
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+     * --------------------------------------------------- */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponse> handleTooManyRequestsException(TooManyRequestsException ex) {
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(error);
+    }
+
     /* ---------------------------------------------------
      * Xử lý validation errors (@Valid annotation)
      * @param ex MethodArgumentNotValidException
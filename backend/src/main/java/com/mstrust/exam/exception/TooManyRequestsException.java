@@ -0,0 +1,20 @@
+package com.mstrust.exam.exception;
+
+/* ---------------------------------------------------
+ * Exception khi server đang quá tải (hàng đợi xử lý đầy), client nên thử lại sau
+ * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+ * --------------------------------------------------- */
+public class TooManyRequestsException extends RuntimeException {
+
+    /* Số giây client nên chờ trước khi gửi lại (header Retry-After) */
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,6 +33,10 @@ public interface ExamQuestionRepository extends JpaRepository<ExamQuestion, Long
     @Query("SELECT eq FROM ExamQuestion eq JOIN FETCH eq.question WHERE eq.exam.id = :examId AND eq.question.id = :questionId")
     Optional<ExamQuestion> findByExamIdAndQuestionId(@Param("examId") Long examId, @Param("questionId") Long questionId);
     
+    // Find exam-question relationships for a set of questions (batch save)
+    @Query("SELECT eq FROM ExamQuestion eq JOIN FETCH eq.question WHERE eq.exam.id = :examId AND eq.question.id IN :questionIds")
+    List<ExamQuestion> findByExamIdAndQuestionIdIn(@Param("examId") Long examId, @Param("questionIds") Collection<Long> questionIds);
+    
     // Check if question exists in exam
     boolean existsByExamIdAndQuestionId(Long examId, Long questionId);
     
@@ -65,4 +70,8 @@ public interface ExamQuestionRepository extends JpaRepository<ExamQuestion, Long
     // Calculate total points of an exam
     @Query("SELECT COALESCE(SUM(eq.points), 0) FROM ExamQuestion eq WHERE eq.exam.id = :examId")
     Double calculateTotalPointsByExamId(@Param("examId") Long examId);
+    
+    // Count questions của nhiều exam trong 1 query: [examId, count]
+    @Query("SELECT eq.exam.id, COUNT(eq) FROM ExamQuestion eq WHERE eq.exam.id IN :examIds GROUP BY eq.exam.id")
+    List<Object[]> countByExamIds(@Param("examIds") Collection<Long> examIds);
 }
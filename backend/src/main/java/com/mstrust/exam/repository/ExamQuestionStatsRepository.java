@@ -0,0 +1,16 @@
+package com.mstrust.exam.repository;
+
+import com.mstrust.exam.entity.ExamQuestionStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/* ---------------------------------------------------
+ * Đọc item analysis theo đề thi (ghi bởi ExamAnalyticsService qua JDBC)
+ * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+ * --------------------------------------------------- */
+@Repository
+public interface ExamQuestionStatsRepository extends JpaRepository<ExamQuestionStats, Long> {
+    List<ExamQuestionStats> findByExamIdOrderByQuestionOrder(Long examId);
+}
@@ -11,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -107,4 +108,15 @@ public interface ExamRepository extends JpaRepository<Exam, Long> {
     
     // Count published exams
     long countByIsPublishedAndDeletedAtIsNull(Boolean isPublished);
+    
+    // Exams student có thể thấy: published, chưa kết thúc, thuộc các class đã enroll
+    // (fetch sẵn subjectClass + subject để map DTO không phát sinh query)
+    @Query("SELECT e FROM Exam e JOIN FETCH e.subjectClass sc JOIN FETCH sc.subject " +
+           "WHERE e.deletedAt IS NULL AND e.isPublished = true " +
+           "AND e.endTime >= :now AND sc.id IN :classIds " +
+           "ORDER BY e.id")
+    List<Exam> findOpenExamsForClasses(
+        @Param("classIds") Collection<Long> classIds,
+        @Param("now") LocalDateTime now
+    );
 }
@@ -0,0 +1,13 @@
+package com.mstrust.exam.repository;
+
+import com.mstrust.exam.entity.ExamStatsSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/* ---------------------------------------------------
+ * Đọc bảng tổng hợp thống kê điểm (ghi bởi ExamAnalyticsService qua JDBC)
+ * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+ * --------------------------------------------------- */
+@Repository
+public interface ExamStatsSummaryRepository extends JpaRepository<ExamStatsSummary, Long> {
+}
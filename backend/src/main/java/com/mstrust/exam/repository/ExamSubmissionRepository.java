@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -259,4 +260,83 @@ public interface ExamSubmissionRepository extends JpaRepository<ExamSubmission,
            "WHERE s.exam.subjectClass.teacher.id = :teacherId " +
            "ORDER BY s.submittedAt DESC")
     List<ExamSubmission> findByTeacherId(@Param("teacherId") Long teacherId);
+
+    /* ---------------------------------------------------
+     * Aggregate submissions của 1 student trên nhiều exam trong 1 query
+     * (thay cho count/findActive/hasPassed/findHighestScore gọi riêng từng exam)
+     * @param studentId ID của student
+     * @param examIds Danh sách exam IDs
+     * @returns List [examId, attemptsMade, activeCount, passedCount, highestScore]
+     * @author: K24DTCN210-NVMANH (17/10/2026 11:40)
+     * --------------------------------------------------- */
+    @Query("SELECT s.exam.id, COUNT(s), " +
+           "SUM(CASE WHEN s.status = 'IN_PROGRESS' THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN s.passed = true THEN 1 ELSE 0 END), " +
+           "MAX(CASE WHEN s.status IN ('SUBMITTED', 'GRADED') THEN s.totalScore ELSE NULL END) " +
+           "FROM ExamSubmission s " +
+           "WHERE s.student.id = :studentId AND s.exam.id IN :examIds " +
+           "GROUP BY s.exam.id")
+    List<Object[]> aggregateByStudentAndExamIds(
+        @Param("studentId") Long studentId,
+        @Param("examIds") Collection<Long> examIds
+    );
+
+    /* ---------------------------------------------------
+     * Deadline của tất cả submission đang làm bài trong 1 query (cho timer sync)
+     * @returns List [submissionId, examId, studentEmail, startedAt, durationMinutes, examEndTime]
+     * @author: K24DTCN210-NVMANH (17/10/2026 15:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 14:00) - Lấy email student (principal name của STOMP session) thay cho studentId
+     * --------------------------------------------------- */
+    @Query("SELECT s.id, e.id, s.student.email, s.startedAt, e.durationMinutes, e.endTime " +
+           "FROM ExamSubmission s JOIN s.exam e " +
+           "WHERE s.status = 'IN_PROGRESS' AND s.startedAt IS NOT NULL")
+    List<Object[]> findActiveDeadlineRows();
+
+    /* ---------------------------------------------------
+     * Các dòng live view của 1 exam trong 1 query (join student, không load entity)
+     * @param examId ID của exam
+     * @returns List [submissionId, studentId, fullName, studentCode, status, startedAt, lastSavedAt]
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    @Query("SELECT s.id, st.id, st.fullName, st.studentCode, s.status, s.startedAt, s.lastSavedAt " +
+           "FROM ExamSubmission s JOIN s.student st " +
+           "WHERE s.exam.id = :examId AND s.status IN ('IN_PROGRESS', 'PAUSED', 'SUBMITTED')")
+    List<Object[]> findLiveViewRows(@Param("examId") Long examId);
+
+    /* SELECT dùng chung cho findActiveSessionRows* (cột xem javadoc bên dưới) */
+    String ACTIVE_SESSION_ROW_SELECT = "SELECT s.id, s.status, st.id, st.fullName, st.email, e.id, e.title, " +
+        "e.durationMinutes, s.startedAt, s.lastSavedAt, s.autoSaveCount, " +
+        "(SELECT COUNT(eq) FROM ExamQuestion eq WHERE eq.exam.id = e.id), " +
+        "(SELECT COUNT(a) FROM StudentAnswer a WHERE a.submission.id = s.id AND " + StudentAnswerRepository.ANSWERED + ") " +
+        "FROM ExamSubmission s JOIN s.student st JOIN s.exam e ";
+
+    /* ---------------------------------------------------
+     * Các phiên đang làm bài kèm tiến độ trong 1 query (tổng số câu + số câu đã trả lời
+     * đếm bằng subquery, không load entity) - toàn hệ thống
+     * @returns List [submissionId, status, studentId, fullName, email, examId, examTitle,
+     *          durationMinutes, startedAt, lastSavedAt, autoSaveCount, totalQuestions, answeredQuestions]
+     * @author: K24DTCN210-NVMANH (17/10/2026 18:10)
+     * --------------------------------------------------- */
+    @Query(ACTIVE_SESSION_ROW_SELECT + "WHERE s.status = 'IN_PROGRESS'")
+    List<Object[]> findActiveSessionRows();
+
+    /* ---------------------------------------------------
+     * Như findActiveSessionRows nhưng chỉ của 1 exam
+     * @param examId ID của exam
+     * @author: K24DTCN210-NVMANH (17/10/2026 18:10)
+     * --------------------------------------------------- */
+    @Query(ACTIVE_SESSION_ROW_SELECT + "WHERE s.status = 'IN_PROGRESS' AND e.id = :examId")
+    List<Object[]> findActiveSessionRowsByExamId(@Param("examId") Long examId);
+
+    /* ---------------------------------------------------
+     * Tiến độ của 1 submission trong 1 query (cho WebSocket progress)
+     * @param submissionId ID của submission
+     * @returns List 1 dòng [status, totalQuestions, answeredQuestions]
+     * @author: K24DTCN210-NVMANH (17/10/2026 18:10)
+     * --------------------------------------------------- */
+    @Query("SELECT s.status, " +
+           "(SELECT COUNT(eq) FROM ExamQuestion eq WHERE eq.exam.id = s.exam.id), " +
+           "(SELECT COUNT(a) FROM StudentAnswer a WHERE a.submission.id = s.id AND " + StudentAnswerRepository.ANSWERED + ") " +
+           "FROM ExamSubmission s WHERE s.id = :submissionId")
+    List<Object[]> findProgressRow(@Param("submissionId") Long submissionId);
 }
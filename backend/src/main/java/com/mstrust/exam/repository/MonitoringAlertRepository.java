@@ -100,4 +100,14 @@ public interface MonitoringAlertRepository extends JpaRepository<MonitoringAlert
         @Param("startTime") LocalDateTime startTime,
         @Param("endTime") LocalDateTime endTime
     );
+
+    /* ---------------------------------------------------
+     * ID các alert chưa review của 1 exam kèm submission (cho live view, không load entity)
+     * @param examId ID của exam
+     * @returns List [submissionId, alertId]
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    @Query("SELECT a.submission.id, a.id FROM MonitoringAlert a WHERE a.submission.exam.id = :examId " +
+           "AND a.reviewed = false AND a.deletedAt IS NULL")
+    List<Object[]> findUnreviewedIdsByExamId(@Param("examId") Long examId);
 }
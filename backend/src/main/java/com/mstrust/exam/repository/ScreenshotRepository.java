@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /* ---------------------------------------------------
  * Repository cho Screenshot entity
@@ -25,6 +26,14 @@ public interface ScreenshotRepository extends JpaRepository<Screenshot, Long> {
     @Query("SELECT s FROM Screenshot s WHERE s.submission.id = :submissionId AND s.deletedAt IS NULL ORDER BY s.timestamp DESC")
     List<Screenshot> findBySubmissionId(@Param("submissionId") Long submissionId);
     
+    /* ---------------------------------------------------
+     * Lấy screenshot mới nhất (chưa bị xóa) của submission
+     * @param submissionId ID của submission
+     * @returns Optional Screenshot
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:40)
+     * --------------------------------------------------- */
+    Optional<Screenshot> findFirstBySubmissionIdAndDeletedAtIsNullOrderByTimestampDesc(Long submissionId);
+    
     /* ---------------------------------------------------
      * Lấy screenshots trong khoảng thời gian
      * @param submissionId ID của submission
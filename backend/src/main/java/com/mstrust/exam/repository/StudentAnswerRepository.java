@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,10 +14,23 @@ import java.util.Optional;
  * Repository cho StudentAnswer entity
  * Cung cấp các query methods cho answer management
  * @author: K24DTCN210-NVMANH (19/11/2025 15:17)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 18:10) - Điều kiện "đã trả lời" dùng chung cho các query tiến độ
  * --------------------------------------------------- */
 @Repository
 public interface StudentAnswerRepository extends JpaRepository<StudentAnswer, Long> {
 
+    /* ---------------------------------------------------
+     * Điều kiện JPQL "đã trả lời" trên alias a (StudentAnswer), khớp StudentAnswer.isEmpty():
+     * - answerJson khác [], {}, null, "" (MySQL trả JSON đã chuẩn hóa khi CAST sang chuỗi)
+     * - hoặc answerText / file upload có nội dung
+     * Dùng cho mọi QuestionType: trắc nghiệm/matching lưu ở answerJson, tự luận/coding ở answerText
+     * --------------------------------------------------- */
+    String ANSWER_JSON_PRESENT = "(a.answerJson IS NOT NULL " +
+        "AND CAST(a.answerJson AS String) NOT IN ('null', '[]', '{}', '\"\"'))";
+    String ANSWER_TEXT_OR_FILE_PRESENT = "((a.answerText IS NOT NULL AND TRIM(a.answerText) <> '') " +
+        "OR (a.uploadedFileUrl IS NOT NULL AND TRIM(a.uploadedFileUrl) <> ''))";
+    String ANSWERED = "(" + ANSWER_JSON_PRESENT + " OR " + ANSWER_TEXT_OR_FILE_PRESENT + ")";
+
     /* ---------------------------------------------------
      * Tìm tất cả answers của một submission
      * @param submissionId ID của submission
@@ -40,6 +54,20 @@ public interface StudentAnswerRepository extends JpaRepository<StudentAnswer, Lo
         @Param("questionId") Long questionId
     );
 
+    /* ---------------------------------------------------
+     * Tìm answers cho một tập câu hỏi trong submission (batch save)
+     * @param submissionId ID của submission
+     * @param questionIds Danh sách ID câu hỏi
+     * @returns List câu trả lời đã có
+     * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+     * --------------------------------------------------- */
+    @Query("SELECT a FROM StudentAnswer a " +
+           "WHERE a.submission.id = :submissionId AND a.questionId IN :questionIds")
+    List<StudentAnswer> findBySubmissionIdAndQuestionIdIn(
+        @Param("submissionId") Long submissionId,
+        @Param("questionIds") Collection<Long> questionIds
+    );
+
     /* ---------------------------------------------------
      * Đếm số câu đã trả lời trong submission
      * @param submissionId ID của submission
@@ -161,12 +189,28 @@ public interface StudentAnswerRepository extends JpaRepository<StudentAnswer, Lo
     int countUngradedBySubmissionId(@Param("submissionId") Long submissionId);
 
     /* ---------------------------------------------------
-     * Đếm số câu đã có answerText (cho WebSocket progress tracking)
+     * Đếm số câu đã trả lời của submission (mọi loại câu hỏi)
      * @param submissionId ID của submission
-     * @returns Số câu đã có answer text
+     * @returns Số câu đã trả lời
      * @author: K24DTCN210-NVMANH (21/11/2025 01:50)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 18:10) - Đếm cả answerJson / file, không chỉ answerText
      * --------------------------------------------------- */
     @Query("SELECT COUNT(a) FROM StudentAnswer a " +
-           "WHERE a.submission.id = :submissionId AND a.answerText IS NOT NULL")
-    long countBySubmissionIdAndAnswerTextIsNotNull(@Param("submissionId") Long submissionId);
+           "WHERE a.submission.id = :submissionId AND " + ANSWERED)
+    long countAnsweredBySubmissionId(@Param("submissionId") Long submissionId);
+
+    /* ---------------------------------------------------
+     * Cờ đã trả lời của từng câu trong các submission đang theo dõi của exam (cho live view)
+     * Không load nội dung answer, chỉ 2 cờ: có answerJson / có answerText hoặc file
+     * @param examId ID của exam
+     * @returns List [submissionId, questionId, hasJson (0/1), hasTextOrFile (0/1)]
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    @Query("SELECT a.submission.id, a.questionId, " +
+           "CASE WHEN " + ANSWER_JSON_PRESENT + " THEN 1 ELSE 0 END, " +
+           "CASE WHEN " + ANSWER_TEXT_OR_FILE_PRESENT + " THEN 1 ELSE 0 END " +
+           "FROM StudentAnswer a " +
+           "WHERE a.submission.exam.id = :examId " +
+           "AND a.submission.status IN ('IN_PROGRESS', 'PAUSED', 'SUBMITTED')")
+    List<Object[]> findAnsweredFlagsByExamId(@Param("examId") Long examId);
 }
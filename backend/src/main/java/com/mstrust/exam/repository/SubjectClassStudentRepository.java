@@ -52,6 +52,18 @@ public interface SubjectClassStudentRepository extends JpaRepository<SubjectClas
            "AND scs.status = 'ENROLLED'")
     List<SubjectClassStudent> findEnrolledClassesByStudentId(@Param("studentId") Long studentId);
     
+    /** ------------------------------------------
+     * Mục đích: Chỉ lấy ID các lớp học phần sinh viên đã enroll (không load entity)
+     * @param studentId - ID của sinh viên
+     * @return List<Long> subjectClassIds
+     * @author NVMANH
+     * @created 17/10/2026 11:40
+     */
+    @Query("SELECT scs.subjectClass.id FROM SubjectClassStudent scs " +
+           "WHERE scs.student.id = :studentId " +
+           "AND scs.status = 'ENROLLED'")
+    List<Long> findEnrolledClassIdsByStudentId(@Param("studentId") Long studentId);
+    
     /** ------------------------------------------
      * Mục đích: Tìm enrollment record cụ thể (subjectClassId + studentId)
      * @param subjectClassId - ID của lớp học phần
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /* ---------------------------------------------------
@@ -86,6 +87,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.studentCode = :studentCode AND u.deletedAt IS NULL AND u.isActive = true")
     Optional<User> findActiveByStudentCode(@Param("studentCode") String studentCode);
 
+    /* ---------------------------------------------------
+     * Lấy trạng thái xác thực của user (không load roles) cho JWT filter
+     * @param userId ID của user
+     * @returns [isActive, deletedAt, lockedUntil, authVersion], rỗng nếu không có user
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:00)
+     * --------------------------------------------------- */
+    @Query("SELECT u.isActive, u.deletedAt, u.lockedUntil, u.authVersion FROM User u WHERE u.id = :userId")
+    List<Object[]> findAuthStateRows(@Param("userId") Long userId);
+
     /* ---------------------------------------------------
      * Update last login time và reset failed login attempts
      * @param userId ID của user
@@ -185,4 +195,52 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * --------------------------------------------------- */
     @Query("SELECT COUNT(u) FROM User u WHERE u.deletedAt IS NOT NULL")
     Long countDeletedUsers();
+
+    /* ---------------------------------------------------
+     * Đếm users theo trạng thái trong 1 query
+     * @returns [total (chưa xóa), active, inactive, deleted]
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:40)
+     * --------------------------------------------------- */
+    @Query("SELECT SUM(CASE WHEN u.deletedAt IS NULL THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN u.deletedAt IS NULL AND u.isActive = true THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN u.deletedAt IS NULL AND u.isActive = false THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN u.deletedAt IS NOT NULL THEN 1 ELSE 0 END) " +
+           "FROM User u")
+    List<Object[]> countByStatusRows();
+
+    /* ---------------------------------------------------
+     * Đếm users (chưa xóa) theo role
+     * @returns List [roleName, count]
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:40)
+     * --------------------------------------------------- */
+    @Query("SELECT r.roleName, COUNT(DISTINCT u.id) FROM User u JOIN u.roles r " +
+           "WHERE u.deletedAt IS NULL GROUP BY r.roleName")
+    List<Object[]> countByRoleRows();
+
+    /* ---------------------------------------------------
+     * Đếm users (chưa xóa) theo department chưa xóa
+     * @returns List [departmentName, count]
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:40)
+     * --------------------------------------------------- */
+    @Query("SELECT d.departmentName, COUNT(u) FROM User u JOIN u.department d " +
+           "WHERE u.deletedAt IS NULL AND d.deletedAt IS NULL GROUP BY d.id, d.departmentName")
+    List<Object[]> countByDepartmentRows();
+
+    /* ---------------------------------------------------
+     * Đếm users (chưa xóa) theo lớp chưa xóa
+     * @returns List [className, count]
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:40)
+     * --------------------------------------------------- */
+    @Query("SELECT c.className, COUNT(u) FROM User u JOIN u.classEntity c " +
+           "WHERE u.deletedAt IS NULL AND c.deletedAt IS NULL GROUP BY c.id, c.className")
+    List<Object[]> countByClassRows();
+
+    /* ---------------------------------------------------
+     * Đếm users (chưa xóa) theo giới tính
+     * @returns List [gender, count]
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:40)
+     * --------------------------------------------------- */
+    @Query("SELECT u.gender, COUNT(u) FROM User u " +
+           "WHERE u.deletedAt IS NULL AND u.gender IS NOT NULL GROUP BY u.gender")
+    List<Object[]> countByGenderRows();
 }
@@ -26,12 +26,16 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
     /* ---------------------------------------------------
      * Load user by username (student_code, email hoặc phone)
      * @param username Username để login
      * @returns UserDetails object cho Spring Security
      * @throws UsernameNotFoundException nếu không tìm thấy user
      * @author: K24DTCN210-NVMANH (13/11/2025 14:54)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 16:40) - Nạp PrincipalCache từ user vừa load
      * --------------------------------------------------- */
     @Override
     @Transactional
@@ -53,6 +57,8 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .map(role -> new SimpleGrantedAuthority(role.getRoleName()))
                 .collect(Collectors.toSet());
 
+        principalCache.put(username, user);
+
         return new org.springframework.security.core.userdetails.User(
                 username,  // Dùng username đã nhập, không hardcode email
                 user.getPasswordHash(),
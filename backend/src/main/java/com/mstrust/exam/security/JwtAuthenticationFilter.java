@@ -1,11 +1,14 @@
 package com.mstrust.exam.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -14,12 +17,17 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 /* ---------------------------------------------------
  * JWT Authentication Filter
  * Intercept mỗi request, extract và validate JWT token
  * Set authentication vào SecurityContext nếu token hợp lệ
+ * - Token mới mang roles + authVersion: chỉ kiểm tra trạng thái user qua UserStatusCache,
+ *   không load user/roles; authVersion lệch (đổi role...) hoặc token cũ thì load từ DB như trước
  * @author: K24DTCN210-NVMANH (13/11/2025 14:55)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 17:00) - Dựng Authentication từ claims, cache trạng thái user
  * --------------------------------------------------- */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -30,6 +38,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private UserStatusCache userStatusCache;
+
     /* ---------------------------------------------------
      * Skip filter cho public endpoints (auth, public, health)
      * @param request HTTP request
@@ -55,6 +66,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
      * @throws ServletException
      * @throws IOException
      * @author: K24DTCN210-NVMANH (13/11/2025 14:55)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 17:00) - Parse token 1 lần, chỉ load user khi cần
      * --------------------------------------------------- */
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -63,11 +75,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.parseValidClaims(jwt) : null;
+
+            if (claims != null) {
                 // Get email from JWT subject (changed from userId)
-                String email = tokenProvider.getEmailFromToken(jwt);
+                String email = claims.getSubject();
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+                UserDetails userDetails = userDetailsFromClaims(claims);
+                if (userDetails == null) {
+                    userDetails = userDetailsService.loadUserByUsername(email);
+                }
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -81,6 +98,37 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /* ---------------------------------------------------
+     * Dựng UserDetails từ roles trong token, không query user/roles
+     * @param claims Claims của access token
+     * @returns UserDetails, null nếu token không có authVersion (token cũ / refresh token)
+     *          hoặc authVersion đã cũ -> caller load từ DB
+     * @throws RuntimeException nếu user đã bị khóa / vô hiệu hóa / xóa
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:00)
+     * --------------------------------------------------- */
+    private UserDetails userDetailsFromClaims(Claims claims) {
+        Object userId = claims.get("userId");
+        Object authVersion = claims.get("authVersion");
+        Object roles = claims.get("roles");
+        if (userId == null || authVersion == null || roles == null) {
+            return null;
+        }
+
+        UserStatusCache.UserStatus status = userStatusCache.get(((Number) userId).longValue());
+        if (status == null || !status.isUsable()) {
+            throw new RuntimeException("Account is inactive, locked or deleted");
+        }
+        if (status.getAuthVersion() != ((Number) authVersion).longValue()) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = Arrays.stream(roles.toString().split(","))
+                .filter(StringUtils::hasText)
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role))
+                .toList();
+        return new org.springframework.security.core.userdetails.User(claims.getSubject(), "", authorities);
+    }
+
     /* ---------------------------------------------------
      * Extract JWT token từ Authorization header
      * @param request HTTP request
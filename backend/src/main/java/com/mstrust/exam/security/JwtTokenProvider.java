@@ -31,6 +31,7 @@ public class JwtTokenProvider {
      * @param user User entity
      * @returns JWT token string
      * @author: K24DTCN210-NVMANH (13/11/2025 14:54)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 17:00) - Thêm claim authVersion để JWT filter không phải load user
      * --------------------------------------------------- */
     public String generateToken(User user) {
         Date now = new Date();
@@ -46,6 +47,7 @@ public class JwtTokenProvider {
                 .claim("studentCode", user.getStudentCode())
                 .claim("fullName", user.getFullName())
                 .claim("roles", roles)
+                .claim("authVersion", user.getAuthVersion() == null ? 0L : user.getAuthVersion())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 .signWith(getSigningKey(), SignatureAlgorithm.HS512)
@@ -105,6 +107,24 @@ public class JwtTokenProvider {
         return Long.parseLong(claims.get("userId").toString());
     }
 
+    /* ---------------------------------------------------
+     * Validate và parse JWT token trong 1 lần (dùng cho JWT filter)
+     * @param token JWT token
+     * @returns Claims nếu token hợp lệ, null nếu không hợp lệ / hết hạn
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:00)
+     * --------------------------------------------------- */
+    public Claims parseValidClaims(String token) {
+        try {
+            return Jwts.parserBuilder()
+                    .setSigningKey(getSigningKey())
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     /* ---------------------------------------------------
      * Validate JWT token
      * @param token JWT token cần validate
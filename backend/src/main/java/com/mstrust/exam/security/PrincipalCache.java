@@ -0,0 +1,192 @@
+package com.mstrust.exam.security;
+
+import com.mstrust.exam.entity.Role;
+import com.mstrust.exam.entity.User;
+import com.mstrust.exam.repository.UserRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/* ---------------------------------------------------
+ * Cache thông tin user đã xác thực (userId, họ tên, email, roles) theo tên đăng nhập
+ * (JWT subject) để các handler nóng (WebSocket, system log) không query bảng users
+ * - Nạp khi JWT filter load user (CustomUserDetailsService) và khi STOMP CONNECT
+ *   (principal lấy từ HTTP handshake đã qua JWT filter)
+ * - Entry được giữ trong suốt STOMP session; không còn session và không dùng 30 phút thì bỏ
+ * - UserService gọi invalidateUser() khi đổi role / khóa / xóa user (sau commit), lần
+ *   đọc sau nạp lại từ DB; user không còn active thì resolve trả về empty
+ * @author: K24DTCN210-NVMANH (17/10/2026 16:40)
+ * --------------------------------------------------- */
+@Component
+@RequiredArgsConstructor
+public class PrincipalCache {
+
+    private static final long IDLE_EVICT_MILLIS = 30 * 60 * 1000L;
+
+    private final UserRepository userRepository;
+
+    private final Map<String, CachedPrincipal> byName = new ConcurrentHashMap<>();
+
+    /* STOMP sessionId -> tên đăng nhập, giữ entry không bị evict khi còn kết nối */
+    private final Map<String, String> sessions = new ConcurrentHashMap<>();
+
+    /* Tăng mỗi lần invalidate: kết quả load từ DB bắt đầu trước đó không được ghi vào cache */
+    private final AtomicLong generation = new AtomicLong();
+
+    /* ---------------------------------------------------
+     * Lấy principal của Authentication hiện tại (cache, lần đầu mới load DB)
+     * @param authentication Authentication của request/STOMP message
+     * @returns CachedPrincipal, empty nếu chưa xác thực hoặc user không còn active
+     * @author: K24DTCN210-NVMANH (17/10/2026 16:40)
+     * --------------------------------------------------- */
+    public Optional<CachedPrincipal> resolve(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()
+                || "anonymousUser".equals(authentication.getPrincipal())) {
+            return Optional.empty();
+        }
+        return resolve(authentication.getName());
+    }
+
+    /* ---------------------------------------------------
+     * Lấy principal theo tên đăng nhập (JWT subject)
+     * @param name Tên đăng nhập
+     * @returns CachedPrincipal, empty nếu không tìm thấy hoặc user không còn active
+     * @author: K24DTCN210-NVMANH (17/10/2026 16:40)
+     * --------------------------------------------------- */
+    public Optional<CachedPrincipal> resolve(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        CachedPrincipal cached = byName.get(name);
+        if (cached != null) {
+            cached.touch();
+            return Optional.of(cached);
+        }
+
+        long loadGeneration = generation.get();
+        Optional<CachedPrincipal> loaded = userRepository.findByUsername(name)
+                .filter(user -> Boolean.TRUE.equals(user.getIsActive()) && !user.isDeleted())
+                .map(user -> CachedPrincipal.of(name, user));
+        loaded.ifPresent(principal -> {
+            if (generation.get() == loadGeneration) {
+                byName.put(name, principal);
+            }
+        });
+        return loaded;
+    }
+
+    /* Nạp từ entity vừa load (JWT filter / login) */
+    public void put(String name, User user) {
+        if (Boolean.TRUE.equals(user.getIsActive()) && !user.isDeleted()) {
+            byName.put(name, CachedPrincipal.of(name, user));
+        }
+    }
+
+    // =============== STOMP SESSION ===============
+
+    /* STOMP CONNECT: nạp trước principal để các message sau không phải query */
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (sessionId == null || event.getUser() == null) {
+            return;
+        }
+        sessions.put(sessionId, event.getUser().getName());
+        resolve(event.getUser().getName());
+    }
+
+    /* STOMP DISCONNECT / đóng kết nối */
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    // =============== INVALIDATION ===============
+
+    /* ---------------------------------------------------
+     * Bỏ cache của user (đổi role, khóa, xóa...) sau khi transaction commit
+     * @param userId ID của user
+     * @author: K24DTCN210-NVMANH (17/10/2026 16:40)
+     * --------------------------------------------------- */
+    public void invalidateUser(Long userId) {
+        Runnable evict = () -> {
+            generation.incrementAndGet();
+            byName.values().removeIf(principal -> principal.getUserId().equals(userId));
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        } else {
+            evict.run();
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Bỏ các entry không còn STOMP session và không được dùng trong 30 phút
+     * @author: K24DTCN210-NVMANH (17/10/2026 16:40)
+     * --------------------------------------------------- */
+    @Scheduled(fixedDelay = 300000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_EVICT_MILLIS;
+        Set<String> connected = Set.copyOf(sessions.values());
+        byName.entrySet().removeIf(e -> e.getValue().lastAccess < cutoff && !connected.contains(e.getKey()));
+    }
+
+    /* ---------------------------------------------------
+     * Thông tin user đã xác thực (immutable, an toàn dùng chung giữa các thread)
+     * @author: K24DTCN210-NVMANH (17/10/2026 16:40)
+     * --------------------------------------------------- */
+    @Getter
+    public static class CachedPrincipal {
+        private final Long userId;
+        private final String username;
+        private final String email;
+        private final String fullName;
+        private final Set<String> roles;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private CachedPrincipal(Long userId, String username, String email, String fullName, Set<String> roles) {
+            this.userId = userId;
+            this.username = username;
+            this.email = email;
+            this.fullName = fullName;
+            this.roles = roles;
+        }
+
+        static CachedPrincipal of(String username, User user) {
+            Set<String> roles = user.getRoles().stream()
+                    .map(Role::getRoleName)
+                    .collect(Collectors.toUnmodifiableSet());
+            return new CachedPrincipal(user.getId(), username, user.getEmail(), user.getFullName(),
+                    Collections.unmodifiableSet(roles));
+        }
+
+        public boolean hasRole(String roleName) {
+            return roles.contains(roleName);
+        }
+
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+}
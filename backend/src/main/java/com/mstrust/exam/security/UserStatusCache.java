@@ -0,0 +1,119 @@
+package com.mstrust.exam.security;
+
+import com.mstrust.exam.repository.UserRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* ---------------------------------------------------
+ * Cache trạng thái xác thực (active, deleted, locked, authVersion) theo userId cho JWT filter
+ * - Mỗi entry sống tối đa ttl-seconds, số entry tối đa max-size (đầy thì bỏ entry hết hạn,
+ *   vẫn đầy thì bỏ bớt entry bất kỳ)
+ * - Miss thì chỉ query 4 cột của users, không load roles
+ * - UserService gọi evict() sau khi commit khi khóa / mở / xóa user hoặc đổi role
+ * @author: K24DTCN210-NVMANH (17/10/2026 17:00)
+ * --------------------------------------------------- */
+@Component
+@RequiredArgsConstructor
+public class UserStatusCache {
+
+    private final UserRepository userRepository;
+
+    @Value("${exam.security.user-status-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${exam.security.user-status-cache.max-size:10000}")
+    private int maxSize;
+
+    private final Map<Long, UserStatus> statuses = new ConcurrentHashMap<>();
+
+    /* ---------------------------------------------------
+     * Lấy trạng thái của user (cache, hết hạn thì query lại)
+     * @param userId ID của user
+     * @returns UserStatus, null nếu không tìm thấy user
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:00)
+     * --------------------------------------------------- */
+    public UserStatus get(Long userId) {
+        long now = System.currentTimeMillis();
+        UserStatus cached = statuses.get(userId);
+        if (cached != null && cached.expiresAt > now) {
+            return cached;
+        }
+
+        List<Object[]> rows = userRepository.findAuthStateRows(userId);
+        if (rows.isEmpty()) {
+            statuses.remove(userId);
+            return null;
+        }
+        Object[] row = rows.get(0);
+        UserStatus status = new UserStatus(Boolean.TRUE.equals(row[0]), row[1] != null,
+                (LocalDateTime) row[2], row[3] == null ? 0L : (Long) row[3], now + ttlSeconds * 1000);
+        if (statuses.size() >= maxSize) {
+            trim(now);
+        }
+        statuses.put(userId, status);
+        return status;
+    }
+
+    /* ---------------------------------------------------
+     * Bỏ trạng thái đã cache của user (sau khi transaction commit)
+     * @param userId ID của user
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:00)
+     * --------------------------------------------------- */
+    public void evict(Long userId) {
+        statuses.remove(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Bỏ thêm lần nữa sau commit: request chen giữa có thể đã nạp lại trạng thái cũ
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    statuses.remove(userId);
+                }
+            });
+        }
+    }
+
+    private void trim(long now) {
+        statuses.values().removeIf(status -> status.expiresAt <= now);
+        Iterator<Long> it = statuses.keySet().iterator();
+        while (statuses.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Trạng thái xác thực của 1 user tại thời điểm nạp
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:00)
+     * --------------------------------------------------- */
+    @Getter
+    public static class UserStatus {
+        private final boolean active;
+        private final boolean deleted;
+        private final LocalDateTime lockedUntil;
+        private final long authVersion;
+        private final long expiresAt;
+
+        UserStatus(boolean active, boolean deleted, LocalDateTime lockedUntil, long authVersion, long expiresAt) {
+            this.active = active;
+            this.deleted = deleted;
+            this.lockedUntil = lockedUntil;
+            this.authVersion = authVersion;
+            this.expiresAt = expiresAt;
+        }
+
+        /* Active, chưa xóa và không bị khóa */
+        public boolean isUsable() {
+            return active && !deleted && (lockedUntil == null || !lockedUntil.isAfter(LocalDateTime.now()));
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.mstrust.exam.service;
+
+import com.mstrust.exam.entity.ActivityType;
+import com.mstrust.exam.exception.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* ---------------------------------------------------
+ * Ingestion bất đồng bộ cho activity logs từ student client
+ * - Request chỉ validate rồi đưa cả batch vào ring buffer có giới hạn (all-or-nothing)
+ * - 1 consumer thread gom nhiều batch của nhiều client, ghi bằng INSERT nhiều dòng
+ *   (VALUES (...),(...)) theo từng chunk - 1 transaction cho cả trăm activity thay vì
+ *   mỗi request 1 transaction + 1 INSERT/dòng
+ * - Buffer đầy thì từ chối bằng 429 + Retry-After, client giữ batch và gửi lại sau
+ * - Chunk ghi lỗi thì ghi lại từng dòng để 1 dòng hỏng không làm mất cả chunk
+ * - ID sinh ra được báo cho MonitoringStatsStore để cộng dồn thống kê
+ * @author: K24DTCN210-NVMANH (17/10/2026 14:10)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 14:40) - Báo ID đã ghi cho MonitoringStatsStore
+ * --------------------------------------------------- */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityIngestionService {
+
+    private static final String INSERT_PREFIX =
+        "INSERT INTO activity_logs (submission_id, activity_type, details, timestamp, created_at) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MonitoringStatsStore monitoringStatsStore;
+
+    @Value("${exam.activity-ingest.capacity:20000}")
+    private int capacity;
+
+    @Value("${exam.activity-ingest.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${exam.activity-ingest.retry-after-seconds:10}")
+    private long retryAfterSeconds;
+
+    private BlockingQueue<ActivityRecord> buffer;
+    private final Object enqueueLock = new Object();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread consumer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        buffer = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        running = true;
+        consumer = new Thread(this::consumeLoop, "activity-ingest");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        consumer.interrupt();
+        try {
+            consumer.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // Ghi nốt phần còn lại trước khi tắt
+        List<ActivityRecord> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+        log.info("[ActivityIngest] Stopped. Written: {}, dropped: {}", written.get(), dropped.get());
+    }
+
+    /* ---------------------------------------------------
+     * Đưa 1 batch activity vào buffer (cả batch hoặc không gì cả)
+     * @param records Các activity đã validate
+     * @throws TooManyRequestsException nếu buffer không đủ chỗ
+     * @author: K24DTCN210-NVMANH (17/10/2026 14:10)
+     * --------------------------------------------------- */
+    public void enqueue(List<ActivityRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        // Consumer chỉ lấy ra nên kiểm tra chỗ trống trong lock là đủ để add không bị fail giữa chừng
+        synchronized (enqueueLock) {
+            if (buffer.remainingCapacity() < records.size()) {
+                log.warn("[ActivityIngest] Buffer full ({} pending), rejecting {} activities",
+                    buffer.size(), records.size());
+                throw new TooManyRequestsException("Activity buffer is full, please retry later", retryAfterSeconds);
+            }
+            buffer.addAll(records);
+        }
+    }
+
+    /* Số activity đang chờ ghi */
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    // =============== CONSUMER ===============
+
+    private void consumeLoop() {
+        List<ActivityRecord> chunk = new ArrayList<>(chunkSize);
+        while (running) {
+            try {
+                ActivityRecord first = buffer.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                chunk.add(first);
+                buffer.drainTo(chunk, Math.max(1, chunkSize) - 1);
+                write(chunk);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception ex) {
+                log.error("[ActivityIngest] Unexpected error in consumer", ex);
+            } finally {
+                chunk.clear();
+            }
+        }
+    }
+
+    private void write(List<ActivityRecord> records) {
+        for (int from = 0; from < records.size(); from += chunkSize) {
+            List<ActivityRecord> slice = records.subList(from, Math.min(records.size(), from + chunkSize));
+            try {
+                long[] ids = insert(multiRowInsert(slice.size()), slice);
+                written.addAndGet(slice.size());
+                monitoringStatsStore.onActivitiesWritten(slice, ids);
+            } catch (Exception ex) {
+                log.warn("[ActivityIngest] Multi-row insert of {} rows failed, retrying row by row: {}",
+                    slice.size(), ex.getMessage());
+                writeOneByOne(slice);
+            }
+        }
+    }
+
+    private void writeOneByOne(List<ActivityRecord> records) {
+        String sql = INSERT_PREFIX + ROW_PLACEHOLDER;
+        for (ActivityRecord record : records) {
+            try {
+                List<ActivityRecord> single = List.of(record);
+                long[] ids = insert(sql, single);
+                written.incrementAndGet();
+                monitoringStatsStore.onActivitiesWritten(single, ids);
+            } catch (Exception ex) {
+                dropped.incrementAndGet();
+                log.error("[ActivityIngest] Dropping activity {} of submission {}: {}",
+                    record.activityType, record.submissionId, ex.getMessage());
+            }
+        }
+    }
+
+    /* INSERT và trả về ID sinh ra theo thứ tự dòng (null nếu driver không trả đủ) */
+    private long[] insert(String sql, List<ActivityRecord> records) {
+        Object[] args = flatten(records);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != records.size()) {
+            return null;
+        }
+        long[] ids = new long[keys.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Object key = keys.get(i).values().stream().findFirst().orElse(null);
+            if (!(key instanceof Number number)) {
+                return null;
+            }
+            ids[i] = number.longValue();
+        }
+        return ids;
+    }
+
+    private static String multiRowInsert(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDER.length() + 1));
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW_PLACEHOLDER);
+        }
+        return sql.toString();
+    }
+
+    private static Object[] flatten(List<ActivityRecord> records) {
+        Object[] args = new Object[records.size() * 5];
+        int i = 0;
+        for (ActivityRecord record : records) {
+            args[i++] = record.submissionId;
+            args[i++] = record.activityType.name();
+            args[i++] = record.details;
+            args[i++] = Timestamp.valueOf(record.timestamp);
+            args[i++] = Timestamp.valueOf(record.receivedAt);
+        }
+        return args;
+    }
+
+    /* ---------------------------------------------------
+     * 1 activity đã validate, chờ ghi xuống activity_logs
+     * @author: K24DTCN210-NVMANH (17/10/2026 14:10)
+     * --------------------------------------------------- */
+    @Getter
+    public static class ActivityRecord {
+        private final Long submissionId;
+        private final ActivityType activityType;
+        private final String details;
+        private final LocalDateTime timestamp;
+        private final LocalDateTime receivedAt;
+
+        public ActivityRecord(Long submissionId, ActivityType activityType, String details,
+                              LocalDateTime timestamp, LocalDateTime receivedAt) {
+            this.submissionId = submissionId;
+            this.activityType = activityType;
+            this.details = details;
+            this.timestamp = timestamp;
+            this.receivedAt = receivedAt;
+        }
+    }
+}
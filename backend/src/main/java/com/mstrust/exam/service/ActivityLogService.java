@@ -4,22 +4,28 @@ import com.mstrust.exam.dto.monitoring.ActivityLogDTO;
 import com.mstrust.exam.dto.monitoring.ActivityLogRequest;
 import com.mstrust.exam.entity.ActivityLog;
 import com.mstrust.exam.entity.ActivityType;
-import com.mstrust.exam.entity.ExamSubmission;
+import com.mstrust.exam.exception.BadRequestException;
 import com.mstrust.exam.exception.ResourceNotFoundException;
 import com.mstrust.exam.repository.ActivityLogRepository;
 import com.mstrust.exam.repository.ExamSubmissionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /* ---------------------------------------------------
  * Service xử lý business logic cho activity logs
  * @author: K24DTCN210-NVMANH (21/11/2025 10:14)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 13:40) - SCREENSHOT_UNCHANGED chuyển sang ScreenshotService
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 14:10) - Ghi activity qua ActivityIngestionService
  * --------------------------------------------------- */
 @Service
 @RequiredArgsConstructor
@@ -29,33 +35,69 @@ public class ActivityLogService {
     
     private final ActivityLogRepository activityLogRepository;
     private final ExamSubmissionRepository submissionRepository;
+    private final ScreenshotService screenshotService;
+    private final ActivityIngestionService activityIngestionService;
+    
+    /* Submission đã kiểm tra tồn tại - client gửi batch mỗi 30s nên tránh query lại mỗi lần */
+    private static final int KNOWN_SUBMISSIONS_LIMIT = 50000;
+    private final Set<Long> knownSubmissions = ConcurrentHashMap.newKeySet();
     
     /* ---------------------------------------------------
      * Ghi log activities (hỗ trợ batch)
      * @param request ActivityLogRequest chứa danh sách activities
-     * @returns Danh sách ActivityLogDTO đã được lưu
+     * @returns Số activity đã nhận vào hàng đợi ghi
      * @author: K24DTCN210-NVMANH (21/11/2025 10:14)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 14:10) - Validate rồi đưa vào ActivityIngestionService,
+     *   không saveAll từng entity và không map ngược ra DTO
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 18:05) - Lỗi ghi SCREENSHOT_UNCHANGED chỉ log, không fail request
      * --------------------------------------------------- */
-    public List<ActivityLogDTO> logActivities(ActivityLogRequest request) {
-        ExamSubmission submission = submissionRepository.findById(request.getSubmissionId())
-            .orElseThrow(() -> new ResourceNotFoundException("Submission not found"));
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public int logActivities(ActivityLogRequest request) {
+        Long submissionId = request.getSubmissionId();
+        if (!knownSubmissions.contains(submissionId)) {
+            if (!submissionRepository.existsById(submissionId)) {
+                throw new ResourceNotFoundException("Submission not found");
+            }
+            if (knownSubmissions.size() >= KNOWN_SUBMISSIONS_LIMIT) {
+                knownSubmissions.clear();
+            }
+            knownSubmissions.add(submissionId);
+        }
         
-        List<ActivityLog> activityLogs = request.getActivities().stream()
-            .map(entry -> ActivityLog.builder()
-                .submission(submission)
-                .activityType(entry.getActivityType())
-                .details(entry.getDetails())
-                .timestamp(entry.getTimestamp())
-                .build())
-            .collect(Collectors.toList());
+        List<ActivityLogRequest.ActivityEntry> entries = request.getActivities() != null
+            ? request.getActivities() : List.of();
+        LocalDateTime receivedAt = LocalDateTime.now();
         
-        activityLogs = activityLogRepository.saveAll(activityLogs);
+        // "Màn hình không đổi" không lưu thành activity log, chỉ cộng repeatCount vào frame trước
+        List<LocalDateTime> unchangedFrames = new ArrayList<>();
+        List<ActivityIngestionService.ActivityRecord> records = new ArrayList<>(entries.size());
+        for (ActivityLogRequest.ActivityEntry entry : entries) {
+            if (entry == null || entry.getActivityType() == null) {
+                throw new BadRequestException("Activity type is required");
+            }
+            LocalDateTime timestamp = entry.getTimestamp() != null ? entry.getTimestamp() : receivedAt;
+            if (entry.getActivityType() == ActivityType.SCREENSHOT_UNCHANGED) {
+                unchangedFrames.add(timestamp);
+            } else {
+                records.add(new ActivityIngestionService.ActivityRecord(
+                    submissionId, entry.getActivityType(), entry.getDetails(), timestamp, receivedAt));
+            }
+        }
         
-        log.info("Logged {} activities for submission {}", activityLogs.size(), request.getSubmissionId());
+        // Enqueue trước (buffer đầy thì client gửi lại cả batch, chưa có gì được ghi)
+        activityIngestionService.enqueue(records);
+        if (!unchangedFrames.isEmpty()) {
+            // Activity đã vào hàng đợi: lỗi ở đây không được làm client gửi lại (sẽ ghi trùng cả batch)
+            try {
+                screenshotService.recordUnchangedFrames(submissionId, unchangedFrames);
+            } catch (RuntimeException e) {
+                log.error("Failed to record {} unchanged frame(s) for submission {}",
+                    unchangedFrames.size(), submissionId, e);
+            }
+        }
         
-        return activityLogs.stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+        log.debug("Queued {} activities for submission {}", records.size(), submissionId);
+        return records.size() + unchangedFrames.size();
     }
     
     /* ---------------------------------------------------
@@ -12,7 +12,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -31,13 +30,16 @@ public class AlertService {
     private final ExamSubmissionRepository submissionRepository;
     private final UserRepository userRepository;
     private final ScreenshotRepository screenshotRepository;
-    private final ActivityLogRepository activityLogRepository;
+    private final MonitoringStatsStore monitoringStatsStore;
+    private final LiveViewService liveViewService;
     
     /* ---------------------------------------------------
      * Tạo alert mới
      * @param request AlertCreateRequest
      * @returns AlertDTO
      * @author: K24DTCN210-NVMANH (21/11/2025 10:14)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 14:40) - Cộng alert vào thống kê monitoring
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 17:30) - Đẩy alert mới vào live view
      * --------------------------------------------------- */
     public AlertDTO createAlert(AlertCreateRequest request) {
         ExamSubmission submission = submissionRepository.findById(request.getSubmissionId())
@@ -52,11 +54,14 @@ public class AlertService {
             .build();
         
         alert = alertRepository.save(alert);
+        monitoringStatsStore.onAlertCreated(submission.getId(), alert.getId(), alert.getSeverity());
         
         log.info("Created {} alert for submission {}: {}", 
             request.getSeverity(), request.getSubmissionId(), request.getAlertType());
         
-        return convertToDTO(alert);
+        AlertDTO dto = convertToDTO(alert);
+        liveViewService.onAlertCreated(submission.getExam().getId(), dto);
+        return dto;
     }
     
     /* ---------------------------------------------------
@@ -102,6 +107,8 @@ public class AlertService {
      * @param reviewNote Ghi chú review
      * @returns AlertDTO
      * @author: K24DTCN210-NVMANH (21/11/2025 10:14)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 14:40) - Evict thống kê monitoring của submission
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 17:30) - Báo alert đã review cho live view
      * --------------------------------------------------- */
     public AlertDTO reviewAlert(Long alertId, Long teacherId, String reviewNote) {
         MonitoringAlert alert = alertRepository.findById(alertId)
@@ -116,6 +123,9 @@ public class AlertService {
         alert.setReviewNote(reviewNote);
         
         alert = alertRepository.save(alert);
+        monitoringStatsStore.evict(alert.getSubmission().getId());
+        liveViewService.onAlertReviewed(alert.getSubmission().getExam().getId(),
+            alert.getSubmission().getId(), alertId);
         
         log.info("Alert {} reviewed by teacher {}", alertId, teacherId);
         
@@ -127,47 +137,29 @@ public class AlertService {
      * @param submissionId ID của submission
      * @returns MonitoringSummaryDTO
      * @author: K24DTCN210-NVMANH (21/11/2025 10:14)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 14:40) - Đọc counter từ MonitoringStatsStore thay vì
+     *         load toàn bộ activity/alert/screenshot của submission mỗi lần gọi
      * --------------------------------------------------- */
+    @Transactional(readOnly = true)
     public MonitoringSummaryDTO getMonitoringSummary(Long submissionId) {
         ExamSubmission submission = submissionRepository.findById(submissionId)
             .orElseThrow(() -> new ResourceNotFoundException("Submission not found"));
         
         User student = submission.getStudent();
+        MonitoringStatsStore.Snapshot stats = monitoringStatsStore.getSnapshot(submissionId);
         
-        // Get statistics
-        long totalScreenshots = screenshotRepository.countBySubmissionId(submissionId);
-        long totalActivities = activityLogRepository.findBySubmissionId(submissionId).size();
-        
-        // Window switches
-        LocalDateTime last30Min = LocalDateTime.now().minusMinutes(30);
-        long windowSwitchCount = activityLogRepository.countWindowSwitchesInTimeRange(
-            submissionId, last30Min, LocalDateTime.now()
-        );
-        
-        // Clipboard activities
-        long clipboardCount = activityLogRepository
-            .findBySubmissionIdAndActivityType(submissionId, ActivityType.CLIPBOARD)
-            .size();
+        long windowSwitchCount = stats.getRecentWindowSwitches();
+        long unreviewedAlerts = stats.getUnreviewedAlerts();
+        Map<AlertSeverity, Long> alertsBySeverity = stats.getAlertsBySeverity();
         
         // Keystroke anomalies (giả sử có logic phát hiện)
         long keystrokeAnomalies = 0; // TODO: Implement detection logic
         
-        // Alert statistics
-        long totalAlerts = alertRepository.findBySubmissionId(submissionId).size();
-        long unreviewedAlerts = alertRepository.countUnreviewedBySubmissionId(submissionId);
-        
-        Map<AlertSeverity, Long> alertsBySeverity = new HashMap<>();
-        for (AlertSeverity severity : AlertSeverity.values()) {
-            long count = alertRepository.countBySubmissionIdAndSeverity(submissionId, severity);
-            if (count > 0) {
-                alertsBySeverity.put(severity, count);
-            }
-        }
-        
         // Latest screenshot
-        List<Screenshot> screenshots = screenshotRepository.findBySubmissionId(submissionId);
-        var latestScreenshot = screenshots.isEmpty() ? null : 
-            convertScreenshotToDTO(screenshots.get(0));
+        var latestScreenshot = stats.getLatestScreenshotId() == null ? null :
+            screenshotRepository.findById(stats.getLatestScreenshotId())
+                .map(this::convertScreenshotToDTO)
+                .orElse(null);
         
         // Risk assessment
         String riskLevel = calculateRiskLevel(windowSwitchCount, unreviewedAlerts, alertsBySeverity);
@@ -177,12 +169,12 @@ public class AlertService {
             .submissionId(submissionId)
             .studentName(student.getFullName())
             .studentCode(student.getStudentCode())
-            .totalScreenshots(totalScreenshots)
-            .totalActivities(totalActivities)
+            .totalScreenshots(stats.getTotalScreenshots())
+            .totalActivities(stats.getTotalActivities())
             .windowSwitchCount(windowSwitchCount)
-            .clipboardActivityCount(clipboardCount)
+            .clipboardActivityCount(stats.getActivityCount(ActivityType.CLIPBOARD))
             .keystrokeAnomalies(keystrokeAnomalies)
-            .totalAlerts(totalAlerts)
+            .totalAlerts(stats.getTotalAlerts())
             .unreviewedAlerts(unreviewedAlerts)
             .alertsBySeverity(alertsBySeverity)
             .latestScreenshot(latestScreenshot)
@@ -194,8 +186,9 @@ public class AlertService {
     /* ---------------------------------------------------
      * Tính toán mức độ rủi ro
      * @author: K24DTCN210-NVMANH (21/11/2025 10:14)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 18:40) - Static, dùng chung với ExamResultExportService
      * --------------------------------------------------- */
-    private String calculateRiskLevel(long windowSwitches, long unreviewedAlerts, 
+    static String calculateRiskLevel(long windowSwitches, long unreviewedAlerts, 
                                      Map<AlertSeverity, Long> alertsBySeverity) {
         // CRITICAL: Có critical alerts hoặc quá nhiều window switches
         if (alertsBySeverity.getOrDefault(AlertSeverity.CRITICAL, 0L) > 0 || windowSwitches > 20) {
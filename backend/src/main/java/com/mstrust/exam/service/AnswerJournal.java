@@ -0,0 +1,162 @@
+package com.mstrust.exam.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/* ---------------------------------------------------
+ * Journal append-only trên đĩa local cho AnswerWriteBuffer
+ * Mỗi câu trả lời được ghi thành 1 dòng JSON và fsync trước khi ACK cho client.
+ * Journal chia thành các segment "answers-<seq>.log": segment hiện tại nhận ghi,
+ * các segment đã "seal" chỉ được xóa sau khi nội dung đã flush xuống DB thành công.
+ * Class không thread-safe - AnswerWriteBuffer gọi trong lock của nó.
+ * @author: K24DTCN210-NVMANH (17/10/2026 09:10)
+ * --------------------------------------------------- */
+@Slf4j
+class AnswerJournal {
+
+    private static final String SEGMENT_PREFIX = "answers-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private long currentSeq;
+    private Path currentPath;
+    private FileChannel currentChannel;
+
+    AnswerJournal(Path directory) {
+        this.directory = directory;
+    }
+
+    /* ---------------------------------------------------
+     * Mở journal: tạo thư mục nếu chưa có, trả về các segment còn sót lại
+     * (chưa flush) theo thứ tự ghi, rồi mở segment mới để ghi tiếp
+     * @returns List segment cũ cần replay
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:10)
+     * --------------------------------------------------- */
+    List<Path> open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> leftovers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> parseSeq(p) >= 0)
+                .sorted((a, b) -> Long.compare(parseSeq(a), parseSeq(b)))
+                .forEach(leftovers::add);
+        }
+        currentSeq = leftovers.isEmpty() ? 0 : parseSeq(leftovers.get(leftovers.size() - 1));
+        openNextSegment();
+        return leftovers;
+    }
+
+    /* ---------------------------------------------------
+     * Ghi 1 record (1 dòng) và fsync để đảm bảo durable trước khi ACK
+     * @param line Nội dung record (không chứa xuống dòng)
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:10)
+     * --------------------------------------------------- */
+    void append(String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            currentChannel.write(buffer);
+        }
+        currentChannel.force(false);
+    }
+
+    /* ---------------------------------------------------
+     * Ghi nhiều record vào segment hiện tại với 1 lần fsync (dùng khi compact journal)
+     * @param lines Các record (không chứa xuống dòng)
+     * @author: K24DTCN210-NVMANH (18/10/2026 13:00)
+     * --------------------------------------------------- */
+    void appendAll(List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            currentChannel.write(buffer);
+        }
+        currentChannel.force(false);
+    }
+
+    /* ---------------------------------------------------
+     * Seal segment hiện tại và mở segment mới
+     * @returns Path của segment vừa seal (xóa sau khi flush thành công)
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:10)
+     * --------------------------------------------------- */
+    Path rotate() throws IOException {
+        Path sealed = currentPath;
+        currentChannel.close();
+        openNextSegment();
+        return sealed;
+    }
+
+    /* ---------------------------------------------------
+     * Đọc toàn bộ record trong một segment (bỏ qua dòng rỗng)
+     * @param segment Path segment
+     * @returns List các dòng
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:10)
+     * --------------------------------------------------- */
+    List<String> readSegment(Path segment) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(segment, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /* ---------------------------------------------------
+     * Xóa các segment đã flush xuống DB
+     * @param segments List segment cần xóa
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:10)
+     * --------------------------------------------------- */
+    void delete(List<Path> segments) {
+        for (Path segment : segments) {
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                log.warn("[AnswerJournal] Không xóa được segment {}: {}", segment, e.getMessage());
+            }
+        }
+    }
+
+    void close() {
+        try {
+            if (currentChannel != null && currentChannel.isOpen()) {
+                currentChannel.close();
+            }
+        } catch (IOException e) {
+            log.warn("[AnswerJournal] Lỗi khi đóng segment {}: {}", currentPath, e.getMessage());
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        currentSeq++;
+        currentPath = directory.resolve(SEGMENT_PREFIX + currentSeq + SEGMENT_SUFFIX);
+        currentChannel = FileChannel.open(currentPath,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static long parseSeq(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,613 @@
+package com.mstrust.exam.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mstrust.exam.entity.QuestionBank;
+import com.mstrust.exam.entity.QuestionType;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+
+/* ---------------------------------------------------
+ * Đáp án đã "biên dịch" của một câu hỏi trong exam, kèm điểm của câu
+ * Đáp án đúng được chuẩn hóa 1 lần khi compile đề (ExamPaperCache), lúc chấm chỉ
+ * chuẩn hóa câu trả lời của student rồi so sánh trong memory - không query DB:
+ * - MULTIPLE_CHOICE: token key chuẩn hóa ("b", "B. Text", {"selectedOption":"B"} -> "B")
+ * - TRUE_FALSE: token TRUE/FALSE (true, "Đúng", "Sai", 1/0...)
+ * - MULTIPLE_SELECT: BitSet theo thứ tự key của options, không phụ thuộc thứ tự chọn
+ * - MATCHING: tập cặp left->right từ correct_matches
+ * - FILL_IN_BLANK: cặp (blank_positions[i], đáp án i) so sánh không phân biệt hoa thường,
+ *   mỗi chỗ trống có thể có nhiều đáp án chấp nhận được, phân tách bằng "|"
+ * Các loại còn lại (ESSAY, SHORT_ANSWER, CODING) cần chấm tay nên grade() trả về null.
+ * Câu trả lời được đọc 1 lượt bằng JsonParser (không dựng JsonNode); chỉ chuỗi phân tách
+ * (plain hoặc JSON string) mới bị tách theo dấu phẩy - phần tử mảng JSON và giá trị của
+ * một chỗ trống (đề chỉ có 1 chỗ trống, {"0":"..."}) giữ nguyên dấu phẩy.
+ * @author: K24DTCN210-NVMANH (17/10/2026 12:10)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 16:40) - Parse streaming, không tách giá trị JSON / chỗ trống đơn
+ * --------------------------------------------------- */
+@Slf4j
+public final class AnswerKey {
+
+    /* Field chứa câu trả lời trong JSON object, theo thứ tự ưu tiên */
+    private static final List<String> VALUE_FIELDS =
+        List.of("selectedOptions", "selectedOption", "answers", "answer", "blanks", "text", "value");
+
+    @Getter
+    private final Long questionId;
+    @Getter
+    private final QuestionType questionType;
+    @Getter
+    private final BigDecimal points;
+
+    // Đáp án đã chuẩn hóa (chỉ 1 trong các field dưới có giá trị, tùy questionType)
+    private final String choiceToken;
+    private final Map<String, Integer> optionIndexes;
+    private final BitSet correctSelection;
+    private final Map<String, String> correctPairs;
+    private final int[] blankPositions;
+    private final List<Set<String>> blankAnswers;
+
+    private AnswerKey(Long questionId, QuestionType questionType, BigDecimal points,
+                      String choiceToken, Map<String, Integer> optionIndexes, BitSet correctSelection,
+                      Map<String, String> correctPairs, int[] blankPositions, List<Set<String>> blankAnswers) {
+        this.questionId = questionId;
+        this.questionType = questionType;
+        this.points = points;
+        this.choiceToken = choiceToken;
+        this.optionIndexes = optionIndexes;
+        this.correctSelection = correctSelection;
+        this.correctPairs = correctPairs;
+        this.blankPositions = blankPositions;
+        this.blankAnswers = blankAnswers;
+    }
+
+    /* ---------------------------------------------------
+     * Câu hỏi có chấm tự động được không (có loại hỗ trợ + có đáp án hợp lệ)
+     * @returns true nếu grade() có thể trả về kết quả
+     * --------------------------------------------------- */
+    public boolean isAutoGradable() {
+        return choiceToken != null || correctSelection != null
+            || correctPairs != null || blankAnswers != null;
+    }
+
+    // =============== COMPILE ===============
+
+    /* ---------------------------------------------------
+     * Compile đáp án của một câu hỏi
+     * @param question QuestionBank entity
+     * @param points Điểm của câu trong exam (ExamQuestion.points)
+     * @param objectMapper ObjectMapper để parse các field JSON
+     * @returns AnswerKey (không bao giờ null; câu không chấm tự động được thì isAutoGradable=false)
+     * @author: K24DTCN210-NVMANH (17/10/2026 12:10)
+     * --------------------------------------------------- */
+    static AnswerKey compile(QuestionBank question, BigDecimal points, ObjectMapper objectMapper) {
+        QuestionType type = question.getQuestionType();
+        String choiceToken = null;
+        Map<String, Integer> optionIndexes = null;
+        BitSet correctSelection = null;
+        Map<String, String> correctPairs = null;
+        int[] blankPositions = null;
+        List<Set<String>> blankAnswers = null;
+
+        try {
+            switch (type) {
+                case MULTIPLE_CHOICE: {
+                    List<String> tokens = readTokens(question.getCorrectAnswer(), objectMapper, false);
+                    if (!tokens.isEmpty()) {
+                        choiceToken = normalizeChoice(tokens.get(0), null);
+                    }
+                    break;
+                }
+                case TRUE_FALSE: {
+                    List<String> tokens = readTokens(question.getCorrectAnswer(), objectMapper, false);
+                    if (!tokens.isEmpty()) {
+                        choiceToken = normalizeBoolean(tokens.get(0));
+                    }
+                    break;
+                }
+                case MULTIPLE_SELECT: {
+                    List<String> tokens = readTokens(question.getCorrectAnswer(), objectMapper, true);
+                    if (!tokens.isEmpty()) {
+                        optionIndexes = buildOptionIndexes(question.getOptions(), tokens, objectMapper);
+                        correctSelection = new BitSet(optionIndexes.size());
+                        for (String token : tokens) {
+                            Integer index = optionIndexes.get(normalizeChoice(token, optionIndexes));
+                            if (index != null) {
+                                correctSelection.set(index);
+                            }
+                        }
+                    }
+                    break;
+                }
+                case MATCHING: {
+                    correctPairs = readPairs(question.getCorrectMatches(), objectMapper);
+                    if (correctPairs != null && correctPairs.isEmpty()) {
+                        correctPairs = null;
+                    }
+                    break;
+                }
+                case FILL_IN_BLANK: {
+                    // Đề 1 chỗ trống: cả đáp án là giá trị của chỗ trống đó, không tách theo dấu phẩy
+                    JsonNode positions = parseJson(question.getBlankPositions(), objectMapper);
+                    boolean singleBlank = positions != null && positions.isArray() && positions.size() == 1;
+                    List<String> tokens = readTokens(question.getCorrectAnswer(), objectMapper, !singleBlank);
+                    if (!tokens.isEmpty()) {
+                        blankAnswers = new ArrayList<>(tokens.size());
+                        for (String token : tokens) {
+                            Set<String> accepted = new HashSet<>();
+                            for (String alternative : token.split("\\|")) {
+                                accepted.add(normalizeText(alternative));
+                            }
+                            blankAnswers.add(Collections.unmodifiableSet(accepted));
+                        }
+                        blankAnswers = Collections.unmodifiableList(blankAnswers);
+                        blankPositions = readBlankPositions(question.getBlankPositions(), tokens.size(), objectMapper);
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        } catch (Exception e) {
+            log.warn("[AnswerKey] Không compile được đáp án của question {}: {}", question.getId(), e.getMessage());
+            choiceToken = null;
+            correctSelection = null;
+            correctPairs = null;
+            blankAnswers = null;
+        }
+
+        return new AnswerKey(question.getId(), type, points, choiceToken,
+            optionIndexes != null ? Collections.unmodifiableMap(optionIndexes) : null,
+            correctSelection, correctPairs != null ? Collections.unmodifiableMap(correctPairs) : null,
+            blankPositions, blankAnswers);
+    }
+
+    // =============== GRADE ===============
+
+    /* ---------------------------------------------------
+     * Chấm câu trả lời của student
+     * @param answerJson Câu trả lời dạng JSON (ưu tiên, nullable)
+     * @param answerText Câu trả lời dạng text (fallback, nullable)
+     * @param objectMapper ObjectMapper để parse answerJson
+     * @returns true/false, hoặc null nếu câu cần chấm tay / chưa có câu trả lời
+     * @author: K24DTCN210-NVMANH (17/10/2026 12:10)
+     * --------------------------------------------------- */
+    public Boolean grade(String answerJson, String answerText, ObjectMapper objectMapper) {
+        if (!isAutoGradable()) {
+            return null;
+        }
+        String raw = answerJson != null && !answerJson.isBlank() ? answerJson : answerText;
+        if (raw == null || raw.isBlank()) {
+            return null;
+        }
+
+        try {
+            switch (questionType) {
+                case MULTIPLE_CHOICE: {
+                    List<String> tokens = readTokens(raw, objectMapper, false);
+                    return !tokens.isEmpty() && choiceToken.equals(normalizeChoice(tokens.get(0), null));
+                }
+                case TRUE_FALSE: {
+                    List<String> tokens = readTokens(raw, objectMapper, false);
+                    return !tokens.isEmpty() && choiceToken.equals(normalizeBoolean(tokens.get(0)));
+                }
+                case MULTIPLE_SELECT:
+                    return gradeMultipleSelect(readTokens(raw, objectMapper, true));
+                case MATCHING:
+                    return correctPairs.equals(readPairs(raw, objectMapper));
+                case FILL_IN_BLANK:
+                    return gradeFillInBlank(raw, objectMapper);
+                default:
+                    return null;
+            }
+        } catch (Exception e) {
+            log.debug("[AnswerKey] Câu trả lời không parse được cho question {}: {}", questionId, e.getMessage());
+            return false;
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Điểm đạt được theo kết quả chấm
+     * @param isCorrect Kết quả từ grade()
+     * @returns points nếu đúng, 0 nếu sai, null nếu chưa chấm
+     * --------------------------------------------------- */
+    public BigDecimal pointsFor(Boolean isCorrect) {
+        if (isCorrect == null) {
+            return null;
+        }
+        return isCorrect ? points : BigDecimal.ZERO;
+    }
+
+    /* ---------------------------------------------------
+     * Các key đã chọn trong câu trả lời (chuẩn hóa giống lúc chấm), dùng cho thống kê
+     * tần suất chọn đáp án: MULTIPLE_CHOICE "B", TRUE_FALSE "TRUE", MULTIPLE_SELECT ["A","C"]
+     * @param answerJson Câu trả lời dạng JSON (ưu tiên, nullable)
+     * @param answerText Câu trả lời dạng text (fallback, nullable)
+     * @param objectMapper ObjectMapper để parse answerJson
+     * @returns List key, rỗng nếu không phải câu lựa chọn hoặc chưa trả lời
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+     * --------------------------------------------------- */
+    public List<String> choiceKeys(String answerJson, String answerText, ObjectMapper objectMapper) {
+        String raw = answerJson != null && !answerJson.isBlank() ? answerJson : answerText;
+        if (raw == null || raw.isBlank()) {
+            return List.of();
+        }
+        try {
+            switch (questionType) {
+                case MULTIPLE_CHOICE: {
+                    List<String> tokens = readTokens(raw, objectMapper, false);
+                    return tokens.isEmpty() ? List.of() : List.of(normalizeChoice(tokens.get(0), null));
+                }
+                case TRUE_FALSE: {
+                    List<String> tokens = readTokens(raw, objectMapper, false);
+                    return tokens.isEmpty() ? List.of() : List.of(normalizeBoolean(tokens.get(0)));
+                }
+                case MULTIPLE_SELECT: {
+                    Set<String> keys = new TreeSet<>();
+                    for (String token : readTokens(raw, objectMapper, true)) {
+                        String key = normalizeChoice(token, optionIndexes);
+                        // Có danh sách option thì bỏ phần text của option bị tách theo dấu phẩy
+                        if (optionIndexes == null ? isBareKey(token) || !key.equals(normalizeKey(token))
+                                : optionIndexes.containsKey(key)) {
+                            keys.add(key);
+                        }
+                    }
+                    return new ArrayList<>(keys);
+                }
+                default:
+                    return List.of();
+            }
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
+    private boolean gradeMultipleSelect(List<String> tokens) {
+        BitSet selected = new BitSet(optionIndexes.size());
+        for (String token : tokens) {
+            String key = normalizeChoice(token, optionIndexes);
+            Integer index = optionIndexes.get(key);
+            if (index != null) {
+                selected.set(index);
+            } else if (isBareKey(token)) {
+                // Chọn key không tồn tại trong đề -> sai
+                return false;
+            }
+            // Token còn lại là phần text của option chứa dấu phẩy ("A. x, y,B. z") - bỏ qua
+        }
+        return correctSelection.equals(selected);
+    }
+
+    private boolean gradeFillInBlank(String raw, ObjectMapper objectMapper) {
+        ParsedAnswer parsed = parseAnswer(raw, objectMapper, blankAnswers.size() > 1);
+        Map<Integer, String> answers = parsed.positions;
+        if (answers == null) {
+            answers = new HashMap<>();
+            for (int i = 0; i < parsed.tokens.size() && i < blankPositions.length; i++) {
+                answers.put(blankPositions[i], parsed.tokens.get(i));
+            }
+        }
+
+        for (int i = 0; i < blankAnswers.size(); i++) {
+            String answer = answers.get(blankPositions[i]);
+            if (answer == null || !blankAnswers.get(i).contains(normalizeText(answer))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // =============== NORMALIZATION HELPERS ===============
+
+    /* ---------------------------------------------------
+     * Tách câu trả lời/đáp án thành các token thô
+     * Hỗ trợ: "A", "\"A\"", "A,C", ["A","C"], true, {"selectedOption":"A"},
+     * {"selectedOptions":[...]}, {"answer":true}, {"blanks":[...]}, {"text":"..."}
+     * @param raw Chuỗi gốc
+     * @param objectMapper ObjectMapper
+     * @param split Có tách chuỗi phân tách theo dấu phẩy không (không áp dụng cho phần tử mảng)
+     * @returns List token đã trim, không rỗng
+     * --------------------------------------------------- */
+    private static List<String> readTokens(String raw, ObjectMapper objectMapper, boolean split) {
+        return parseAnswer(raw, objectMapper, split).tokens;
+    }
+
+    /* ---------------------------------------------------
+     * Đọc câu trả lời 1 lượt bằng JsonParser; chuỗi không phải JSON / JSON hỏng coi là chuỗi thường
+     * @param raw Chuỗi gốc
+     * @param objectMapper ObjectMapper (lấy JsonFactory)
+     * @param split Có tách chuỗi phân tách theo dấu phẩy không
+     * @returns ParsedAnswer
+     * @author: K24DTCN210-NVMANH (18/10/2026 16:40)
+     * --------------------------------------------------- */
+    private static ParsedAnswer parseAnswer(String raw, ObjectMapper objectMapper, boolean split) {
+        ParsedAnswer parsed = new ParsedAnswer();
+        String trimmed = raw == null ? "" : raw.trim();
+        if (trimmed.isEmpty()) {
+            return parsed;
+        }
+        if (looksLikeJson(trimmed)) {
+            try (JsonParser parser = objectMapper.getFactory().createParser(trimmed)) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT) {
+                    readObject(parser, parsed, split);
+                } else if (token == JsonToken.START_ARRAY) {
+                    readArray(parser, parsed.tokens);
+                } else if (token == JsonToken.VALUE_STRING) {
+                    // Chuỗi thường được serialize thành JSON string ("A,C") - vẫn là dạng phân tách
+                    addTokens(parsed.tokens, parser.getText(), split);
+                } else if (token != null && token != JsonToken.VALUE_NULL) {
+                    addTokens(parsed.tokens, parser.getText(), false);
+                }
+                return parsed;
+            } catch (IOException e) {
+                parsed = new ParsedAnswer();
+            }
+        }
+        addTokens(parsed.tokens, trimmed, split);
+        return parsed;
+    }
+
+    /* Lấy field ưu tiên cao nhất trong VALUE_FIELDS; object có key dạng số và không có "blanks"
+     * thì giữ thêm các cặp {"vị trí": giá trị} cho FILL_IN_BLANK */
+    private static void readObject(JsonParser parser, ParsedAnswer parsed, boolean split) throws IOException {
+        Map<Integer, String> positions = new HashMap<>();
+        boolean hasBlanks = false;
+        int bestRank = VALUE_FIELDS.size();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            int rank = VALUE_FIELDS.indexOf(name);
+            hasBlanks |= "blanks".equals(name);
+
+            if (rank >= 0 && rank < bestRank) {
+                bestRank = rank;
+                parsed.tokens.clear();
+                if (value == JsonToken.START_ARRAY) {
+                    readArray(parser, parsed.tokens);
+                } else if (value.isStructStart()) {
+                    parser.skipChildren();
+                } else if (value != JsonToken.VALUE_NULL) {
+                    addTokens(parsed.tokens, parser.getText(), split);
+                }
+            } else if (value.isStructStart()) {
+                parser.skipChildren();
+            } else if (rank < 0) {
+                try {
+                    positions.put(Integer.parseInt(name.trim()), parser.getText());
+                } catch (NumberFormatException ignored) {
+                    // key không phải vị trí -> không tính
+                }
+            }
+        }
+        if (!hasBlanks && !positions.isEmpty()) {
+            parsed.positions = positions;
+        }
+    }
+
+    /* Phần tử mảng là giá trị riêng lẻ, không bao giờ tách theo dấu phẩy */
+    private static void readArray(JsonParser parser, List<String> tokens) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+            if (token.isStructStart()) {
+                parser.skipChildren();
+            } else if (token != JsonToken.VALUE_NULL) {
+                addTokens(tokens, parser.getText(), false);
+            }
+        }
+    }
+
+    private static void addTokens(List<String> tokens, String value, boolean split) {
+        if (value == null) {
+            return;
+        }
+        if (!split) {
+            String trimmed = value.trim();
+            if (!trimmed.isEmpty()) {
+                tokens.add(trimmed);
+            }
+            return;
+        }
+        for (String part : value.split(",")) {
+            String trimmed = part.trim();
+            if (!trimmed.isEmpty()) {
+                tokens.add(trimmed);
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Đọc tập cặp left->right: JSON object (có thể bọc trong "matches")
+     * hoặc chuỗi "L1:R1,L2-R2,L3=R3"
+     * @returns Map key/value đã chuẩn hóa (trim + uppercase), null nếu không đọc được
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 16:40) - Đọc streaming
+     * --------------------------------------------------- */
+    private static Map<String, String> readPairs(String raw, ObjectMapper objectMapper) {
+        if (raw == null || raw.isBlank()) {
+            return null;
+        }
+        String text = raw.trim();
+        if (looksLikeJson(text)) {
+            try (JsonParser parser = objectMapper.getFactory().createParser(text)) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT) {
+                    return readPairObject(parser);
+                }
+                if (token == JsonToken.VALUE_STRING) {
+                    text = parser.getText();
+                }
+            } catch (IOException e) {
+                // JSON hỏng -> đọc như chuỗi thường
+            }
+        }
+        Map<String, String> pairs = new HashMap<>();
+        for (String part : text.split(",")) {
+            String[] pair = part.split("[:=\\-]", 2);
+            if (pair.length == 2 && !pair[0].isBlank()) {
+                pairs.put(normalizeKey(pair[0]), normalizeKey(pair[1]));
+            }
+        }
+        return pairs;
+    }
+
+    private static Map<String, String> readPairObject(JsonParser parser) throws IOException {
+        Map<String, String> pairs = new HashMap<>();
+        Map<String, String> matches = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("matches".equals(name) && value == JsonToken.START_OBJECT) {
+                matches = readPairObject(parser);
+            } else if (value.isStructStart()) {
+                parser.skipChildren();
+                pairs.put(normalizeKey(name), "");
+            } else {
+                pairs.put(normalizeKey(name), normalizeKey(parser.getText()));
+            }
+        }
+        return matches != null ? matches : pairs;
+    }
+
+    /* ---------------------------------------------------
+     * Vị trí các chỗ trống từ blank_positions; thiếu/không khớp số đáp án thì dùng 0..n-1
+     * --------------------------------------------------- */
+    private static int[] readBlankPositions(String json, int count, ObjectMapper objectMapper) throws Exception {
+        int[] positions = new int[count];
+        JsonNode node = parseJson(json, objectMapper);
+        if (node != null && node.isArray() && node.size() == count) {
+            for (int i = 0; i < count; i++) {
+                positions[i] = node.get(i).asInt(i);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                positions[i] = i;
+            }
+        }
+        return positions;
+    }
+
+    /* ---------------------------------------------------
+     * Thứ tự key của options (sort theo key như lúc hiển thị), bổ sung key có trong đáp án
+     * --------------------------------------------------- */
+    private static Map<String, Integer> buildOptionIndexes(String optionsJson, List<String> correctTokens,
+                                                           ObjectMapper objectMapper) throws Exception {
+        SortedSet<String> keys = new TreeSet<>();
+        JsonNode node = parseJson(optionsJson, objectMapper);
+        if (node != null && node.isObject()) {
+            node.fieldNames().forEachRemaining(name -> {
+                if (!"correctAnswer".equals(name)) {
+                    keys.add(normalizeKey(name));
+                }
+            });
+        } else if (node != null && node.isArray()) {
+            for (JsonNode option : node) {
+                if (option.has("key")) {
+                    keys.add(normalizeKey(option.get("key").asText()));
+                }
+            }
+        }
+        for (String token : correctTokens) {
+            keys.add(normalizeChoice(token, null));
+        }
+
+        Map<String, Integer> indexes = new HashMap<>();
+        for (String key : keys) {
+            indexes.put(key, indexes.size());
+        }
+        return indexes;
+    }
+
+    /* ---------------------------------------------------
+     * Chuẩn hóa lựa chọn về key: "b" -> "B", "B. Java" -> "B", "B) Java" -> "B"
+     * @param token Token thô
+     * @param knownKeys Tập key hợp lệ (nullable) - nếu có thì chỉ tách prefix khi prefix là key
+     * @returns Key đã chuẩn hóa
+     * --------------------------------------------------- */
+    private static String normalizeChoice(String token, Map<String, Integer> knownKeys) {
+        String value = token.trim();
+        String upper = normalizeKey(value);
+        if (knownKeys != null && knownKeys.containsKey(upper)) {
+            return upper;
+        }
+        int end = 0;
+        while (end < value.length() && Character.isLetterOrDigit(value.charAt(end))) {
+            end++;
+        }
+        if (end > 0 && end < value.length() && (value.charAt(end) == '.' || value.charAt(end) == ')')) {
+            String prefix = normalizeKey(value.substring(0, end));
+            if (knownKeys == null || knownKeys.containsKey(prefix)) {
+                return prefix;
+            }
+        }
+        return upper;
+    }
+
+    private static String normalizeBoolean(String token) {
+        String value = normalizeText(token);
+        switch (value) {
+            case "true": case "t": case "1": case "yes": case "y": case "đúng": case "dung":
+                return "TRUE";
+            case "false": case "f": case "0": case "no": case "n": case "sai":
+                return "FALSE";
+            default:
+                return value.toUpperCase(Locale.ROOT);
+        }
+    }
+
+    private static boolean isBareKey(String token) {
+        String value = token.trim();
+        if (value.isEmpty() || value.length() > 3) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isLetterOrDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String normalizeKey(String value) {
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String normalizeText(String value) {
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean looksLikeJson(String trimmed) {
+        char first = trimmed.charAt(0);
+        return first == '{' || first == '[' || first == '"'
+            || "true".equals(trimmed) || "false".equals(trimmed);
+    }
+
+    /* ---------------------------------------------------
+     * Parse JSON nếu chuỗi trông giống JSON, ngược lại trả về null (chuỗi thường)
+     * Chỉ dùng lúc compile đáp án (options, blank_positions)
+     * --------------------------------------------------- */
+    private static JsonNode parseJson(String raw, ObjectMapper objectMapper) {
+        if (raw == null) {
+            return null;
+        }
+        String trimmed = raw.trim();
+        if (trimmed.isEmpty() || !looksLikeJson(trimmed)) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(trimmed);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /* Câu trả lời sau khi parse: token theo thứ tự + (object có key vị trí) vị trí -> giá trị */
+    private static final class ParsedAnswer {
+        private final List<String> tokens = new ArrayList<>();
+        private Map<Integer, String> positions;
+    }
+}
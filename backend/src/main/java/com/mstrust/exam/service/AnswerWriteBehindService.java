@@ -0,0 +1,206 @@
+package com.mstrust.exam.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mstrust.exam.dto.SaveAnswersBatchResponse;
+import com.mstrust.exam.dto.SubmitAnswerRequest;
+import com.mstrust.exam.entity.StudentAnswer;
+import com.mstrust.exam.exception.BadRequestException;
+import com.mstrust.exam.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* ---------------------------------------------------
+ * Service autosave ở chế độ write-behind (exam.answer-buffer.enabled=true)
+ * Validate + auto-grade dựa trên SubmissionContext đã cache, đẩy câu trả lời
+ * vào AnswerWriteBuffer và ACK ngay - không mở transaction, không query DB
+ * (trừ lần save đầu tiên của submission để load context)
+ * @author: K24DTCN210-NVMANH (17/10/2026 09:40)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 12:10) - Chấm bằng AnswerKey (chuẩn hóa theo QuestionType)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 17:30) - Báo câu trả lời mới cho live view
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 09:10) - Thêm saveAnswersBatch
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 17:30) - Truyền context cho accept() (từ chối khi bài đã nộp/pause)
+ * --------------------------------------------------- */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnswerWriteBehindService {
+
+    private final AnswerWriteBuffer answerWriteBuffer;
+    private final ExamTakingService examTakingService;
+    private final SubmissionActivityTracker activityTracker;
+    private final ObjectMapper objectMapper;
+    private final LiveViewService liveViewService;
+
+    public boolean isEnabled() {
+        return answerWriteBuffer.isEnabled();
+    }
+
+    /* ---------------------------------------------------
+     * Save câu trả lời vào write-behind buffer
+     * @param submissionId ID của submission
+     * @param request SubmitAnswerRequest
+     * @param studentId ID của student (for validation)
+     * @returns Map cùng format với ExamTakingService.saveAnswer
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:40)
+     * --------------------------------------------------- */
+    public Map<String, Object> saveAnswer(Long submissionId, SubmitAnswerRequest request, Long studentId) {
+        AnswerWriteBuffer.SubmissionContext context = answerWriteBuffer.getContext(submissionId);
+        if (context == null) {
+            context = examTakingService.loadAnswerContext(submissionId, studentId);
+        }
+
+        // Validate ownership
+        if (!context.getStudentId().equals(studentId)) {
+            throw new BadRequestException("Bài làm này không thuộc về bạn");
+        }
+
+        if (context.isExpired()) {
+            answerWriteBuffer.evictContext(submissionId);
+            examTakingService.submitExam(submissionId, studentId);
+            throw new BadRequestException("Hết thời gian. Bài thi đã được tự động nộp");
+        }
+
+        AnswerKey key = context.getQuestions().get(request.getQuestionId());
+        if (key == null) {
+            throw new ResourceNotFoundException("Không tìm thấy câu hỏi trong bài thi này");
+        }
+
+        String answerJson = null;
+        try {
+            if (request.getAnswer() != null) {
+                answerJson = objectMapper.writeValueAsString(request.getAnswer());
+            }
+        } catch (Exception e) {
+            throw new BadRequestException("Invalid answer format");
+        }
+
+        // Auto-grade if possible (AnswerKey đã compile, không query DB)
+        Boolean isCorrect = key.grade(answerJson, request.getAnswerText(), objectMapper);
+        BigDecimal pointsEarned = key.pointsFor(isCorrect);
+
+        long now = System.currentTimeMillis();
+        answerWriteBuffer.accept(context, AnswerWriteBuffer.PendingAnswer.builder()
+            .submissionId(submissionId)
+            .questionId(request.getQuestionId())
+            .answerText(request.getAnswerText())
+            .answerJson(answerJson)
+            .uploadedFileUrl(request.getUploadedFileUrl())
+            .uploadedFileName(request.getUploadedFileName())
+            .isCorrect(isCorrect)
+            .pointsEarned(pointsEarned)
+            .maxPoints(key.getPoints())
+            .savedCount(1)
+            .firstSavedAt(now)
+            .lastSavedAt(now)
+            .build());
+        activityTracker.recordSave(submissionId);
+        liveViewService.onAnswerSaved(context.getExamId(), submissionId, request.getQuestionId(),
+            answerJson != null ? StudentAnswer.hasAnswerJson(answerJson) : null,
+            StudentAnswer.hasTextOrFile(request.getAnswerText(), request.getUploadedFileUrl()));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        boolean isAutoSave = request.getIsAutoSave() != null && request.getIsAutoSave();
+        result.put("message", isAutoSave ? "Answer auto-saved" : "Answer saved");
+        result.put("isGraded", isCorrect != null);
+        result.put("pointsEarned", pointsEarned);
+        result.put("buffered", true);
+        return result;
+    }
+
+    /* ---------------------------------------------------
+     * Save nhiều câu trả lời vào write-behind buffer (cùng format với ExamTakingService.saveAnswersBatch)
+     * Validate context 1 lần, câu lỗi chỉ fail riêng câu đó, tracking cập nhật 1 lần
+     * @param submissionId ID của submission
+     * @param requests Danh sách câu trả lời (câu lặp lại trong batch: giữ bản cuối)
+     * @param studentId ID của student (for validation)
+     * @returns SaveAnswersBatchResponse với kết quả từng câu
+     * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+     * --------------------------------------------------- */
+    public SaveAnswersBatchResponse saveAnswersBatch(Long submissionId, List<SubmitAnswerRequest> requests, Long studentId) {
+        AnswerWriteBuffer.SubmissionContext context = answerWriteBuffer.getContext(submissionId);
+        if (context == null) {
+            context = examTakingService.loadAnswerContext(submissionId, studentId);
+        }
+
+        // Validate ownership
+        if (!context.getStudentId().equals(studentId)) {
+            throw new BadRequestException("Bài làm này không thuộc về bạn");
+        }
+
+        if (context.isExpired()) {
+            answerWriteBuffer.evictContext(submissionId);
+            examTakingService.submitExam(submissionId, studentId);
+            throw new BadRequestException("Hết thời gian. Bài thi đã được tự động nộp");
+        }
+
+        Map<Long, SubmitAnswerRequest> latest = new LinkedHashMap<>();
+        for (SubmitAnswerRequest request : requests) {
+            latest.put(request.getQuestionId(), request);
+        }
+
+        List<SaveAnswersBatchResponse.ItemResult> results = new ArrayList<>();
+        int saved = 0;
+        long now = System.currentTimeMillis();
+        for (SubmitAnswerRequest request : latest.values()) {
+            AnswerKey key = context.getQuestions().get(request.getQuestionId());
+            if (key == null) {
+                results.add(ExamTakingService.failedItem(request.getQuestionId(),
+                    "Không tìm thấy câu hỏi trong bài thi này"));
+                continue;
+            }
+
+            String answerJson;
+            try {
+                answerJson = request.getAnswer() != null ? objectMapper.writeValueAsString(request.getAnswer()) : null;
+            } catch (Exception e) {
+                results.add(ExamTakingService.failedItem(request.getQuestionId(), "Invalid answer format"));
+                continue;
+            }
+
+            Boolean isCorrect = key.grade(answerJson, request.getAnswerText(), objectMapper);
+            BigDecimal pointsEarned = key.pointsFor(isCorrect);
+            answerWriteBuffer.accept(context, AnswerWriteBuffer.PendingAnswer.builder()
+                .submissionId(submissionId)
+                .questionId(request.getQuestionId())
+                .answerText(request.getAnswerText())
+                .answerJson(answerJson)
+                .uploadedFileUrl(request.getUploadedFileUrl())
+                .uploadedFileName(request.getUploadedFileName())
+                .isCorrect(isCorrect)
+                .pointsEarned(pointsEarned)
+                .maxPoints(key.getPoints())
+                .savedCount(1)
+                .firstSavedAt(now)
+                .lastSavedAt(now)
+                .build());
+            liveViewService.onAnswerSaved(context.getExamId(), submissionId, request.getQuestionId(),
+                answerJson != null ? StudentAnswer.hasAnswerJson(answerJson) : null,
+                StudentAnswer.hasTextOrFile(request.getAnswerText(), request.getUploadedFileUrl()));
+            results.add(SaveAnswersBatchResponse.ItemResult.builder()
+                .questionId(request.getQuestionId())
+                .success(true)
+                .message("Answer saved")
+                .isGraded(isCorrect != null)
+                .pointsEarned(pointsEarned)
+                .build());
+            saved++;
+        }
+        activityTracker.recordSaves(submissionId, saved);
+
+        return SaveAnswersBatchResponse.builder()
+            .savedCount(saved)
+            .failedCount(latest.size() - saved)
+            .buffered(true)
+            .results(results)
+            .build();
+    }
+}
@@ -0,0 +1,685 @@
+package com.mstrust.exam.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mstrust.exam.exception.BadRequestException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* ---------------------------------------------------
+ * Write-behind buffer cho autosave câu trả lời
+ * - Câu trả lời được ghi vào journal local (fsync) + buffer in-memory theo submission
+ *   rồi ACK ngay cho client, không đụng tới MySQL
+ * - Định kỳ (exam.answer-buffer.flush-interval-ms) gộp các bản ghi theo
+ *   (submission, question) và upsert xuống student_answers bằng 1 batch
+ * - submitExam/pauseExam gọi flushSubmission() trước khi đổi status khỏi IN_PROGRESS
+ * - Khi khởi động lại, các segment journal chưa flush được replay vào buffer
+ * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 13:00) - Không bỏ câu trả lời của submission đã rời IN_PROGRESS,
+ *   flush lỗi được cô lập theo submission, compact journal sau flushSubmission
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 17:30) - flushSubmission đóng submission cùng lock với accept:
+ *   save đã đọc context trước khi submit không còn lọt vào buffer sau khi chấm điểm
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 18:10) - Tự tắt khi exam.websocket.broker=relay (nhiều node):
+ *   buffer nằm trong RAM/journal của từng node, node khác submit/export/chấm lại không thấy
+ * --------------------------------------------------- */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AnswerWriteBuffer {
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO student_answers (submission_id, question_id, answer_text, answer_json, " +
+        "uploaded_file_url, uploaded_file_name, is_correct, points_earned, max_points, " +
+        "saved_count, first_saved_at, last_saved_at, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE " +
+        "answer_text = VALUES(answer_text), " +
+        "answer_json = COALESCE(VALUES(answer_json), answer_json), " +
+        "uploaded_file_url = VALUES(uploaded_file_url), " +
+        "uploaded_file_name = VALUES(uploaded_file_name), " +
+        "points_earned = IF(VALUES(is_correct) IS NULL, points_earned, VALUES(points_earned)), " +
+        "is_correct = COALESCE(VALUES(is_correct), is_correct), " +
+        "max_points = COALESCE(VALUES(max_points), max_points), " +
+        "saved_count = COALESCE(saved_count, 0) + VALUES(saved_count), " +
+        "last_saved_at = VALUES(last_saved_at), " +
+        "updated_at = VALUES(updated_at)";
+
+    private static final String EXISTING_SUBMISSIONS_SQL =
+        "SELECT id FROM exam_submissions WHERE id IN (:ids)";
+
+    private static final int BATCH_SIZE = 500;
+
+    /* Giữ context của submission thêm một khoảng sau deadline trước khi dọn */
+    private static final long CONTEXT_GRACE_MILLIS = 10 * 60 * 1000L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${exam.answer-buffer.enabled:false}")
+    private boolean enabled;
+
+    @Value("${exam.answer-buffer.journal-dir:./data/answer-journal}")
+    private String journalDir;
+
+    @Value("${exam.websocket.broker:simple}")
+    private String brokerMode;
+
+    /* Bảo vệ pending + journal (append và rotate phải cùng thứ tự) */
+    private final Object bufferLock = new Object();
+
+    /* Tuần tự hóa các lần ghi DB để bản cũ không bao giờ ghi đè bản mới */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private Map<Long, Map<Long, PendingAnswer>> pending = new HashMap<>();
+    private final List<Path> sealedSegments = new ArrayList<>();
+    private final Map<Long, SubmissionContext> contexts = new ConcurrentHashMap<>();
+
+    /* Submission đã đóng bởi flushSubmission -> thời điểm đóng (bảo vệ bởi bufferLock) */
+    private final Map<Long, Long> closedSubmissions = new HashMap<>();
+    private AnswerJournal journal;
+
+    /* ---------------------------------------------------
+     * Mở journal và replay các segment chưa flush từ lần chạy trước
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * --------------------------------------------------- */
+    @PostConstruct
+    public void init() {
+        if (enabled && "relay".equalsIgnoreCase(brokerMode)) {
+            log.warn("[AnswerBuffer] exam.websocket.broker=relay (multi-node) - write-behind disabled, " +
+                "answers are written directly to the database");
+            enabled = false;
+        }
+        if (!enabled) {
+            return;
+        }
+        journal = new AnswerJournal(Paths.get(journalDir));
+        try {
+            List<Path> leftovers = journal.open();
+            int replayed = 0;
+            for (Path segment : leftovers) {
+                for (String line : journal.readSegment(segment)) {
+                    try {
+                        PendingAnswer answer = objectMapper.readValue(line, PendingAnswer.class);
+                        putPending(answer);
+                        replayed++;
+                    } catch (Exception e) {
+                        log.warn("[AnswerBuffer] Bỏ qua record hỏng trong {}: {}", segment, e.getMessage());
+                    }
+                }
+            }
+            sealedSegments.addAll(leftovers);
+            log.info("[AnswerBuffer] Write-behind enabled - journal: {}, replayed {} answer(s) from {} segment(s)",
+                journalDir, replayed, leftovers.size());
+        } catch (IOException e) {
+            log.error("[AnswerBuffer] Không mở được journal {} - chuyển sang ghi trực tiếp", journalDir, e);
+            journal = null;
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Flush toàn bộ buffer khi shutdown
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * --------------------------------------------------- */
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        flushAll();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* ---------------------------------------------------
+     * Nhận một câu trả lời vào buffer (journal trước, rồi mới vào memory)
+     * Nếu journal lỗi thì ghi thẳng xuống DB để không mất dữ liệu
+     * @param context Context caller đã dùng để validate/chấm (bị từ chối nếu submission đã đóng)
+     * @param answer PendingAnswer đã validate + chấm điểm
+     * @throws BadRequestException nếu submission đã được submit/pause trong lúc xử lý
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 17:30) - Kiểm tra context đã đóng dưới bufferLock
+     * --------------------------------------------------- */
+    public void accept(SubmissionContext context, PendingAnswer answer) {
+        if (journal != null) {
+            try {
+                String record = objectMapper.writeValueAsString(answer);
+                synchronized (bufferLock) {
+                    ensureOpen(context);
+                    journal.append(record);
+                    putPending(answer);
+                }
+                return;
+            } catch (IOException e) {
+                log.error("[AnswerBuffer] Ghi journal thất bại cho submission {} - ghi trực tiếp xuống DB",
+                    answer.getSubmissionId(), e);
+            }
+        }
+        // flushSubmission giữ flushLock suốt lúc đóng + flush nên upsert ở đây hoặc xong trước, hoặc bị từ chối
+        flushLock.lock();
+        try {
+            synchronized (bufferLock) {
+                ensureOpen(context);
+            }
+            upsert(Collections.singletonList(answer));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void ensureOpen(SubmissionContext context) {
+        if (context.closed) {
+            throw new BadRequestException("Bài làm này không còn hoạt động");
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Các câu trả lời chưa flush của một submission (để overlay khi đọc)
+     * @param submissionId ID của submission
+     * @returns Map questionId -> PendingAnswer (bản copy)
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * --------------------------------------------------- */
+    public Map<Long, PendingAnswer> getPending(Long submissionId) {
+        synchronized (bufferLock) {
+            Map<Long, PendingAnswer> answers = pending.get(submissionId);
+            return answers != null ? new HashMap<>(answers) : Collections.emptyMap();
+        }
+    }
+
+    /* ---------------------------------------------------
+     * ID các submission đang có câu trả lời chờ flush (snapshot)
+     * @returns Set submissionId
+     * @author: K24DTCN210-NVMANH (18/10/2026 16:55)
+     * --------------------------------------------------- */
+    public Set<Long> getPendingSubmissionIds() {
+        synchronized (bufferLock) {
+            return new HashSet<>(pending.keySet());
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Flush các câu trả lời của một nhóm submission (vd các bài của 1 đề trước khi export),
+     * không đụng tới buffer của submission khác; context vẫn giữ vì bài có thể đang làm
+     * Lỗi thì trả câu trả lời lại buffer và ném lại exception
+     * @param submissionIds ID các submission cần flush
+     * @author: K24DTCN210-NVMANH (18/10/2026 16:55)
+     * --------------------------------------------------- */
+    public void flushSubmissions(Collection<Long> submissionIds) {
+        if (submissionIds.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            Map<Long, Map<Long, PendingAnswer>> snapshot = new HashMap<>();
+            synchronized (bufferLock) {
+                for (Long submissionId : submissionIds) {
+                    Map<Long, PendingAnswer> answers = pending.remove(submissionId);
+                    if (answers != null && !answers.isEmpty()) {
+                        snapshot.put(submissionId, answers);
+                    }
+                }
+            }
+            if (snapshot.isEmpty()) {
+                return;
+            }
+
+            List<PendingAnswer> batch = new ArrayList<>();
+            snapshot.values().forEach(answers -> batch.addAll(answers.values()));
+            try {
+                upsert(batch);
+            } catch (RuntimeException e) {
+                restore(snapshot);
+                throw e;
+            }
+            compactJournal();
+            log.info("[AnswerBuffer] Flushed {} answer(s) for {} submission(s)", batch.size(), snapshot.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Ép flush các câu trả lời của một submission (gọi trước khi đổi status khỏi IN_PROGRESS)
+     * Đóng submission cùng lúc lấy câu trả lời ra (dưới bufferLock): accept() sau đó bị từ chối,
+     * kể cả save đã đọc context từ trước
+     * Chạy trong transaction của caller nếu có: commit thì compact journal (bỏ record của
+     * submission này), rollback thì mở lại submission và đưa câu trả lời trở lại buffer + journal
+     * @param submissionId ID của submission
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 13:00) - Xử lý journal theo kết quả transaction
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 17:30) - Đóng submission cho accept()
+     * --------------------------------------------------- */
+    public void flushSubmission(Long submissionId) {
+        flushLock.lock();
+        try {
+            Map<Long, PendingAnswer> answers;
+            synchronized (bufferLock) {
+                SubmissionContext context = contexts.remove(submissionId);
+                if (context != null) {
+                    context.closed = true;
+                }
+                closedSubmissions.put(submissionId, System.currentTimeMillis());
+                answers = pending.remove(submissionId);
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            reopen(submissionId);
+                        }
+                    }
+                });
+            }
+            if (answers == null || answers.isEmpty()) {
+                return;
+            }
+            try {
+                upsert(new ArrayList<>(answers.values()));
+                log.info("[AnswerBuffer] Flushed {} answer(s) for submission {}", answers.size(), submissionId);
+            } catch (RuntimeException e) {
+                restore(Collections.singletonMap(submissionId, answers));
+                throw e;
+            }
+            afterSubmissionFlushed(submissionId, answers);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void afterSubmissionFlushed(Long submissionId, Map<Long, PendingAnswer> answers) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            compactJournal();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    compactJournal();
+                } else {
+                    requeue(submissionId, answers);
+                }
+            }
+        });
+    }
+
+    /* ---------------------------------------------------
+     * Flush định kỳ: seal segment hiện tại, upsert toàn bộ buffer trong 1 batch,
+     * xóa các segment đã an toàn trong DB. Batch lỗi thì thử lại từng submission, chỉ
+     * submission lỗi được trả lại buffer (không chặn các submission khác)
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 13:00) - Cô lập lỗi theo submission
+     * --------------------------------------------------- */
+    @Scheduled(fixedDelayString = "${exam.answer-buffer.flush-interval-ms:2000}")
+    public void flushAll() {
+        if (!enabled) {
+            return;
+        }
+        evictExpiredContexts();
+
+        flushLock.lock();
+        try {
+            Map<Long, Map<Long, PendingAnswer>> snapshot;
+            List<Path> flushedSegments = new ArrayList<>();
+            synchronized (bufferLock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                snapshot = pending;
+                pending = new HashMap<>();
+                if (journal != null) {
+                    try {
+                        sealedSegments.add(journal.rotate());
+                        flushedSegments.addAll(sealedSegments);
+                    } catch (IOException e) {
+                        log.error("[AnswerBuffer] Không rotate được journal - giữ lại segment", e);
+                    }
+                }
+            }
+
+            List<PendingAnswer> batch = new ArrayList<>();
+            snapshot.values().forEach(answers -> batch.addAll(answers.values()));
+            try {
+                upsert(batch);
+            } catch (RuntimeException e) {
+                log.warn("[AnswerBuffer] Batch flush {} answer(s) thất bại - thử lại theo submission: {}",
+                    batch.size(), e.getMessage());
+                flushEachSubmission(snapshot);
+                return;
+            }
+
+            if (journal != null && !flushedSegments.isEmpty()) {
+                journal.delete(flushedSegments);
+                synchronized (bufferLock) {
+                    sealedSegments.removeAll(flushedSegments);
+                }
+            }
+            log.debug("[AnswerBuffer] Flushed {} answer(s) across {} submission(s)", batch.size(), snapshot.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Upsert riêng từng submission sau khi batch chung lỗi; submission lỗi được trả lại
+     * buffer, rồi compact journal vì segment đã seal còn chứa record của chúng
+     * @param snapshot Dữ liệu của batch lỗi
+     * @author: K24DTCN210-NVMANH (18/10/2026 13:00)
+     * --------------------------------------------------- */
+    private void flushEachSubmission(Map<Long, Map<Long, PendingAnswer>> snapshot) {
+        Map<Long, Map<Long, PendingAnswer>> failed = new HashMap<>();
+        snapshot.forEach((submissionId, answers) -> {
+            try {
+                upsert(new ArrayList<>(answers.values()));
+            } catch (RuntimeException e) {
+                log.error("[AnswerBuffer] Flush {} answer(s) của submission {} thất bại - sẽ thử lại: {}",
+                    answers.size(), submissionId, e.getMessage());
+                failed.put(submissionId, answers);
+            }
+        });
+        if (failed.size() == snapshot.size()) {
+            // Lỗi chung (DB down...): segment giữ nguyên, chỉ trả lại buffer
+            restore(failed);
+            return;
+        }
+        restore(failed);
+        compactJournal();
+    }
+
+    /* ---------------------------------------------------
+     * Viết lại journal chỉ gồm các câu trả lời còn trong buffer rồi xóa mọi segment cũ
+     * (record trong đó hoặc đã ở DB, hoặc đã được ghi lại ở segment mới)
+     * Tự lấy flushLock (reentrant) để không chạy song song với flush đang ghi DB
+     * @author: K24DTCN210-NVMANH (18/10/2026 13:00)
+     * --------------------------------------------------- */
+    private void compactJournal() {
+        if (journal == null) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            synchronized (bufferLock) {
+                try {
+                    sealedSegments.add(journal.rotate());
+                    List<String> records = new ArrayList<>();
+                    for (Map<Long, PendingAnswer> answers : pending.values()) {
+                        for (PendingAnswer answer : answers.values()) {
+                            records.add(objectMapper.writeValueAsString(answer));
+                        }
+                    }
+                    journal.appendAll(records);
+                } catch (IOException e) {
+                    log.error("[AnswerBuffer] Không compact được journal - giữ lại segment", e);
+                    return;
+                }
+                journal.delete(sealedSegments);
+                sealedSegments.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Đưa câu trả lời đã flush trở lại buffer khi transaction của caller rollback
+     * (journal có thể đã bị compact nên ghi lại record trước)
+     * @param submissionId ID của submission
+     * @param answers Các câu trả lời đã flush
+     * @author: K24DTCN210-NVMANH (18/10/2026 13:00)
+     * --------------------------------------------------- */
+    private void requeue(Long submissionId, Map<Long, PendingAnswer> answers) {
+        if (journal != null) {
+            try {
+                List<String> records = new ArrayList<>();
+                for (PendingAnswer answer : answers.values()) {
+                    records.add(objectMapper.writeValueAsString(answer));
+                }
+                synchronized (bufferLock) {
+                    journal.appendAll(records);
+                }
+            } catch (IOException e) {
+                log.error("[AnswerBuffer] Không ghi lại journal cho submission {} sau rollback", submissionId, e);
+            }
+        }
+        restore(Collections.singletonMap(submissionId, answers));
+    }
+
+    // =============== SUBMISSION CONTEXT ===============
+
+    public SubmissionContext getContext(Long submissionId) {
+        return contexts.get(submissionId);
+    }
+
+    /* ---------------------------------------------------
+     * Cache context vừa load từ DB; submission đã bị flushSubmission đóng (load chạy song song
+     * với submit/pause chưa commit) thì context bị đánh dấu đóng và không cache
+     * @param context Context vừa load
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 17:30) - Không mở lại submission đã đóng
+     * --------------------------------------------------- */
+    public void putContext(SubmissionContext context) {
+        synchronized (bufferLock) {
+            if (closedSubmissions.containsKey(context.getSubmissionId())) {
+                context.closed = true;
+                return;
+            }
+            contexts.put(context.getSubmissionId(), context);
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Cho phép nhận câu trả lời trở lại (resume sau pause, hoặc submit/pause bị rollback)
+     * @param submissionId ID của submission
+     * @author: K24DTCN210-NVMANH (18/10/2026 17:30)
+     * --------------------------------------------------- */
+    public void reopen(Long submissionId) {
+        synchronized (bufferLock) {
+            closedSubmissions.remove(submissionId);
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Bỏ context đã cache (khi submission bị pause/submit)
+     * @param submissionId ID của submission
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * --------------------------------------------------- */
+    public void evictContext(Long submissionId) {
+        contexts.remove(submissionId);
+    }
+
+    /* ---------------------------------------------------
+     * Bỏ context của mọi submission thuộc exam (đáp án/điểm của exam vừa thay đổi)
+     * @param examId ID của exam
+     * @author: K24DTCN210-NVMANH (17/10/2026 12:40)
+     * --------------------------------------------------- */
+    public void evictContextsForExam(Long examId) {
+        contexts.values().removeIf(context -> context.getExamId().equals(examId));
+    }
+
+    // =============== PRIVATE HELPER METHODS ===============
+
+    private void putPending(PendingAnswer answer) {
+        pending.computeIfAbsent(answer.getSubmissionId(), k -> new HashMap<>())
+            .merge(answer.getQuestionId(), answer, PendingAnswer::coalesce);
+    }
+
+    /* ---------------------------------------------------
+     * Trả snapshot flush lỗi về buffer, bản mới hơn đã vào sau vẫn được ưu tiên
+     * @param snapshot Dữ liệu flush thất bại
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * --------------------------------------------------- */
+    private void restore(Map<Long, Map<Long, PendingAnswer>> snapshot) {
+        synchronized (bufferLock) {
+            snapshot.forEach((submissionId, answers) -> {
+                Map<Long, PendingAnswer> current = pending.computeIfAbsent(submissionId, k -> new HashMap<>());
+                answers.forEach((questionId, older) -> current.merge(questionId, older,
+                    (newer, old) -> PendingAnswer.coalesce(old, newer)));
+            });
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Upsert batch xuống student_answers
+     * Chỉ bỏ các submission không còn tồn tại (bị xóa) - ghi tiếp sẽ lỗi khóa ngoại mãi mãi;
+     * submission đã pause/nộp vẫn được ghi vì câu trả lời đã được ACK cho client
+     * @param answers List câu trả lời đã gộp
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 13:00) - Không bỏ câu trả lời của submission đã rời IN_PROGRESS
+     * --------------------------------------------------- */
+    private void upsert(List<PendingAnswer> answers) {
+        if (answers.isEmpty()) {
+            return;
+        }
+        Set<Long> submissionIds = new HashSet<>();
+        answers.forEach(a -> submissionIds.add(a.getSubmissionId()));
+        Set<Long> existingIds = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+            EXISTING_SUBMISSIONS_SQL, new MapSqlParameterSource("ids", submissionIds), Long.class));
+
+        List<PendingAnswer> writable = new ArrayList<>(answers.size());
+        for (PendingAnswer answer : answers) {
+            if (existingIds.contains(answer.getSubmissionId())) {
+                writable.add(answer);
+            }
+        }
+        if (writable.size() < answers.size()) {
+            log.warn("[AnswerBuffer] Dropped {} answer(s) of deleted submissions",
+                answers.size() - writable.size());
+        }
+        if (writable.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, writable, BATCH_SIZE, (ps, a) -> {
+            ps.setLong(1, a.getSubmissionId());
+            ps.setLong(2, a.getQuestionId());
+            ps.setString(3, a.getAnswerText());
+            ps.setString(4, a.getAnswerJson());
+            ps.setString(5, a.getUploadedFileUrl());
+            ps.setString(6, a.getUploadedFileName());
+            if (a.getIsCorrect() != null) {
+                ps.setBoolean(7, a.getIsCorrect());
+            } else {
+                ps.setNull(7, Types.BOOLEAN);
+            }
+            ps.setBigDecimal(8, a.getPointsEarned() != null ? a.getPointsEarned() : BigDecimal.ZERO);
+            ps.setBigDecimal(9, a.getMaxPoints());
+            ps.setInt(10, a.getSavedCount());
+            ps.setTimestamp(11, new Timestamp(a.getFirstSavedAt()));
+            ps.setTimestamp(12, new Timestamp(a.getLastSavedAt()));
+            ps.setTimestamp(13, now);
+            ps.setTimestamp(14, now);
+        });
+    }
+
+    private void evictExpiredContexts() {
+        long threshold = System.currentTimeMillis() - CONTEXT_GRACE_MILLIS;
+        contexts.values().removeIf(ctx -> ctx.getDeadlineMillis() < threshold);
+        // Sau khoảng grace, context load lại từ DB đã thấy status mới nên không cần nhớ nữa
+        synchronized (bufferLock) {
+            closedSubmissions.values().removeIf(closedAt -> closedAt < threshold);
+        }
+    }
+
+    // =============== NESTED TYPES ===============
+
+    /* ---------------------------------------------------
+     * Một câu trả lời đang chờ flush (cũng là format record trong journal)
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * --------------------------------------------------- */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PendingAnswer {
+        private Long submissionId;
+        private Long questionId;
+        private String answerText;
+        private String answerJson;
+        private String uploadedFileUrl;
+        private String uploadedFileName;
+        private Boolean isCorrect;
+        private BigDecimal pointsEarned;
+        private BigDecimal maxPoints;
+        private int savedCount;
+        private long firstSavedAt;
+        private long lastSavedAt;
+
+        /* ---------------------------------------------------
+         * Gộp 2 lần save của cùng một câu hỏi - giữ ngữ nghĩa của saveAnswer:
+         * answerJson chỉ bị ghi đè khi request mới có answer, các field text/file luôn lấy bản mới
+         * @param older Bản cũ
+         * @param newer Bản mới
+         * @returns Bản gộp
+         * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+         * --------------------------------------------------- */
+        public static PendingAnswer coalesce(PendingAnswer older, PendingAnswer newer) {
+            boolean newerHasJson = newer.getAnswerJson() != null;
+            return PendingAnswer.builder()
+                .submissionId(newer.getSubmissionId())
+                .questionId(newer.getQuestionId())
+                .answerText(newer.getAnswerText())
+                .answerJson(newerHasJson ? newer.getAnswerJson() : older.getAnswerJson())
+                .uploadedFileUrl(newer.getUploadedFileUrl())
+                .uploadedFileName(newer.getUploadedFileName())
+                .isCorrect(newerHasJson ? newer.getIsCorrect() : older.getIsCorrect())
+                .pointsEarned(newerHasJson ? newer.getPointsEarned() : older.getPointsEarned())
+                .maxPoints(newer.getMaxPoints() != null ? newer.getMaxPoints() : older.getMaxPoints())
+                .savedCount(older.getSavedCount() + newer.getSavedCount())
+                .firstSavedAt(Math.min(older.getFirstSavedAt(), newer.getFirstSavedAt()))
+                .lastSavedAt(Math.max(older.getLastSavedAt(), newer.getLastSavedAt()))
+                .build();
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Thông tin submission cache lại để validate autosave không cần query DB
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:20)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 12:10) - questions dùng AnswerKey đã compile thay cho QuestionKey
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 17:30) - Cờ closed (chỉ đổi dưới bufferLock)
+     * --------------------------------------------------- */
+    @Getter
+    @RequiredArgsConstructor
+    public static class SubmissionContext {
+        private final Long submissionId;
+        private final Long studentId;
+        private final Long examId;
+        private final long deadlineMillis;
+        private final Map<Long, AnswerKey> questions;
+        private volatile boolean closed;
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= deadlineMillis;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Set;
  * Authentication Service
  * Xử lý login, register, token validation
  * @author: K24DTCN210-NVMANH (13/11/2025 15:01)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 19:40) - Bỏ UserStatisticsCache khi register user mới
  * --------------------------------------------------- */
 @Service
 public class AuthService {
@@ -47,6 +48,9 @@ public class AuthService {
     @Autowired
     private AuthenticationManager authenticationManager;
 
+    @Autowired
+    private UserStatisticsCache userStatisticsCache;
+
     /* ---------------------------------------------------
      * Login user và generate JWT tokens
      * @param request LoginRequest chứa username và password
@@ -135,6 +139,7 @@ public class AuthService {
 
         // Save user
         User savedUser = userRepository.save(user);
+        userStatisticsCache.invalidate();
 
         return UserDTO.from(savedUser);
     }
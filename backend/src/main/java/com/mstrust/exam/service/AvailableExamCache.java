@@ -0,0 +1,78 @@
+package com.mstrust.exam.service;
+
+import com.mstrust.exam.dto.AvailableExamDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* ---------------------------------------------------
+ * Cache ngắn hạn danh sách bài thi có thể làm theo từng student
+ * - Màn hình danh sách bài thi được gọi lại liên tục (refresh, đổi filter môn học)
+ *   nên giữ kết quả vài giây để các lần gọi liền nhau không chạm DB
+ * - ExamTakingService evict khi student start/submit bài (attempts/active thay đổi)
+ * - Các thay đổi khác (publish, chấm điểm) tự hết hạn theo TTL
+ * @author: K24DTCN210-NVMANH (17/10/2026 11:40)
+ * --------------------------------------------------- */
+@Component
+@Slf4j
+public class AvailableExamCache {
+
+    @Value("${exam.available-exams.cache-ttl-ms:10000}")
+    private long ttlMillis;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /* ---------------------------------------------------
+     * Lấy danh sách đã cache (còn hạn)
+     * @param studentId ID của student
+     * @returns List AvailableExamDTO hoặc null nếu chưa có/hết hạn
+     * @author: K24DTCN210-NVMANH (17/10/2026 11:40)
+     * --------------------------------------------------- */
+    public List<AvailableExamDTO> get(Long studentId) {
+        Entry entry = entries.get(studentId);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            entries.remove(studentId, entry);
+            return null;
+        }
+        return entry.exams;
+    }
+
+    public void put(Long studentId, List<AvailableExamDTO> exams) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        entries.put(studentId, new Entry(List.copyOf(exams), System.currentTimeMillis() + ttlMillis));
+    }
+
+    public void evict(Long studentId) {
+        entries.remove(studentId);
+    }
+
+    /* ---------------------------------------------------
+     * Dọn các entry đã hết hạn (student không quay lại màn hình danh sách)
+     * @author: K24DTCN210-NVMANH (17/10/2026 11:40)
+     * --------------------------------------------------- */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> now >= e.getValue().expiresAt);
+    }
+
+    private static class Entry {
+        private final List<AvailableExamDTO> exams;
+        private final long expiresAt;
+
+        Entry(List<AvailableExamDTO> exams, long expiresAt) {
+            this.exams = exams;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
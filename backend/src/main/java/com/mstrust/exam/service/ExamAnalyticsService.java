@@ -0,0 +1,437 @@
+package com.mstrust.exam.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mstrust.exam.dto.grading.ExamAnalyticsDTO;
+import com.mstrust.exam.entity.Exam;
+import com.mstrust.exam.entity.ExamQuestionStats;
+import com.mstrust.exam.entity.ExamStatsSummary;
+import com.mstrust.exam.exception.BadRequestException;
+import com.mstrust.exam.exception.ResourceNotFoundException;
+import com.mstrust.exam.repository.ExamQuestionStatsRepository;
+import com.mstrust.exam.repository.ExamRepository;
+import com.mstrust.exam.repository.ExamStatsSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* ---------------------------------------------------
+ * Thống kê đề thi tính trong database và lưu vào bảng tổng hợp
+ * (exam_stats_summary, exam_question_stats):
+ * - Phân bố điểm: count/avg/min/max/stddev/pass + histogram 10 khoảng %, bằng 2 query aggregate
+ * - Item analysis: difficulty index, discrimination index (nhóm 27% cao/thấp xếp bằng
+ *   ROW_NUMBER) bằng 1 query GROUP BY question; tần suất chọn đáp án GROUP BY giá trị câu
+ *   trả lời rồi chuẩn hóa key bằng AnswerKey (số giá trị khác nhau nhỏ)
+ * - submitExam / finalizeGrading / chấm lại đánh dấu exam "dirty" sau commit, job định kỳ
+ *   tính lại các exam dirty; API chỉ đọc bảng tổng hợp (chưa có thì tính ngay)
+ * - Số bài / số bài đã chấm thay đổi cả khi student bắt đầu làm (không đánh dấu dirty) nên
+ *   được đếm trực tiếp bằng 1 query COUNT theo exam_id thay vì đọc từ bảng tổng hợp
+ * - Exam tính lỗi liên tiếp MAX_REFRESH_ATTEMPTS lần thì bỏ khỏi danh sách dirty (lần
+ *   markDirty sau thử lại), exam đã bị xóa thì bỏ ngay
+ * Discrimination index phụ thuộc thứ hạng của toàn bộ bài nên mỗi lần tính lại cả đề
+ * (vài query theo exam_id), không cộng dồn theo từng bài.
+ * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 16:00) - Đếm bài trực tiếp, giới hạn số lần tính lại khi lỗi
+ * --------------------------------------------------- */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExamAnalyticsService {
+
+    private static final int MAX_REFRESH_ATTEMPTS = 5;
+
+    private static final String COMPLETED =
+        "s.status IN ('SUBMITTED', 'GRADED') AND s.total_score IS NOT NULL";
+
+    /* Câu có nội dung trả lời (dùng chung với ExamResultExportService) */
+    static final String ANSWERED =
+        "((a.answer_json IS NOT NULL AND CAST(a.answer_json AS CHAR) NOT IN ('null', '[]', '{}', '\"\"')) " +
+        "OR (a.answer_text IS NOT NULL AND TRIM(a.answer_text) <> '') " +
+        "OR (a.uploaded_file_url IS NOT NULL AND TRIM(a.uploaded_file_url) <> ''))";
+
+    private static final String SELECT_EXAM =
+        "SELECT passing_score, total_score FROM exams WHERE id = ?";
+
+    /* [totalSubmissions, gradedCount] */
+    private static final String SELECT_LIVE_COUNTS =
+        "SELECT COUNT(*), COALESCE(SUM(CASE WHEN s.status = 'GRADED' THEN 1 ELSE 0 END), 0) " +
+        "FROM exam_submissions s WHERE s.exam_id = ?";
+
+    /* [total, completed, graded, avg, min, max, stddev, passed, gradedAvg, gradedMin, gradedMax, gradedPassed] */
+    private static final String SELECT_SUMMARY =
+        "SELECT COUNT(*), " +
+        "SUM(CASE WHEN " + COMPLETED + " THEN 1 ELSE 0 END), " +
+        "SUM(CASE WHEN s.status = 'GRADED' THEN 1 ELSE 0 END), " +
+        "AVG(CASE WHEN " + COMPLETED + " THEN s.total_score END), " +
+        "MIN(CASE WHEN " + COMPLETED + " THEN s.total_score END), " +
+        "MAX(CASE WHEN " + COMPLETED + " THEN s.total_score END), " +
+        "STDDEV_POP(CASE WHEN " + COMPLETED + " THEN s.total_score END), " +
+        "SUM(CASE WHEN " + COMPLETED + " AND s.total_score >= ? THEN 1 ELSE 0 END), " +
+        "AVG(CASE WHEN s.status = 'GRADED' THEN s.total_score END), " +
+        "MIN(CASE WHEN s.status = 'GRADED' THEN s.total_score END), " +
+        "MAX(CASE WHEN s.status = 'GRADED' THEN s.total_score END), " +
+        "SUM(CASE WHEN s.status = 'GRADED' AND s.total_score >= ? THEN 1 ELSE 0 END) " +
+        "FROM exam_submissions s WHERE s.exam_id = ?";
+
+    /* [bucket 0..9, count] */
+    private static final String SELECT_HISTOGRAM =
+        "SELECT LEAST(9, GREATEST(0, FLOOR(s.total_score * 10 / ?))) AS bucket, COUNT(*) " +
+        "FROM exam_submissions s WHERE s.exam_id = ? AND " + COMPLETED + " GROUP BY bucket";
+
+    /* [questionId, order, points, type, answered, correct, sumPoints, upperPoints, lowerPoints]
+     * grp: 1 = nhóm 27% điểm cao nhất, -1 = nhóm 27% thấp nhất (cỡ nhóm CEIL(n * 27 / 100)) */
+    private static final String SELECT_ITEMS =
+        "WITH ranked AS (" +
+        "  SELECT s.id, ROW_NUMBER() OVER (ORDER BY s.total_score DESC, s.id) AS rn, COUNT(*) OVER () AS n " +
+        "  FROM exam_submissions s WHERE s.exam_id = ? AND " + COMPLETED +
+        "), grouped AS (" +
+        "  SELECT id, CASE WHEN rn <= CEIL(n * 27 / 100) THEN 1 " +
+        "                  WHEN rn > n - CEIL(n * 27 / 100) THEN -1 ELSE 0 END AS grp " +
+        "  FROM ranked" +
+        ") " +
+        "SELECT eq.question_id, eq.question_order, eq.points, q.question_type, " +
+        "SUM(CASE WHEN a.id IS NOT NULL AND " + ANSWERED + " THEN 1 ELSE 0 END), " +
+        "SUM(CASE WHEN a.is_correct = 1 THEN 1 ELSE 0 END), " +
+        "COALESCE(SUM(a.points_earned), 0), " +
+        "COALESCE(SUM(CASE WHEN g.grp = 1 THEN a.points_earned END), 0), " +
+        "COALESCE(SUM(CASE WHEN g.grp = -1 THEN a.points_earned END), 0) " +
+        "FROM exam_questions eq " +
+        "JOIN questions q ON q.id = eq.question_id " +
+        "LEFT JOIN (student_answers a JOIN grouped g ON g.id = a.submission_id) ON a.question_id = eq.question_id " +
+        "WHERE eq.exam_id = ? " +
+        "GROUP BY eq.id, eq.question_id, eq.question_order, eq.points, q.question_type " +
+        "ORDER BY eq.question_order, eq.id";
+
+    /* [questionId, answerJson, answerText, count] */
+    private static final String SELECT_OPTION_VALUES =
+        "SELECT a.question_id, a.answer_json, a.answer_text, COUNT(*) " +
+        "FROM student_answers a " +
+        "JOIN exam_submissions s ON s.id = a.submission_id " +
+        "JOIN questions q ON q.id = a.question_id " +
+        "WHERE s.exam_id = ? AND " + COMPLETED + " " +
+        "AND q.question_type IN ('MULTIPLE_CHOICE', 'TRUE_FALSE', 'MULTIPLE_SELECT') " +
+        "GROUP BY a.question_id, a.answer_json, a.answer_text";
+
+    private static final String DELETE_ITEMS = "DELETE FROM exam_question_stats WHERE exam_id = ?";
+
+    private static final String INSERT_ITEM =
+        "INSERT INTO exam_question_stats (exam_id, question_id, question_order, question_type, max_points, " +
+        "attempts, answered_count, correct_count, average_points, difficulty_index, discrimination_index, " +
+        "option_counts_json, refreshed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_SUMMARY =
+        "INSERT INTO exam_stats_summary (exam_id, total_submissions, completed_count, graded_count, " +
+        "average_score, min_score, max_score, stddev_score, passed_count, graded_average_score, " +
+        "graded_min_score, graded_max_score, graded_passed_count, passing_score, exam_total_score, " +
+        "histogram_json, refreshed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE total_submissions = VALUES(total_submissions), " +
+        "completed_count = VALUES(completed_count), graded_count = VALUES(graded_count), " +
+        "average_score = VALUES(average_score), min_score = VALUES(min_score), max_score = VALUES(max_score), " +
+        "stddev_score = VALUES(stddev_score), passed_count = VALUES(passed_count), " +
+        "graded_average_score = VALUES(graded_average_score), graded_min_score = VALUES(graded_min_score), " +
+        "graded_max_score = VALUES(graded_max_score), graded_passed_count = VALUES(graded_passed_count), " +
+        "passing_score = VALUES(passing_score), exam_total_score = VALUES(exam_total_score), " +
+        "histogram_json = VALUES(histogram_json), refreshed_at = VALUES(refreshed_at)";
+
+    private static final TypeReference<List<Long>> HISTOGRAM_TYPE = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Long>> OPTION_COUNTS_TYPE = new TypeReference<>() {};
+
+    private final ExamRepository examRepository;
+    private final ExamStatsSummaryRepository summaryRepository;
+    private final ExamQuestionStatsRepository questionStatsRepository;
+    private final ExamPaperCache examPaperCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    /* Exam có bài nộp / chấm mới chưa tính lại */
+    private final Set<Long> dirtyExams = ConcurrentHashMap.newKeySet();
+
+    /* Số lần tính lại lỗi liên tiếp của exam dirty */
+    private final Map<Long, Integer> refreshFailures = new ConcurrentHashMap<>();
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    // =============== REFRESH ===============
+
+    /* ---------------------------------------------------
+     * Đánh dấu exam cần tính lại thống kê (sau khi transaction hiện tại commit)
+     * @param examId ID của exam
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+     * --------------------------------------------------- */
+    public void markDirty(Long examId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirtyExams.add(examId);
+                    refreshFailures.remove(examId);
+                }
+            });
+        } else {
+            dirtyExams.add(examId);
+            refreshFailures.remove(examId);
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Tính lại thống kê của các exam dirty. Lỗi thì đánh dấu lại để lần sau thử tiếp,
+     * tối đa MAX_REFRESH_ATTEMPTS lần liên tiếp
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 16:00) - Giới hạn số lần thử lại
+     * --------------------------------------------------- */
+    @Scheduled(fixedDelayString = "${exam.analytics.refresh-interval-ms:5000}")
+    public void refreshDirty() {
+        for (Long examId : List.copyOf(dirtyExams)) {
+            dirtyExams.remove(examId);
+            try {
+                refresh(examId);
+                refreshFailures.remove(examId);
+            } catch (Exception e) {
+                int failures = refreshFailures.merge(examId, 1, Integer::sum);
+                if (failures >= MAX_REFRESH_ATTEMPTS) {
+                    refreshFailures.remove(examId);
+                    log.error("[Analytics] Bỏ tính lại thống kê exam {} sau {} lần lỗi: {}",
+                        examId, failures, e.getMessage());
+                } else {
+                    log.warn("[Analytics] Không tính lại được thống kê exam {} (lần {}): {}",
+                        examId, failures, e.getMessage());
+                    dirtyExams.add(examId);
+                }
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Tính lại toàn bộ thống kê của 1 exam và ghi đè bảng tổng hợp (1 transaction)
+     * @param examId ID của exam
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+     * --------------------------------------------------- */
+    public void refresh(Long examId) {
+        refreshLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> doRefresh(examId));
+            log.debug("[Analytics] Exam {} refreshed in {}ms", examId, System.currentTimeMillis() - start);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void doRefresh(Long examId) {
+        List<Map<String, Object>> exams = jdbcTemplate.queryForList(SELECT_EXAM, examId);
+        if (exams.isEmpty()) {
+            return;
+        }
+        BigDecimal passingScore = (BigDecimal) exams.get(0).get("passing_score");
+        BigDecimal examTotalScore = (BigDecimal) exams.get(0).get("total_score");
+        BigDecimal passThreshold = passingScore != null ? passingScore : BigDecimal.ZERO;
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        Object[] summary = jdbcTemplate.queryForObject(SELECT_SUMMARY, (rs, i) -> new Object[] {
+            rs.getLong(1), rs.getLong(2), rs.getLong(3),
+            rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getBigDecimal(6), rs.getBigDecimal(7),
+            rs.getLong(8), rs.getBigDecimal(9), rs.getBigDecimal(10), rs.getBigDecimal(11), rs.getLong(12)
+        }, passThreshold, passThreshold, examId);
+        long completed = (Long) summary[1];
+
+        long[] histogram = new long[10];
+        if (examTotalScore != null && examTotalScore.signum() > 0) {
+            jdbcTemplate.query(SELECT_HISTOGRAM, rs -> {
+                histogram[rs.getInt(1)] = rs.getLong(2);
+            }, examTotalScore, examId);
+        }
+
+        jdbcTemplate.update(UPSERT_SUMMARY, examId, summary[0], summary[1], summary[2],
+            scale(summary[3], 2), scale(summary[4], 2), scale(summary[5], 2), scale(summary[6], 3), summary[7],
+            scale(summary[8], 2), scale(summary[9], 2), scale(summary[10], 2), summary[11],
+            passingScore, examTotalScore, toJson(Arrays.stream(histogram).boxed().toList()), now);
+
+        Map<Long, Map<String, Long>> optionCounts = loadOptionCounts(examId);
+        long groupSize = (completed * 27 + 99) / 100;
+        List<Object[]> items = new ArrayList<>();
+        jdbcTemplate.query(SELECT_ITEMS, rs -> {
+            long questionId = rs.getLong(1);
+            BigDecimal maxPoints = rs.getBigDecimal(3);
+            BigDecimal sumPoints = rs.getBigDecimal(7);
+            boolean scored = completed > 0 && maxPoints != null && maxPoints.signum() > 0;
+
+            BigDecimal difficulty = scored
+                ? sumPoints.divide(maxPoints.multiply(BigDecimal.valueOf(completed)), 4, RoundingMode.HALF_UP) : null;
+            BigDecimal discrimination = scored && completed >= 2
+                ? rs.getBigDecimal(8).subtract(rs.getBigDecimal(9))
+                    .divide(maxPoints.multiply(BigDecimal.valueOf(groupSize)), 4, RoundingMode.HALF_UP) : null;
+            BigDecimal average = completed > 0
+                ? sumPoints.divide(BigDecimal.valueOf(completed), 3, RoundingMode.HALF_UP) : null;
+            Map<String, Long> options = optionCounts.get(questionId);
+
+            items.add(new Object[] {
+                examId, questionId, rs.getInt(2), rs.getString(4), maxPoints,
+                completed, rs.getLong(5), rs.getLong(6), average, difficulty, discrimination,
+                options != null ? toJson(options) : null, now
+            });
+        }, examId, examId);
+
+        jdbcTemplate.update(DELETE_ITEMS, examId);
+        if (!items.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ITEM, items);
+        }
+    }
+
+    /* Gộp số lần chọn theo key đã chuẩn hóa; mỗi giá trị câu trả lời khác nhau chỉ parse 1 lần */
+    private Map<Long, Map<String, Long>> loadOptionCounts(Long examId) {
+        Map<Long, AnswerKey> answerKeys = examPaperCache.getPaper(examId).getAnswerKeys();
+        Map<Long, Map<String, Long>> counts = new HashMap<>();
+        jdbcTemplate.query(SELECT_OPTION_VALUES, rs -> {
+            long questionId = rs.getLong(1);
+            AnswerKey key = answerKeys.get(questionId);
+            if (key == null) {
+                return;
+            }
+            long count = rs.getLong(4);
+            Map<String, Long> questionCounts = counts.computeIfAbsent(questionId, id -> new TreeMap<>());
+            for (String choice : key.choiceKeys(rs.getString(2), rs.getString(3), objectMapper)) {
+                questionCounts.merge(choice, count, Long::sum);
+            }
+        }, examId);
+        return counts;
+    }
+
+    // =============== READ ===============
+
+    /* ---------------------------------------------------
+     * Thống kê điểm của exam từ bảng tổng hợp (chưa có thì tính ngay)
+     * @param examId ID của exam
+     * @returns ExamStatsSummary
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+     * --------------------------------------------------- */
+    public ExamStatsSummary getSummary(Long examId) {
+        return summaryRepository.findById(examId).orElseGet(() -> {
+            refresh(examId);
+            return summaryRepository.findById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+        });
+    }
+
+    /* ---------------------------------------------------
+     * Số bài nộp (mọi trạng thái) và số bài đã chấm của exam, đếm trực tiếp
+     * @param examId ID của exam
+     * @returns long[] {totalSubmissions, gradedCount}
+     * @author: K24DTCN210-NVMANH (18/10/2026 16:00)
+     * --------------------------------------------------- */
+    public long[] getLiveCounts(Long examId) {
+        return jdbcTemplate.queryForObject(SELECT_LIVE_COUNTS,
+            (rs, i) -> new long[] {rs.getLong(1), rs.getLong(2)}, examId);
+    }
+
+    /* ---------------------------------------------------
+     * Phân bố điểm + item analysis của exam cho giáo viên của lớp
+     * @param examId ID của exam
+     * @param teacherId ID của giáo viên
+     * @returns ExamAnalyticsDTO
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:10)
+     * --------------------------------------------------- */
+    public ExamAnalyticsDTO getAnalytics(Long examId, Long teacherId) {
+        validateTeacherPermission(examId, teacherId);
+
+        ExamStatsSummary summary = getSummary(examId);
+        List<ExamAnalyticsDTO.QuestionStats> questions = new ArrayList<>();
+        for (ExamQuestionStats stats : questionStatsRepository.findByExamIdOrderByQuestionOrder(examId)) {
+            questions.add(ExamAnalyticsDTO.QuestionStats.builder()
+                .questionId(stats.getQuestionId())
+                .questionOrder(stats.getQuestionOrder())
+                .questionType(stats.getQuestionType())
+                .maxPoints(toDouble(stats.getMaxPoints()))
+                .attempts(stats.getAttempts())
+                .answeredCount(stats.getAnsweredCount())
+                .correctCount(stats.getCorrectCount())
+                .averagePoints(toDouble(stats.getAveragePoints()))
+                .difficultyIndex(toDouble(stats.getDifficultyIndex()))
+                .discriminationIndex(toDouble(stats.getDiscriminationIndex()))
+                .optionCounts(fromJson(stats.getOptionCountsJson(), OPTION_COUNTS_TYPE))
+                .build());
+        }
+
+        long completed = summary.getCompletedCount();
+        long[] liveCounts = getLiveCounts(examId);
+        return ExamAnalyticsDTO.builder()
+            .examId(examId)
+            .totalSubmissions(liveCounts[0])
+            .completedCount(completed)
+            .gradedCount(liveCounts[1])
+            .averageScore(toDouble(summary.getAverageScore()))
+            .minScore(toDouble(summary.getMinScore()))
+            .maxScore(toDouble(summary.getMaxScore()))
+            .stddevScore(toDouble(summary.getStddevScore()))
+            .passedCount(summary.getPassedCount())
+            .passRate(completed > 0 ? Math.round(summary.getPassedCount() * 10000.0 / completed) / 100.0 : 0.0)
+            .passingScore(toDouble(summary.getPassingScore()))
+            .examTotalScore(toDouble(summary.getExamTotalScore()))
+            .histogram(fromJson(summary.getHistogramJson(), HISTOGRAM_TYPE))
+            .questions(questions)
+            .refreshedAt(summary.getRefreshedAt())
+            .stale(dirtyExams.contains(examId))
+            .build();
+    }
+
+    private void validateTeacherPermission(Long examId, Long teacherId) {
+        Boolean allowed = new TransactionTemplate(transactionManager).execute(status -> {
+            Exam exam = examRepository.findByIdAndDeletedAtIsNull(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+            return exam.getSubjectClass() != null && exam.getSubjectClass().getTeacher() != null
+                && exam.getSubjectClass().getTeacher().getId().equals(teacherId);
+        });
+        if (!Boolean.TRUE.equals(allowed)) {
+            throw new BadRequestException("You can only view stats for your own exams");
+        }
+    }
+
+    private static BigDecimal scale(Object value, int scale) {
+        return value == null ? null : ((BigDecimal) value).setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    private static Double toDouble(BigDecimal value) {
+        return value == null ? null : value.doubleValue();
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <T> T fromJson(String json, TypeReference<T> type) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            log.warn("[Analytics] JSON thống kê không hợp lệ: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.mstrust.exam.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mstrust.exam.entity.ExamQuestion;
+import com.mstrust.exam.entity.QuestionBank;
+import com.mstrust.exam.entity.QuestionType;
+import com.mstrust.exam.repository.ExamQuestionRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* ---------------------------------------------------
+ * Cache "đề thi đã biên dịch" theo examId
+ * - Mỗi CompiledExamPaper là immutable: danh sách câu hỏi đã sort theo questionOrder,
+ *   options đã parse sẵn và đã bỏ correctAnswer, kèm AnswerKey để chấm không cần query DB
+ * - Shuffle theo seed chỉ là hoán vị chỉ số trên template đã cache
+ *   (cùng thuật toán với Collections.shuffle nên thứ tự giữ nguyên như trước)
+ * - ExamService gọi invalidate() khi publish/unpublish/thêm/xóa/sắp xếp/đổi điểm câu hỏi
+ *   (QuestionBank đang dùng trong exam không cho sửa nên không cần invalidate từ đó);
+ *   version theo exam đảm bảo bản compile từ dữ liệu cũ không ghi đè lên cache mới
+ * @author: K24DTCN210-NVMANH (17/10/2026 11:00)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 12:10) - Compile đáp án (AnswerKey) cùng với đề
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 12:40) - Invalidate kéo theo SubmissionContext của exam
+ * --------------------------------------------------- */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExamPaperCache {
+
+    private final ExamQuestionRepository examQuestionRepository;
+    private final ObjectMapper objectMapper;
+    private final AnswerWriteBuffer answerWriteBuffer;
+
+    private final Map<Long, CompiledExamPaper> papers = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /* ---------------------------------------------------
+     * Lấy đề đã compile, compile nếu chưa có (chạy trong transaction của caller)
+     * @param examId ID của exam
+     * @returns CompiledExamPaper
+     * @author: K24DTCN210-NVMANH (17/10/2026 11:00)
+     * --------------------------------------------------- */
+    public CompiledExamPaper getPaper(Long examId) {
+        CompiledExamPaper paper = papers.get(examId);
+        if (paper != null) {
+            return paper;
+        }
+
+        AtomicLong version = versions.computeIfAbsent(examId, id -> new AtomicLong());
+        long expectedVersion = version.get();
+        CompiledExamPaper compiled = compile(examId, expectedVersion);
+
+        // Chỉ cache khi không có invalidate nào xảy ra trong lúc compile
+        synchronized (version) {
+            if (version.get() == expectedVersion) {
+                papers.putIfAbsent(examId, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    /* ---------------------------------------------------
+     * Bỏ đề đã cache của exam. Nếu đang trong transaction thì invalidate
+     * thêm một lần sau commit để reader không cache lại dữ liệu chưa commit
+     * @param examId ID của exam
+     * @author: K24DTCN210-NVMANH (17/10/2026 11:00)
+     * --------------------------------------------------- */
+    public void invalidate(Long examId) {
+        doInvalidate(examId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doInvalidate(examId);
+                }
+            });
+        }
+    }
+
+    private void doInvalidate(Long examId) {
+        AtomicLong version = versions.computeIfAbsent(examId, id -> new AtomicLong());
+        synchronized (version) {
+            version.incrementAndGet();
+            papers.remove(examId);
+        }
+        // SubmissionContext giữ AnswerKey của bản compile cũ -> load lại ở lần save kế tiếp
+        answerWriteBuffer.evictContextsForExam(examId);
+        log.debug("[ExamPaperCache] Invalidated exam {}", examId);
+    }
+
+    private CompiledExamPaper compile(Long examId, long version) {
+        List<ExamQuestion> examQuestions = new ArrayList<>(examQuestionRepository.findByExamId(examId));
+        examQuestions.sort(Comparator.comparing(ExamQuestion::getQuestionOrder));
+
+        List<QuestionTemplate> templates = new ArrayList<>(examQuestions.size());
+        Map<Long, AnswerKey> answerKeys = new HashMap<>();
+        for (ExamQuestion eq : examQuestions) {
+            QuestionBank question = eq.getQuestion();
+            templates.add(new QuestionTemplate(
+                question.getId(),
+                question.getQuestionType(),
+                question.getQuestionText(),
+                question.getGradingCriteria(),
+                eq.getPoints(),
+                parseOptionsWithoutAnswer(question)));
+            answerKeys.put(question.getId(), AnswerKey.compile(question, eq.getPoints(), objectMapper));
+        }
+        log.info("[ExamPaperCache] Compiled exam {} (version {}, {} questions)", examId, version, templates.size());
+        return new CompiledExamPaper(examId, version, List.copyOf(templates), Map.copyOf(answerKeys));
+    }
+
+    /* ---------------------------------------------------
+     * Parse options JSON Map -> List "Key. Value" đã sort theo key, bỏ correctAnswer
+     * (logic giống ExamTakingService.parseOptionsWithoutAnswer, chỉ chạy 1 lần/đề)
+     * @param question QuestionBank entity
+     * @returns List option đã format
+     * @author: K24DTCN210-NVMANH (17/10/2026 11:00)
+     * --------------------------------------------------- */
+    private List<String> parseOptionsWithoutAnswer(QuestionBank question) {
+        String optionsJson = question.getOptions();
+        if (optionsJson == null || optionsJson.trim().isEmpty()) {
+            return List.of();
+        }
+        try {
+            Map<String, Object> optionsMap = objectMapper.readValue(optionsJson,
+                new TypeReference<TreeMap<String, Object>>() {});
+            if (optionsMap == null || optionsMap.isEmpty()) {
+                return List.of();
+            }
+            optionsMap.remove("correctAnswer");
+
+            List<String> options = new ArrayList<>(optionsMap.size());
+            optionsMap.forEach((key, value) -> options.add(key + ". " + value));
+            return List.copyOf(options);
+        } catch (Exception e) {
+            log.error("Error parsing options for question {}", question.getId(), e);
+            return List.of();
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Hoán vị chỉ số theo đúng thuật toán của Collections.shuffle(list, random)
+     * để thứ tự câu hỏi/option của các submission cũ không đổi
+     * @param size Số phần tử
+     * @param random Random đã seed
+     * @returns Mảng chỉ số đã hoán vị
+     * @author: K24DTCN210-NVMANH (17/10/2026 11:00)
+     * --------------------------------------------------- */
+    static int[] shuffledIndexes(int size, Random random) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        for (int i = size; i > 1; i--) {
+            int j = random.nextInt(i);
+            int tmp = indexes[i - 1];
+            indexes[i - 1] = indexes[j];
+            indexes[j] = tmp;
+        }
+        return indexes;
+    }
+
+    // =============== NESTED TYPES ===============
+
+    /* ---------------------------------------------------
+     * Đề thi đã compile - immutable, chia sẻ giữa mọi submission của exam
+     * answerKeys chỉ dùng phía server để chấm, không bao giờ map ra DTO cho student
+     * @author: K24DTCN210-NVMANH (17/10/2026 11:00)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 12:10) - Thêm AnswerKey đã compile theo questionId
+     * --------------------------------------------------- */
+    @Getter
+    public static class CompiledExamPaper {
+        private final Long examId;
+        private final long version;
+        private final List<QuestionTemplate> questions;
+        private final Map<Long, AnswerKey> answerKeys;
+
+        CompiledExamPaper(Long examId, long version, List<QuestionTemplate> questions,
+                          Map<Long, AnswerKey> answerKeys) {
+            this.examId = examId;
+            this.version = version;
+            this.questions = questions;
+            this.answerKeys = answerKeys;
+        }
+
+        public int size() {
+            return questions.size();
+        }
+
+        public AnswerKey getAnswerKey(Long questionId) {
+            return answerKeys.get(questionId);
+        }
+
+        /* ---------------------------------------------------
+         * Thứ tự câu hỏi cho một submission
+         * @param seed questionSeed của submission (null = không random)
+         * @returns Mảng chỉ số vào questions
+         * --------------------------------------------------- */
+        public int[] questionOrder(Long seed) {
+            if (seed == null) {
+                int[] indexes = new int[questions.size()];
+                for (int i = 0; i < indexes.length; i++) {
+                    indexes[i] = i;
+                }
+                return indexes;
+            }
+            return shuffledIndexes(questions.size(), new Random(seed));
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Template câu hỏi đã bỏ đáp án (không chứa savedAnswer - phần riêng của submission)
+     * @author: K24DTCN210-NVMANH (17/10/2026 11:00)
+     * --------------------------------------------------- */
+    @Getter
+    public static class QuestionTemplate {
+        private final Long questionId;
+        private final QuestionType questionType;
+        private final String questionText;
+        private final String hint;
+        private final BigDecimal points;
+        private final List<String> options;
+
+        QuestionTemplate(Long questionId, QuestionType questionType, String questionText,
+                         String hint, BigDecimal points, List<String> options) {
+            this.questionId = questionId;
+            this.questionType = questionType;
+            this.questionText = questionText;
+            this.hint = hint;
+            this.points = points;
+            this.options = options;
+        }
+
+        /* ---------------------------------------------------
+         * Options theo thứ tự của submission (seed + questionId như trước đây)
+         * @param randomize Exam có random options không
+         * @param seed optionSeed của submission
+         * @returns List option (list mới, caller được phép sửa)
+         * --------------------------------------------------- */
+        public List<String> getOptions(Boolean randomize, Long seed) {
+            if (!Boolean.TRUE.equals(randomize) || seed == null || options.size() < 2) {
+                return new ArrayList<>(options);
+            }
+            int[] order = shuffledIndexes(options.size(), new Random(seed + questionId));
+            List<String> shuffled = new ArrayList<>(options.size());
+            for (int index : order) {
+                shuffled.add(options.get(index));
+            }
+            return shuffled;
+        }
+    }
+}
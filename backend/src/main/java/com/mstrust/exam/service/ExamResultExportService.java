@@ -0,0 +1,413 @@
+package com.mstrust.exam.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mstrust.exam.entity.AlertSeverity;
+import com.mstrust.exam.entity.Exam;
+import com.mstrust.exam.exception.BadRequestException;
+import com.mstrust.exam.exception.ResourceNotFoundException;
+import com.mstrust.exam.repository.ExamRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/* ---------------------------------------------------
+ * Xuất kết quả toàn bộ bài nộp của 1 đề thi ra CSV hoặc NDJSON, ghi thẳng vào output stream
+ * - Duyệt exam_submissions theo keyset (id > lastId ORDER BY id LIMIT chunk) bằng JDBC,
+ *   mỗi chunk đọc thêm answers / alerts / số lần chuyển cửa sổ bằng 3 query IN (:ids)
+ * - Mỗi chunk ghi xong thì flush và bỏ, bộ nhớ chỉ phụ thuộc chunk-size, không phụ thuộc
+ *   số bài nộp của đề
+ * - Mỗi dòng: thông tin student + submission, điểm từng câu (theo thứ tự câu trong đề),
+ *   thời gian làm bài, số alert và mức rủi ro monitoring (cùng quy tắc AlertService)
+ * - Ô CSV bắt đầu bằng = + - @ tab hoặc CR được thêm dấu ' để Excel không hiểu là công thức
+ * @author: K24DTCN210-NVMANH (17/10/2026 18:40)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 16:55) - Flush buffer theo đề, ADMIN export mọi đề,
+ *         "answered" theo cùng điều kiện ExamAnalyticsService, chặn CSV injection
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 18:20) - Chặn thêm tab/CR đầu ô (danh sách OWASP)
+ * --------------------------------------------------- */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExamResultExportService {
+
+    private static final String SELECT_QUESTIONS =
+        "SELECT question_id, question_order, points FROM exam_questions WHERE exam_id = ? ORDER BY question_order, id";
+
+    private static final String SELECT_SUBMISSIONS =
+        "SELECT s.id, u.id, u.student_code, u.full_name, u.email, s.attempt_number, s.status, " +
+        "s.started_at, s.submitted_at, s.time_spent_seconds, s.total_score, s.max_score, s.passed " +
+        "FROM exam_submissions s JOIN users u ON u.id = s.student_id " +
+        "WHERE s.exam_id = ? AND s.id > ? ORDER BY s.id LIMIT ?";
+
+    private static final String SELECT_EXAM_SUBMISSION_IDS =
+        "SELECT id FROM exam_submissions WHERE exam_id = :examId AND id IN (:ids)";
+
+    private static final String SELECT_ANSWERS =
+        "SELECT a.submission_id, a.question_id, a.points_earned, a.is_correct, a.first_saved_at, a.last_saved_at, " +
+        "a.saved_count, CASE WHEN " + ExamAnalyticsService.ANSWERED + " THEN 1 ELSE 0 END " +
+        "FROM student_answers a WHERE a.submission_id IN (:ids)";
+
+    private static final String SELECT_ALERTS =
+        "SELECT submission_id, severity, COUNT(*), SUM(CASE WHEN reviewed = 0 THEN 1 ELSE 0 END) " +
+        "FROM monitoring_alerts WHERE submission_id IN (:ids) AND deleted_at IS NULL " +
+        "GROUP BY submission_id, severity";
+
+    private static final String SELECT_WINDOW_SWITCHES =
+        "SELECT submission_id, COUNT(*) FROM activity_logs " +
+        "WHERE submission_id IN (:ids) AND activity_type = 'WINDOW_FOCUS' AND deleted_at IS NULL " +
+        "GROUP BY submission_id";
+
+    private static final String[] BASE_COLUMNS = {
+        "submission_id", "student_id", "student_code", "student_name", "email", "attempt", "status",
+        "started_at", "submitted_at", "time_spent_seconds", "total_score", "max_score", "passed",
+        "answered", "window_switches", "alerts", "unreviewed_alerts", "risk_level"
+    };
+
+    private final ExamRepository examRepository;
+    private final AnswerWriteBuffer answerWriteBuffer;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${exam.export.chunk-size:500}")
+    private int chunkSize;
+
+    /* ---------------------------------------------------
+     * Kiểm tra quyền và nạp danh sách câu hỏi của đề (gọi trước khi ghi header response)
+     * @param examId ID của exam
+     * @param teacherId ID của giáo viên (phải là giáo viên của lớp)
+     * @param admin true nếu user là ADMIN (export được mọi đề)
+     * @returns ExportPlan dùng cho write()
+     * @author: K24DTCN210-NVMANH (17/10/2026 18:40)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 16:55) - ADMIN bỏ qua kiểm tra lớp, chỉ flush bài của đề này
+     * --------------------------------------------------- */
+    public ExportPlan prepare(Long examId, Long teacherId, boolean admin) {
+        String examTitle = new TransactionTemplate(transactionManager).execute(status -> {
+            Exam exam = examRepository.findByIdAndDeletedAtIsNull(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+            boolean allowed = admin || (exam.getSubjectClass() != null && exam.getSubjectClass().getTeacher() != null
+                && exam.getSubjectClass().getTeacher().getId().equals(teacherId));
+            return allowed ? exam.getTitle() : null;
+        });
+        if (examTitle == null) {
+            throw new BadRequestException("You can only export exams from your own classes");
+        }
+        flushPendingAnswers(examId);
+
+        List<Long> questionIds = new ArrayList<>();
+        List<Integer> questionOrders = new ArrayList<>();
+        List<BigDecimal> questionPoints = new ArrayList<>();
+        jdbcTemplate.query(SELECT_QUESTIONS, rs -> {
+            questionIds.add(rs.getLong(1));
+            questionOrders.add(rs.getInt(2));
+            questionPoints.add(rs.getBigDecimal(3));
+        }, examId);
+        return new ExportPlan(examId, examTitle, questionIds, questionOrders, questionPoints);
+    }
+
+    /* ---------------------------------------------------
+     * Ghi toàn bộ kết quả của đề ra output stream (không mở transaction dài, mỗi chunk vài query)
+     * @param plan Kết quả của prepare()
+     * @param ndjson true = NDJSON (1 object JSON/dòng), false = CSV
+     * @param out Output stream của response
+     * @returns Số bài nộp đã ghi
+     * @author: K24DTCN210-NVMANH (17/10/2026 18:40)
+     * --------------------------------------------------- */
+    public long write(ExportPlan plan, boolean ndjson, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (!ndjson) {
+            writer.write('﻿'); // BOM để Excel đọc đúng tiếng Việt
+            writeCsvHeader(plan, writer);
+        }
+
+        long written = 0;
+        long lastId = 0;
+        while (true) {
+            List<ResultRow> rows = loadChunk(plan, lastId);
+            if (rows.isEmpty()) {
+                break;
+            }
+            lastId = rows.get(rows.size() - 1).submissionId;
+            for (ResultRow row : rows) {
+                if (ndjson) {
+                    writeJsonLine(plan, row, writer);
+                } else {
+                    writeCsvLine(plan, row, writer);
+                }
+            }
+            writer.flush();
+            written += rows.size();
+        }
+        writer.flush();
+        log.info("[Export] Exam {}: exported {} submission(s) ({})", plan.getExamId(), written, ndjson ? "ndjson" : "csv");
+        return written;
+    }
+
+    // =============== READ ===============
+
+    /* Đẩy câu trả lời còn trong write-behind buffer của các bài thuộc đề này xuống DB trước khi đọc */
+    private void flushPendingAnswers(Long examId) {
+        Set<Long> pendingIds = answerWriteBuffer.getPendingSubmissionIds();
+        if (pendingIds.isEmpty()) {
+            return;
+        }
+        List<Long> examSubmissionIds = namedJdbcTemplate.queryForList(SELECT_EXAM_SUBMISSION_IDS,
+            new MapSqlParameterSource("examId", examId).addValue("ids", pendingIds), Long.class);
+        answerWriteBuffer.flushSubmissions(examSubmissionIds);
+    }
+
+    private List<ResultRow> loadChunk(ExportPlan plan, long lastId) {
+        Map<Long, ResultRow> rows = new LinkedHashMap<>();
+        jdbcTemplate.query(SELECT_SUBMISSIONS, rs -> {
+            ResultRow row = new ResultRow(rs.getLong(1), plan.questionIds.size());
+            row.studentId = rs.getLong(2);
+            row.studentCode = rs.getString(3);
+            row.studentName = rs.getString(4);
+            row.email = rs.getString(5);
+            row.attempt = rs.getInt(6);
+            row.status = rs.getString(7);
+            row.startedAt = rs.getTimestamp(8);
+            row.submittedAt = rs.getTimestamp(9);
+            row.timeSpentSeconds = rs.getObject(10, Integer.class);
+            row.totalScore = rs.getBigDecimal(11);
+            row.maxScore = rs.getBigDecimal(12);
+            row.passed = rs.getObject(13, Boolean.class);
+            rows.put(row.submissionId, row);
+        }, plan.getExamId(), lastId, chunkSize);
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", rows.keySet());
+        namedJdbcTemplate.query(SELECT_ANSWERS, params, rs -> {
+            ResultRow row = rows.get(rs.getLong(1));
+            Integer index = plan.questionIndex.get(rs.getLong(2));
+            if (row == null || index == null) {
+                return;
+            }
+            row.points[index] = rs.getBigDecimal(3);
+            row.correct[index] = rs.getObject(4, Boolean.class);
+            row.firstSavedAt[index] = rs.getTimestamp(5);
+            row.lastSavedAt[index] = rs.getTimestamp(6);
+            row.savedCount[index] = rs.getInt(7);
+            if (rs.getInt(8) == 1) {
+                row.answered++;
+            }
+        });
+        namedJdbcTemplate.query(SELECT_ALERTS, params, rs -> {
+            ResultRow row = rows.get(rs.getLong(1));
+            if (row == null) {
+                return;
+            }
+            AlertSeverity severity = AlertSeverity.valueOf(rs.getString(2));
+            row.alertsBySeverity.merge(severity, rs.getLong(3), Long::sum);
+            row.alerts += rs.getLong(3);
+            row.unreviewedAlerts += rs.getLong(4);
+        });
+        namedJdbcTemplate.query(SELECT_WINDOW_SWITCHES, params, rs -> {
+            ResultRow row = rows.get(rs.getLong(1));
+            if (row != null) {
+                row.windowSwitches = rs.getLong(2);
+            }
+        });
+        return new ArrayList<>(rows.values());
+    }
+
+    // =============== CSV ===============
+
+    private void writeCsvHeader(ExportPlan plan, Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder(String.join(",", BASE_COLUMNS));
+        for (int i = 0; i < plan.questionIds.size(); i++) {
+            line.append(",q").append(plan.questionOrders.get(i)).append("_points");
+        }
+        writer.write(line.append("\r\n").toString());
+    }
+
+    private void writeCsvLine(ExportPlan plan, ResultRow row, Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        line.append(row.submissionId).append(',')
+            .append(row.studentId).append(',')
+            .append(csv(row.studentCode)).append(',')
+            .append(csv(row.studentName)).append(',')
+            .append(csv(row.email)).append(',')
+            .append(row.attempt).append(',')
+            .append(row.status).append(',')
+            .append(format(row.startedAt)).append(',')
+            .append(format(row.submittedAt)).append(',')
+            .append(format(row.timeSpentSeconds)).append(',')
+            .append(format(row.totalScore)).append(',')
+            .append(format(row.maxScore)).append(',')
+            .append(format(row.passed)).append(',')
+            .append(row.answered).append(',')
+            .append(row.windowSwitches).append(',')
+            .append(row.alerts).append(',')
+            .append(row.unreviewedAlerts).append(',')
+            .append(row.riskLevel());
+        for (int i = 0; i < plan.questionIds.size(); i++) {
+            line.append(',').append(format(row.points[i]));
+        }
+        writer.write(line.append("\r\n").toString());
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value.toString();
+    }
+
+    // =============== NDJSON ===============
+
+    private void writeJsonLine(ExportPlan plan, ResultRow row, Writer writer) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("submissionId", row.submissionId);
+        json.put("studentId", row.studentId);
+        json.put("studentCode", row.studentCode);
+        json.put("studentName", row.studentName);
+        json.put("email", row.email);
+        json.put("attempt", row.attempt);
+        json.put("status", row.status);
+        json.put("startedAt", nullableFormat(row.startedAt));
+        json.put("submittedAt", nullableFormat(row.submittedAt));
+        json.put("timeSpentSeconds", row.timeSpentSeconds);
+        json.put("totalScore", row.totalScore);
+        json.put("maxScore", row.maxScore);
+        json.put("passed", row.passed);
+        json.put("answered", row.answered);
+        json.put("windowSwitches", row.windowSwitches);
+        json.put("alerts", row.alerts);
+        json.put("unreviewedAlerts", row.unreviewedAlerts);
+        json.put("riskLevel", row.riskLevel());
+
+        List<Map<String, Object>> questions = new ArrayList<>(plan.questionIds.size());
+        for (int i = 0; i < plan.questionIds.size(); i++) {
+            Map<String, Object> question = new LinkedHashMap<>();
+            question.put("questionId", plan.questionIds.get(i));
+            question.put("order", plan.questionOrders.get(i));
+            question.put("maxPoints", plan.questionPoints.get(i));
+            question.put("points", row.points[i]);
+            question.put("correct", row.correct[i]);
+            question.put("firstSavedAt", nullableFormat(row.firstSavedAt[i]));
+            question.put("lastSavedAt", nullableFormat(row.lastSavedAt[i]));
+            question.put("savedCount", row.savedCount[i]);
+            questions.add(question);
+        }
+        json.put("questions", questions);
+
+        writer.write(objectMapper.writeValueAsString(json));
+        writer.write('\n');
+    }
+
+    private static String nullableFormat(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime().toString();
+    }
+
+    /* ---------------------------------------------------
+     * Thông tin đề dùng khi ghi (tiêu đề + thứ tự câu hỏi), nạp 1 lần cho cả file
+     * @author: K24DTCN210-NVMANH (17/10/2026 18:40)
+     * --------------------------------------------------- */
+    @Getter
+    public static class ExportPlan {
+        private final Long examId;
+        private final String examTitle;
+        private final List<Long> questionIds;
+        private final List<Integer> questionOrders;
+        private final List<BigDecimal> questionPoints;
+        private final Map<Long, Integer> questionIndex = new HashMap<>();
+
+        ExportPlan(Long examId, String examTitle, List<Long> questionIds,
+                   List<Integer> questionOrders, List<BigDecimal> questionPoints) {
+            this.examId = examId;
+            this.examTitle = examTitle;
+            this.questionIds = questionIds;
+            this.questionOrders = questionOrders;
+            this.questionPoints = questionPoints;
+            for (int i = 0; i < questionIds.size(); i++) {
+                questionIndex.put(questionIds.get(i), i);
+            }
+        }
+    }
+
+    /* 1 bài nộp trong chunk đang ghi */
+    private static class ResultRow {
+        private final long submissionId;
+        private long studentId;
+        private String studentCode;
+        private String studentName;
+        private String email;
+        private int attempt;
+        private String status;
+        private Timestamp startedAt;
+        private Timestamp submittedAt;
+        private Integer timeSpentSeconds;
+        private BigDecimal totalScore;
+        private BigDecimal maxScore;
+        private Boolean passed;
+        private int answered;
+        private long windowSwitches;
+        private long alerts;
+        private long unreviewedAlerts;
+        private final Map<AlertSeverity, Long> alertsBySeverity = new EnumMap<>(AlertSeverity.class);
+        private final BigDecimal[] points;
+        private final Boolean[] correct;
+        private final Timestamp[] firstSavedAt;
+        private final Timestamp[] lastSavedAt;
+        private final Integer[] savedCount;
+
+        ResultRow(long submissionId, int questionCount) {
+            this.submissionId = submissionId;
+            this.points = new BigDecimal[questionCount];
+            this.correct = new Boolean[questionCount];
+            this.firstSavedAt = new Timestamp[questionCount];
+            this.lastSavedAt = new Timestamp[questionCount];
+            this.savedCount = new Integer[questionCount];
+        }
+
+        /* Số lần chuyển cửa sổ tính trên cả bài thi (AlertService dùng cửa sổ 30 phút gần nhất) */
+        String riskLevel() {
+            return AlertService.calculateRiskLevel(windowSwitches, unreviewedAlerts, alertsBySeverity);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.time.LocalDateTime;
  * - Validation business rules
  * - Mapping Entity <-> DTO
  * @author: K24DTCN210-NVMANH (19/11/2025 08:40)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 11:00) - Invalidate ExamPaperCache khi publish/unpublish/sửa câu hỏi
  * --------------------------------------------------- */
 @Service
 @Transactional
@@ -31,6 +32,7 @@ public class ExamService {
     private final UserRepository userRepository;
     private final ExamQuestionRepository examQuestionRepository;
     private final QuestionBankRepository questionBankRepository;
+    private final ExamPaperCache examPaperCache;
     
     /* ---------------------------------------------------
      * Tạo exam mới
@@ -236,6 +238,7 @@ public class ExamService {
      * Soft delete exam
      * @param id ID của exam cần xóa
      * @author: K24DTCN210-NVMANH (19/11/2025 08:40)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 11:00) - Invalidate ExamPaperCache
      * --------------------------------------------------- */
     public void deleteExam(Long id) {
         Exam exam = examRepository.findByIdAndDeletedAtIsNull(id)
@@ -248,6 +251,7 @@ public class ExamService {
         
         // Soft delete
         examRepository.delete(exam);
+        examPaperCache.invalidate(exam.getId());
     }
     
     /* ---------------------------------------------------
@@ -260,6 +264,7 @@ public class ExamService {
      * @param currentUserId ID của user đang thực hiện
      * @returns ExamDTO
      * @author: K24DTCN210-NVMANH (19/11/2025 08:46)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 11:00) - Invalidate ExamPaperCache
      * --------------------------------------------------- */
     public ExamDTO publishExam(Long id, Long currentUserId) {
         Exam exam = examRepository.findByIdAndDeletedAtIsNull(id)
@@ -287,6 +292,7 @@ public class ExamService {
         exam.setUpdatedAt(LocalDateTime.now());
         
         Exam updated = examRepository.save(exam);
+        examPaperCache.invalidate(exam.getId());
         
         return mapToDTO(updated);
     }
@@ -301,6 +307,7 @@ public class ExamService {
      * @param currentUserId ID của user đang thực hiện
      * @returns ExamDTO
      * @author: K24DTCN210-NVMANH (19/11/2025 08:46)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 11:00) - Invalidate ExamPaperCache
      * --------------------------------------------------- */
     public ExamDTO unpublishExam(Long id, Long currentUserId) {
         Exam exam = examRepository.findByIdAndDeletedAtIsNull(id)
@@ -323,6 +330,7 @@ public class ExamService {
         exam.setUpdatedAt(LocalDateTime.now());
         
         Exam updated = examRepository.save(exam);
+        examPaperCache.invalidate(exam.getId());
         
         return mapToDTO(updated);
     }
@@ -442,6 +450,7 @@ public class ExamService {
      * @param currentUserId ID của user đang thực hiện
      * @returns ExamQuestionDTO
      * @author: K24DTCN210-NVMANH (19/11/2025 09:18)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 11:00) - Invalidate ExamPaperCache
      * --------------------------------------------------- */
     public ExamQuestionDTO addQuestionToExam(Long examId, AddQuestionToExamRequest request, Long currentUserId) {
         // Validate exam exists
@@ -480,6 +489,7 @@ public class ExamService {
         exam.setUpdatedBy(currentUserId);
         exam.setUpdatedAt(LocalDateTime.now());
         examRepository.save(exam);
+        examPaperCache.invalidate(exam.getId());
         
         return mapToExamQuestionDTO(saved);
     }
@@ -495,6 +505,7 @@ public class ExamService {
      * @param questionId ID của question cần xóa
      * @param currentUserId ID của user đang thực hiện
      * @author: K24DTCN210-NVMANH (19/11/2025 09:18)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 11:00) - Invalidate ExamPaperCache
      * --------------------------------------------------- */
     public void removeQuestionFromExam(Long examId, Long questionId, Long currentUserId) {
         // Validate exam exists
@@ -531,6 +542,7 @@ public class ExamService {
         exam.setUpdatedBy(currentUserId);
         exam.setUpdatedAt(LocalDateTime.now());
         examRepository.save(exam);
+        examPaperCache.invalidate(exam.getId());
     }
     
     /* ---------------------------------------------------
@@ -547,6 +559,7 @@ public class ExamService {
      * @author: K24DTCN210-NVMANH (19/11/2025 09:18)
      * EditBy: K24DTCN210-NVMANH (19/11/2025 14:03) - Fix unique constraint violation
      * EditBy: K24DTCN210-NVMANH (19/11/2025 14:19) - Add flush to ensure DB updates
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 11:00) - Invalidate ExamPaperCache
      * --------------------------------------------------- */
     public java.util.List<ExamQuestionDTO> reorderQuestions(Long examId, ReorderQuestionsRequest request, Long currentUserId) {
         // Validate exam exists
@@ -587,6 +600,7 @@ public class ExamService {
         exam.setUpdatedBy(currentUserId);
         exam.setUpdatedAt(LocalDateTime.now());
         examRepository.save(exam);
+        examPaperCache.invalidate(exam.getId());
         
         // Return updated list ordered by new order
         java.util.List<ExamQuestion> updated = examQuestionRepository.findByExamIdOrderByQuestionOrder(examId);
@@ -607,6 +621,7 @@ public class ExamService {
      * @param currentUserId ID của user đang thực hiện
      * @returns ExamQuestionDTO
      * @author: K24DTCN210-NVMANH (19/11/2025 09:18)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 11:00) - Invalidate ExamPaperCache
      * --------------------------------------------------- */
     public ExamQuestionDTO updateQuestionScore(Long examId, Long questionId, UpdateQuestionScoreRequest request, Long currentUserId) {
         // Validate exam exists
@@ -625,6 +640,7 @@ public class ExamService {
         exam.setUpdatedBy(currentUserId);
         exam.setUpdatedAt(LocalDateTime.now());
         examRepository.save(exam);
+        examPaperCache.invalidate(exam.getId());
         
         return mapToExamQuestionDTO(updated);
     }
@@ -25,6 +25,15 @@ import java.util.stream.Collectors;
  * Xử lý toàn bộ business logic từ start đến submit exam
  * @author: K24DTCN210-NVMANH (19/11/2025 15:30)
  * EditBy: K24DTCN210-NVMANH (19/11/2025 15:30) - Fixed compilation errors
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 09:35) - Tích hợp write-behind answer buffer
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 10:30) - Thay updateSubmissionTracking bằng SubmissionActivityTracker
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 11:40) - Danh sách exam có thể làm dùng query set-based + cache
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 12:10) - Auto-grade bằng AnswerKey đã compile (không query DB)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 15:10) - Cập nhật lịch deadline của ExamTimerSyncService khi start/submit/pause/resume
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 15:40) - Tự động nộp bài hết giờ qua SubmissionDeadlineScheduler
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 17:30) - Báo thay đổi cho LiveViewService (live view dạng delta)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 18:10) - Active sessions / teacher live view tính tiến độ bằng 1 query aggregate
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 19:10) - Đánh dấu thống kê đề thi cần tính lại khi nộp bài
  * --------------------------------------------------- */
 @Service
 @RequiredArgsConstructor
@@ -41,6 +50,14 @@ public class ExamTakingService {
     private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
     private final EntityManager entityManager;
+    private final AnswerWriteBuffer answerWriteBuffer;
+    private final SubmissionActivityTracker activityTracker;
+    private final ExamPaperCache examPaperCache;
+    private final AvailableExamCache availableExamCache;
+    private final ExamTimerSyncService examTimerSyncService;
+    private final SubmissionDeadlineScheduler deadlineScheduler;
+    private final LiveViewService liveViewService;
+    private final ExamAnalyticsService examAnalyticsService;
     
     /* ---------------------------------------------------
      * Lấy danh sách exams student có thể làm
@@ -50,48 +67,18 @@ public class ExamTakingService {
      * @author: K24DTCN210-NVMANH (19/11/2025 15:30)
      * EditBy: K24DTCN210-NVMANH (23/11/2025 15:17) - Added class filter for security
      * EditBy: K24DTCN210-NVMANH (23/11/2025 16:47) - Add subjectCode parameter
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 11:40) - Query theo class đã enroll + aggregate, bỏ findAll()
      * --------------------------------------------------- */
+    @Transactional(readOnly = true)
     public List<AvailableExamDTO> getAvailableExams(Long studentId, String subjectCode) {
-        User student = userRepository.findById(studentId)
-            .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sinh viên"));
-        
-        // ✅ Lấy danh sách classes mà student đã enroll
-        List<SubjectClassStudent> enrolledClasses = subjectClassStudentRepository
-            .findEnrolledClassesByStudentId(studentId);
-        
-        // Tạo Set classIds để filter nhanh
-        Set<Long> enrolledClassIds = enrolledClasses.stream()
-            .map(scs -> scs.getSubjectClass().getId())
-            .collect(Collectors.toSet());
-        
-        // ✅ Chỉ lấy exams thuộc classes mà student đã enroll
-        List<Exam> eligibleExams = examRepository.findAll().stream()
-            .filter(exam -> {
-                // Check status
-                ExamStatus status = exam.getCurrentStatus();
-                if (status != ExamStatus.PUBLISHED && status != ExamStatus.ONGOING) {
-                    return false;
-                }
-                
-                // ✅ Check student có thuộc class này không
-                Long examClassId = exam.getSubjectClass().getId();
-                if (!enrolledClassIds.contains(examClassId)) {
-                    return false;
-                }
-                
-                // ✅ Filter by subjectCode if provided
-                if (subjectCode != null && !subjectCode.trim().isEmpty()) {
-                    String examSubjectCode = exam.getSubjectClass().getSubject().getSubjectCode();
-                    return examSubjectCode.equals(subjectCode);
-                }
-                
-                return true;
-            })
-            .collect(Collectors.toList());
+        List<AvailableExamDTO> exams = loadAvailableExams(studentId);
         
-        // Map to DTO với eligibility check
-        return eligibleExams.stream()
-            .map(exam -> mapToAvailableExamDTO(exam, studentId))
+        // ✅ Filter by subjectCode if provided
+        if (subjectCode == null || subjectCode.trim().isEmpty()) {
+            return new ArrayList<>(exams);
+        }
+        return exams.stream()
+            .filter(exam -> subjectCode.equals(exam.getSubjectCode()))
             .collect(Collectors.toList());
     }
     
@@ -100,51 +87,75 @@ public class ExamTakingService {
      * @param studentId ID của student
      * @returns List SubjectDTO với subjectCode và subjectName
      * @author: K24DTCN210-NVMANH (03/12/2025 16:55)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 11:40) - Dựng từ danh sách exams đã cache, bỏ findAll()
      * --------------------------------------------------- */
+    @Transactional(readOnly = true)
     public List<Map<String, String>> getAvailableSubjects(Long studentId) {
-        User student = userRepository.findById(studentId)
-            .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sinh viên"));
-        
-        // Lấy danh sách classes mà student đã enroll
-        List<SubjectClassStudent> enrolledClasses = subjectClassStudentRepository
-            .findEnrolledClassesByStudentId(studentId);
-        
-        // Tạo Set classIds để filter nhanh
-        Set<Long> enrolledClassIds = enrolledClasses.stream()
-            .map(scs -> scs.getSubjectClass().getId())
-            .collect(Collectors.toSet());
-        
-        // Lấy danh sách subjects từ các exams có thể làm
-        Set<String> subjectCodesWithExams = examRepository.findAll().stream()
-            .filter(exam -> {
-                // Check status
-                ExamStatus status = exam.getCurrentStatus();
-                if (status != ExamStatus.PUBLISHED && status != ExamStatus.ONGOING) {
-                    return false;
-                }
-                
-                // Check student có thuộc class này không
-                Long examClassId = exam.getSubjectClass().getId();
-                return enrolledClassIds.contains(examClassId);
-            })
-            .map(exam -> exam.getSubjectClass().getSubject().getSubjectCode())
-            .collect(Collectors.toSet());
+        Map<String, String> subjectNames = new HashMap<>();
+        for (AvailableExamDTO exam : loadAvailableExams(studentId)) {
+            subjectNames.putIfAbsent(exam.getSubjectCode(), exam.getSubjectName());
+        }
         
         // Convert thành List<Map> với subjectCode và subjectName
-        return enrolledClasses.stream()
-            .map(scs -> scs.getSubjectClass().getSubject())
-            .filter(subject -> subjectCodesWithExams.contains(subject.getSubjectCode()))
-            .distinct()
-            .map(subject -> {
+        return subjectNames.entrySet().stream()
+            .map(entry -> {
                 Map<String, String> subjectInfo = new HashMap<>();
-                subjectInfo.put("subjectCode", subject.getSubjectCode());
-                subjectInfo.put("subjectName", subject.getSubjectName());
+                subjectInfo.put("subjectCode", entry.getKey());
+                subjectInfo.put("subjectName", entry.getValue());
                 return subjectInfo;
             })
             .sorted(Comparator.comparing(s -> s.get("subjectName")))
             .collect(Collectors.toList());
     }
     
+    /* ---------------------------------------------------
+     * Danh sách exams (PUBLISHED/ONGOING, thuộc class đã enroll) kèm thông tin attempt
+     * Số round-trip cố định: enrolled class ids, exams, question counts, submission aggregates
+     * Kết quả được cache ngắn hạn theo student (AvailableExamCache)
+     * @param studentId ID của student
+     * @returns List AvailableExamDTO (immutable)
+     * @author: K24DTCN210-NVMANH (17/10/2026 11:40)
+     * --------------------------------------------------- */
+    private List<AvailableExamDTO> loadAvailableExams(Long studentId) {
+        List<AvailableExamDTO> cached = availableExamCache.get(studentId);
+        if (cached != null) {
+            return cached;
+        }
+        
+        if (!userRepository.existsById(studentId)) {
+            throw new ResourceNotFoundException("Không tìm thấy sinh viên");
+        }
+        
+        // ✅ Chỉ lấy exams thuộc classes mà student đã enroll
+        List<Long> enrolledClassIds = subjectClassStudentRepository.findEnrolledClassIdsByStudentId(studentId);
+        List<Exam> eligibleExams = enrolledClassIds.isEmpty()
+            ? List.of()
+            : examRepository.findOpenExamsForClasses(enrolledClassIds, LocalDateTime.now());
+        
+        List<AvailableExamDTO> exams = new ArrayList<>(eligibleExams.size());
+        if (!eligibleExams.isEmpty()) {
+            List<Long> examIds = eligibleExams.stream().map(Exam::getId).collect(Collectors.toList());
+            
+            Map<Long, Integer> questionCounts = new HashMap<>();
+            for (Object[] row : examQuestionRepository.countByExamIds(examIds)) {
+                questionCounts.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+            
+            Map<Long, Object[]> attempts = new HashMap<>();
+            for (Object[] row : submissionRepository.aggregateByStudentAndExamIds(studentId, examIds)) {
+                attempts.put((Long) row[0], row);
+            }
+            
+            for (Exam exam : eligibleExams) {
+                exams.add(mapToAvailableExamDTO(exam, attempts.get(exam.getId()),
+                    questionCounts.getOrDefault(exam.getId(), 0)));
+            }
+        }
+        
+        availableExamCache.put(studentId, exams);
+        return List.copyOf(exams);
+    }
+    
     /* ---------------------------------------------------
      * Check eligibility của student cho một exam
      * @param examId ID của exam
@@ -203,6 +214,7 @@ public class ExamTakingService {
      * --------------------------------------------------- */
     public StartExamResponse startExam(Long examId, Long studentId) {
         log.info("[StartExam] Called for student {} exam {}", studentId, examId);
+        availableExamCache.evict(studentId);
         
         // First: Check for ANY existing submission (active or completed)
         Optional<ExamSubmission> existingActiveSubmission = submissionRepository
@@ -368,6 +380,12 @@ public class ExamTakingService {
         }
         
         log.info("Student {} started exam {} (attempt #{})", studentId, examId, attemptNumber);
+        examTimerSyncService.track(savedSubmission.getId(), examId, savedSubmission.getStudent().getEmail(), now,
+            exam.getDurationMinutes(), exam.getEndTime());
+        deadlineScheduler.schedule(savedSubmission.getId(), examId, savedSubmission.getStudent().getEmail(), now,
+            exam.getDurationMinutes());
+        liveViewService.onSessionStarted(examId, savedSubmission.getId(), studentId,
+            savedSubmission.getStudent().getFullName(), savedSubmission.getStudent().getStudentCode());
         
         // Build response
         LocalDateTime startedAtLocal = now.toLocalDateTime();
@@ -397,6 +415,7 @@ public class ExamTakingService {
      * @param studentId ID của student (for validation)
      * @returns List QuestionForStudentDTO
      * @author: K24DTCN210-NVMANH (19/11/2025 15:30)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 11:00) - Dùng ExamPaperCache thay vì load + parse lại đề mỗi request
      * --------------------------------------------------- */
     public List<QuestionForStudentDTO> getExamQuestions(Long submissionId, Long studentId) {
         ExamSubmission submission = submissionRepository.findById(submissionId)
@@ -414,54 +433,52 @@ public class ExamTakingService {
         
         Exam exam = submission.getExam();
         
-        // Get all exam questions
-        List<ExamQuestion> examQuestions = examQuestionRepository
-            .findByExamId(exam.getId());
+        // Đề đã compile sẵn (immutable, dùng chung cho mọi submission của exam)
+        ExamPaperCache.CompiledExamPaper paper = examPaperCache.getPaper(exam.getId());
         
-        // Sort by questionOrder
-        examQuestions.sort(Comparator.comparing(ExamQuestion::getQuestionOrder));
-        
-        // Randomize questions if needed
-        if (exam.getRandomizeQuestions() && submission.getQuestionSeed() != null) {
-            Random random = new Random(submission.getQuestionSeed());
-            Collections.shuffle(examQuestions, random);
-        }
+        // Randomize questions if needed - hoán vị chỉ số theo seed, không copy/sort lại entity
+        Long questionSeed = Boolean.TRUE.equals(exam.getRandomizeQuestions())
+            ? submission.getQuestionSeed() : null;
+        int[] questionOrder = paper.questionOrder(questionSeed);
         
         // Get existing answers
         List<StudentAnswer> existingAnswers = answerRepository.findBySubmissionId(submissionId);
         Map<Long, StudentAnswer> answerMap = existingAnswers.stream()
             .collect(Collectors.toMap(a -> a.getQuestion().getId(), a -> a));
         
+        // Câu trả lời còn nằm trong write-behind buffer (chưa flush) được ưu tiên
+        Map<Long, AnswerWriteBuffer.PendingAnswer> pendingAnswers = answerWriteBuffer.getPending(submissionId);
+        
         // Map to DTO
         List<QuestionForStudentDTO> questions = new ArrayList<>();
-        for (int i = 0; i < examQuestions.size(); i++) {
-            ExamQuestion eq = examQuestions.get(i);
-            QuestionBank question = eq.getQuestion();
+        for (int i = 0; i < questionOrder.length; i++) {
+            ExamPaperCache.QuestionTemplate template = paper.getQuestions().get(questionOrder[i]);
             
-            // Parse options (without correct answer)
-            List<String> options = parseOptionsWithoutAnswer(question, 
+            // Options đã parse sẵn (without correct answer), chỉ hoán vị theo optionSeed
+            List<String> options = template.getOptions(
                 exam.getRandomizeOptions(), submission.getOptionSeed());
             
             // Get saved answer if exists
-            StudentAnswer savedAnswer = answerMap.get(question.getId());
+            StudentAnswer savedAnswer = answerMap.get(template.getQuestionId());
+            AnswerWriteBuffer.PendingAnswer pendingAnswer = pendingAnswers.get(template.getQuestionId());
             
             QuestionForStudentDTO dto = QuestionForStudentDTO.builder()
-                .id(question.getId())
-                .questionBankId(question.getId())
-                .questionType(question.getQuestionType())
-                .questionText(question.getQuestionText())
+                .id(template.getQuestionId())
+                .questionBankId(template.getQuestionId())
+                .questionType(template.getQuestionType())
+                .questionText(template.getQuestionText())
                 .questionCode(null)  // QuestionBank doesn't have questionCode
                 .options(options)
-                .maxScore(eq.getPoints())  // Use points from ExamQuestion
+                .maxScore(template.getPoints())  // Use points from ExamQuestion
                 .displayOrder(i + 1)
                 .imageUrl(null)  // Would need to parse from attachments JSON
                 .audioUrl(null)
                 .videoUrl(null)
                 .allowCodeExecution(exam.getAllowCodeExecution())
                 .programmingLanguage(exam.getProgrammingLanguage())
-                .hint(question.getGradingCriteria())  // Use gradingCriteria as hint
-                .savedAnswer(savedAnswer != null ? parseAnswerJson(savedAnswer.getAnswerJson()) : null)
-                .isAnswered(savedAnswer != null && !savedAnswer.isEmpty())
+                .hint(template.getHint())  // Use gradingCriteria as hint
+                .savedAnswer(parseAnswerJson(resolveAnswerJson(savedAnswer, pendingAnswer)))
+                .isAnswered(isAnswered(savedAnswer, pendingAnswer))
                 .build();
             
             questions.add(dto);
@@ -553,8 +570,11 @@ public class ExamTakingService {
         log.info("[SaveAnswer] StudentAnswer saved successfully - ID: {}, QuestionId: {}", 
             answer.getId(), answer.getQuestion().getId());
 
-        // Update submission tracking trong separate transaction để tránh rollback
-        updateSubmissionTracking(submission.getId());
+        // Update submission tracking (counter in-memory, flush gộp định kỳ)
+        activityTracker.recordSave(submission.getId());
+        liveViewService.onAnswerSaved(submission.getExam().getId(), submissionId, request.getQuestionId(),
+            request.getAnswer() != null ? StudentAnswer.hasAnswerJson(answer.getAnswerJson()) : null,
+            StudentAnswer.hasTextOrFile(request.getAnswerText(), request.getUploadedFileUrl()));
         
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
@@ -567,6 +587,164 @@ public class ExamTakingService {
         return result;
     }
     
+    /* ---------------------------------------------------
+     * Save nhiều câu trả lời của một submission trong 1 transaction
+     * - Validate submission 1 lần, load ExamQuestion + StudentAnswer bằng 2 query IN
+     * - Câu lỗi (không thuộc exam, sai format) chỉ fail riêng câu đó, các câu khác vẫn lưu
+     * - Tracking chỉ cập nhật 1 lần cho cả batch
+     * @param submissionId ID của submission
+     * @param requests Danh sách câu trả lời (câu lặp lại trong batch: giữ bản cuối)
+     * @param studentId ID của student (for validation)
+     * @returns SaveAnswersBatchResponse với kết quả từng câu
+     * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+     * --------------------------------------------------- */
+    public SaveAnswersBatchResponse saveAnswersBatch(Long submissionId, List<SubmitAnswerRequest> requests, Long studentId) {
+        ExamSubmission submission = submissionRepository.findById(submissionId)
+            .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy bài làm"));
+        
+        // Validate ownership
+        if (!submission.getStudent().getId().equals(studentId)) {
+            throw new BadRequestException("Bài làm này không thuộc về bạn");
+        }
+        
+        // Validate status and time
+        if (!submission.isActive()) {
+            throw new BadRequestException("Bài làm này không còn hoạt động");
+        }
+        
+        if (submission.isExpired()) {
+            submitExam(submissionId, studentId);
+            throw new BadRequestException("Hết thời gian. Bài thi đã được tự động nộp");
+        }
+        
+        Long examId = submission.getExam().getId();
+        Map<Long, SubmitAnswerRequest> latest = new LinkedHashMap<>();
+        for (SubmitAnswerRequest request : requests) {
+            latest.put(request.getQuestionId(), request);
+        }
+        
+        Map<Long, QuestionBank> questions = examQuestionRepository
+            .findByExamIdAndQuestionIdIn(examId, latest.keySet()).stream()
+            .collect(Collectors.toMap(eq -> eq.getQuestion().getId(), ExamQuestion::getQuestion));
+        Map<Long, StudentAnswer> existing = answerRepository
+            .findBySubmissionIdAndQuestionIdIn(submissionId, latest.keySet()).stream()
+            .collect(Collectors.toMap(StudentAnswer::getQuestionId, a -> a));
+        
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<StudentAnswer> toSave = new ArrayList<>();
+        List<SaveAnswersBatchResponse.ItemResult> results = new ArrayList<>();
+        
+        for (SubmitAnswerRequest request : latest.values()) {
+            QuestionBank question = questions.get(request.getQuestionId());
+            if (question == null) {
+                results.add(failedItem(request.getQuestionId(), "Không tìm thấy câu hỏi trong bài thi này"));
+                continue;
+            }
+            
+            // Serialize trước khi đụng vào entity để câu lỗi không làm dirty answer đang managed
+            String answerJson;
+            try {
+                answerJson = request.getAnswer() != null ? objectMapper.writeValueAsString(request.getAnswer()) : null;
+            } catch (Exception e) {
+                results.add(failedItem(request.getQuestionId(), "Invalid answer format"));
+                continue;
+            }
+            
+            StudentAnswer answer = existing.get(request.getQuestionId());
+            if (answer == null) {
+                answer = new StudentAnswer();
+                answer.setSubmission(submission);
+                answer.setQuestionId(request.getQuestionId());
+                answer.setQuestion(question);
+                answer.setFirstSavedAt(now);
+                answer.setSavedCount(0);
+            }
+            if (answerJson != null) {
+                answer.setAnswerJson(answerJson);
+            }
+            answer.setAnswerText(request.getAnswerText());
+            answer.setUploadedFileUrl(request.getUploadedFileUrl());
+            answer.setUploadedFileName(request.getUploadedFileName());
+            
+            autoGradeAnswer(answer, question, examId);
+            
+            answer.setLastSavedAt(now);
+            answer.setSavedCount(answer.getSavedCount() + 1);
+            toSave.add(answer);
+        }
+        
+        answerRepository.saveAll(toSave);
+        
+        // Update submission tracking 1 lần cho cả batch
+        activityTracker.recordSaves(submissionId, toSave.size());
+        for (StudentAnswer answer : toSave) {
+            SubmitAnswerRequest request = latest.get(answer.getQuestionId());
+            liveViewService.onAnswerSaved(examId, submissionId, answer.getQuestionId(),
+                request.getAnswer() != null ? StudentAnswer.hasAnswerJson(answer.getAnswerJson()) : null,
+                StudentAnswer.hasTextOrFile(request.getAnswerText(), request.getUploadedFileUrl()));
+            results.add(SaveAnswersBatchResponse.ItemResult.builder()
+                .questionId(answer.getQuestionId())
+                .success(true)
+                .message("Answer saved")
+                .isGraded(answer.getIsCorrect() != null)
+                .pointsEarned(answer.getPointsEarned())
+                .build());
+        }
+        
+        log.info("[SaveAnswersBatch] Submission {} - saved {}/{} answer(s)", 
+            submissionId, toSave.size(), latest.size());
+        
+        return SaveAnswersBatchResponse.builder()
+            .savedCount(toSave.size())
+            .failedCount(latest.size() - toSave.size())
+            .buffered(false)
+            .results(results)
+            .build();
+    }
+    
+    /* Kết quả lỗi của 1 câu trong batch save */
+    static SaveAnswersBatchResponse.ItemResult failedItem(Long questionId, String message) {
+        return SaveAnswersBatchResponse.ItemResult.builder()
+            .questionId(questionId)
+            .success(false)
+            .message(message)
+            .build();
+    }
+    
+    /* ---------------------------------------------------
+     * Load context của submission cho write-behind autosave (chỉ chạy ở lần save đầu)
+     * Validate ownership/status và cache đáp án + điểm của toàn bộ câu hỏi trong exam
+     * @param submissionId ID của submission
+     * @param studentId ID của student (for validation)
+     * @returns SubmissionContext đã đăng ký vào AnswerWriteBuffer
+     * @author: K24DTCN210-NVMANH (17/10/2026 09:35)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 12:10) - Lấy AnswerKey từ ExamPaperCache
+     * --------------------------------------------------- */
+    @Transactional(readOnly = true)
+    public AnswerWriteBuffer.SubmissionContext loadAnswerContext(Long submissionId, Long studentId) {
+        ExamSubmission submission = submissionRepository.findById(submissionId)
+            .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy bài làm"));
+        
+        // Validate ownership
+        if (!submission.getStudent().getId().equals(studentId)) {
+            throw new BadRequestException("Bài làm này không thuộc về bạn");
+        }
+        
+        // Validate status
+        if (!submission.isActive()) {
+            throw new BadRequestException("Bài làm này không còn hoạt động");
+        }
+        
+        Exam exam = submission.getExam();
+        Map<Long, AnswerKey> questions = examPaperCache.getPaper(exam.getId()).getAnswerKeys();
+        
+        long deadlineMillis = submission.getStartedAt().getTime() + exam.getDurationMinutes() * 60_000L;
+        AnswerWriteBuffer.SubmissionContext context = new AnswerWriteBuffer.SubmissionContext(
+            submissionId, studentId, exam.getId(), deadlineMillis, questions);
+        answerWriteBuffer.putContext(context);
+        return context;
+    }
+    
     /* ---------------------------------------------------
      * Submit exam - final submission
      * @param submissionId ID của submission
@@ -587,9 +765,13 @@ public class ExamTakingService {
         if (submission.isSubmitted()) {
             throw new BadRequestException("Bài thi này đã được nộp rồi");
         }
+        availableExamCache.evict(studentId);
         
         Exam exam = submission.getExam();
         
+        // Ép flush các câu trả lời còn trong write-behind buffer trước khi tính điểm
+        answerWriteBuffer.flushSubmission(submissionId);
+        
         // Calculate time spent
         int timeSpent = submission.calculateTimeSpent();
         
@@ -612,6 +794,10 @@ public class ExamTakingService {
         submission.setPassed(passed);
         
         submissionRepository.save(submission);
+        examTimerSyncService.untrack(submissionId);
+        deadlineScheduler.cancel(submissionId);
+        liveViewService.onStatusChanged(exam.getId(), submissionId, SubmissionStatus.SUBMITTED);
+        examAnalyticsService.markDirty(exam.getId());
         
         log.info("Student {} submitted exam {} (score: {}/{})", 
             studentId, exam.getId(), totalScore, exam.getTotalScore());
@@ -620,6 +806,28 @@ public class ExamTakingService {
         return getResult(submissionId, studentId);
     }
     
+    /* ---------------------------------------------------
+     * Tự động nộp submission đã hết giờ (gọi từ SubmissionDeadlineScheduler)
+     * @param submissionId ID của submission
+     * @returns Deadline mới (epoch millis) nếu submission vẫn đang làm nhưng chưa hết giờ
+     *          (vd: duration vừa được sửa), null nếu đã nộp hoặc không còn IN_PROGRESS
+     * @author: K24DTCN210-NVMANH (17/10/2026 15:40)
+     * --------------------------------------------------- */
+    public Long autoSubmitIfExpired(Long submissionId) {
+        ExamSubmission submission = submissionRepository.findById(submissionId).orElse(null);
+        if (submission == null || !submission.isActive() || submission.getStartedAt() == null) {
+            return null;
+        }
+        if (!submission.isExpired()) {
+            return submission.getStartedAt().getTime() + submission.getExam().getDurationMinutes() * 60_000L;
+        }
+        
+        submitExam(submissionId, submission.getStudent().getId());
+        log.info("[AutoSubmit] Submission {} of student {} auto-submitted at deadline", 
+            submissionId, submission.getStudent().getId());
+        return null;
+    }
+    
     /* ---------------------------------------------------
      * Lấy kết quả bài thi (theo exam settings)
      * @param submissionId ID của submission
@@ -703,73 +911,32 @@ public class ExamTakingService {
     // =============== PRIVATE HELPER METHODS ===============
     
     /* ---------------------------------------------------
-     * Update submission tracking trong separate transaction
-     * Sử dụng retry mechanism để handle optimistic locking
-     * @param submissionId ID của submission
-     * @author: K24DTCN210-NVMANH (24/11/2025 16:13)
-     * EditBy: K24DTCN210-NVMANH (25/11/2025 14:10) - Added retry with delay
+     * Map exam + aggregate submissions của student sang AvailableExamDTO
+     * Eligibility dùng cùng luật với checkEligibility nhưng không query thêm
+     * @param exam Exam (đã fetch subjectClass + subject)
+     * @param attempt [examId, attemptsMade, activeCount, passedCount, highestScore] hoặc null
+     * @param totalQuestions Số câu hỏi của exam
+     * @returns AvailableExamDTO
+     * @author: K24DTCN210-NVMANH (19/11/2025 15:30)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 11:40) - Nhận aggregate có sẵn thay vì query từng exam
      * --------------------------------------------------- */
-    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
-    public void updateSubmissionTracking(Long submissionId) {
-        int maxRetries = 3;
-        int retryDelay = 50; // ms
+    private AvailableExamDTO mapToAvailableExamDTO(Exam exam, Object[] attempt, int totalQuestions) {
+        int attemptsMade = attempt != null ? ((Number) attempt[1]).intValue() : 0;
+        boolean hasActiveSubmission = attempt != null && ((Number) attempt[2]).longValue() > 0;
+        boolean hasPassed = attempt != null && ((Number) attempt[3]).longValue() > 0;
+        BigDecimal highestScore = attempt != null ? (BigDecimal) attempt[4] : null;
         
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
-            try {
-                ExamSubmission submission = submissionRepository.findById(submissionId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy bài làm"));
-                
-                Timestamp now = new Timestamp(System.currentTimeMillis());
-                submission.setLastSavedAt(now);
-                
-                Integer currentCount = submission.getAutoSaveCount();
-                submission.setAutoSaveCount(currentCount != null ? currentCount + 1 : 1);
-                
-                submission = submissionRepository.save(submission);
-                
-                log.info("[SaveAnswer] ExamSubmission updated - ID: {}, AutoSaveCount: {} (attempt {})", 
-                    submission.getId(), submission.getAutoSaveCount(), attempt);
-                    
-                return; // Success - exit method
-                    
-            } catch (org.springframework.orm.ObjectOptimisticLockingFailureException e) {
-                // Optimistic locking failure - another process updated submission
-                if (attempt < maxRetries) {
-                    log.warn("[SaveAnswer] Optimistic locking conflict on submission {} (attempt {}/{}) - " +
-                        "Retrying in {}ms...", submissionId, attempt, maxRetries, retryDelay);
-                    try {
-                        Thread.sleep(retryDelay);
-                        retryDelay *= 2; // Exponential backoff
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        log.error("[SaveAnswer] Retry interrupted for submission {}", submissionId);
-                        return;
-                    }
-                } else {
-                    log.warn("[SaveAnswer] Failed to update submission {} after {} attempts. " +
-                        "Answer was saved successfully. Final error: {}", 
-                        submissionId, maxRetries, e.getMessage());
-                }
-            } catch (Exception e) {
-                // Other errors - log but don't fail the whole save operation
-                log.error("[SaveAnswer] CRITICAL: Failed to update submission tracking - ID: {} (attempt {}). " +
-                    "Answer was saved but submission tracking failed! Error: {}", 
-                    submissionId, attempt, e.getMessage(), e);
-                return; // Don't retry on non-locking errors
-            }
+        // Eligibility (cùng thứ tự check với checkEligibility)
+        ExamStatus status = exam.getCurrentStatus();
+        Integer maxAttempts = exam.getMaxAttempts();
+        String ineligibleReason = null;
+        if (status != ExamStatus.PUBLISHED && status != ExamStatus.ONGOING) {
+            ineligibleReason = "Bài thi chưa mở";
+        } else if (maxAttempts != null && maxAttempts > 0 && attemptsMade >= maxAttempts) {
+            ineligibleReason = "Đã hết số lần làm bài (" + maxAttempts + " lần)";
+        } else if (hasActiveSubmission) {
+            ineligibleReason = "Bạn đang có bài thi chưa hoàn thành";
         }
-    }
-    
-    private AvailableExamDTO mapToAvailableExamDTO(Exam exam, Long studentId) {
-        Map<String, Object> eligibility = checkEligibility(exam.getId(), studentId);
-        
-        int totalQuestions = (int) examQuestionRepository.countByExamId(exam.getId());
-        int attemptsMade = submissionRepository.countByStudentIdAndExamId(studentId, exam.getId());
-        boolean hasActiveSubmission = submissionRepository
-            .findActiveSubmission(studentId, exam.getId()).isPresent();
-        boolean hasPassed = submissionRepository.hasPassedExam(studentId, exam.getId());
-        
-        Optional<Double> highestScore = submissionRepository.findHighestScore(studentId, exam.getId());
         
         return AvailableExamDTO.builder()
             .id(exam.getId())
@@ -794,11 +961,10 @@ public class ExamTakingService {
                 exam.getMaxAttempts() - attemptsMade : null)
             .hasActiveSubmission(hasActiveSubmission)
             .hasPassed(hasPassed)
-            .highestScore(highestScore.isPresent() ? 
-                BigDecimal.valueOf(highestScore.get()) : null)
-            .status(exam.getCurrentStatus())
-            .isEligible((Boolean) eligibility.get("isEligible"))
-            .ineligibleReason((String) eligibility.get("reason"))
+            .highestScore(highestScore)
+            .status(status)
+            .isEligible(ineligibleReason == null)
+            .ineligibleReason(ineligibleReason)
             .totalQuestions(totalQuestions)
             .build();
     }
@@ -859,6 +1025,22 @@ public class ExamTakingService {
         }
     }
     
+    private String resolveAnswerJson(StudentAnswer savedAnswer, AnswerWriteBuffer.PendingAnswer pendingAnswer) {
+        if (pendingAnswer != null && pendingAnswer.getAnswerJson() != null) {
+            return pendingAnswer.getAnswerJson();
+        }
+        return savedAnswer != null ? savedAnswer.getAnswerJson() : null;
+    }
+    
+    private boolean isAnswered(StudentAnswer savedAnswer, AnswerWriteBuffer.PendingAnswer pendingAnswer) {
+        if (pendingAnswer == null) {
+            return savedAnswer != null && !savedAnswer.isEmpty();
+        }
+        String answerJson = resolveAnswerJson(savedAnswer, pendingAnswer);
+        return StudentAnswer.hasAnswerJson(answerJson)
+            || StudentAnswer.hasTextOrFile(pendingAnswer.getAnswerText(), pendingAnswer.getUploadedFileUrl());
+    }
+    
     private Object parseAnswerJson(String answerJson) {
         if (answerJson == null) return null;
         try {
@@ -868,39 +1050,28 @@ public class ExamTakingService {
         }
     }
     
+    /* ---------------------------------------------------
+     * Auto-grade câu trả lời bằng AnswerKey đã compile của exam (không query DB)
+     * Câu cần chấm tay (ESSAY, SHORT_ANSWER, CODING) giữ nguyên isCorrect/pointsEarned
+     * @param answer StudentAnswer cần chấm
+     * @param question QuestionBank entity
+     * @param examId ID của exam
+     * @author: K24DTCN210-NVMANH (19/11/2025 15:30)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 12:10) - Dùng AnswerKey thay vì so sánh chuỗi JSON
+     * --------------------------------------------------- */
     private void autoGradeAnswer(StudentAnswer answer, QuestionBank question, Long examId) {
-        // Chỉ auto-grade cho MULTIPLE_CHOICE, MULTIPLE_SELECT, TRUE_FALSE
-        QuestionType type = question.getQuestionType();
-        
-        if (type != QuestionType.MULTIPLE_CHOICE && 
-            type != QuestionType.MULTIPLE_SELECT && 
-            type != QuestionType.TRUE_FALSE) {
+        AnswerKey key = examPaperCache.getPaper(examId).getAnswerKey(question.getId());
+        if (key == null || !key.isAutoGradable()) {
             return;  // Requires manual grading
         }
         
-        try {
-            String correctAnswerStr = question.getCorrectAnswer();
-            String studentAnswerStr = answer.getAnswerJson();
-            
-            if (correctAnswerStr == null || studentAnswerStr == null) {
-                return;
-            }
-            
-            boolean isCorrect = correctAnswerStr.equals(studentAnswerStr);
-            answer.setIsCorrect(isCorrect);
-            
-            // Get max points from ExamQuestion
-            ExamQuestion eq = examQuestionRepository
-                .findByExamIdAndQuestionId(examId, question.getId())
-                .orElse(null);
-            
-            if (eq != null) {
-                answer.setMaxPoints(eq.getPoints());
-                answer.setPointsEarned(isCorrect ? eq.getPoints() : BigDecimal.ZERO);
-            }
-        } catch (Exception e) {
-            log.error("Error auto-grading answer", e);
+        Boolean isCorrect = key.grade(answer.getAnswerJson(), answer.getAnswerText(), objectMapper);
+        if (isCorrect == null) {
+            return;
         }
+        answer.setIsCorrect(isCorrect);
+        answer.setMaxPoints(key.getPoints());
+        answer.setPointsEarned(key.pointsFor(isCorrect));
     }
     
     private List<AnswerReviewDTO> mapToAnswerReviewDTOs(List<StudentAnswer> answers, 
@@ -944,6 +1115,7 @@ public class ExamTakingService {
      * @param teacherId ID của giáo viên thực hiện
      * @returns Map với success message
      * @author: K24DTCN210-NVMANH (21/11/2025 02:05)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 13:00) - Flush write-behind buffer trước khi đổi status
      * --------------------------------------------------- */
     public Map<String, Object> pauseExam(PauseExamRequest request, Long teacherId) {
         ExamSubmission submission = submissionRepository.findById(request.getSubmissionId())
@@ -959,9 +1131,16 @@ public class ExamTakingService {
         User teacher = userRepository.findById(teacherId)
             .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy giáo viên"));
         
+        // Ghi các câu trả lời đã ACK còn trong buffer trước khi rời IN_PROGRESS (bỏ luôn context)
+        answerWriteBuffer.flushSubmission(submission.getId());
+        
         // Update status to PAUSED
         submission.setStatus(SubmissionStatus.PAUSED);
+        availableExamCache.evict(submission.getStudent().getId());
         submissionRepository.save(submission);
+        examTimerSyncService.untrack(submission.getId());
+        deadlineScheduler.cancel(submission.getId());
+        liveViewService.onStatusChanged(submission.getExam().getId(), submission.getId(), SubmissionStatus.PAUSED);
         
         log.info("Teacher {} paused exam submission {} for student {}. Reason: {}", 
             teacherId, submission.getId(), submission.getStudent().getId(), request.getReason());
@@ -983,6 +1162,7 @@ public class ExamTakingService {
      * @param teacherId ID của giáo viên thực hiện
      * @returns Map với success message
      * @author: K24DTCN210-NVMANH (21/11/2025 02:05)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 17:30) - Mở lại submission cho AnswerWriteBuffer
      * --------------------------------------------------- */
     public Map<String, Object> resumeExam(ResumeExamRequest request, Long teacherId) {
         ExamSubmission submission = submissionRepository.findById(request.getSubmissionId())
@@ -1000,12 +1180,20 @@ public class ExamTakingService {
         
         // Update status back to IN_PROGRESS
         submission.setStatus(SubmissionStatus.IN_PROGRESS);
+        availableExamCache.evict(submission.getStudent().getId());
+        answerWriteBuffer.reopen(submission.getId());
         
         // Add additional time if specified (store in a note or extend endTime)
         // Note: This is a simplified version. Full implementation would need to track pause time
         // and extend the deadline accordingly
         
         submissionRepository.save(submission);
+        examTimerSyncService.track(submission.getId(), submission.getExam().getId(),
+            submission.getStudent().getEmail(), submission.getStartedAt(),
+            submission.getExam().getDurationMinutes(), submission.getExam().getEndTime());
+        deadlineScheduler.schedule(submission.getId(), submission.getExam().getId(),
+            submission.getStudent().getEmail(), submission.getStartedAt(), submission.getExam().getDurationMinutes());
+        liveViewService.onStatusChanged(submission.getExam().getId(), submission.getId(), SubmissionStatus.IN_PROGRESS);
         
         log.info("Teacher {} resumed exam submission {} for student {}. Additional time: {} minutes", 
             teacherId, submission.getId(), submission.getStudent().getId(), 
@@ -1025,13 +1213,13 @@ public class ExamTakingService {
      * Lấy danh sách các phiên thi đang active (giáo viên xem)
      * @returns List ActiveSessionDTO
      * @author: K24DTCN210-NVMANH (21/11/2025 02:05)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 18:10) - 1 query cho mọi phiên thay vì 2 query đếm mỗi phiên
      * --------------------------------------------------- */
     public List<ActiveSessionDTO> getActiveSessions() {
-        // Get all IN_PROGRESS submissions
-        List<ExamSubmission> activeSubmissions = submissionRepository
-            .findByStatus(SubmissionStatus.IN_PROGRESS);
+        // Get all IN_PROGRESS submissions (kèm tổng số câu + số câu đã trả lời)
+        List<Object[]> activeRows = submissionRepository.findActiveSessionRows();
         
-        return activeSubmissions.stream()
+        return activeRows.stream()
             .map(this::mapToActiveSessionDTO)
             .sorted(Comparator.comparing(ActiveSessionDTO::getStartedAt).reversed())
             .collect(Collectors.toList());
@@ -1042,14 +1230,14 @@ public class ExamTakingService {
      * @param examId ID của exam
      * @returns TeacherLiveViewDTO với statistics và alerts
      * @author: K24DTCN210-NVMANH (21/11/2025 02:05)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 18:10) - Tiến độ các phiên lấy bằng 1 query aggregate
      * --------------------------------------------------- */
     public TeacherLiveViewDTO getTeacherLiveView(Long examId) {
         Exam exam = examRepository.findById(examId)
             .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy bài thi"));
         
         // Get all active sessions for this exam
-        List<ExamSubmission> activeSessions = submissionRepository
-            .findByExamIdAndStatus(examId, SubmissionStatus.IN_PROGRESS);
+        List<Object[]> activeSessions = submissionRepository.findActiveSessionRowsByExamId(examId);
         
         if (activeSessions.isEmpty()) {
             return TeacherLiveViewDTO.builder()
@@ -1087,14 +1275,19 @@ public class ExamTakingService {
     
     // =============== NEW HELPER METHODS ===============
     
-    private ActiveSessionDTO mapToActiveSessionDTO(ExamSubmission submission) {
-        // Get student info
-        User student = submission.getStudent();
+    /* ---------------------------------------------------
+     * Dựng ActiveSessionDTO từ 1 dòng của findActiveSessionRows* (không load entity)
+     * @param row [submissionId, status, studentId, fullName, email, examId, examTitle,
+     *        durationMinutes, startedAt, lastSavedAt, autoSaveCount, totalQuestions, answeredQuestions]
+     * @author: K24DTCN210-NVMANH (21/11/2025 02:05)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 18:10) - Nhận dòng aggregate thay vì entity + 2 query đếm
+     * --------------------------------------------------- */
+    private ActiveSessionDTO mapToActiveSessionDTO(Object[] row) {
+        Long submissionId = (Long) row[0];
         
         // Calculate progress
-        int totalQuestions = (int) examQuestionRepository.countByExamId(submission.getExam().getId());
-        int answeredQuestions = (int) answerRepository
-            .countBySubmissionIdAndAnswerTextIsNotNull(submission.getId());
+        int totalQuestions = ((Number) row[11]).intValue();
+        int answeredQuestions = ((Number) row[12]).intValue();
         BigDecimal progressPercentage = totalQuestions > 0 ? 
             BigDecimal.valueOf(answeredQuestions)
                 .divide(BigDecimal.valueOf(totalQuestions), 4, RoundingMode.HALF_UP)
@@ -1103,25 +1296,25 @@ public class ExamTakingService {
             BigDecimal.ZERO;
         
         // Calculate remaining time
-        int durationMinutes = submission.getExam().getDurationMinutes();
-        LocalDateTime startedAt = submission.getStartedAt().toLocalDateTime();
+        int durationMinutes = (Integer) row[7];
+        LocalDateTime startedAt = ((Timestamp) row[8]).toLocalDateTime();
         LocalDateTime now = LocalDateTime.now();
         long elapsedMinutes = java.time.Duration.between(startedAt, now).toMinutes();
         int remainingMinutes = Math.max(0, durationMinutes - (int) elapsedMinutes);
         
-        // Check last activity
-        LocalDateTime lastActivity = submission.getLastSavedAt() != null ?
-            submission.getLastSavedAt().toLocalDateTime() : startedAt;
+        // Check last activity (giá trị DB + phần chưa flush trong activity tracker)
+        Timestamp lastSavedAt = activityTracker.getLastSavedAt(submissionId, (Timestamp) row[9]);
+        LocalDateTime lastActivity = lastSavedAt != null ? lastSavedAt.toLocalDateTime() : startedAt;
         long minutesSinceLastActivity = java.time.Duration.between(lastActivity, now).toMinutes();
         boolean isInactive = minutesSinceLastActivity > 10;
         
         return ActiveSessionDTO.builder()
-            .submissionId(submission.getId())
-            .examId(submission.getExam().getId())
-            .examTitle(submission.getExam().getTitle())
-            .studentId(student.getId())
-            .studentName(student.getFullName())
-            .studentEmail(student.getEmail())
+            .submissionId(submissionId)
+            .examId((Long) row[5])
+            .examTitle((String) row[6])
+            .studentId((Long) row[2])
+            .studentName((String) row[3])
+            .studentEmail((String) row[4])
             .startedAt(startedAt)
             .durationMinutes(durationMinutes)
             .remainingMinutes(remainingMinutes)
@@ -1129,8 +1322,8 @@ public class ExamTakingService {
             .answeredQuestions(answeredQuestions)
             .progressPercentage(progressPercentage)
             .lastActivity(lastActivity)
-            .autoSaveCount(submission.getAutoSaveCount())
-            .status(submission.getStatus())
+            .autoSaveCount(activityTracker.getAutoSaveCount(submissionId, (Integer) row[10]))
+            .status((SubmissionStatus) row[1])
             .isInactive(isInactive)
             .build();
     }
@@ -0,0 +1,289 @@
+package com.mstrust.exam.service;
+
+import com.mstrust.exam.dto.websocket.ExamTimerSyncMessage;
+import com.mstrust.exam.repository.ExamSubmissionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.security.Principal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* ---------------------------------------------------
+ * Lịch deadline in-memory của các submission đang làm bài, nhóm theo exam
+ * - Định kỳ nạp lại toàn bộ bằng 1 query (không findById exam theo từng submission);
+ *   giữa 2 lần nạp, start/submit/pause/resume cập nhật lịch qua hook sau commit
+ * - Mỗi tick chỉ gửi 1 message gọn cho mỗi exam lên /topic/exam/{examId}/timer
+ *   (đồng hồ server + thời điểm đóng đề), không gửi thông tin riêng của từng student
+ * - Deadline riêng của student chỉ gửi tới user đó (/user/queue/timer, theo principal name) khi
+ *   lần đầu xuất hiện hoặc khi thay đổi (vd: sửa duration của exam)
+ * @author: K24DTCN210-NVMANH (17/10/2026 15:10)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 14:00) - Lưu principal name (email) thay vì studentId để gửi tới đúng session
+ * --------------------------------------------------- */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExamTimerSyncService {
+
+    private static final String TIMER_QUEUE = "/user/queue/timer";
+
+    private final ExamSubmissionRepository submissionRepository;
+    private final WebSocketEventService webSocketEventService;
+
+    private final Map<Long, ExamSchedule> schedules = new ConcurrentHashMap<>();
+
+    /* Submission bị bỏ khỏi lịch trong lúc đang nạp lại -> không được thêm lại từ kết quả query cũ */
+    private final Map<Long, Long> recentlyRemoved = new ConcurrentHashMap<>();
+
+    /* ---------------------------------------------------
+     * Nạp lại lịch deadline từ DB bằng 1 query cho tất cả exam
+     * @author: K24DTCN210-NVMANH (17/10/2026 15:10)
+     * --------------------------------------------------- */
+    @Scheduled(fixedDelayString = "${exam.timer-sync.refresh-interval-ms:60000}")
+    public synchronized void refreshSchedule() {
+        long refreshStartedAt = System.currentTimeMillis();
+        List<Object[]> rows = submissionRepository.findActiveDeadlineRows();
+
+        Map<Long, Map<Long, SubmissionDeadline>> loaded = new HashMap<>();
+        Map<Long, LocalDateTime> examEndTimes = new HashMap<>();
+        for (Object[] row : rows) {
+            Long submissionId = (Long) row[0];
+            Long examId = (Long) row[1];
+            SubmissionDeadline deadline = new SubmissionDeadline(submissionId, (String) row[2],
+                (Timestamp) row[3], (Integer) row[4], refreshStartedAt);
+            loaded.computeIfAbsent(examId, id -> new HashMap<>()).put(submissionId, deadline);
+            examEndTimes.put(examId, (LocalDateTime) row[5]);
+        }
+
+        Set<Long> examIds = new HashSet<>(schedules.keySet());
+        examIds.addAll(loaded.keySet());
+        for (Long examId : examIds) {
+            ExamSchedule schedule = schedules.computeIfAbsent(examId, ExamSchedule::new);
+            schedule.reconcile(examEndTimes.get(examId), loaded.getOrDefault(examId, Map.of()), refreshStartedAt);
+            if (schedule.isEmpty()) {
+                schedules.remove(examId, schedule);
+            }
+        }
+        recentlyRemoved.values().removeIf(removedAt -> removedAt < refreshStartedAt);
+        log.debug("[TimerSync] Schedule refreshed: {} active submissions in {} exams", rows.size(), schedules.size());
+    }
+
+    /* ---------------------------------------------------
+     * Gửi tick cho từng exam + deadline riêng của các student có deadline mới/thay đổi
+     * @author: K24DTCN210-NVMANH (17/10/2026 15:10)
+     * --------------------------------------------------- */
+    public void broadcastTicks() {
+        LocalDateTime now = LocalDateTime.now();
+        for (ExamSchedule schedule : schedules.values()) {
+            if (schedule.isEmpty()) {
+                continue;
+            }
+            webSocketEventService.sendTimerSync(schedule.toTick(now));
+            schedule.sendPendingCorrections(now, false);
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Teacher yêu cầu đồng bộ lại: gửi tick và gửi lại deadline cho mọi student của exam
+     * @param examId ID của exam
+     * @author: K24DTCN210-NVMANH (17/10/2026 15:10)
+     * --------------------------------------------------- */
+    public void forceSync(Long examId) {
+        ExamSchedule schedule = schedules.get(examId);
+        if (schedule == null || schedule.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        webSocketEventService.sendTimerSync(schedule.toTick(now));
+        schedule.sendPendingCorrections(now, true);
+    }
+
+    /* ---------------------------------------------------
+     * Student vừa subscribe /user/queue/timer (mở bài / kết nối lại): tick kế tiếp gửi lại
+     * deadline của student đó, vì correction gửi trước khi subscribe đã bị mất
+     * @author: K24DTCN210-NVMANH (18/10/2026 14:00)
+     * --------------------------------------------------- */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        Principal user = event.getUser();
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        if (user == null || !TIMER_QUEUE.equals(accessor.getDestination())) {
+            return;
+        }
+        for (ExamSchedule schedule : schedules.values()) {
+            schedule.resendTo(user.getName());
+        }
+    }
+
+    // =============== HOOKS ===============
+
+    /* ---------------------------------------------------
+     * Thêm submission vào lịch sau khi transaction start/resume commit
+     * @param submissionId ID của submission
+     * @param examId ID của exam
+     * @param principalName Principal name của student (email - subject của JWT)
+     * @param startedAt Thời điểm bắt đầu làm bài
+     * @param durationMinutes Thời lượng bài thi
+     * @param examEndTime Thời điểm đóng đề
+     * @author: K24DTCN210-NVMANH (17/10/2026 15:10)
+     * --------------------------------------------------- */
+    public void track(Long submissionId, Long examId, String principalName, Timestamp startedAt,
+                      Integer durationMinutes, LocalDateTime examEndTime) {
+        if (startedAt == null || durationMinutes == null) {
+            return;
+        }
+        afterCommit(() -> {
+            recentlyRemoved.remove(submissionId);
+            ExamSchedule schedule = schedules.computeIfAbsent(examId, ExamSchedule::new);
+            schedule.put(examEndTime, new SubmissionDeadline(submissionId, principalName, startedAt,
+                durationMinutes, System.currentTimeMillis()));
+        });
+    }
+
+    /* Bỏ submission khỏi lịch sau khi transaction submit/pause commit */
+    public void untrack(Long submissionId) {
+        afterCommit(() -> {
+            recentlyRemoved.put(submissionId, System.currentTimeMillis());
+            for (ExamSchedule schedule : schedules.values()) {
+                schedule.remove(submissionId);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static long secondsUntil(LocalDateTime now, LocalDateTime end) {
+        return end == null ? 0 : Math.max(0, Duration.between(now, end).getSeconds());
+    }
+
+    /* ---------------------------------------------------
+     * Lịch deadline của 1 exam
+     * @author: K24DTCN210-NVMANH (17/10/2026 15:10)
+     * --------------------------------------------------- */
+    private class ExamSchedule {
+        private final Long examId;
+        private final Map<Long, SubmissionDeadline> deadlines = new HashMap<>();
+        private LocalDateTime examEndTime;
+
+        ExamSchedule(Long examId) {
+            this.examId = examId;
+        }
+
+        synchronized boolean isEmpty() {
+            return deadlines.isEmpty();
+        }
+
+        synchronized void put(LocalDateTime endTime, SubmissionDeadline deadline) {
+            if (endTime != null) {
+                examEndTime = endTime;
+            }
+            deadlines.put(deadline.submissionId, deadline);
+        }
+
+        synchronized void remove(Long submissionId) {
+            deadlines.remove(submissionId);
+        }
+
+        synchronized void resendTo(String principalName) {
+            for (SubmissionDeadline d : deadlines.values()) {
+                if (principalName.equals(d.principalName)) {
+                    d.announcedDeadline = null;
+                }
+            }
+        }
+
+        /* Thay lịch bằng kết quả query, giữ các entry được track sau khi query bắt đầu */
+        synchronized void reconcile(LocalDateTime endTime, Map<Long, SubmissionDeadline> loaded, long refreshStartedAt) {
+            if (endTime != null) {
+                examEndTime = endTime;
+            }
+            deadlines.values().removeIf(d -> !loaded.containsKey(d.submissionId) && d.trackedAt < refreshStartedAt);
+            for (SubmissionDeadline fresh : loaded.values()) {
+                if (recentlyRemoved.containsKey(fresh.submissionId)) {
+                    continue;
+                }
+                SubmissionDeadline current = deadlines.get(fresh.submissionId);
+                if (current != null && current.trackedAt >= refreshStartedAt) {
+                    continue;
+                }
+                if (current != null) {
+                    fresh.announcedDeadline = current.announcedDeadline;
+                }
+                deadlines.put(fresh.submissionId, fresh);
+            }
+        }
+
+        synchronized ExamTimerSyncMessage toTick(LocalDateTime now) {
+            return ExamTimerSyncMessage.builder()
+                .examId(examId)
+                .endTime(examEndTime)
+                .remainingSeconds(secondsUntil(now, examEndTime))
+                .status(examEndTime != null && now.isAfter(examEndTime) ? "ENDED" : "ACTIVE")
+                .activeSubmissions(deadlines.size())
+                .timestamp(now)
+                .build();
+        }
+
+        synchronized void sendPendingCorrections(LocalDateTime now, boolean resendAll) {
+            for (SubmissionDeadline d : deadlines.values()) {
+                if (!resendAll && d.deadline.equals(d.announcedDeadline)) {
+                    continue;
+                }
+                ExamTimerSyncMessage correction = ExamTimerSyncMessage.builder()
+                    .examId(examId)
+                    .submissionId(d.submissionId)
+                    .startTime(d.startedAt)
+                    .endTime(d.deadline)
+                    .remainingSeconds(secondsUntil(now, d.deadline))
+                    .status(now.isAfter(d.deadline) ? "ENDED" : "ACTIVE")
+                    .timestamp(now)
+                    .build();
+                webSocketEventService.sendTimerCorrection(d.principalName, correction);
+                d.announcedDeadline = d.deadline;
+            }
+        }
+    }
+
+    private static class SubmissionDeadline {
+        private final Long submissionId;
+        private final String principalName;
+        private final LocalDateTime startedAt;
+        private final LocalDateTime deadline;
+        private final long trackedAt;
+        private LocalDateTime announcedDeadline;
+
+        SubmissionDeadline(Long submissionId, String principalName, Timestamp startedAt, Integer durationMinutes,
+                           long trackedAt) {
+            this.submissionId = submissionId;
+            this.principalName = principalName;
+            this.startedAt = startedAt.toLocalDateTime();
+            this.deadline = this.startedAt.plusMinutes(durationMinutes);
+            this.trackedAt = trackedAt;
+        }
+    }
+}
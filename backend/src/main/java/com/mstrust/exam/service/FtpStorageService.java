@@ -1,131 +1,135 @@
 package com.mstrust.exam.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPReply;
-import org.imgscalr.Scalr;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /* ---------------------------------------------------
  * Service xử lý upload file lên FTP server
  * @author: K24DTCN210-NVMANH (21/11/2025 10:12)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 13:10) - Chuyển thành ScreenshotStore dùng pool connection
+ *   - Giữ tối đa exam.screenshot.ftp.pool-size connection đã login, tái sử dụng giữa các lần upload
+ *   - Connection idle lâu được NOOP kiểm tra trước khi dùng, lỗi I/O thì bỏ connection đó
+ *   - Nhớ các thư mục đã tạo để không phải CWD/MKD từng cấp ở mỗi lần upload
+ *   - Decode/resize/encode ảnh chuyển sang ScreenshotPipeline
  * --------------------------------------------------- */
 @Service
+@ConditionalOnProperty(name = "exam.screenshot.store", havingValue = "ftp", matchIfMissing = true)
 @Slf4j
-public class FtpStorageService {
-    
+public class FtpStorageService implements ScreenshotStore {
+
     @Value("${ftp.server:153.92.11.239}")
     private String ftpServer;
-    
+
     @Value("${ftp.port:21}")
     private int ftpPort;
-    
+
     @Value("${ftp.username:u341775345.admin}")
     private String ftpUsername;
-    
+
     @Value("${ftp.password:!M@nh1989}")
     private String ftpPassword;
-    
+
     @Value("${ftp.base-path:/trusttest/screenshots}")
     private String ftpBasePath;
-    
-    private static final int MAX_WIDTH = 1920;
-    private static final int MAX_HEIGHT = 1080;
-    private static final float JPEG_QUALITY = 0.7f;
-    
+
+    @Value("${exam.screenshot.ftp.pool-size:4}")
+    private int poolSize;
+
+    @Value("${exam.screenshot.ftp.borrow-timeout-ms:10000}")
+    private long borrowTimeoutMillis;
+
+    /* Connection idle quá khoảng này thì NOOP kiểm tra trước khi dùng lại */
+    @Value("${exam.screenshot.ftp.validate-after-ms:30000}")
+    private long validateAfterMillis;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final int SOCKET_TIMEOUT_MILLIS = 30000;
+
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<String> knownDirectories = ConcurrentHashMap.newKeySet();
+    private Semaphore permits;
+    private volatile boolean closed;
+
     /* ---------------------------------------------------
-     * Upload screenshot lên FTP server với compression
-     * @param file File ảnh cần upload
-     * @param submissionId ID của submission
-     * @returns Đường dẫn file trên FTP server
-     * @author: K24DTCN210-NVMANH (21/11/2025 10:12)
+     * Upload file lên FTP server qua connection lấy từ pool
+     * @param path Đường dẫn logic (/screenshots/...), được đặt dưới ftp.base-path
+     * @param source File nguồn, stream thẳng vào data connection
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 09:30) - Stream từ file nguồn thay vì byte[]
      * --------------------------------------------------- */
-    public String uploadScreenshot(MultipartFile file, Long submissionId) throws IOException {
-        FTPClient ftpClient = new FTPClient();
-        
+    @Override
+    public void store(String path, Path source) throws IOException {
+        String remoteFilePath = ftpBasePath + path;
+        String remoteDirPath = remoteFilePath.substring(0, remoteFilePath.lastIndexOf('/'));
+
+        PooledConnection connection = borrow();
+        boolean healthy = false;
         try {
-            // Connect to FTP server
-            ftpClient.connect(ftpServer, ftpPort);
-            int replyCode = ftpClient.getReplyCode();
-            
-            if (!FTPReply.isPositiveCompletion(replyCode)) {
-                throw new IOException("FTP server refused connection");
-            }
-            
-            // Login
-            boolean logged = ftpClient.login(ftpUsername, ftpPassword);
-            if (!logged) {
-                throw new IOException("Failed to login to FTP server");
-            }
-            
-            log.info("Connected to FTP server: {}", ftpServer);
-            
-            // Set transfer mode
-            ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
-            ftpClient.enterLocalPassiveMode();
-            
-            // Create directory structure: /trusttest/screenshots/YYYY-MM/submission_id/
-            String dateFolder = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM"));
-            String remoteDirPath = ftpBasePath + "/screenshots/" + dateFolder + "/" + submissionId;
-            
+            FTPClient ftpClient = connection.client;
             createRemoteDirectory(ftpClient, remoteDirPath);
-            
-            // Generate filename
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS"));
-            String filename = "screenshot_" + timestamp + ".jpg";
-            String remoteFilePath = remoteDirPath + "/" + filename;
-            
-            // Process and compress image
-            ByteArrayInputStream compressedImageStream = compressImage(file);
-            
-            // Upload file
-            boolean uploaded = ftpClient.storeFile(remoteFilePath, compressedImageStream);
-            
+
+            boolean uploaded = storeFile(ftpClient, remoteFilePath, source);
             if (!uploaded) {
-                throw new IOException("Failed to upload file to FTP server");
+                // Thư mục có thể đã bị xóa phía server sau khi được cache -> tạo lại và thử 1 lần nữa
+                knownDirectories.remove(remoteDirPath);
+                createRemoteDirectory(ftpClient, remoteDirPath);
+                uploaded = storeFile(ftpClient, remoteFilePath, source);
             }
-            
-            log.info("Successfully uploaded screenshot to: {}", remoteFilePath);
-            
-            return remoteFilePath;
-            
-        } finally {
-            // Disconnect
-            if (ftpClient.isConnected()) {
-                try {
-                    ftpClient.logout();
-                    ftpClient.disconnect();
-                } catch (IOException ex) {
-                    log.error("Error disconnecting from FTP server", ex);
-                }
+            if (!uploaded) {
+                throw new IOException("Failed to upload file to FTP server: " + ftpClient.getReplyString());
             }
+            healthy = true;
+            log.debug("Uploaded screenshot to: {} ({} KB)", remoteFilePath, Files.size(source) / 1024);
+        } finally {
+            release(connection, healthy);
         }
     }
-    
+
+    private static boolean storeFile(FTPClient ftpClient, String remoteFilePath, Path source) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(source), 64 * 1024)) {
+            return ftpClient.storeFile(remoteFilePath, in);
+        }
+    }
+
     /* ---------------------------------------------------
      * Tạo thư mục trên FTP server (tạo nested directories nếu chưa tồn tại)
      * @param ftpClient FTP client
      * @param dirPath Đường dẫn thư mục
      * @author: K24DTCN210-NVMANH (21/11/2025 10:12)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 13:10) - Bỏ qua thư mục đã biết là tồn tại
      * --------------------------------------------------- */
     private void createRemoteDirectory(FTPClient ftpClient, String dirPath) throws IOException {
+        if (knownDirectories.contains(dirPath)) {
+            return;
+        }
+
         String[] folders = dirPath.split("/");
         String currentPath = "";
-        
+
         for (String folder : folders) {
             if (folder.isEmpty()) continue;
-            
+
             currentPath += "/" + folder;
-            
+            if (knownDirectories.contains(currentPath)) continue;
+
             if (!ftpClient.changeWorkingDirectory(currentPath)) {
                 // Directory doesn't exist, create it
                 if (ftpClient.makeDirectory(currentPath)) {
@@ -134,85 +138,171 @@ public class FtpStorageService {
                     throw new IOException("Failed to create directory: " + currentPath);
                 }
             }
+            knownDirectories.add(currentPath);
         }
     }
-    
-    /* ---------------------------------------------------
-     * Compress và resize ảnh (JPEG 70%, max 1920x1080)
-     * @param file File ảnh gốc
-     * @returns InputStream của ảnh đã compress
-     * @author: K24DTCN210-NVMANH (21/11/2025 10:12)
-     * --------------------------------------------------- */
-    private ByteArrayInputStream compressImage(MultipartFile file) throws IOException {
-        // Read original image
-        BufferedImage originalImage = ImageIO.read(file.getInputStream());
-        
-        if (originalImage == null) {
-            throw new IOException("Failed to read image file");
-        }
-        
-        // Resize if necessary
-        BufferedImage resizedImage = originalImage;
-        int width = originalImage.getWidth();
-        int height = originalImage.getHeight();
-        
-        if (width > MAX_WIDTH || height > MAX_HEIGHT) {
-            resizedImage = Scalr.resize(
-                originalImage,
-                Scalr.Method.QUALITY,
-                Scalr.Mode.FIT_TO_WIDTH,
-                MAX_WIDTH,
-                MAX_HEIGHT,
-                Scalr.OP_ANTIALIAS
-            );
-            log.debug("Resized image from {}x{} to {}x{}", 
-                width, height, resizedImage.getWidth(), resizedImage.getHeight());
-        }
-        
-        // Compress to JPEG
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ImageIO.write(resizedImage, "jpg", outputStream);
-        
-        byte[] imageBytes = outputStream.toByteArray();
-        log.debug("Compressed image size: {} KB", imageBytes.length / 1024);
-        
-        return new ByteArrayInputStream(imageBytes);
-    }
-    
+
     /* ---------------------------------------------------
      * Xóa file trên FTP server
-     * @param remoteFilePath Đường dẫn file trên FTP
+     * @param path Đường dẫn logic của file
      * @returns true nếu xóa thành công
      * @author: K24DTCN210-NVMANH (21/11/2025 10:12)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 13:10) - Dùng connection từ pool
      * --------------------------------------------------- */
-    public boolean deleteFile(String remoteFilePath) {
-        FTPClient ftpClient = new FTPClient();
-        
+    @Override
+    public boolean delete(String path) {
+        String remoteFilePath = ftpBasePath + path;
+        PooledConnection connection = null;
+        boolean healthy = false;
         try {
-            ftpClient.connect(ftpServer, ftpPort);
-            ftpClient.login(ftpUsername, ftpPassword);
-            ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
-            
-            boolean deleted = ftpClient.deleteFile(remoteFilePath);
-            
+            connection = borrow();
+            boolean deleted = connection.client.deleteFile(remoteFilePath);
+            healthy = true;
+
             if (deleted) {
                 log.info("Deleted file from FTP: {}", remoteFilePath);
             }
-            
+
             return deleted;
-            
+
         } catch (IOException ex) {
             log.error("Error deleting file from FTP: {}", remoteFilePath, ex);
             return false;
         } finally {
-            if (ftpClient.isConnected()) {
-                try {
-                    ftpClient.logout();
-                    ftpClient.disconnect();
-                } catch (IOException ex) {
-                    log.error("Error disconnecting from FTP", ex);
+            if (connection != null) {
+                release(connection, healthy);
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "ftp";
+    }
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(1, poolSize), true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            disconnect(connection.client);
+        }
+    }
+
+    // =============== CONNECTION POOL ===============
+
+    /* ---------------------------------------------------
+     * Lấy connection đã login: ưu tiên connection idle mới dùng gần nhất,
+     * tạo mới nếu pool chưa đầy, hết slot thì chờ tối đa borrowTimeoutMillis
+     * @returns PooledConnection
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+     * --------------------------------------------------- */
+    private PooledConnection borrow() throws IOException {
+        if (closed) {
+            throw new IOException("FTP pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out waiting for FTP connection");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for FTP connection", ex);
+        }
+
+        try {
+            PooledConnection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                if (isUsable(connection)) {
+                    return connection;
                 }
+                disconnect(connection.client);
             }
+            return new PooledConnection(connect());
+        } catch (IOException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private void release(PooledConnection connection, boolean healthy) {
+        try {
+            if (healthy && !closed) {
+                connection.lastUsedAt = System.currentTimeMillis();
+                idle.offerFirst(connection);
+            } else {
+                disconnect(connection.client);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isUsable(PooledConnection connection) {
+        if (!connection.client.isConnected()) {
+            return false;
+        }
+        if (System.currentTimeMillis() - connection.lastUsedAt < validateAfterMillis) {
+            return true;
+        }
+        try {
+            return connection.client.sendNoOp();
+        } catch (IOException ex) {
+            log.debug("Discarding stale FTP connection: {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    private FTPClient connect() throws IOException {
+        FTPClient ftpClient = new FTPClient();
+        ftpClient.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        ftpClient.setDefaultTimeout(SOCKET_TIMEOUT_MILLIS);
+        ftpClient.setControlKeepAliveTimeout(Duration.ofSeconds(60));
+        try {
+            ftpClient.connect(ftpServer, ftpPort);
+            if (!FTPReply.isPositiveCompletion(ftpClient.getReplyCode())) {
+                throw new IOException("FTP server refused connection");
+            }
+            if (!ftpClient.login(ftpUsername, ftpPassword)) {
+                throw new IOException("Failed to login to FTP server");
+            }
+            ftpClient.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+            ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+            ftpClient.enterLocalPassiveMode();
+            log.info("Opened pooled FTP connection to {}", ftpServer);
+            return ftpClient;
+        } catch (IOException ex) {
+            disconnect(ftpClient);
+            throw ex;
+        }
+    }
+
+    private void disconnect(FTPClient ftpClient) {
+        if (ftpClient.isConnected()) {
+            try {
+                ftpClient.logout();
+            } catch (IOException ignored) {
+                // Connection đã hỏng, chỉ cần đóng socket
+            }
+            try {
+                ftpClient.disconnect();
+            } catch (IOException ex) {
+                log.error("Error disconnecting from FTP server", ex);
+            }
+        }
+    }
+
+    private static class PooledConnection {
+        private final FTPClient client;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        PooledConnection(FTPClient client) {
+            this.client = client;
         }
     }
 }
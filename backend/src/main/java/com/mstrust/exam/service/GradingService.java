@@ -36,6 +36,7 @@ public class GradingService {
     private final QuestionBankRepository questionBankRepository;
     private final UserRepository userRepository;
     private final ExamQuestionRepository examQuestionRepository;
+    private final ExamAnalyticsService examAnalyticsService;
     
     /* ---------------------------------------------------
      * Lấy danh sách bài nộp cần chấm cho giáo viên
@@ -275,6 +276,7 @@ public class GradingService {
      * @returns FinalizeGradingResponse chứa thông tin hoàn tất
      * @author: K24DTCN210-NVMANH (21/11/2025 14:12)
      * EditBy: K24DTCN210-NVMANH (01/12/2025 16:21) - Return DTO thay vì entity
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 19:10) - Đánh dấu thống kê đề thi cần tính lại
      * --------------------------------------------------- */
     public FinalizeGradingResponse finalizeGrading(Long submissionId, FinalizeGradingRequest request, Long teacherId) {
         log.info("Finalizing grading - submissionId: {}, teacherId: {}", submissionId, teacherId);
@@ -303,6 +305,7 @@ public class GradingService {
         submission.setPassed(submission.getTotalScore().compareTo(passingScore) >= 0);
         
         ExamSubmission savedSubmission = submissionRepository.save(submission);
+        examAnalyticsService.markDirty(exam.getId());
         
         log.info("Grading finalized - submissionId: {}, totalScore: {}/{}", 
                 submissionId, savedSubmission.getTotalScore(), savedSubmission.getMaxScore());
@@ -335,6 +338,8 @@ public class GradingService {
      * @param teacherId ID của giáo viên
      * @returns Map chứa các thống kê
      * @author: K24DTCN210-NVMANH (21/11/2025 14:12)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 19:10) - Đọc từ bảng tổng hợp thay vì load toàn bộ bài nộp
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 16:00) - Số bài / đã chấm / chờ chấm đếm trực tiếp
      * --------------------------------------------------- */
     public Map<String, Object> getGradingStats(Long examId, Long teacherId) {
         log.info("Getting grading stats - examId: {}, teacherId: {}", examId, teacherId);
@@ -346,49 +351,26 @@ public class GradingService {
             throw new BadRequestException("You can only view stats for your own exams");
         }
         
-        List<ExamSubmission> allSubmissions = submissionRepository.findByExamId(examId);
-        List<ExamSubmission> gradedSubmissions = allSubmissions.stream()
-                .filter(s -> s.getStatus() == SubmissionStatus.GRADED)
-                .collect(Collectors.toList());
+        // Số bài đếm trực tiếp (bảng tổng hợp không tính lại khi student bắt đầu làm);
+        // điểm đọc bảng tổng hợp do ExamAnalyticsService tính bằng SQL aggregate
+        long[] liveCounts = examAnalyticsService.getLiveCounts(examId);
+        ExamStatsSummary summary = examAnalyticsService.getSummary(examId);
+        long graded = summary.getGradedCount();
         
         Map<String, Object> stats = new HashMap<>();
         
-        stats.put("totalSubmissions", allSubmissions.size());
-        stats.put("graded", gradedSubmissions.size());
-        stats.put("pending", allSubmissions.size() - gradedSubmissions.size());
-        
-        if (!gradedSubmissions.isEmpty()) {
-            List<BigDecimal> scores = gradedSubmissions.stream()
-                    .map(ExamSubmission::getTotalScore)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-            
-            if (!scores.isEmpty()) {
-                double avgScore = scores.stream()
-                        .mapToDouble(BigDecimal::doubleValue)
-                        .average().orElse(0.0);
-                double maxScore = scores.stream()
-                        .mapToDouble(BigDecimal::doubleValue)
-                        .max().orElse(0.0);
-                double minScore = scores.stream()
-                        .mapToDouble(BigDecimal::doubleValue)
-                        .min().orElse(0.0);
-                
-                stats.put("averageScore", Math.round(avgScore * 100.0) / 100.0);
-                stats.put("highestScore", maxScore);
-                stats.put("lowestScore", minScore);
-                
-                BigDecimal passingScore = exam.getPassingScore() != null ? 
-                        exam.getPassingScore() : BigDecimal.ZERO;
-                long passedCount = scores.stream()
-                        .filter(s -> s.compareTo(passingScore) >= 0)
-                        .count();
-                double passRate = (passedCount * 100.0) / scores.size();
-                
-                stats.put("passRate", Math.round(passRate * 100.0) / 100.0);
-                stats.put("passedCount", passedCount);
-                stats.put("failedCount", scores.size() - passedCount);
-            }
+        stats.put("totalSubmissions", liveCounts[0]);
+        stats.put("graded", liveCounts[1]);
+        stats.put("pending", liveCounts[0] - liveCounts[1]);
+        
+        if (graded > 0 && summary.getGradedAverageScore() != null) {
+            long passedCount = summary.getGradedPassedCount();
+            stats.put("averageScore", summary.getGradedAverageScore().doubleValue());
+            stats.put("highestScore", summary.getGradedMaxScore().doubleValue());
+            stats.put("lowestScore", summary.getGradedMinScore().doubleValue());
+            stats.put("passRate", Math.round(passedCount * 10000.0 / graded) / 100.0);
+            stats.put("passedCount", passedCount);
+            stats.put("failedCount", graded - passedCount);
         } else {
             stats.put("averageScore", 0.0);
             stats.put("highestScore", 0.0);
@@ -0,0 +1,512 @@
+package com.mstrust.exam.service;
+
+import com.mstrust.exam.dto.monitoring.AlertDTO;
+import com.mstrust.exam.dto.monitoring.LiveViewSnapshotDTO;
+import com.mstrust.exam.dto.websocket.LiveSessionRow;
+import com.mstrust.exam.dto.websocket.LiveViewDeltaMessage;
+import com.mstrust.exam.entity.StudentAnswer;
+import com.mstrust.exam.entity.SubmissionStatus;
+import com.mstrust.exam.repository.ExamQuestionRepository;
+import com.mstrust.exam.repository.ExamSubmissionRepository;
+import com.mstrust.exam.repository.MonitoringAlertRepository;
+import com.mstrust.exam.repository.StudentAnswerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/* ---------------------------------------------------
+ * Live view của teacher: giữ trạng thái các submission của exam trong RAM và chỉ đẩy
+ * các dòng thay đổi lên /topic/exam/{examId}/live
+ * - Trạng thái 1 exam được nạp (vài query gộp theo exam) khi teacher lấy snapshot lần đầu,
+ *   sau đó chỉ cập nhật qua hook: lưu câu trả lời, start/submit/pause/resume, alert mới /
+ *   review, student join/leave/disconnect - hook không query DB
+ * - Mỗi push-interval gom các dòng thay đổi (kể cả chuyển sang inactive) thành 1 message/exam
+ * - Exam không còn ai subscribe và không lấy snapshot trong idle-evict-ms thì bỏ trạng thái
+ * - Hook tới khi đang nạp được xếp hàng rồi áp lại sau khi nạp xong (các thao tác đều idempotent)
+ * - seq chỉ có nghĩa trong 1 lần nạp trạng thái (đánh lại từ 0 khi exam bị bỏ rồi nạp lại), nên
+ *   snapshot/delta kèm epoch tăng dần của lần nạp; client thấy epoch mới hơn thì lấy lại snapshot
+ * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 18:10) - Cờ đã trả lời theo StudentAnswer.hasAnswerJson / hasTextOrFile
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 17:10) - Thêm epoch cho snapshot/delta
+ * --------------------------------------------------- */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LiveViewService {
+
+    private static final String TOPIC_PREFIX = "/topic/exam/";
+    private static final String TOPIC_SUFFIX = "/live";
+
+    /* Không lưu bài quá khoảng này thì đánh dấu inactive (giống getTeacherLiveView) */
+    private static final long INACTIVE_MILLIS = 10 * 60_000L;
+
+    private static final int FLAG_JSON = 1;
+    private static final int FLAG_TEXT = 2;
+
+    /* Epoch của trạng thái exam: tăng dần (theo thời gian nạp), không lặp lại trong 1 process */
+    private static final AtomicLong EPOCHS = new AtomicLong();
+
+    private final ExamSubmissionRepository submissionRepository;
+    private final StudentAnswerRepository answerRepository;
+    private final MonitoringAlertRepository alertRepository;
+    private final ExamQuestionRepository examQuestionRepository;
+    private final AnswerWriteBuffer answerWriteBuffer;
+    private final SubmissionActivityTracker activityTracker;
+    private final WebSocketEventService webSocketEventService;
+
+    @Value("${exam.live-view.idle-evict-ms:120000}")
+    private long idleEvictMillis;
+
+    private final Map<Long, ExamLiveState> states = new ConcurrentHashMap<>();
+
+    /* STOMP sessionId + subscriptionId -> examId của các subscription /topic/exam/{id}/live */
+    private final Map<String, Long> subscriptions = new ConcurrentHashMap<>();
+
+    /* STOMP sessionId của student đã join -> submission; số session đang kết nối của submission */
+    private final Map<String, StudentSession> studentSessions = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> connectionCounts = new ConcurrentHashMap<>();
+
+    // =============== SNAPSHOT ===============
+
+    /* ---------------------------------------------------
+     * Trạng thái đầy đủ của live view (nạp từ DB ở lần đầu, sau đó đọc từ RAM)
+     * @param examId ID của exam
+     * @returns LiveViewSnapshotDTO (chưa có alerts - controller bổ sung)
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    public LiveViewSnapshotDTO getSnapshot(Long examId) {
+        ExamLiveState state = states.computeIfAbsent(examId, ExamLiveState::new);
+        state.lastAccess = System.currentTimeMillis();
+        if (!state.seeded) {
+            synchronized (state.seedLock) {
+                if (!state.seeded) {
+                    try {
+                        seed(state);
+                    } catch (RuntimeException ex) {
+                        states.remove(examId, state);
+                        throw ex;
+                    }
+                }
+            }
+        }
+        return state.toSnapshot();
+    }
+
+    private void seed(ExamLiveState state) {
+        Long examId = state.examId;
+        int totalQuestions = (int) examQuestionRepository.countByExamId(examId);
+
+        Map<Long, RowState> rows = new LinkedHashMap<>();
+        for (Object[] row : submissionRepository.findLiveViewRows(examId)) {
+            Long submissionId = (Long) row[0];
+            Timestamp startedAt = (Timestamp) row[5];
+            Timestamp lastSavedAt = activityTracker.getLastSavedAt(submissionId, (Timestamp) row[6]);
+            Timestamp lastActivity = lastSavedAt != null ? lastSavedAt : startedAt;
+            RowState rowState = new RowState(submissionId, (Long) row[1], (String) row[2], (String) row[3],
+                (SubmissionStatus) row[4], lastActivity != null ? lastActivity.getTime() : System.currentTimeMillis());
+            rows.put(submissionId, rowState);
+        }
+        for (Object[] row : answerRepository.findAnsweredFlagsByExamId(examId)) {
+            RowState rowState = rows.get((Long) row[0]);
+            if (rowState != null) {
+                int flags = (((Number) row[2]).intValue() == 1 ? FLAG_JSON : 0)
+                    | (((Number) row[3]).intValue() == 1 ? FLAG_TEXT : 0);
+                rowState.answerFlags.put((Long) row[1], flags);
+            }
+        }
+        for (RowState rowState : rows.values()) {
+            // Câu trả lời còn trong write-behind buffer chưa xuống DB
+            answerWriteBuffer.getPending(rowState.submissionId).values().forEach(pending ->
+                rowState.applyAnswer(pending.getQuestionId(),
+                    pending.getAnswerJson() != null ? StudentAnswer.hasAnswerJson(pending.getAnswerJson()) : null,
+                    StudentAnswer.hasTextOrFile(pending.getAnswerText(), pending.getUploadedFileUrl())));
+        }
+        for (Object[] row : alertRepository.findUnreviewedIdsByExamId(examId)) {
+            RowState rowState = rows.get((Long) row[0]);
+            if (rowState != null) {
+                rowState.unreviewedAlertIds.add((Long) row[1]);
+            }
+        }
+
+        state.completeSeed(totalQuestions, rows);
+        log.debug("[LiveView] Seeded exam {} with {} sessions", examId, rows.size());
+    }
+
+    // =============== HOOKS ===============
+
+    /* ---------------------------------------------------
+     * Student bắt đầu làm bài (sau khi transaction start commit)
+     * @param examId ID của exam
+     * @param submissionId ID của submission
+     * @param studentId ID của student
+     * @param studentName Tên student
+     * @param studentCode Mã student
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    public void onSessionStarted(Long examId, Long submissionId, Long studentId, String studentName, String studentCode) {
+        long now = System.currentTimeMillis();
+        afterCommit(() -> apply(examId, state -> {
+            RowState row = state.rows.computeIfAbsent(submissionId, id ->
+                new RowState(id, studentId, studentName, studentCode, SubmissionStatus.IN_PROGRESS, now));
+            row.status = SubmissionStatus.IN_PROGRESS;
+        }, submissionId));
+    }
+
+    /* Submit / pause / resume (sau commit) */
+    public void onStatusChanged(Long examId, Long submissionId, SubmissionStatus status) {
+        afterCommit(() -> apply(examId, state -> {
+            RowState row = state.rows.get(submissionId);
+            if (row != null) {
+                row.status = status;
+            }
+        }, submissionId));
+    }
+
+    /* ---------------------------------------------------
+     * Câu trả lời vừa được lưu (DB hoặc write-behind buffer)
+     * @param examId ID của exam
+     * @param submissionId ID của submission
+     * @param questionId ID của câu hỏi
+     * @param hasJson true nếu request có answer (null = giữ answerJson cũ, như saveAnswer)
+     * @param hasTextOrFile true nếu có answerText hoặc file
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    public void onAnswerSaved(Long examId, Long submissionId, Long questionId, Boolean hasJson, boolean hasTextOrFile) {
+        if (!states.containsKey(examId)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        afterCommit(() -> apply(examId, state -> {
+            RowState row = state.rows.get(submissionId);
+            if (row != null) {
+                row.applyAnswer(questionId, hasJson, hasTextOrFile);
+                row.lastActivity = Math.max(row.lastActivity, now);
+            }
+        }, submissionId));
+    }
+
+    /* Alert mới (sau commit) */
+    public void onAlertCreated(Long examId, AlertDTO alert) {
+        afterCommit(() -> apply(examId, state -> {
+            RowState row = state.rows.get(alert.getSubmissionId());
+            if (row != null && row.unreviewedAlertIds.add(alert.getId())) {
+                state.newAlerts.add(alert);
+            }
+        }, alert.getSubmissionId()));
+    }
+
+    /* Alert đã được review (sau commit) */
+    public void onAlertReviewed(Long examId, Long submissionId, Long alertId) {
+        afterCommit(() -> apply(examId, state -> {
+            RowState row = state.rows.get(submissionId);
+            if (row != null && row.unreviewedAlertIds.remove(alertId)) {
+                state.reviewedAlertIds.add(alertId);
+            }
+        }, submissionId));
+    }
+
+    /* Student join exam qua WebSocket (/app/exam/{examId}/join) */
+    public void onStudentJoined(Long examId, Long submissionId, String sessionId) {
+        if (sessionId == null || submissionId == null) {
+            return;
+        }
+        StudentSession previous = studentSessions.put(sessionId, new StudentSession(examId, submissionId));
+        if (previous != null) {
+            if (previous.submissionId.equals(submissionId)) {
+                return;
+            }
+            releaseConnection(previous);
+        }
+        connectionCounts.merge(submissionId, 1, Integer::sum);
+        apply(examId, state -> { }, submissionId);
+    }
+
+    /* Student leave exam (/app/exam/{examId}/leave) hoặc mất kết nối */
+    public void onStudentLeft(String sessionId) {
+        StudentSession session = sessionId == null ? null : studentSessions.remove(sessionId);
+        if (session != null) {
+            releaseConnection(session);
+        }
+    }
+
+    private void releaseConnection(StudentSession session) {
+        connectionCounts.computeIfPresent(session.submissionId, (id, count) -> count > 1 ? count - 1 : null);
+        apply(session.examId, state -> { }, session.submissionId);
+    }
+
+    /* Áp thao tác lên trạng thái exam (nếu đang theo dõi) và đánh dấu dòng thay đổi */
+    private void apply(Long examId, Consumer<ExamLiveState> action, Long dirtySubmissionId) {
+        ExamLiveState state = states.get(examId);
+        if (state != null) {
+            state.apply(s -> {
+                action.accept(s);
+                if (s.rows.containsKey(dirtySubmissionId)) {
+                    s.dirty.add(dirtySubmissionId);
+                }
+            });
+        }
+    }
+
+    // =============== STOMP EVENTS ===============
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Long examId = parseExamId(accessor.getDestination());
+        if (examId != null && accessor.getSessionId() != null) {
+            subscriptions.put(accessor.getSessionId() + "/" + accessor.getSubscriptionId(), examId);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        subscriptions.remove(accessor.getSessionId() + "/" + accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        String prefix = event.getSessionId() + "/";
+        subscriptions.keySet().removeIf(key -> key.startsWith(prefix));
+        onStudentLeft(event.getSessionId());
+    }
+
+    private static Long parseExamId(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX) || !destination.endsWith(TOPIC_SUFFIX)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(destination.substring(TOPIC_PREFIX.length(),
+                destination.length() - TOPIC_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    // =============== PUSH ===============
+
+    /* ---------------------------------------------------
+     * Gom các dòng thay đổi của từng exam thành 1 message, bỏ exam không còn ai xem
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    @Scheduled(fixedDelayString = "${exam.live-view.push-interval-ms:1000}")
+    public void pushDeltas() {
+        if (states.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Set<Long> watched = new HashSet<>(subscriptions.values());
+        for (ExamLiveState state : states.values()) {
+            if (watched.contains(state.examId)) {
+                state.lastAccess = now;
+            } else if (now - state.lastAccess > idleEvictMillis) {
+                states.remove(state.examId, state);
+                continue;
+            }
+            LiveViewDeltaMessage delta = state.drainDelta(now);
+            if (delta != null) {
+                webSocketEventService.sendLiveViewDelta(delta);
+            }
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Trạng thái live view của 1 exam
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    private class ExamLiveState {
+        private final Long examId;
+        private final long epoch = EPOCHS.updateAndGet(previous -> Math.max(previous + 1, System.currentTimeMillis()));
+        private final Object seedLock = new Object();
+        private volatile boolean seeded;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private final List<Consumer<ExamLiveState>> pending = new ArrayList<>();
+        private Map<Long, RowState> rows = new LinkedHashMap<>();
+        private final Set<Long> dirty = new LinkedHashSet<>();
+        private final List<AlertDTO> newAlerts = new ArrayList<>();
+        private final List<Long> reviewedAlertIds = new ArrayList<>();
+        private int totalQuestions;
+        private long seq;
+
+        ExamLiveState(Long examId) {
+            this.examId = examId;
+        }
+
+        synchronized void apply(Consumer<ExamLiveState> action) {
+            if (seeded) {
+                action.accept(this);
+            } else {
+                pending.add(action);
+            }
+        }
+
+        synchronized void completeSeed(int totalQuestions, Map<Long, RowState> seededRows) {
+            this.totalQuestions = totalQuestions;
+            this.rows = seededRows;
+            pending.forEach(action -> action.accept(this));
+            pending.clear();
+            long now = System.currentTimeMillis();
+            for (RowState row : rows.values()) {
+                row.inactive = row.status == SubmissionStatus.IN_PROGRESS && now - row.lastActivity > INACTIVE_MILLIS;
+            }
+            // Snapshot đầu tiên đã chứa mọi thứ tới thời điểm này
+            dirty.clear();
+            newAlerts.clear();
+            reviewedAlertIds.clear();
+            seeded = true;
+        }
+
+        synchronized LiveViewSnapshotDTO toSnapshot() {
+            List<LiveSessionRow> snapshotRows = new ArrayList<>(rows.size());
+            for (RowState row : rows.values()) {
+                snapshotRows.add(row.toRow(totalQuestions));
+            }
+            return LiveViewSnapshotDTO.builder()
+                .examId(examId)
+                .epoch(epoch)
+                .seq(seq)
+                .rows(snapshotRows)
+                .timestamp(LocalDateTime.now())
+                .build();
+        }
+
+        synchronized LiveViewDeltaMessage drainDelta(long now) {
+            if (!seeded) {
+                return null;
+            }
+            for (RowState row : rows.values()) {
+                boolean inactive = row.status == SubmissionStatus.IN_PROGRESS && now - row.lastActivity > INACTIVE_MILLIS;
+                if (inactive != row.inactive) {
+                    row.inactive = inactive;
+                    dirty.add(row.submissionId);
+                }
+            }
+            if (dirty.isEmpty() && newAlerts.isEmpty() && reviewedAlertIds.isEmpty()) {
+                return null;
+            }
+
+            List<LiveSessionRow> changed = new ArrayList<>(dirty.size());
+            for (Long submissionId : dirty) {
+                RowState row = rows.get(submissionId);
+                if (row != null) {
+                    changed.add(row.toRow(totalQuestions));
+                }
+            }
+            LiveViewDeltaMessage delta = LiveViewDeltaMessage.builder()
+                .examId(examId)
+                .epoch(epoch)
+                .seq(++seq)
+                .rows(changed)
+                .newAlerts(new ArrayList<>(newAlerts))
+                .reviewedAlertIds(new ArrayList<>(reviewedAlertIds))
+                .timestamp(toLocalDateTime(now))
+                .build();
+            dirty.clear();
+            newAlerts.clear();
+            reviewedAlertIds.clear();
+            return delta;
+        }
+    }
+
+    /* Trạng thái 1 dòng (chỉ truy cập khi giữ lock của ExamLiveState) */
+    private class RowState {
+        private final Long submissionId;
+        private final Long studentId;
+        private final String studentName;
+        private final String studentCode;
+        private SubmissionStatus status;
+        private long lastActivity;
+        private boolean inactive;
+        private final Map<Long, Integer> answerFlags = new HashMap<>();
+        private final Set<Long> unreviewedAlertIds = new HashSet<>();
+
+        RowState(Long submissionId, Long studentId, String studentName, String studentCode,
+                 SubmissionStatus status, long lastActivity) {
+            this.submissionId = submissionId;
+            this.studentId = studentId;
+            this.studentName = studentName;
+            this.studentCode = studentCode;
+            this.status = status;
+            this.lastActivity = lastActivity;
+        }
+
+        /* Cùng ngữ nghĩa với saveAnswer: answerJson chỉ bị ghi đè khi request có answer */
+        void applyAnswer(Long questionId, Boolean hasJson, boolean hasTextOrFile) {
+            int flags = answerFlags.getOrDefault(questionId, 0);
+            if (hasJson != null) {
+                flags = hasJson ? flags | FLAG_JSON : flags & ~FLAG_JSON;
+            }
+            flags = hasTextOrFile ? flags | FLAG_TEXT : flags & ~FLAG_TEXT;
+            answerFlags.put(questionId, flags);
+        }
+
+        LiveSessionRow toRow(int totalQuestions) {
+            int answered = (int) answerFlags.values().stream().filter(flags -> flags != 0).count();
+            return LiveSessionRow.builder()
+                .submissionId(submissionId)
+                .studentId(studentId)
+                .studentName(studentName)
+                .studentCode(studentCode)
+                .status(status.name())
+                .totalQuestions(totalQuestions)
+                .answeredQuestions(answered)
+                .lastActivity(toLocalDateTime(lastActivity))
+                .inactive(inactive)
+                .connected(connectionCounts.containsKey(submissionId))
+                .unreviewedAlerts(unreviewedAlertIds.size())
+                .build();
+        }
+    }
+
+    private static class StudentSession {
+        private final Long examId;
+        private final Long submissionId;
+
+        StudentSession(Long examId, Long submissionId) {
+            this.examId = examId;
+            this.submissionId = submissionId;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.mstrust.exam.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/* ---------------------------------------------------
+ * ScreenshotStore ghi ra filesystem local (deploy 1 node, môi trường dev/test)
+ * - File được ghi ra file tạm cùng thư mục rồi move atomic để reader không thấy file dở dang
+ * - Path logic bị chặn không cho thoát ra ngoài thư mục gốc
+ * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+ * --------------------------------------------------- */
+@Service
+@ConditionalOnProperty(name = "exam.screenshot.store", havingValue = "local")
+@Slf4j
+public class LocalScreenshotStore implements ScreenshotStore {
+
+    private final Path rootDir;
+
+    public LocalScreenshotStore(@Value("${exam.screenshot.local.root-dir:./data}") String rootDir) {
+        this.rootDir = Paths.get(rootDir).toAbsolutePath().normalize();
+        log.info("Screenshots will be stored under {}", this.rootDir);
+    }
+
+    /* ---------------------------------------------------
+     * Ghi file vào rootDir + path
+     * @param path Đường dẫn logic
+     * @param source File nguồn
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 09:30) - Copy từ file nguồn thay vì byte[]
+     * --------------------------------------------------- */
+    @Override
+    public void store(String path, Path source) throws IOException {
+        Path target = resolve(path);
+        Files.createDirectories(target.getParent());
+
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.debug("Stored screenshot at: {} ({} KB)", target, Files.size(target) / 1024);
+    }
+
+    @Override
+    public boolean delete(String path) {
+        try {
+            boolean deleted = Files.deleteIfExists(resolve(path));
+            if (deleted) {
+                log.info("Deleted local screenshot: {}", path);
+            }
+            return deleted;
+        } catch (IOException ex) {
+            log.error("Error deleting local screenshot: {}", path, ex);
+            return false;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    private Path resolve(String path) throws IOException {
+        String relative = path.startsWith("/") ? path.substring(1) : path;
+        Path target = rootDir.resolve(relative).normalize();
+        if (!target.startsWith(rootDir)) {
+            throw new IOException("Invalid screenshot path: " + path);
+        }
+        return target;
+    }
+}
@@ -0,0 +1,403 @@
+package com.mstrust.exam.service;
+
+import com.mstrust.exam.entity.ActivityType;
+import com.mstrust.exam.entity.AlertSeverity;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* ---------------------------------------------------
+ * Thống kê monitoring theo submission, cập nhật tăng dần trong memory
+ * - Lần đầu đọc một submission thì seed từ DB bằng vài câu GROUP BY, sau đó
+ *   activity/alert/screenshot mới chỉ cộng dồn vào counter (không đọc lại bảng)
+ * - Seed ghi nhận id lớn nhất đã đếm (watermark); hook với id > watermark được cộng dồn.
+ *   Hook với id <= watermark không phân biệt được (row đã commit trước lúc seed và đã được đếm,
+ *   hay transaction mở từ trước seed, lấy id nhỏ hơn nhưng commit sau) nên không cộng mà đánh
+ *   dấu entry stale -> lần đọc sau seed lại; hook đến trong lúc đang seed được giữ lại và áp
+ *   dụng sau khi seed xong
+ * - Số lần chuyển cửa sổ 30 phút gần nhất là vòng 31 bucket theo phút
+ * - Thay đổi hiếm (review alert, xóa screenshot) chỉ evict để lần đọc sau seed lại
+ * @author: K24DTCN210-NVMANH (17/10/2026 14:40)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 18:15) - Hook dưới watermark đánh dấu seed lại thay vì bỏ qua
+ * --------------------------------------------------- */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MonitoringStatsStore {
+
+    static final int WINDOW_SWITCH_MINUTES = 30;
+    private static final long IDLE_EVICT_MILLIS = 3 * 60 * 60 * 1000L;
+
+    private static final String SEED_ACTIVITIES =
+        "SELECT activity_type, COUNT(*), MAX(id) FROM activity_logs " +
+        "WHERE submission_id = ? AND deleted_at IS NULL GROUP BY activity_type";
+
+    private static final String SEED_WINDOW_SWITCHES =
+        "SELECT DATE_FORMAT(timestamp, '%Y-%m-%d %H:%i:00') AS minute_start, COUNT(*) FROM activity_logs " +
+        "WHERE submission_id = ? AND activity_type = 'WINDOW_FOCUS' AND deleted_at IS NULL AND timestamp >= ? " +
+        "GROUP BY minute_start";
+
+    private static final String SEED_ALERTS =
+        "SELECT severity, COUNT(*), SUM(CASE WHEN reviewed = 0 THEN 1 ELSE 0 END), MAX(id) " +
+        "FROM monitoring_alerts WHERE submission_id = ? AND deleted_at IS NULL GROUP BY severity";
+
+    private static final String SEED_SCREENSHOTS =
+        "SELECT COUNT(*), COALESCE(MAX(id), 0) FROM monitoring_screenshots " +
+        "WHERE submission_id = ? AND deleted_at IS NULL";
+
+    private static final String SEED_LATEST_SCREENSHOT =
+        "SELECT id FROM monitoring_screenshots WHERE submission_id = ? AND deleted_at IS NULL " +
+        "ORDER BY timestamp DESC, id DESC LIMIT 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, SubmissionStats> stats = new ConcurrentHashMap<>();
+
+    /* ---------------------------------------------------
+     * Snapshot thống kê của submission (seed từ DB nếu chưa có)
+     * @param submissionId ID của submission
+     * @returns Snapshot
+     * @author: K24DTCN210-NVMANH (17/10/2026 14:40)
+     * --------------------------------------------------- */
+    public Snapshot getSnapshot(Long submissionId) {
+        // Entry được publish trước khi seed để hook đến trong lúc seed được giữ lại và áp dụng sau
+        SubmissionStats entry = stats.computeIfAbsent(submissionId, id -> new SubmissionStats());
+        if (entry.stale) {
+            // Có row commit muộn dưới watermark: đếm lại từ DB
+            stats.remove(submissionId, entry);
+            entry = stats.computeIfAbsent(submissionId, id -> new SubmissionStats());
+        }
+        if (!entry.isSeeded()) {
+            synchronized (entry.seedLock) {
+                if (!entry.isSeeded()) {
+                    try {
+                        entry.completeSeed(seed(submissionId));
+                    } catch (RuntimeException ex) {
+                        stats.remove(submissionId, entry);
+                        throw ex;
+                    }
+                }
+            }
+        }
+        return entry.snapshot(currentMinute());
+    }
+
+    // =============== HOOKS ===============
+
+    /* ---------------------------------------------------
+     * Activity đã được ghi xuống DB (gọi từ consumer của ActivityIngestionService)
+     * @param records Các activity đã ghi
+     * @param ids ID tương ứng (null nếu không lấy được -> evict các submission liên quan)
+     * @author: K24DTCN210-NVMANH (17/10/2026 14:40)
+     * --------------------------------------------------- */
+    public void onActivitiesWritten(List<ActivityIngestionService.ActivityRecord> records, long[] ids) {
+        for (int i = 0; i < records.size(); i++) {
+            ActivityIngestionService.ActivityRecord record = records.get(i);
+            if (ids == null) {
+                stats.remove(record.getSubmissionId());
+                continue;
+            }
+            SubmissionStats entry = stats.get(record.getSubmissionId());
+            if (entry != null) {
+                entry.addActivity(ids[i], record.getActivityType(), minuteOf(record.getTimestamp()));
+            }
+        }
+    }
+
+    /* Alert mới - áp dụng sau khi transaction tạo alert commit */
+    public void onAlertCreated(Long submissionId, Long alertId, AlertSeverity severity) {
+        afterCommit(() -> {
+            SubmissionStats entry = stats.get(submissionId);
+            if (entry != null) {
+                entry.addAlert(alertId, severity);
+            }
+        });
+    }
+
+    /* Screenshot mới - áp dụng sau khi transaction lưu row commit */
+    public void onScreenshotSaved(Long submissionId, Long screenshotId) {
+        afterCommit(() -> {
+            SubmissionStats entry = stats.get(submissionId);
+            if (entry != null) {
+                entry.addScreenshot(screenshotId);
+            }
+        });
+    }
+
+    /* Thay đổi không cộng dồn được (review alert, xóa screenshot): seed lại ở lần đọc sau */
+    public void evict(Long submissionId) {
+        afterCommit(() -> stats.remove(submissionId));
+    }
+
+    /* Thay đổi hàng loạt (cleanup định kỳ): bỏ toàn bộ, seed lại khi cần */
+    public void evictAll() {
+        afterCommit(stats::clear);
+    }
+
+    /* ---------------------------------------------------
+     * Bỏ các submission không được xem trong một thời gian dài (bài thi đã xong)
+     * @author: K24DTCN210-NVMANH (17/10/2026 14:40)
+     * --------------------------------------------------- */
+    @Scheduled(fixedDelay = 300000)
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_EVICT_MILLIS;
+        stats.entrySet().removeIf(e -> e.getValue().lastAccess < cutoff);
+    }
+
+    // =============== SEED ===============
+
+    private SubmissionStats seed(Long submissionId) {
+        // Object tạm chưa publish, completeSeed() chép sang entry thật
+        SubmissionStats entry = new SubmissionStats();
+
+        jdbcTemplate.query(SEED_ACTIVITIES, rs -> {
+            ActivityType type = parseEnum(ActivityType.class, rs.getString(1));
+            long count = rs.getLong(2);
+            entry.totalActivities += count;
+            if (type != null) {
+                entry.activityCounts[type.ordinal()] += count;
+            }
+            entry.activityWatermark = Math.max(entry.activityWatermark, rs.getLong(3));
+        }, submissionId);
+
+        LocalDateTime windowStart = LocalDateTime.now().minusMinutes(WINDOW_SWITCH_MINUTES + 1L);
+        jdbcTemplate.query(SEED_WINDOW_SWITCHES, rs -> {
+            LocalDateTime minuteStart = LocalDateTime.parse(rs.getString(1).replace(' ', 'T'));
+            entry.addWindowSwitches(minuteOf(minuteStart), rs.getInt(2));
+        }, submissionId, Timestamp.valueOf(windowStart));
+
+        jdbcTemplate.query(SEED_ALERTS, rs -> {
+            AlertSeverity severity = parseEnum(AlertSeverity.class, rs.getString(1));
+            long count = rs.getLong(2);
+            entry.totalAlerts += count;
+            entry.unreviewedAlerts += rs.getLong(3);
+            if (severity != null) {
+                entry.alertCounts[severity.ordinal()] += count;
+            }
+            entry.alertWatermark = Math.max(entry.alertWatermark, rs.getLong(4));
+        }, submissionId);
+
+        jdbcTemplate.query(SEED_SCREENSHOTS, rs -> {
+            entry.totalScreenshots = rs.getLong(1);
+            entry.screenshotWatermark = rs.getLong(2);
+        }, submissionId);
+        List<Long> latest = jdbcTemplate.queryForList(SEED_LATEST_SCREENSHOT, Long.class, submissionId);
+        entry.latestScreenshotId = latest.isEmpty() ? null : latest.get(0);
+
+        log.debug("[MonitoringStats] Seeded submission {}: {} activities, {} alerts, {} screenshots",
+            submissionId, entry.totalActivities, entry.totalAlerts, entry.totalScreenshots);
+        return entry;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value) {
+        try {
+            return value != null ? Enum.valueOf(type, value) : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static long minuteOf(LocalDateTime time) {
+        return (time != null ? time : LocalDateTime.now()).toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static long currentMinute() {
+        return minuteOf(LocalDateTime.now());
+    }
+
+    // =============== NESTED TYPES ===============
+
+    /* ---------------------------------------------------
+     * Counter của 1 submission (mọi thao tác synchronized trên entry)
+     * @author: K24DTCN210-NVMANH (17/10/2026 14:40)
+     * --------------------------------------------------- */
+    private static class SubmissionStats {
+        private static final int BUCKETS = WINDOW_SWITCH_MINUTES + 1;
+
+        private final long[] activityCounts = new long[ActivityType.values().length];
+        private final long[] alertCounts = new long[AlertSeverity.values().length];
+        private final long[] bucketMinute = new long[BUCKETS];
+        private final int[] bucketCount = new int[BUCKETS];
+        private long totalActivities;
+        private long totalAlerts;
+        private long unreviewedAlerts;
+        private long totalScreenshots;
+        private Long latestScreenshotId;
+        private long activityWatermark;
+        private long alertWatermark;
+        private long screenshotWatermark;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private final Object seedLock = new Object();
+        private volatile boolean seeded;
+        private volatile boolean stale;
+        private List<Runnable> pendingHooks = new ArrayList<>();
+
+        boolean isSeeded() {
+            return seeded;
+        }
+
+        /* Chép dữ liệu seed vào entry rồi áp dụng các hook đến trong lúc seed (lọc theo watermark) */
+        synchronized void completeSeed(SubmissionStats data) {
+            System.arraycopy(data.activityCounts, 0, activityCounts, 0, activityCounts.length);
+            System.arraycopy(data.alertCounts, 0, alertCounts, 0, alertCounts.length);
+            System.arraycopy(data.bucketMinute, 0, bucketMinute, 0, BUCKETS);
+            System.arraycopy(data.bucketCount, 0, bucketCount, 0, BUCKETS);
+            totalActivities = data.totalActivities;
+            totalAlerts = data.totalAlerts;
+            unreviewedAlerts = data.unreviewedAlerts;
+            totalScreenshots = data.totalScreenshots;
+            latestScreenshotId = data.latestScreenshotId;
+            activityWatermark = data.activityWatermark;
+            alertWatermark = data.alertWatermark;
+            screenshotWatermark = data.screenshotWatermark;
+            seeded = true;
+            List<Runnable> pending = pendingHooks;
+            pendingHooks = null;
+            pending.forEach(Runnable::run);
+        }
+
+        private boolean deferIfSeeding(Runnable hook) {
+            if (seeded) {
+                return false;
+            }
+            pendingHooks.add(hook);
+            return true;
+        }
+
+        synchronized void addActivity(long id, ActivityType type, long minute) {
+            if (deferIfSeeding(() -> addActivity(id, type, minute))) {
+                return;
+            }
+            if (id <= activityWatermark) {
+                stale = true;
+                return;
+            }
+            totalActivities++;
+            activityCounts[type.ordinal()]++;
+            if (type == ActivityType.WINDOW_FOCUS) {
+                addWindowSwitches(minute, 1);
+            }
+        }
+
+        synchronized void addAlert(long id, AlertSeverity severity) {
+            if (deferIfSeeding(() -> addAlert(id, severity))) {
+                return;
+            }
+            if (id <= alertWatermark) {
+                stale = true;
+                return;
+            }
+            totalAlerts++;
+            unreviewedAlerts++;
+            alertCounts[severity.ordinal()]++;
+        }
+
+        synchronized void addScreenshot(long id) {
+            if (deferIfSeeding(() -> addScreenshot(id))) {
+                return;
+            }
+            if (id <= screenshotWatermark) {
+                stale = true;
+                return;
+            }
+            totalScreenshots++;
+            if (latestScreenshotId == null || id > latestScreenshotId) {
+                latestScreenshotId = id;
+            }
+        }
+
+        synchronized void addWindowSwitches(long minute, int count) {
+            int index = (int) Math.floorMod(minute, (long) BUCKETS);
+            if (bucketMinute[index] != minute) {
+                bucketMinute[index] = minute;
+                bucketCount[index] = 0;
+            }
+            bucketCount[index] += count;
+        }
+
+        synchronized Snapshot snapshot(long nowMinute) {
+            lastAccess = System.currentTimeMillis();
+            long windowSwitches = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                long age = nowMinute - bucketMinute[i];
+                if (age >= 0 && age < WINDOW_SWITCH_MINUTES) {
+                    windowSwitches += bucketCount[i];
+                }
+            }
+            Map<AlertSeverity, Long> bySeverity = new EnumMap<>(AlertSeverity.class);
+            for (AlertSeverity severity : AlertSeverity.values()) {
+                if (alertCounts[severity.ordinal()] > 0) {
+                    bySeverity.put(severity, alertCounts[severity.ordinal()]);
+                }
+            }
+            Map<ActivityType, Long> byType = new EnumMap<>(ActivityType.class);
+            for (ActivityType type : ActivityType.values()) {
+                if (activityCounts[type.ordinal()] > 0) {
+                    byType.put(type, activityCounts[type.ordinal()]);
+                }
+            }
+            return new Snapshot(totalActivities, byType, windowSwitches, totalAlerts,
+                unreviewedAlerts, bySeverity, totalScreenshots, latestScreenshotId);
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Snapshot immutable trả cho AlertService
+     * @author: K24DTCN210-NVMANH (17/10/2026 14:40)
+     * --------------------------------------------------- */
+    @Getter
+    public static class Snapshot {
+        private final long totalActivities;
+        private final Map<ActivityType, Long> activitiesByType;
+        private final long recentWindowSwitches;
+        private final long totalAlerts;
+        private final long unreviewedAlerts;
+        private final Map<AlertSeverity, Long> alertsBySeverity;
+        private final long totalScreenshots;
+        private final Long latestScreenshotId;
+
+        Snapshot(long totalActivities, Map<ActivityType, Long> activitiesByType, long recentWindowSwitches,
+                 long totalAlerts, long unreviewedAlerts, Map<AlertSeverity, Long> alertsBySeverity,
+                 long totalScreenshots, Long latestScreenshotId) {
+            this.totalActivities = totalActivities;
+            this.activitiesByType = activitiesByType;
+            this.recentWindowSwitches = recentWindowSwitches;
+            this.totalAlerts = totalAlerts;
+            this.unreviewedAlerts = unreviewedAlerts;
+            this.alertsBySeverity = alertsBySeverity;
+            this.totalScreenshots = totalScreenshots;
+            this.latestScreenshotId = latestScreenshotId;
+        }
+
+        public long getActivityCount(ActivityType type) {
+            return activitiesByType.getOrDefault(type, 0L);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.mstrust.exam.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mstrust.exam.dto.grading.RegradeProgressDTO;
+import com.mstrust.exam.entity.Exam;
+import com.mstrust.exam.exception.BadRequestException;
+import com.mstrust.exam.exception.ResourceNotFoundException;
+import com.mstrust.exam.repository.ExamRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* ---------------------------------------------------
+ * Job chấm lại toàn bộ bài nộp của một đề thi
+ * (sau khi sửa đáp án/điểm câu hỏi, StudentAnswer và ExamSubmission đã lưu không tự cập nhật)
+ * - Duyệt exam_submissions theo keyset (id > lastId ORDER BY id LIMIT chunk)
+ * - Mỗi chunk chạy song song trên worker pool: đọc answers bằng 1 query, chấm lại bằng
+ *   AnswerKey đã compile, ghi các câu thay đổi bằng JDBC batch update
+ * - Tổng điểm + passed của chunk được tính lại bằng 1 câu UPDATE ... JOIN trong SQL
+ * - Câu giáo viên đã chấm tay (graded_by khác NULL) không bao giờ bị ghi đè, chỉ được đếm
+ *   vào answersSkipped; UPDATE cũng kiểm tra lại graded_by IS NULL phòng khi vừa được chấm tay
+ * - Tiến độ lưu in-memory theo examId, teacher poll qua GradingController
+ * @author: K24DTCN210-NVMANH (17/10/2026 12:40)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 19:10) - Đánh dấu thống kê đề thi cần tính lại sau khi chấm lại
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 16:20) - Bỏ qua câu đã chấm tay
+ * --------------------------------------------------- */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RegradeService {
+
+    private static final String SELECT_SUBMISSION_IDS =
+        "SELECT id FROM exam_submissions WHERE exam_id = ? AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_ANSWERS =
+        "SELECT id, question_id, answer_json, answer_text, is_correct, points_earned, max_points, graded_by " +
+        "FROM student_answers WHERE submission_id IN (:ids)";
+
+    private static final String UPDATE_ANSWER =
+        "UPDATE student_answers SET is_correct = ?, points_earned = ?, max_points = ?, updated_at = NOW() " +
+        "WHERE id = ? AND graded_by IS NULL";
+
+    // Chỉ bài đã nộp mới có totalScore/passed; bump version để entity đang giữ bản cũ không ghi đè
+    private static final String RECOMPUTE_SCORES =
+        "UPDATE exam_submissions s " +
+        "JOIN exams e ON e.id = s.exam_id " +
+        "LEFT JOIN (SELECT submission_id, ROUND(COALESCE(SUM(points_earned), 0), 2) AS total " +
+        "           FROM student_answers WHERE submission_id IN (:ids) GROUP BY submission_id) a " +
+        "  ON a.submission_id = s.id " +
+        "SET s.total_score = COALESCE(a.total, 0), " +
+        "    s.passed = (COALESCE(a.total, 0) >= COALESCE(e.passing_score, 0)), " +
+        "    s.version = COALESCE(s.version, 0) + 1 " +
+        "WHERE s.id IN (:ids) AND s.status IN ('SUBMITTED', 'GRADED')";
+
+    private final ExamRepository examRepository;
+    private final ExamPaperCache examPaperCache;
+    private final AnswerWriteBuffer answerWriteBuffer;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final ExamAnalyticsService examAnalyticsService;
+
+    @Value("${exam.regrade.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${exam.regrade.parallelism:4}")
+    private int parallelism;
+
+    private final Map<Long, RegradeJob> jobs = new ConcurrentHashMap<>();
+    private ExecutorService coordinator;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void init() {
+        coordinator = Executors.newSingleThreadExecutor(r -> daemon(r, "regrade-coordinator"));
+        workers = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> daemon(r, "regrade-worker"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /* ---------------------------------------------------
+     * Bắt đầu job chấm lại cho exam (nếu đang chạy thì trả về tiến độ hiện tại)
+     * @param examId ID của exam
+     * @param teacherId ID của giáo viên (phải là giáo viên của lớp)
+     * @returns RegradeProgressDTO
+     * @author: K24DTCN210-NVMANH (17/10/2026 12:40)
+     * --------------------------------------------------- */
+    public RegradeProgressDTO startRegrade(Long examId, Long teacherId) {
+        validateTeacherPermission(examId, teacherId);
+
+        RegradeJob job = jobs.compute(examId, (id, existing) ->
+            existing != null && existing.isRunning() ? existing : new RegradeJob(id));
+        if (job.started.compareAndSet(false, true)) {
+            coordinator.submit(() -> run(job));
+        }
+        return job.toDTO();
+    }
+
+    /* ---------------------------------------------------
+     * Tiến độ job chấm lại gần nhất của exam
+     * @param examId ID của exam
+     * @param teacherId ID của giáo viên
+     * @returns RegradeProgressDTO
+     * @author: K24DTCN210-NVMANH (17/10/2026 12:40)
+     * --------------------------------------------------- */
+    public RegradeProgressDTO getProgress(Long examId, Long teacherId) {
+        validateTeacherPermission(examId, teacherId);
+        RegradeJob job = jobs.get(examId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Chưa có job chấm lại cho đề thi này");
+        }
+        return job.toDTO();
+    }
+
+    // =============== JOB ===============
+
+    private void run(RegradeJob job) {
+        Long examId = job.examId;
+        try {
+            // Đẩy các câu trả lời còn trong write-behind buffer xuống DB trước khi quét
+            answerWriteBuffer.flushAll();
+
+            // Compile lại đáp án từ dữ liệu mới nhất
+            examPaperCache.invalidate(examId);
+            ExamPaperCache.CompiledExamPaper paper = new TransactionTemplate(transactionManager)
+                .execute(status -> examPaperCache.getPaper(examId));
+
+            job.total.set(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM exam_submissions WHERE exam_id = ?", Long.class, examId));
+            log.info("[Regrade] Exam {}: bắt đầu chấm lại {} bài nộp (chunk {}, parallelism {})",
+                examId, job.total.get(), chunkSize, parallelism);
+
+            // Giới hạn số chunk đang xử lý để không đọc trước quá nhiều id
+            Semaphore inFlight = new Semaphore(Math.max(1, parallelism) * 2);
+            List<Future<?>> futures = new ArrayList<>();
+            long lastId = 0;
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_SUBMISSION_IDS, Long.class,
+                    examId, lastId, chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+
+                inFlight.acquire();
+                futures.add(workers.submit(() -> {
+                    try {
+                        processChunk(job, paper, ids);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            job.finish(null);
+            examAnalyticsService.markDirty(examId);
+            log.info("[Regrade] Exam {}: xong - {} bài, {} câu kiểm tra, {} câu thay đổi, {} câu chấm tay bỏ qua, " +
+                "{} bài tính lại điểm", examId, job.processed.get(), job.checked.get(), job.changed.get(),
+                job.skipped.get(), job.recomputed.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish("Interrupted");
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            log.error("[Regrade] Exam {} thất bại", examId, cause);
+            job.finish(cause.getMessage());
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Chấm lại 1 chunk submissions trong 1 transaction:
+     * đọc answers -> chấm bằng AnswerKey -> batch update câu thay đổi -> tính lại tổng điểm
+     * @param job Job hiện tại (cập nhật tiến độ)
+     * @param paper Đề đã compile
+     * @param submissionIds IDs của chunk
+     * @author: K24DTCN210-NVMANH (17/10/2026 12:40)
+     * --------------------------------------------------- */
+    private void processChunk(RegradeJob job, ExamPaperCache.CompiledExamPaper paper, List<Long> submissionIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", submissionIds);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            List<Object[]> updates = new ArrayList<>();
+            long[] checked = new long[1];
+            long[] skipped = new long[1];
+
+            namedJdbcTemplate.query(SELECT_ANSWERS, params, rs -> {
+                AnswerKey key = paper.getAnswerKey(rs.getLong("question_id"));
+                if (key == null || !key.isAutoGradable()) {
+                    return;  // Câu chấm tay hoặc không còn trong đề
+                }
+                checked[0]++;
+
+                rs.getLong("graded_by");
+                if (!rs.wasNull()) {
+                    skipped[0]++;
+                    return;  // Giáo viên đã chấm tay, giữ nguyên điểm
+                }
+
+                Boolean isCorrect = key.grade(rs.getString("answer_json"), rs.getString("answer_text"), objectMapper);
+                if (isCorrect == null) {
+                    return;
+                }
+                BigDecimal pointsEarned = key.pointsFor(isCorrect);
+
+                boolean oldCorrect = rs.getBoolean("is_correct");
+                Boolean oldIsCorrect = rs.wasNull() ? null : oldCorrect;
+                if (!isCorrect.equals(oldIsCorrect)
+                        || !sameAmount(pointsEarned, rs.getBigDecimal("points_earned"))
+                        || !sameAmount(key.getPoints(), rs.getBigDecimal("max_points"))) {
+                    updates.add(new Object[] { isCorrect, pointsEarned, key.getPoints(), rs.getLong("id") });
+                }
+            });
+
+            long applied = updates.size();
+            if (!updates.isEmpty()) {
+                // Câu được chấm tay sau lúc đọc -> UPDATE không khớp dòng nào
+                for (int count : jdbcTemplate.batchUpdate(UPDATE_ANSWER, updates)) {
+                    if (count == 0) {
+                        applied--;
+                        skipped[0]++;
+                    }
+                }
+            }
+            int recomputed = namedJdbcTemplate.update(RECOMPUTE_SCORES, params);
+
+            job.checked.addAndGet(checked[0]);
+            job.changed.addAndGet(applied);
+            job.skipped.addAndGet(skipped[0]);
+            job.recomputed.addAndGet(recomputed);
+        });
+
+        long processed = job.processed.addAndGet(submissionIds.size());
+        log.debug("[Regrade] Exam {}: {}/{} bài nộp", job.examId, processed, job.total.get());
+    }
+
+    // =============== PRIVATE HELPER METHODS ===============
+
+    private void validateTeacherPermission(Long examId, Long teacherId) {
+        Boolean allowed = new TransactionTemplate(transactionManager).execute(status -> {
+            Exam exam = examRepository.findByIdAndDeletedAtIsNull(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+            return exam.getSubjectClass() != null && exam.getSubjectClass().getTeacher() != null
+                && exam.getSubjectClass().getTeacher().getId().equals(teacherId);
+        });
+        if (!Boolean.TRUE.equals(allowed)) {
+            throw new BadRequestException("You can only regrade exams from your own classes");
+        }
+    }
+
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        if (a == null || b == null) {
+            return Objects.equals(a, b);
+        }
+        return a.compareTo(b) == 0;
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /* ---------------------------------------------------
+     * Trạng thái job của một exam (counter atomic, worker cập nhật song song)
+     * --------------------------------------------------- */
+    private static class RegradeJob {
+        private final Long examId;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong checked = new AtomicLong();
+        private final AtomicLong changed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong recomputed = new AtomicLong();
+        private volatile String status = "RUNNING";
+        private volatile String error;
+        private volatile LocalDateTime finishedAt;
+
+        RegradeJob(Long examId) {
+            this.examId = examId;
+        }
+
+        boolean isRunning() {
+            return "RUNNING".equals(status);
+        }
+
+        void finish(String error) {
+            this.error = error;
+            this.finishedAt = LocalDateTime.now();
+            this.status = error == null ? "COMPLETED" : "FAILED";
+        }
+
+        RegradeProgressDTO toDTO() {
+            long totalCount = total.get();
+            long processedCount = processed.get();
+            Double percentage = totalCount > 0
+                ? Math.round(processedCount * 10000.0 / totalCount) / 100.0
+                : (isRunning() ? 0.0 : 100.0);
+            return RegradeProgressDTO.builder()
+                .examId(examId)
+                .status(status)
+                .totalSubmissions(totalCount)
+                .processedSubmissions(processedCount)
+                .answersChecked(checked.get())
+                .answersChanged(changed.get())
+                .answersSkipped(skipped.get())
+                .scoresRecomputed(recomputed.get())
+                .percentage(percentage)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .error(error)
+                .build();
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package com.mstrust.exam.service;
+
+import com.mstrust.exam.exception.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.imgscalr.Scalr;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* ---------------------------------------------------
+ * Pipeline xử lý screenshot bất đồng bộ: decode -> resize -> encode -> store
+ * - Request chỉ chuyển multipart part sang file spool (rename/stream, không đọc vào heap),
+ *   lưu row DB rồi trả về; phần nặng chạy trên worker, file spool bị xóa khi job kết thúc
+ * - Ảnh client gửi đã là JPEG trong giới hạn kích thước thì được stream thẳng vào store,
+ *   chỉ ảnh khác định dạng / quá lớn mới bị decode -> resize -> encode lại
+ * - 2 stage riêng: CPU (decode/resize/encode) và I/O (ScreenshotStore) để upload chậm
+ *   không chiếm thread xử lý ảnh
+ * - Số job chưa xong (đang chờ + đang chạy) bị giới hạn bởi queue-capacity, đầy thì
+ *   request nhận 429 + Retry-After thay vì dồn ảnh vào heap
+ * - Job chỉ được đưa vào stage đầu sau khi transaction lưu row commit; lưu thất bại thì
+ *   row bị soft delete để teacher không thấy ảnh không tồn tại
+ * - Tắt app: chờ 2 stage chạy nốt trong giới hạn shutdown-timeout-seconds; job chưa xong giữ
+ *   lại file spool (tên file có screenshotId) và được đưa lại vào pipeline khi khởi động
+ * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 14:40) - Evict thống kê monitoring khi soft delete row lỗi
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 09:30) - Spool multipart ra file thay vì giữ byte[] trong job
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 15:00) - Drain pool khi tắt, khôi phục job từ file spool khi khởi động
+ * --------------------------------------------------- */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScreenshotPipeline {
+
+    private static final int MAX_WIDTH = 1920;
+    private static final int MAX_HEIGHT = 1080;
+    private static final float JPEG_QUALITY = 0.7f;
+    private static final int STORE_ATTEMPTS = 2;
+    private static final long STORE_RETRY_DELAY_MILLIS = 1000;
+    private static final String SPOOL_SUFFIX = ".upload";
+
+    private static final String SOFT_DELETE_SCREENSHOT =
+        "UPDATE monitoring_screenshots SET deleted_at = NOW() WHERE id = ?";
+
+    private static final String SELECT_SPOOLED_SCREENSHOT =
+        "SELECT id, submission_id, file_path FROM monitoring_screenshots WHERE id = ? AND deleted_at IS NULL";
+
+    private final ScreenshotStore screenshotStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final MonitoringStatsStore monitoringStatsStore;
+
+    @Value("${exam.screenshot.pipeline.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${exam.screenshot.pipeline.process-threads:2}")
+    private int processThreads;
+
+    @Value("${exam.screenshot.pipeline.store-threads:4}")
+    private int storeThreads;
+
+    @Value("${exam.screenshot.pipeline.retry-after-seconds:5}")
+    private long retryAfterSeconds;
+
+    /* Thời gian tối đa chờ các job đang xử lý khi tắt app */
+    @Value("${exam.screenshot.pipeline.shutdown-timeout-seconds:20}")
+    private long shutdownTimeoutSeconds;
+
+    /* Thư mục chứa file spool, để trống = <java.io.tmpdir>/mstrust-screenshot-spool */
+    @Value("${exam.screenshot.pipeline.spool-dir:}")
+    private String spoolDirConfig;
+
+    private Path spoolDir;
+
+    private Semaphore capacity;
+    private ExecutorService processWorkers;
+    private ExecutorService storeWorkers;
+
+    /* Đang tắt: job lỗi/bị dừng giữa chừng giữ lại file spool, lần khởi động sau xử lý lại */
+    private volatile boolean stopping;
+
+    /* Mỗi thread CPU giữ 1 ImageWriter JPEG, tái sử dụng giữa các ảnh; dispose hết khi tắt */
+    private final Set<ImageWriter> allJpegWriters = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<ImageWriter> jpegWriters = ThreadLocal.withInitial(() -> {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        allJpegWriters.add(writer);
+        return writer;
+    });
+
+    @PostConstruct
+    public void init() throws IOException {
+        spoolDir = (spoolDirConfig == null || spoolDirConfig.isBlank()
+            ? Paths.get(System.getProperty("java.io.tmpdir"), "mstrust-screenshot-spool")
+            : Paths.get(spoolDirConfig)).toAbsolutePath().normalize();
+        Files.createDirectories(spoolDir);
+
+        capacity = new Semaphore(Math.max(1, queueCapacity));
+        processWorkers = Executors.newFixedThreadPool(Math.max(1, processThreads), namedDaemon("screenshot-process"));
+        storeWorkers = Executors.newFixedThreadPool(Math.max(1, storeThreads), namedDaemon("screenshot-store"));
+        log.info("[ScreenshotPipeline] Using '{}' store, capacity {}, spool {}",
+            screenshotStore.getName(), queueCapacity, spoolDir);
+        recoverSpool();
+    }
+
+    /* ---------------------------------------------------
+     * Chờ job đang chạy xong theo thứ tự stage (process đẩy sang store nên phải dừng trước),
+     * tổng thời gian chờ tối đa shutdown-timeout-seconds; hết hạn thì interrupt, file spool
+     * của job dở dang được giữ lại cho lần khởi động sau
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 15:00) - awaitTermination có giới hạn + dispose ImageWriter
+     * --------------------------------------------------- */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, shutdownTimeoutSeconds));
+        boolean processDrained = drain(processWorkers, deadline);
+        boolean storeDrained = drain(storeWorkers, deadline);
+        if (!processDrained || !storeDrained) {
+            log.warn("[ScreenshotPipeline] Shutdown timed out, {} screenshots left in spool for recovery",
+                getPendingCount());
+        }
+
+        // Writer đang được thread chưa dừng hẳn dùng thì để GC dọn
+        if (processDrained) {
+            allJpegWriters.forEach(ImageWriter::dispose);
+            allJpegWriters.clear();
+        }
+    }
+
+    private static boolean drain(ExecutorService workers, long deadlineNanos) {
+        workers.shutdown();
+        try {
+            if (workers.awaitTermination(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+        try {
+            return workers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Nhận screenshot vào pipeline (gọi trong transaction lưu row Screenshot)
+     * @param submissionId ID submission của screenshot
+     * @param screenshotId ID row đã lưu (soft delete nếu xử lý thất bại)
+     * @param path Đường dẫn logic sẽ lưu file
+     * @param upload Multipart part client gửi lên; được chuyển sang file spool vì temp file
+     *               của multipart bị xóa khi request kết thúc
+     * @throws TooManyRequestsException nếu pipeline đã đầy
+     * @throws IOException nếu không chuyển được part sang file spool
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 09:30) - Nhận MultipartFile, spool ra đĩa thay vì byte[]
+     * --------------------------------------------------- */
+    public void submit(Long submissionId, Long screenshotId, String path, MultipartFile upload) throws IOException {
+        if (!capacity.tryAcquire()) {
+            log.warn("[ScreenshotPipeline] Queue full, rejecting screenshot for {}", path);
+            throw new TooManyRequestsException("Screenshot queue is full, please retry later", retryAfterSeconds);
+        }
+
+        // screenshotId ở đầu tên file để khôi phục job khi khởi động lại
+        Path spoolFile = spoolDir.resolve(screenshotId + "_" + UUID.randomUUID() + SPOOL_SUFFIX);
+        try {
+            // Part đã nằm trên đĩa (file-size-threshold = 0) -> container chỉ rename/copy file
+            upload.transferTo(spoolFile.toFile());
+        } catch (IOException | RuntimeException ex) {
+            capacity.release();
+            deleteSpool(spoolFile);
+            throw ex;
+        }
+
+        ScreenshotJob job = new ScreenshotJob(submissionId, screenshotId, path, spoolFile);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        dispatch(job);
+                    } else {
+                        capacity.release();
+                        deleteSpool(job.spoolFile);
+                    }
+                }
+            });
+        } else {
+            dispatch(job);
+        }
+    }
+
+    /* Số job đang chờ hoặc đang xử lý */
+    public int getPendingCount() {
+        return Math.max(0, queueCapacity - capacity.availablePermits());
+    }
+
+    private void dispatch(ScreenshotJob job) {
+        try {
+            processWorkers.execute(() -> process(job));
+        } catch (RuntimeException ex) {
+            fail(job, ex);
+        }
+    }
+
+    // =============== STAGES ===============
+
+    private void process(ScreenshotJob job) {
+        try {
+            normalizeImage(job.spoolFile);
+        } catch (Exception ex) {
+            fail(job, ex);
+            return;
+        }
+
+        try {
+            storeWorkers.execute(() -> store(job));
+        } catch (RuntimeException ex) {
+            fail(job, ex);
+        }
+    }
+
+    private void store(ScreenshotJob job) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                screenshotStore.store(job.path, job.spoolFile);
+                capacity.release();
+                deleteSpool(job.spoolFile);
+                log.debug("[ScreenshotPipeline] Stored screenshot {}", job.screenshotId);
+                return;
+            } catch (Exception ex) {
+                if (attempt >= STORE_ATTEMPTS) {
+                    fail(job, ex);
+                    return;
+                }
+                log.warn("[ScreenshotPipeline] Store attempt {} failed for {}: {}", attempt, job.path, ex.getMessage());
+                try {
+                    Thread.sleep(STORE_RETRY_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    fail(job, ex);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void fail(ScreenshotJob job, Exception ex) {
+        capacity.release();
+        if (stopping) {
+            log.info("[ScreenshotPipeline] Screenshot {} interrupted by shutdown, kept for recovery", job.screenshotId);
+            return;
+        }
+        deleteSpool(job.spoolFile);
+        log.error("[ScreenshotPipeline] Failed to process screenshot {} ({})", job.screenshotId, job.path, ex);
+        try {
+            jdbcTemplate.update(SOFT_DELETE_SCREENSHOT, job.screenshotId);
+            monitoringStatsStore.evict(job.submissionId);
+        } catch (Exception dbEx) {
+            log.error("[ScreenshotPipeline] Could not mark screenshot {} as deleted", job.screenshotId, dbEx);
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Đưa file spool về JPEG tối đa 1920x1080 (giữ tỉ lệ), ghi đè tại chỗ
+     * - Chỉ đọc header để lấy định dạng + kích thước; JPEG trong giới hạn giữ nguyên
+     * - Còn lại: decode, resize, encode JPEG 70% ra file cạnh bên rồi move đè
+     * @param file File spool
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 09:30) - Làm việc trên file spool, bỏ qua ảnh đã đạt chuẩn
+     * --------------------------------------------------- */
+    private void normalizeImage(Path file) throws IOException {
+        BufferedImage originalImage;
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = iis == null ? null : ImageIO.getImageReaders(iis);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Failed to read image file");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                if ("jpeg".equalsIgnoreCase(reader.getFormatName())
+                        && reader.getWidth(0) <= MAX_WIDTH && reader.getHeight(0) <= MAX_HEIGHT) {
+                    return;
+                }
+                originalImage = reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        BufferedImage resizedImage = originalImage;
+        if (originalImage.getWidth() > MAX_WIDTH || originalImage.getHeight() > MAX_HEIGHT) {
+            resizedImage = Scalr.resize(originalImage, Scalr.Method.BALANCED, Scalr.Mode.AUTOMATIC,
+                MAX_WIDTH, MAX_HEIGHT);
+        }
+
+        // JPEG không có alpha channel
+        if (resizedImage.getType() != BufferedImage.TYPE_INT_RGB
+                && resizedImage.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+            BufferedImage rgb = new BufferedImage(resizedImage.getWidth(), resizedImage.getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = rgb.createGraphics();
+            try {
+                g.drawImage(resizedImage, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+            resizedImage = rgb;
+        }
+
+        ImageWriter writer = jpegWriters.get();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+
+        Path encoded = file.resolveSibling(file.getFileName() + ".jpg");
+        try {
+            try (ImageOutputStream ios = ImageIO.createImageOutputStream(encoded.toFile())) {
+                writer.setOutput(ios);
+                writer.write(null, new IIOImage(resizedImage, null, null), param);
+            } finally {
+                writer.reset();
+            }
+            Files.move(encoded, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(encoded);
+        }
+    }
+
+    private void deleteSpool(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("[ScreenshotPipeline] Could not delete spool file {}: {}", file, ex.getMessage());
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Xử lý file spool còn sót từ lần chạy trước (tắt khi job chưa xong / process bị kill)
+     * - Row còn tồn tại: đưa lại vào pipeline (file spool chỉ có sau khi đã nhận đủ upload)
+     * - Row không có (transaction rollback) hoặc file tạm/tên cũ: xóa file
+     * - Pipeline đầy: soft delete row như job lỗi
+     * @author: K24DTCN210-NVMANH (18/10/2026 15:00)
+     * --------------------------------------------------- */
+    private void recoverSpool() throws IOException {
+        List<Path> leftovers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(spoolDir, "*" + SPOOL_SUFFIX + "*")) {
+            stream.forEach(leftovers::add);
+        }
+
+        int recovered = 0;
+        for (Path leftover : leftovers) {
+            Long screenshotId = spooledScreenshotId(leftover);
+            List<ScreenshotJob> jobs = screenshotId == null ? List.of() : jdbcTemplate.query(SELECT_SPOOLED_SCREENSHOT,
+                (rs, rowNum) -> new ScreenshotJob(rs.getLong(2), rs.getLong(1), rs.getString(3), leftover),
+                screenshotId);
+            if (jobs.isEmpty()) {
+                deleteSpool(leftover);
+                continue;
+            }
+            ScreenshotJob job = jobs.get(0);
+            if (!capacity.tryAcquire()) {
+                fail(job, new IOException("Screenshot queue is full during recovery"));
+                continue;
+            }
+            dispatch(job);
+            recovered++;
+        }
+        if (!leftovers.isEmpty()) {
+            log.info("[ScreenshotPipeline] Spool recovery: {} files, {} screenshots re-queued",
+                leftovers.size(), recovered);
+        }
+    }
+
+    /* "<screenshotId>_<uuid>.upload" -> screenshotId; null với file tạm hoặc tên không đúng dạng */
+    private static Long spooledScreenshotId(Path file) {
+        String name = file.getFileName().toString();
+        int separator = name.indexOf('_');
+        if (!name.endsWith(SPOOL_SUFFIX) || separator <= 0) {
+            return null;
+        }
+        try {
+            return Long.valueOf(name.substring(0, separator));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedDaemon(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class ScreenshotJob {
+        private final Long submissionId;
+        private final Long screenshotId;
+        private final String path;
+        private final Path spoolFile;
+
+        ScreenshotJob(Long submissionId, Long screenshotId, String path, Path spoolFile) {
+            this.submissionId = submissionId;
+            this.screenshotId = screenshotId;
+            this.path = path;
+            this.spoolFile = spoolFile;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.mstrust.exam.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.mstrust.exam.dto.monitoring.ScreenshotDTO;
 import com.mstrust.exam.entity.ExamSubmission;
 import com.mstrust.exam.entity.Screenshot;
@@ -15,12 +18,18 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 /* ---------------------------------------------------
  * Service xử lý business logic cho screenshots
  * @author: K24DTCN210-NVMANH (21/11/2025 10:13)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 13:10) - Upload qua ScreenshotPipeline bất đồng bộ
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 13:40) - Gộp frame không đổi vào repeatCount trong metadata
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 14:40) - Cập nhật MonitoringStatsStore khi thêm/xóa screenshot
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 17:55) - Tên file có thêm UUID, tránh 2 upload cùng thời điểm ghi đè nhau
  * --------------------------------------------------- */
 @Service
 @RequiredArgsConstructor
@@ -30,10 +39,15 @@ public class ScreenshotService {
     
     private final ScreenshotRepository screenshotRepository;
     private final ExamSubmissionRepository submissionRepository;
-    private final FtpStorageService ftpStorageService;
+    private final ScreenshotPipeline screenshotPipeline;
+    private final MonitoringStatsStore monitoringStatsStore;
+    private final ObjectMapper objectMapper;
+
+    private static final DateTimeFormatter MONTH_FOLDER = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS");
     
     /* ---------------------------------------------------
-     * Upload screenshot từ client lên FTP và lưu metadata vào DB
+     * Nhận screenshot từ client: lưu metadata vào DB, đưa ảnh vào pipeline lưu trữ
      * @param file File ảnh screenshot
      * @param submissionId ID của submission
      * @param screenResolution Độ phân giải màn hình
@@ -41,6 +55,8 @@ public class ScreenshotService {
      * @param metadata Metadata khác (JSON)
      * @returns ScreenshotDTO
      * @author: K24DTCN210-NVMANH (21/11/2025 10:13)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 13:10) - Không upload đồng bộ, file được lưu sau commit
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 09:30) - Chuyển part cho pipeline thay vì file.getBytes()
      * --------------------------------------------------- */
     public ScreenshotDTO uploadScreenshot(
         MultipartFile file,
@@ -64,35 +80,92 @@ public class ScreenshotService {
             throw new BadRequestException("File must be an image");
         }
         
+        // Path logic: /screenshots/YYYY-MM/submission_id/screenshot_<timestamp>_<uuid>.jpg
+        // (UUID: 2 upload cùng mili-giây của 1 submission không được trùng file)
+        LocalDateTime now = LocalDateTime.now();
+        String dbPath = "/screenshots/" + now.format(MONTH_FOLDER) + "/" + submissionId
+            + "/screenshot_" + now.format(FILE_TIMESTAMP) + "_" + UUID.randomUUID() + ".jpg";
+
+        // Save metadata to database
+        Screenshot screenshot = Screenshot.builder()
+            .submission(submission)
+            .filePath(dbPath)
+            .fileSize(file.getSize())
+            .timestamp(now)
+            .screenResolution(screenResolution)
+            .windowTitle(windowTitle)
+            .metadata(metadata)
+            .build();
+
+        screenshot = screenshotRepository.save(screenshot);
+
+        // Part được spool ra đĩa (không đọc vào heap), resize/store chạy nền sau khi commit
         try {
-            // Upload to FTP
-            String ftpPath = ftpStorageService.uploadScreenshot(file, submissionId);
-            
-            // Convert FTP path to DB path (remove /trusttest prefix)
-            String dbPath = ftpPath.startsWith("/trusttest") ? 
-                ftpPath.substring("/trusttest".length()) : ftpPath;
-            
-            // Save metadata to database
-            Screenshot screenshot = Screenshot.builder()
-                .submission(submission)
-                .filePath(dbPath)
-                .fileSize(file.getSize())
-                .timestamp(LocalDateTime.now())
-                .screenResolution(screenResolution)
-                .windowTitle(windowTitle)
-                .metadata(metadata)
-                .build();
-            
-            screenshot = screenshotRepository.save(screenshot);
-            
-            log.info("Screenshot uploaded successfully for submission {}: FTP={}, DB={}", submissionId, ftpPath, dbPath);
-            
-            return convertToDTO(screenshot);
-            
+            screenshotPipeline.submit(submissionId, screenshot.getId(), dbPath, file);
         } catch (IOException ex) {
-            log.error("Failed to upload screenshot for submission {}", submissionId, ex);
-            throw new RuntimeException("Failed to upload screenshot: " + ex.getMessage());
+            log.error("Failed to read screenshot upload for submission {}", submissionId, ex);
+            throw new BadRequestException("Failed to read screenshot file");
+        }
+        monitoringStatsStore.onScreenshotSaved(submissionId, screenshot.getId());
+
+        log.info("Screenshot accepted for submission {}: {}", submissionId, dbPath);
+
+        return convertToDTO(screenshot);
+    }
+    
+    /* ---------------------------------------------------
+     * Ghi nhận các lần chụp bị client bỏ qua vì màn hình không đổi (perceptual hash gần
+     * giống frame trước): không lưu file mới, chỉ tăng repeatCount trong metadata của
+     * screenshot mới nhất
+     * @param submissionId ID của submission
+     * @param seenAt Thời điểm các lần chụp bị bỏ qua
+     * @returns Số lần đã ghi nhận (0 nếu submission chưa có screenshot nào)
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:40)
+     * --------------------------------------------------- */
+    public int recordUnchangedFrames(Long submissionId, List<LocalDateTime> seenAt) {
+        if (seenAt.isEmpty()) {
+            return 0;
+        }
+        Screenshot latest = screenshotRepository
+            .findFirstBySubmissionIdAndDeletedAtIsNullOrderByTimestampDesc(submissionId)
+            .orElse(null);
+        if (latest == null) {
+            log.warn("Unchanged screenshot reported for submission {} but no stored frame exists", submissionId);
+            return 0;
+        }
+
+        ObjectNode metadata = parseMetadata(latest.getMetadata());
+        metadata.put("repeatCount", metadata.path("repeatCount").asInt(0) + seenAt.size());
+        LocalDateTime lastSeen = seenAt.stream().max(LocalDateTime::compareTo).orElse(LocalDateTime.now());
+        metadata.put("lastSeenAt", lastSeen.toString());
+        latest.setMetadata(metadata.toString());
+
+        log.debug("Screenshot {} repeated {} more time(s)", latest.getId(), seenAt.size());
+        return seenAt.size();
+    }
+
+    /* ---------------------------------------------------
+     * Parse metadata của screenshot thành JSON object để bổ sung field
+     * (metadata không phải JSON object thì giữ nguyên dưới key "client")
+     * @param metadata Metadata hiện tại
+     * @returns ObjectNode
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:40)
+     * --------------------------------------------------- */
+    private ObjectNode parseMetadata(String metadata) {
+        if (metadata != null && !metadata.isBlank()) {
+            try {
+                JsonNode node = objectMapper.readTree(metadata);
+                if (node instanceof ObjectNode objectNode) {
+                    return objectNode;
+                }
+            } catch (IOException ex) {
+                log.debug("Screenshot metadata is not JSON, wrapping it: {}", ex.getMessage());
+            }
+            ObjectNode wrapped = objectMapper.createObjectNode();
+            wrapped.put("client", metadata);
+            return wrapped;
         }
+        return objectMapper.createObjectNode();
     }
     
     /* ---------------------------------------------------
@@ -167,9 +240,9 @@ public class ScreenshotService {
         // Soft delete
         screenshot.setDeletedAt(LocalDateTime.now());
         screenshotRepository.save(screenshot);
+        monitoringStatsStore.evict(screenshot.getSubmission().getId());
         
-        // Optional: Delete from FTP (comment out if you want to keep files)
-        // ftpStorageService.deleteFile(screenshot.getFilePath());
+        // File trên storage được giữ lại (xóa thật thì dùng ScreenshotStore.delete(filePath))
         
         log.info("Screenshot deleted (soft): {}", screenshotId);
     }
@@ -182,6 +255,7 @@ public class ScreenshotService {
     public void cleanupOldScreenshots() {
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(90);
         screenshotRepository.softDeleteOlderThan(cutoffDate);
+        monitoringStatsStore.evictAll();
         log.info("Cleaned up screenshots older than {}", cutoffDate);
     }
     
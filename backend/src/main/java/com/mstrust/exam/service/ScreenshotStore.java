@@ -0,0 +1,36 @@
+package com.mstrust.exam.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/* ---------------------------------------------------
+ * Backend lưu file screenshot (FTP pool hoặc local filesystem)
+ * - path là đường dẫn logic lưu trong DB, dạng /screenshots/yyyy-MM/{submissionId}/{file}.jpg
+ * - Mỗi implementation tự map path sang vị trí thật (FTP base-path, thư mục local)
+ * - Chọn implementation qua exam.screenshot.store (ftp | local)
+ * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 09:30) - Ghi từ file spool thay vì byte[] trong heap
+ * --------------------------------------------------- */
+public interface ScreenshotStore {
+
+    /* ---------------------------------------------------
+     * Ghi file (tạo thư mục cha nếu chưa có), ghi đè nếu đã tồn tại
+     * - Nội dung được stream từ source, không đọc cả file vào memory
+     * @param path Đường dẫn logic
+     * @param source File local chứa nội dung đã encode (caller sở hữu, không bị xóa)
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 09:30) - Nhận file nguồn thay vì byte[]
+     * --------------------------------------------------- */
+    void store(String path, Path source) throws IOException;
+
+    /* ---------------------------------------------------
+     * Xóa file
+     * @param path Đường dẫn logic
+     * @returns true nếu xóa thành công
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:10)
+     * --------------------------------------------------- */
+    boolean delete(String path);
+
+    /* Tên backend để log (ftp, local) */
+    String getName();
+}
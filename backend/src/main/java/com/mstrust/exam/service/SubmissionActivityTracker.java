@@ -0,0 +1,204 @@
+package com.mstrust.exam.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* ---------------------------------------------------
+ * Theo dõi số lần autosave + thời điểm hoạt động cuối của từng submission
+ * - Mỗi lần save chỉ tăng counter in-memory (AtomicLong theo submission, flush lấy ra bằng getAndSet)
+ * - Định kỳ đẩy toàn bộ delta xuống exam_submissions bằng 1 câu UPDATE gộp (CASE ... WHEN),
+ *   không đi qua JPA nên không bump @Version và không còn optimistic-lock retry
+ * - Teacher views đọc giá trị DB + phần delta chưa flush để luôn thấy số mới nhất
+ * @author: K24DTCN210-NVMANH (17/10/2026 10:20)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 17:45) - Lấy delta bằng getAndSet(0) để không mất lần save chen vào
+ * --------------------------------------------------- */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SubmissionActivityTracker {
+
+    private static final int CHUNK_SIZE = 500;
+
+    /* Counter không có save mới quá khoảng này thì bỏ khỏi memory (DB đã có giá trị cuối) */
+    private static final long IDLE_EVICT_MILLIS = 30 * 60 * 1000L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, ActivityCounter> counters = new ConcurrentHashMap<>();
+
+    /* ---------------------------------------------------
+     * Ghi nhận một lần save của submission
+     * @param submissionId ID của submission
+     * @author: K24DTCN210-NVMANH (17/10/2026 10:20)
+     * --------------------------------------------------- */
+    public void recordSave(Long submissionId) {
+        recordSaves(submissionId, 1);
+    }
+
+    /* ---------------------------------------------------
+     * Ghi nhận nhiều lần save của submission bằng 1 lần cập nhật counter (batch save)
+     * @param submissionId ID của submission
+     * @param count Số câu trả lời đã save
+     * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+     * --------------------------------------------------- */
+    public void recordSaves(Long submissionId, int count) {
+        if (count <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        counters.compute(submissionId, (id, counter) -> {
+            ActivityCounter c = counter != null ? counter : new ActivityCounter();
+            c.record(now, count);
+            return c;
+        });
+    }
+
+    /* ---------------------------------------------------
+     * Số lần save chưa flush xuống DB
+     * @param submissionId ID của submission
+     * @returns Delta cần cộng thêm vào auto_save_count trong DB
+     * @author: K24DTCN210-NVMANH (17/10/2026 10:20)
+     * --------------------------------------------------- */
+    public int getPendingSaveCount(Long submissionId) {
+        ActivityCounter counter = counters.get(submissionId);
+        return counter != null ? (int) counter.pendingSaves.get() : 0;
+    }
+
+    /* ---------------------------------------------------
+     * Auto-save count mới nhất = giá trị DB + delta chưa flush
+     * @param submissionId ID của submission
+     * @param persistedCount Giá trị auto_save_count đang có trong entity
+     * @returns Tổng số lần save
+     * @author: K24DTCN210-NVMANH (17/10/2026 10:20)
+     * --------------------------------------------------- */
+    public int getAutoSaveCount(Long submissionId, Integer persistedCount) {
+        return (persistedCount != null ? persistedCount : 0) + getPendingSaveCount(submissionId);
+    }
+
+    /* ---------------------------------------------------
+     * Thời điểm hoạt động cuối = max(giá trị DB, giá trị in-memory)
+     * @param submissionId ID của submission
+     * @param persistedLastSavedAt Giá trị last_saved_at đang có trong entity (nullable)
+     * @returns Timestamp mới nhất hoặc null nếu chưa từng save
+     * @author: K24DTCN210-NVMANH (17/10/2026 10:20)
+     * --------------------------------------------------- */
+    public Timestamp getLastSavedAt(Long submissionId, Timestamp persistedLastSavedAt) {
+        ActivityCounter counter = counters.get(submissionId);
+        long inMemory = counter != null ? counter.lastActivityAt.get() : 0L;
+        long persisted = persistedLastSavedAt != null ? persistedLastSavedAt.getTime() : 0L;
+        long latest = Math.max(inMemory, persisted);
+        return latest > 0 ? new Timestamp(latest) : null;
+    }
+
+    /* ---------------------------------------------------
+     * Flush toàn bộ delta xuống DB (1 UPDATE cho mỗi chunk 500 submissions)
+     * Lỗi thì cộng delta trả lại counter để lần sau thử lại
+     * @author: K24DTCN210-NVMANH (17/10/2026 10:20)
+     * --------------------------------------------------- */
+    @Scheduled(fixedDelayString = "${exam.activity-tracker.flush-interval-ms:5000}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        List<Object[]> deltas = new ArrayList<>();
+
+        for (Map.Entry<Long, ActivityCounter> entry : counters.entrySet()) {
+            ActivityCounter counter = entry.getValue();
+            long delta = counter.pendingSaves.getAndSet(0);
+            if (delta > 0) {
+                deltas.add(new Object[] { entry.getKey(), delta, counter.lastActivityAt.get() });
+            } else if (now - counter.lastActivityAt.get() > IDLE_EVICT_MILLIS) {
+                counters.computeIfPresent(entry.getKey(),
+                    (id, c) -> c.pendingSaves.get() == 0 ? null : c);
+            }
+        }
+
+        for (int from = 0; from < deltas.size(); from += CHUNK_SIZE) {
+            List<Object[]> chunk = deltas.subList(from, Math.min(from + CHUNK_SIZE, deltas.size()));
+            try {
+                writeChunk(chunk);
+            } catch (RuntimeException e) {
+                log.error("[ActivityTracker] Bulk update {} submission(s) thất bại - sẽ thử lại: {}",
+                    chunk.size(), e.getMessage());
+                for (Object[] row : chunk) {
+                    counters.compute((Long) row[0], (id, counter) -> {
+                        ActivityCounter c = counter != null ? counter : new ActivityCounter();
+                        c.pendingSaves.addAndGet((Long) row[1]);
+                        c.lastActivityAt.accumulateAndGet((Long) row[2], Math::max);
+                        return c;
+                    });
+                }
+            }
+        }
+
+        if (!deltas.isEmpty()) {
+            log.debug("[ActivityTracker] Flushed save counters for {} submission(s)", deltas.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /* ---------------------------------------------------
+     * UPDATE exam_submissions SET auto_save_count = auto_save_count + CASE id ... END,
+     *   last_saved_at = CASE id ... END WHERE id IN (...)
+     * Tracker là nơi duy nhất ghi 2 cột này nên giá trị in-memory luôn mới nhất
+     * @param chunk List [submissionId, delta, lastActivityMillis]
+     * @author: K24DTCN210-NVMANH (17/10/2026 10:20)
+     * --------------------------------------------------- */
+    private void writeChunk(List<Object[]> chunk) {
+        StringBuilder countCase = new StringBuilder("CASE id");
+        StringBuilder lastSavedCase = new StringBuilder("CASE id");
+        StringBuilder inClause = new StringBuilder();
+        List<Object> countArgs = new ArrayList<>();
+        List<Object> lastSavedArgs = new ArrayList<>();
+        List<Object> idArgs = new ArrayList<>();
+
+        for (Object[] row : chunk) {
+            countCase.append(" WHEN ? THEN ?");
+            countArgs.add(row[0]);
+            countArgs.add(row[1]);
+            lastSavedCase.append(" WHEN ? THEN ?");
+            lastSavedArgs.add(row[0]);
+            lastSavedArgs.add(new Timestamp((Long) row[2]));
+            inClause.append(inClause.length() == 0 ? "?" : ", ?");
+            idArgs.add(row[0]);
+        }
+        countCase.append(" ELSE 0 END");
+        lastSavedCase.append(" ELSE last_saved_at END");
+
+        String sql = "UPDATE exam_submissions SET " +
+            "auto_save_count = COALESCE(auto_save_count, 0) + " + countCase + ", " +
+            "last_saved_at = " + lastSavedCase + " " +
+            "WHERE id IN (" + inClause + ")";
+
+        List<Object> args = new ArrayList<>(countArgs);
+        args.addAll(lastSavedArgs);
+        args.addAll(idArgs);
+        jdbcTemplate.update(sql, args.toArray());
+    }
+
+    /* ---------------------------------------------------
+     * Counter của một submission: số save chưa flush + thời điểm hoạt động cuối
+     * --------------------------------------------------- */
+    private static class ActivityCounter {
+        private final AtomicLong pendingSaves = new AtomicLong();
+        private final AtomicLong lastActivityAt = new AtomicLong();
+
+        void record(long now, int count) {
+            pendingSaves.addAndGet(count);
+            lastActivityAt.accumulateAndGet(now, Math::max);
+        }
+    }
+}
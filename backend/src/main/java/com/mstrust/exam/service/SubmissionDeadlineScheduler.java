@@ -0,0 +1,302 @@
+package com.mstrust.exam.service;
+
+import com.mstrust.exam.dto.websocket.ExamTimerSyncMessage;
+import com.mstrust.exam.repository.ExamSubmissionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* ---------------------------------------------------
+ * Tự động nộp các submission hết giờ phía server
+ * - Priority queue theo deadline (startedAt + durationMinutes), nạp lại từ DB khi khởi động;
+ *   start/resume thêm vào, submit/pause bỏ ra (sau commit)
+ * - 1 thread ngủ đúng tới deadline gần nhất, lấy các submission đã hết giờ theo batch nhỏ
+ *   và nộp qua ExamTakingService (mỗi submission 1 transaction riêng)
+ * - Nộp xong thì báo EXPIRED cho student qua /user/queue/timer (theo principal name) để client dừng
+ *   ngay, không phải chờ gọi saveAnswer hoặc timer phía client
+ * - ExamTakingService lấy lazy qua ObjectProvider vì service đó cũng gọi vào scheduler
+ * @author: K24DTCN210-NVMANH (17/10/2026 15:40)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 14:30) - Báo EXPIRED theo principal name (email) thay vì studentId
+ * --------------------------------------------------- */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SubmissionDeadlineScheduler {
+
+    /* Submission có deadline bị đổi (sửa duration) được hẹn lại, chờ tối thiểu khoảng này */
+    private static final long MIN_RESCHEDULE_MILLIS = 1000;
+
+    /* Nộp lỗi (xung đột version, DB tạm lỗi) thì thử lại sau khoảng này */
+    private static final long RETRY_DELAY_MILLIS = 30_000;
+
+    private final ExamSubmissionRepository submissionRepository;
+    private final ObjectProvider<ExamTakingService> examTakingService;
+    private final WebSocketEventService webSocketEventService;
+
+    @Value("${exam.deadline-scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${exam.deadline-scheduler.batch-size:20}")
+    private int batchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition headChanged = lock.newCondition();
+    private final PriorityQueue<Deadline> queue = new PriorityQueue<>();
+    private final Map<Long, Deadline> bySubmission = new HashMap<>();
+    private Thread worker;
+    private volatile boolean running;
+
+    /* ---------------------------------------------------
+     * Nạp deadline của các submission đang làm từ DB rồi bắt đầu thread hẹn giờ
+     * (chạy sau khi context sẵn sàng để các submission quá hạn từ trước được nộp ngay)
+     * @author: K24DTCN210-NVMANH (17/10/2026 15:40)
+     * --------------------------------------------------- */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("[DeadlineScheduler] Disabled");
+            return;
+        }
+        List<Object[]> rows = submissionRepository.findActiveDeadlineRows();
+        lock.lock();
+        try {
+            for (Object[] row : rows) {
+                enqueue(new Deadline((Long) row[0], (Long) row[1], (String) row[2],
+                    deadlineMillis((Timestamp) row[3], (Integer) row[4])));
+            }
+        } finally {
+            lock.unlock();
+        }
+        running = true;
+        worker = new Thread(this::runLoop, "submission-deadline");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("[DeadlineScheduler] Started with {} active submissions", rows.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Hẹn giờ nộp cho submission (sau khi transaction start/resume commit)
+     * @param submissionId ID của submission
+     * @param examId ID của exam
+     * @param principalName Principal name của student (email - subject của JWT)
+     * @param startedAt Thời điểm bắt đầu làm bài
+     * @param durationMinutes Thời lượng bài thi
+     * @author: K24DTCN210-NVMANH (17/10/2026 15:40)
+     * --------------------------------------------------- */
+    public void schedule(Long submissionId, Long examId, String principalName, Timestamp startedAt,
+                         Integer durationMinutes) {
+        if (!enabled || startedAt == null || durationMinutes == null) {
+            return;
+        }
+        Deadline deadline = new Deadline(submissionId, examId, principalName, deadlineMillis(startedAt, durationMinutes));
+        afterCommit(() -> {
+            lock.lock();
+            try {
+                enqueue(deadline);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /* Bỏ hẹn giờ (sau khi transaction submit/pause commit) */
+    public void cancel(Long submissionId) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            lock.lock();
+            try {
+                Deadline removed = bySubmission.remove(submissionId);
+                if (removed != null) {
+                    removed.cancelled = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /* Số submission đang được hẹn giờ */
+    public int getScheduledCount() {
+        lock.lock();
+        try {
+            return bySubmission.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // =============== WORKER ===============
+
+    /* Gọi khi đang giữ lock */
+    private void enqueue(Deadline deadline) {
+        Deadline previous = bySubmission.put(deadline.submissionId, deadline);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        queue.add(deadline);
+        if (queue.peek() == deadline) {
+            headChanged.signal();
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                List<Deadline> batch = takeExpiredBatch();
+                for (Deadline deadline : batch) {
+                    expire(deadline);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception ex) {
+                log.error("[DeadlineScheduler] Unexpected error", ex);
+            }
+        }
+    }
+
+    /* Chờ tới deadline gần nhất rồi lấy tối đa batchSize submission đã hết giờ */
+    private List<Deadline> takeExpiredBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                Deadline head = queue.peek();
+                if (head == null) {
+                    headChanged.await();
+                    continue;
+                }
+                if (head.cancelled) {
+                    queue.poll();
+                    continue;
+                }
+                long waitMillis = head.deadlineMillis - System.currentTimeMillis();
+                if (waitMillis > 0) {
+                    headChanged.await(waitMillis, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                break;
+            }
+
+            List<Deadline> batch = new ArrayList<>(batchSize);
+            long now = System.currentTimeMillis();
+            while (batch.size() < Math.max(1, batchSize) && !queue.isEmpty()
+                    && queue.peek().deadlineMillis <= now) {
+                Deadline deadline = queue.poll();
+                if (!deadline.cancelled) {
+                    bySubmission.remove(deadline.submissionId, deadline);
+                    batch.add(deadline);
+                }
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void expire(Deadline deadline) {
+        Long rescheduleAt;
+        try {
+            rescheduleAt = examTakingService.getObject().autoSubmitIfExpired(deadline.submissionId);
+        } catch (Exception ex) {
+            // Student/node khác nộp cùng lúc hoặc DB tạm lỗi: thử lại, lần sau sẽ thấy không còn active
+            log.warn("[DeadlineScheduler] Could not auto-submit submission {}, retrying in {}s: {}",
+                deadline.submissionId, RETRY_DELAY_MILLIS / 1000, ex.getMessage());
+            reschedule(deadline, System.currentTimeMillis() + RETRY_DELAY_MILLIS);
+            return;
+        }
+
+        if (rescheduleAt != null) {
+            reschedule(deadline, Math.max(rescheduleAt, System.currentTimeMillis() + MIN_RESCHEDULE_MILLIS));
+            return;
+        }
+
+        LocalDateTime deadlineTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(deadline.deadlineMillis),
+            ZoneId.systemDefault());
+        webSocketEventService.sendTimerCorrection(deadline.principalName, ExamTimerSyncMessage.builder()
+            .examId(deadline.examId)
+            .submissionId(deadline.submissionId)
+            .endTime(deadlineTime)
+            .remainingSeconds(0L)
+            .status("EXPIRED")
+            .timestamp(LocalDateTime.now())
+            .build());
+    }
+
+    private void reschedule(Deadline deadline, long atMillis) {
+        lock.lock();
+        try {
+            if (!bySubmission.containsKey(deadline.submissionId)) {
+                enqueue(new Deadline(deadline.submissionId, deadline.examId, deadline.principalName, atMillis));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long deadlineMillis(Timestamp startedAt, Integer durationMinutes) {
+        return startedAt.getTime() + durationMinutes * 60_000L;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static class Deadline implements Comparable<Deadline> {
+        private final Long submissionId;
+        private final Long examId;
+        private final String principalName;
+        private final long deadlineMillis;
+        private boolean cancelled;
+
+        Deadline(Long submissionId, Long examId, String principalName, long deadlineMillis) {
+            this.submissionId = submissionId;
+            this.examId = examId;
+            this.principalName = principalName;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        @Override
+        public int compareTo(Deadline other) {
+            return Long.compare(deadlineMillis, other.deadlineMillis);
+        }
+    }
+}
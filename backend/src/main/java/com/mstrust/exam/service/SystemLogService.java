@@ -2,9 +2,8 @@ package com.mstrust.exam.service;
 
 import com.mstrust.exam.dto.SystemLogRequest;
 import com.mstrust.exam.entity.SystemLog;
-import com.mstrust.exam.entity.User;
 import com.mstrust.exam.repository.SystemLogRepository;
-import com.mstrust.exam.repository.UserRepository;
+import com.mstrust.exam.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
@@ -17,19 +16,16 @@ import org.springframework.transaction.annotation.Transactional;
 @Slf4j
 public class SystemLogService {
     private final SystemLogRepository systemLogRepository;
-    private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
     @Transactional
     public void createLog(SystemLogRequest request) {
         Long userId = null;
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            if (auth != null && auth.isAuthenticated() && !"anonymousUser".equals(auth.getPrincipal())) {
-                String email = auth.getName();
-                userId = userRepository.findByEmail(email)
-                        .map(User::getId)
-                        .orElse(null);
-            }
+            userId = principalCache.resolve(auth)
+                    .map(PrincipalCache.CachedPrincipal::getUserId)
+                    .orElse(null);
         } catch (Exception e) {
             log.warn("Failed to get current user for system log: {}", e.getMessage());
         }
@@ -16,6 +16,8 @@ import com.mstrust.exam.repository.ClassRepository;
 import com.mstrust.exam.repository.DepartmentRepository;
 import com.mstrust.exam.repository.RoleRepository;
 import com.mstrust.exam.repository.UserRepository;
+import com.mstrust.exam.security.PrincipalCache;
+import com.mstrust.exam.security.UserStatusCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -25,6 +27,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.HashMap;
 import java.util.List;
@@ -36,6 +39,9 @@ import java.util.stream.Collectors;
  * User Service
  * Xử lý CRUD operations cho User
  * @author: K24DTCN210-NVMANH (13/11/2025 15:02)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 16:40) - Bỏ PrincipalCache khi đổi role / active / xóa user
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 17:00) - Tăng authVersion + bỏ UserStatusCache để JWT cũ không còn hiệu lực quyền cũ
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 19:40) - Thống kê users bằng query GROUP BY + cache ngắn hạn
  * --------------------------------------------------- */
 @Service
 @Slf4j
@@ -56,6 +62,15 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private UserStatusCache userStatusCache;
+
+    @Autowired
+    private UserStatisticsCache userStatisticsCache;
+
     /* ---------------------------------------------------
      * Lấy tất cả users (không bao gồm deleted)
      * @returns List of UserDTO
@@ -239,6 +254,7 @@ public class UserService {
 
         // Save user
         User savedUser = userRepository.save(user);
+        userStatisticsCache.invalidate();
         log.info("User created successfully with ID: {}, email: {}", savedUser.getId(), savedUser.getEmail());
 
         return UserDTO.from(savedUser);
@@ -255,7 +271,9 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
 
         user.setIsActive(!user.getIsActive());
+        user.bumpAuthVersion();
         User updatedUser = userRepository.save(user);
+        invalidateUserCaches(id);
 
         return UserDTO.from(updatedUser);
     }
@@ -438,7 +456,10 @@ public class UserService {
             log.debug("Updated roles: {} (total: {})", userDTO.getRoles(), roles.size());
         }
 
+        user.bumpAuthVersion();
         User updatedUser = userRepository.save(user);
+        invalidateUserCaches(id);
+
         log.info("User updated successfully with ID: {}, email: {}", updatedUser.getId(), updatedUser.getEmail());
         return UserDTO.from(updatedUser);
     }
@@ -460,7 +481,9 @@ public class UserService {
 
         user.setDeletedAt(LocalDateTime.now());
         user.setIsActive(false);
+        user.bumpAuthVersion();
         userRepository.save(user);
+        invalidateUserCaches(id);
     }
 
     /* ---------------------------------------------------
@@ -513,7 +536,9 @@ public class UserService {
         }
 
         user.setIsActive(isActive);
+        user.bumpAuthVersion();
         User updatedUser = userRepository.save(user);
+        invalidateUserCaches(id);
         return UserDTO.from(updatedUser);
     }
 
@@ -544,7 +569,9 @@ public class UserService {
         }
 
         user.getRoles().add(role);
+        user.bumpAuthVersion();
         User updatedUser = userRepository.save(user);
+        invalidateUserCaches(userId);
         return UserDTO.from(updatedUser);
     }
 
@@ -580,7 +607,9 @@ public class UserService {
         }
 
         user.getRoles().remove(role);
+        user.bumpAuthVersion();
         User updatedUser = userRepository.save(user);
+        invalidateUserCaches(userId);
         return UserDTO.from(updatedUser);
     }
 
@@ -619,6 +648,7 @@ public class UserService {
 
         user.setDepartment(department);
         User updatedUser = userRepository.save(user);
+        userStatisticsCache.invalidate();
         return UserDTO.from(updatedUser);
     }
 
@@ -648,6 +678,7 @@ public class UserService {
 
         user.setClassEntity(classEntity);
         User updatedUser = userRepository.save(user);
+        userStatisticsCache.invalidate();
         return UserDTO.from(updatedUser);
     }
 
@@ -701,67 +732,44 @@ public class UserService {
      * Lấy thống kê về users trong hệ thống
      * @returns UserStatisticsDTO chứa các thống kê
      * @author NVMANH with Cline (15/11/2025 15:06)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 19:40) - 5 query GROUP BY thay vì load users theo từng
+     *         role / department / lớp, kết quả cache ngắn hạn trong UserStatisticsCache
      * --------------------------------------------------- */
+    @Transactional(readOnly = true)
     public UserStatisticsDTO getUserStatistics() {
-        Long totalUsers = userRepository.countActiveUsers();
-        Long activeUsers = userRepository.countByIsActive(true);
-        Long inactiveUsers = userRepository.countByIsActive(false);
-        Long deletedUsers = userRepository.countDeletedUsers();
-
-        // Count by role
-        Map<String, Long> usersByRole = new HashMap<>();
-        List<Role> allRoles = roleRepository.findAll();
-        for (Role role : allRoles) {
-            Long count = (long) userRepository.findByRoleName(role.getRoleName()).size();
-            if (count > 0) {
-                usersByRole.put(role.getRoleName(), count);
-            }
-        }
+        return userStatisticsCache.get(this::loadUserStatistics);
+    }
 
-        // Count by department
-        Map<String, Long> usersByDepartment = new HashMap<>();
-        List<Department> allDepartments = departmentRepository.findByDeletedAtIsNull();
-        for (Department dept : allDepartments) {
-            Long count = (long) userRepository.findByDepartmentId(dept.getId()).size();
-            if (count > 0) {
-                usersByDepartment.put(dept.getDepartmentName(), count);
-            }
-        }
+    private UserStatisticsDTO loadUserStatistics() {
+        // [total, active, inactive, deleted]
+        Object[] status = userRepository.countByStatusRows().get(0);
 
-        // Count by class
-        Map<String, Long> usersByClass = new HashMap<>();
-        List<ClassEntity> allClasses = classRepository.findAll().stream()
-                .filter(c -> c.getDeletedAt() == null)
-                .collect(Collectors.toList());
-        for (ClassEntity classEntity : allClasses) {
-            Long count = (long) userRepository.findByClassId(classEntity.getId()).size();
-            if (count > 0) {
-                usersByClass.put(classEntity.getClassName(), count);
-            }
-        }
+        return UserStatisticsDTO.builder()
+                .totalUsers(toCount(status[0]))
+                .activeUsers(toCount(status[1]))
+                .inactiveUsers(toCount(status[2]))
+                .deletedUsers(toCount(status[3]))
+                .usersByRole(toCountMap(userRepository.countByRoleRows()))
+                .usersByDepartment(toCountMap(userRepository.countByDepartmentRows()))
+                .usersByClass(toCountMap(userRepository.countByClassRows()))
+                .usersByGender(toCountMap(userRepository.countByGenderRows()))
+                .build();
+    }
 
-        // Count by gender
-        Map<String, Long> usersByGender = new HashMap<>();
-        List<User> allUsers = userRepository.findAll().stream()
-                .filter(u -> u.getDeletedAt() == null)
-                .collect(Collectors.toList());
-        for (User user : allUsers) {
-            if (user.getGender() != null) {
-                String gender = user.getGender().name();
-                usersByGender.put(gender, usersByGender.getOrDefault(gender, 0L) + 1);
+    /* Rows [key, count] -> Map không sửa được (DTO được dùng chung qua cache); trùng tên thì cộng dồn */
+    private static Map<String, Long> toCountMap(List<Object[]> rows) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                String key = row[0] instanceof Enum<?> e ? e.name() : row[0].toString();
+                counts.merge(key, toCount(row[1]), Long::sum);
             }
         }
+        return Collections.unmodifiableMap(counts);
+    }
 
-        return UserStatisticsDTO.builder()
-                .totalUsers(totalUsers)
-                .activeUsers(activeUsers)
-                .inactiveUsers(inactiveUsers)
-                .deletedUsers(deletedUsers)
-                .usersByRole(usersByRole)
-                .usersByDepartment(usersByDepartment)
-                .usersByClass(usersByClass)
-                .usersByGender(usersByGender)
-                .build();
+    private static long toCount(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
     }
 
     /* ---------------------------------------------------
@@ -776,4 +784,16 @@ public class UserService {
                 .map(UserDTO::from)
                 .collect(Collectors.toList());
     }
+
+    /* ---------------------------------------------------
+     * Bỏ cache xác thực của user và thống kê users sau khi đổi role / active / xóa
+     * @param userId ID của user
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:00)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 19:40) - Bỏ thêm UserStatisticsCache
+     * --------------------------------------------------- */
+    private void invalidateUserCaches(Long userId) {
+        principalCache.invalidateUser(userId);
+        userStatusCache.evict(userId);
+        userStatisticsCache.invalidate();
+    }
 }
@@ -0,0 +1,79 @@
+package com.mstrust.exam.service;
+
+import com.mstrust.exam.dto.UserStatisticsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/* ---------------------------------------------------
+ * Cache ngắn hạn thống kê users cho admin dashboard (1 bản cho cả hệ thống)
+ * - UserService gọi invalidate() khi tạo / sửa / xóa user, đổi role, active, department, lớp
+ *   (sau commit); các thay đổi khác (đổi tên / xóa department, lớp) tự hết hạn theo TTL
+ * - Kết quả load bắt đầu trước một lần invalidate không được ghi vào cache
+ * @author: K24DTCN210-NVMANH (17/10/2026 19:40)
+ * --------------------------------------------------- */
+@Component
+public class UserStatisticsCache {
+
+    @Value("${exam.user-statistics.cache-ttl-ms:30000}")
+    private long ttlMillis;
+
+    private volatile Entry entry;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /* ---------------------------------------------------
+     * Lấy thống kê đã cache, hết hạn thì load lại bằng loader
+     * @param loader Tính thống kê từ DB
+     * @returns UserStatisticsDTO
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:40)
+     * --------------------------------------------------- */
+    public UserStatisticsDTO get(Supplier<UserStatisticsDTO> loader) {
+        Entry current = entry;
+        if (current != null && System.currentTimeMillis() < current.expiresAt) {
+            return current.statistics;
+        }
+
+        long loadGeneration = generation.get();
+        UserStatisticsDTO statistics = loader.get();
+        if (ttlMillis > 0 && generation.get() == loadGeneration) {
+            entry = new Entry(statistics, System.currentTimeMillis() + ttlMillis);
+        }
+        return statistics;
+    }
+
+    /* ---------------------------------------------------
+     * Bỏ thống kê đã cache, thêm 1 lần sau commit để không giữ lại dữ liệu trước thay đổi
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:40)
+     * --------------------------------------------------- */
+    public void invalidate() {
+        doInvalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doInvalidate();
+                }
+            });
+        }
+    }
+
+    private void doInvalidate() {
+        generation.incrementAndGet();
+        entry = null;
+    }
+
+    private static class Entry {
+        private final UserStatisticsDTO statistics;
+        private final long expiresAt;
+
+        Entry(UserStatisticsDTO statistics, long expiresAt) {
+            this.statistics = statistics;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
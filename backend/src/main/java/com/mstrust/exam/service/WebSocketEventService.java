@@ -2,6 +2,7 @@ package com.mstrust.exam.service;
 
 import com.mstrust.exam.dto.websocket.ConnectionStatusMessage;
 import com.mstrust.exam.dto.websocket.ExamTimerSyncMessage;
+import com.mstrust.exam.dto.websocket.LiveViewDeltaMessage;
 import com.mstrust.exam.dto.websocket.StudentProgressMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -42,6 +43,28 @@ public class WebSocketEventService {
         }
     }
     
+    /* ---------------------------------------------------
+     * Gửi deadline riêng của submission tới student
+     * User destination được resolve theo Principal#getName() của STOMP session (email - subject
+     * của JWT), không phải userId; client subscribe "/user/queue/timer"
+     * @param principalName Principal name của student
+     * @param message ExamTimerSyncMessage có submissionId
+     * Topic: /user/queue/timer
+     * @author: K24DTCN210-NVMANH (17/10/2026 15:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 14:00) - Gửi qua convertAndSendToUser theo principal name
+     * --------------------------------------------------- */
+    public void sendTimerCorrection(String principalName, ExamTimerSyncMessage message) {
+        if (principalName == null) {
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(principalName, "/queue/timer", message);
+        } catch (Exception e) {
+            log.error("Error sending timer correction for submission {}: {}", 
+                message.getSubmissionId(), e.getMessage());
+        }
+    }
+
     /* ---------------------------------------------------
      * Gửi student progress update tới teachers
      * @param message StudentProgressMessage chứa tiến độ sinh viên
@@ -62,6 +85,22 @@ public class WebSocketEventService {
         }
     }
     
+    /* ---------------------------------------------------
+     * Gửi các dòng live view thay đổi tới teachers
+     * @param message LiveViewDeltaMessage chứa dòng thay đổi + alert mới/đã review
+     * Topic: /topic/exam/{examId}/live
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    public void sendLiveViewDelta(LiveViewDeltaMessage message) {
+        try {
+            String destination = String.format("/topic/exam/%d/live", message.getExamId());
+            messagingTemplate.convertAndSend(destination, message);
+        } catch (Exception e) {
+            log.error("Error sending live view delta for exam {}: {}",
+                message.getExamId(), e.getMessage());
+        }
+    }
+    
     /* ---------------------------------------------------
      * Gửi connection status update khi student connect/disconnect
      * @param message ConnectionStatusMessage chứa trạng thái kết nối
@@ -0,0 +1,9 @@
+-- ================================================================
+-- Migration V21: Add auth_version to users
+-- Reason: JWT mang roles + auth_version; đổi role / active / xóa user thì tăng
+--         version để token cũ phải load lại quyền từ DB
+-- Author: K24DTCN210-NVMANH
+-- Created: 17/10/2026 17:00
+-- ================================================================
+
+ALTER TABLE users ADD COLUMN auth_version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,48 @@
+-- ================================================================
+-- Migration V22: Bảng tổng hợp thống kê đề thi
+-- Reason: thống kê điểm + item analysis được tính bằng SQL aggregate và lưu lại
+--         sau khi nộp bài / chấm xong, API thống kê chỉ đọc 2 bảng này
+-- Author: K24DTCN210-NVMANH
+-- Created: 17/10/2026 19:10
+-- ================================================================
+
+CREATE TABLE exam_stats_summary (
+    exam_id BIGINT PRIMARY KEY,
+    total_submissions BIGINT NOT NULL,
+    completed_count BIGINT NOT NULL COMMENT 'Bài SUBMITTED/GRADED có total_score',
+    graded_count BIGINT NOT NULL,
+    average_score DECIMAL(7,2),
+    min_score DECIMAL(7,2),
+    max_score DECIMAL(7,2),
+    stddev_score DECIMAL(7,3),
+    passed_count BIGINT NOT NULL,
+    graded_average_score DECIMAL(7,2),
+    graded_min_score DECIMAL(7,2),
+    graded_max_score DECIMAL(7,2),
+    graded_passed_count BIGINT NOT NULL,
+    passing_score DECIMAL(5,2),
+    exam_total_score DECIMAL(5,2),
+    histogram_json TEXT COMMENT 'Số bài theo 10 khoảng % điểm',
+    refreshed_at DATETIME NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Thống kê điểm của đề thi (ExamAnalyticsService)';
+
+CREATE TABLE exam_question_stats (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    exam_id BIGINT NOT NULL,
+    question_id BIGINT NOT NULL,
+    question_order INT NOT NULL,
+    question_type VARCHAR(50),
+    max_points DECIMAL(5,2),
+    attempts BIGINT NOT NULL,
+    answered_count BIGINT NOT NULL,
+    correct_count BIGINT NOT NULL,
+    average_points DECIMAL(7,3),
+    difficulty_index DECIMAL(5,4),
+    discrimination_index DECIMAL(5,4),
+    option_counts_json TEXT COMMENT 'Số lần chọn từng key (câu lựa chọn)',
+    refreshed_at DATETIME NOT NULL,
+
+    CONSTRAINT uk_exam_question_stats UNIQUE (exam_id, question_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Item analysis của đề thi (ExamAnalyticsService)';
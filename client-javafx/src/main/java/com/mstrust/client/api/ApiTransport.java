@@ -0,0 +1,337 @@
+package com.mstrust.client.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.mstrust.client.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/* ---------------------------------------------------
+ * HTTP transport dùng chung cho toàn bộ JavaFX client
+ * - 1 HttpClient duy nhất (1 connection pool); HTTP/2 qua ALPN khi base URL là https,
+ *   http thường thì giữ HTTP/1.1 để không tốn thêm vòng h2c upgrade
+ * - sendAsync + CompletableFuture; body 2xx được Gson decode thẳng từ InputStream
+ * - 2 pool riêng: ioExecutor cho HttpClient (nhận byte, chạy BodySubscriber) và decodeExecutor
+ *   cho phần decode đọc chặn InputStream - decode không bao giờ chiếm thread đang phải đẩy byte
+ *   vào chính InputStream đó
+ * - Timeout theo từng loại endpoint (health / save / default / upload)
+ * - GET giống hệt nhau (cùng URL + token + kiểu kết quả) đang chạy thì dùng chung 1 request
+ * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 15:30) - Tách pool decode khỏi pool của HttpClient
+ * --------------------------------------------------- */
+public class ApiTransport {
+    private static final Logger logger = LoggerFactory.getLogger(ApiTransport.class);
+    private static ApiTransport instance;
+
+    private final HttpClient httpClient;
+    private final ExecutorService ioExecutor;
+    private final ExecutorService decodeExecutor;
+    private final Gson gson;
+    private final String baseUrl;
+    private final Map<String, CompletableFuture<?>> inFlightGets = new ConcurrentHashMap<>();
+
+    private final Duration defaultTimeout;
+    private final Duration healthTimeout;
+    private final Duration saveTimeout;
+    private final Duration uploadTimeout;
+
+    /* ---------------------------------------------------
+     * Constructor private - đọc cấu hình từ AppConfig
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    private ApiTransport() {
+        AppConfig config = AppConfig.getInstance();
+        this.baseUrl = config.getApiBaseUrl();
+        this.defaultTimeout = Duration.ofSeconds(config.getApiTimeoutSeconds());
+        this.healthTimeout = Duration.ofSeconds(config.getApiHealthTimeoutSeconds());
+        this.saveTimeout = Duration.ofSeconds(config.getApiSaveTimeoutSeconds());
+        this.uploadTimeout = Duration.ofSeconds(config.getApiUploadTimeoutSeconds());
+
+        this.ioExecutor = Executors.newFixedThreadPool(4, namedDaemon("ApiTransport-io-"));
+        // Cached: callback của caller chạy tiếp trên thread decode, có block cũng không làm đói request khác
+        this.decodeExecutor = Executors.newCachedThreadPool(namedDaemon("ApiTransport-decode-"));
+
+        this.httpClient = HttpClient.newBuilder()
+                .version(baseUrl.startsWith("https") ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(defaultTimeout)
+                .executor(ioExecutor)
+                .build();
+
+        this.gson = new GsonBuilder()
+                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+                .create();
+
+        logger.info("ApiTransport initialized - baseUrl: {}, version: {}", baseUrl, httpClient.version());
+    }
+
+    /* ---------------------------------------------------
+     * Lấy instance singleton
+     * @returns Instance duy nhất của ApiTransport
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public static synchronized ApiTransport getInstance() {
+        if (instance == null) {
+            instance = new ApiTransport();
+        }
+        return instance;
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public Gson getGson() {
+        return gson;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public Duration defaultTimeout() {
+        return defaultTimeout;
+    }
+
+    public Duration healthTimeout() {
+        return healthTimeout;
+    }
+
+    public Duration saveTimeout() {
+        return saveTimeout;
+    }
+
+    public Duration uploadTimeout() {
+        return uploadTimeout;
+    }
+
+    /* ---------------------------------------------------
+     * Tạo request builder cho một endpoint
+     * @param path Đường dẫn bắt đầu bằng /api/...
+     * @param authToken JWT token (null = không gửi Authorization)
+     * @param timeout Timeout của endpoint
+     * @returns HttpRequest.Builder đã có URI, timeout và Authorization
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public HttpRequest.Builder newRequest(String path, String authToken, Duration timeout) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + path))
+                .timeout(timeout);
+        if (authToken != null) {
+            builder.header("Authorization", "Bearer " + authToken);
+        }
+        return builder;
+    }
+
+    /* ---------------------------------------------------
+     * POST JSON body
+     * @param path Đường dẫn endpoint
+     * @param authToken JWT token (nullable)
+     * @param body Object sẽ được serialize bằng Gson (null = body rỗng)
+     * @param timeout Timeout của endpoint
+     * @returns HttpRequest đã build
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public HttpRequest postJson(String path, String authToken, Object body, Duration timeout) {
+        return newRequest(path, authToken, timeout)
+                .header("Content-Type", "application/json")
+                .POST(body != null
+                        ? HttpRequest.BodyPublishers.ofString(gson.toJson(body), StandardCharsets.UTF_8)
+                        : HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    /* ---------------------------------------------------
+     * Gửi request bất đồng bộ, body 2xx decode streaming sang kiểu type
+     * (Void.class = bỏ qua body). Body lỗi giữ nguyên dạng String để lấy message
+     * @param request HttpRequest
+     * @param type Kiểu kết quả
+     * @returns CompletableFuture<ApiResponse<T>>; lỗi mạng/timeout = complete exceptionally (IOException)
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public <T> CompletableFuture<ApiResponse<T>> send(HttpRequest request, Type type) {
+        // Decode đọc chặn InputStream -> chạy trên decodeExecutor, ioExecutor chỉ lo nhận byte
+        CompletableFuture<ApiResponse<T>> decoded = httpClient.sendAsync(request, this.<T>jsonHandler(type))
+                .thenApplyAsync(response -> response.body().get(), decodeExecutor);
+        return decoded.exceptionallyCompose(ApiTransport::unwrapUncheckedIo);
+    }
+
+    /* ---------------------------------------------------
+     * GET JSON, gộp các request giống hệt nhau đang chạy thành 1
+     * Mỗi caller nhận 1 future riêng (cancel không ảnh hưởng caller khác),
+     * nhưng object kết quả là dùng chung - caller không nên sửa trực tiếp
+     * @param path Đường dẫn endpoint
+     * @param authToken JWT token
+     * @param type Kiểu kết quả
+     * @param timeout Timeout của endpoint
+     * @returns CompletableFuture<ApiResponse<T>>
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<ApiResponse<T>> getJson(String path, String authToken, Type type, Duration timeout) {
+        String key = path + '|' + authToken + '|' + type.getTypeName();
+        CompletableFuture<ApiResponse<T>> promise = new CompletableFuture<>();
+        CompletableFuture<?> existing = inFlightGets.putIfAbsent(key, promise);
+        if (existing != null) {
+            logger.debug("Coalesced GET {}", path);
+            return ((CompletableFuture<ApiResponse<T>>) existing).copy();
+        }
+
+        HttpRequest request = newRequest(path, authToken, timeout).GET().build();
+        this.<T>send(request, type).whenComplete((response, error) -> {
+            inFlightGets.remove(key, promise);
+            if (error != null) {
+                promise.completeExceptionally(error);
+            } else {
+                promise.complete(response);
+            }
+        });
+        return promise.copy();
+    }
+
+    private <T> HttpResponse.BodyHandler<Supplier<ApiResponse<T>>> jsonHandler(Type type) {
+        return responseInfo -> {
+            int status = responseInfo.statusCode();
+            if (status < 200 || status >= 300) {
+                return HttpResponse.BodySubscribers.mapping(
+                        HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                        body -> () -> new ApiResponse<>(status, null, body));
+            }
+            if (type == Void.class) {
+                return HttpResponse.BodySubscribers.mapping(
+                        HttpResponse.BodySubscribers.discarding(),
+                        ignored -> () -> new ApiResponse<>(status, null, null));
+            }
+            // Supplier: đọc InputStream khi thenApplyAsync gọi get(), không block trong mapper
+            return HttpResponse.BodySubscribers.mapping(
+                    HttpResponse.BodySubscribers.ofInputStream(),
+                    in -> () -> new ApiResponse<>(status, decode(in, type), null));
+        };
+    }
+
+    private <T> T decode(InputStream in, Type type) {
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (JsonParseException e) {
+            throw new UncheckedIOException(new IOException("Invalid JSON response: " + e.getMessage(), e));
+        }
+    }
+
+    private static ThreadFactory namedDaemon(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static <T> CompletableFuture<T> unwrapUncheckedIo(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof java.util.concurrent.CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UncheckedIOException unchecked) {
+            cause = unchecked.getCause();
+        }
+        return CompletableFuture.failedFuture(cause);
+    }
+
+    /* ---------------------------------------------------
+     * Kết quả HTTP: status + body đã decode (2xx) hoặc body lỗi dạng String
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public class ApiResponse<T> {
+        private final int statusCode;
+        private final T body;
+        private final String errorBody;
+
+        ApiResponse(int statusCode, T body, String errorBody) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.errorBody = errorBody;
+        }
+
+        public int statusCode() {
+            return statusCode;
+        }
+
+        public T body() {
+            return body;
+        }
+
+        public String errorBody() {
+            return errorBody;
+        }
+
+        public boolean isSuccess() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+
+        /* Field "message" trong body lỗi (null nếu không parse được) */
+        public String errorMessage() {
+            if (errorBody == null || errorBody.isBlank()) {
+                return null;
+            }
+            try {
+                Map<String, Object> map = gson.fromJson(errorBody, new TypeToken<Map<String, Object>>(){}.getType());
+                Object message = map != null ? map.get("message") : null;
+                return message != null ? message.toString() : null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Gson TypeAdapter cho LocalDateTime
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    private static class LocalDateTimeAdapter extends com.google.gson.TypeAdapter<LocalDateTime> {
+        private final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+        @Override
+        public void write(com.google.gson.stream.JsonWriter out, LocalDateTime value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                out.value(formatter.format(value));
+            }
+        }
+
+        @Override
+        public LocalDateTime read(com.google.gson.stream.JsonReader in) throws IOException {
+            if (in.peek() == com.google.gson.stream.JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return LocalDateTime.parse(in.nextString(), formatter);
+        }
+    }
+}
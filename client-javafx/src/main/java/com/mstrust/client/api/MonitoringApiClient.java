@@ -1,56 +1,39 @@
 package com.mstrust.client.api;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.mstrust.client.config.AppConfig;
 import com.mstrust.client.dto.ActivityLogRequest;
 import com.mstrust.client.dto.AlertCreateRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
 
 /* ---------------------------------------------------
  * Client API để giao tiếp với backend monitoring endpoints
- * Sử dụng Java 11+ HttpClient
+ * Dùng HttpClient chung của ApiTransport (1 connection pool cho cả ứng dụng)
  * @author: K24DTCN210-NVMANH (21/11/2025 10:43)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Bỏ HttpClient riêng, timeout theo endpoint
  * --------------------------------------------------- */
 public class MonitoringApiClient {
     private static final Logger logger = LoggerFactory.getLogger(MonitoringApiClient.class);
     
+    private final ApiTransport transport;
     private final HttpClient httpClient;
-    private final Gson gson;
-    private final String baseUrl;
     private String authToken;
 
     /* ---------------------------------------------------
-     * Constructor - khởi tạo HTTP client và Gson
+     * Constructor - dùng ApiTransport chung của ứng dụng
      * @author: K24DTCN210-NVMANH (21/11/2025 10:43)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Không tự tạo HttpClient riêng nữa
      * --------------------------------------------------- */
     public MonitoringApiClient() {
-        AppConfig config = AppConfig.getInstance();
+        this.transport = ApiTransport.getInstance();
+        this.httpClient = transport.getHttpClient();
         
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(config.getApiTimeoutSeconds()))
-                .build();
-        
-        this.gson = new GsonBuilder()
-                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                .create();
-        
-        this.baseUrl = config.getApiBaseUrl();
-        
-        logger.info("MonitoringApiClient initialized with baseUrl: {}", baseUrl);
+        logger.info("MonitoringApiClient initialized with baseUrl: {}", transport.getBaseUrl());
     }
 
     /* ---------------------------------------------------
@@ -74,57 +57,34 @@ public class MonitoringApiClient {
      * --------------------------------------------------- */
     public boolean uploadScreenshot(Path imagePath, Long submissionId, 
                                    String screenResolution, String windowTitle) {
+        return uploadScreenshot(imagePath, submissionId, screenResolution, windowTitle, null);
+    }
+
+    /* ---------------------------------------------------
+     * Upload screenshot kèm metadata (JSON, vd perceptual hash của frame)
+     * @param imagePath Đường dẫn file ảnh
+     * @param submissionId ID bài làm
+     * @param screenResolution Độ phân giải màn hình
+     * @param windowTitle Tiêu đề cửa sổ active
+     * @param metadata Metadata JSON (nullable)
+     * @returns true nếu thành công
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:40)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 09:30) - Body multipart stream từ file (MultipartBodyPublisher)
+     * --------------------------------------------------- */
+    public boolean uploadScreenshot(Path imagePath, Long submissionId, 
+                                   String screenResolution, String windowTitle, String metadata) {
         try {
-            byte[] imageBytes = Files.readAllBytes(imagePath);
-            
-            String boundary = "----" + UUID.randomUUID().toString().replace("-", "");
-            
-            StringBuilder bodyBuilder = new StringBuilder();
-            
-            // Add file part
-            bodyBuilder.append("--").append(boundary).append("\r\n");
-            bodyBuilder.append("Content-Disposition: form-data; name=\"file\"; filename=\"")
-                    .append(imagePath.getFileName()).append("\"\r\n");
-            bodyBuilder.append("Content-Type: image/jpeg\r\n\r\n");
-            
-            String bodyStart = bodyBuilder.toString();
-            
-            // Add other form fields
-            StringBuilder bodyEnd = new StringBuilder();
-            bodyEnd.append("\r\n");
-            
-            bodyEnd.append("--").append(boundary).append("\r\n");
-            bodyEnd.append("Content-Disposition: form-data; name=\"submissionId\"\r\n\r\n");
-            bodyEnd.append(submissionId).append("\r\n");
-            
-            if (screenResolution != null) {
-                bodyEnd.append("--").append(boundary).append("\r\n");
-                bodyEnd.append("Content-Disposition: form-data; name=\"screenResolution\"\r\n\r\n");
-                bodyEnd.append(screenResolution).append("\r\n");
-            }
-            
-            if (windowTitle != null) {
-                bodyEnd.append("--").append(boundary).append("\r\n");
-                bodyEnd.append("Content-Disposition: form-data; name=\"windowTitle\"\r\n\r\n");
-                bodyEnd.append(windowTitle).append("\r\n");
-            }
-            
-            bodyEnd.append("--").append(boundary).append("--\r\n");
-            
-            // Combine parts
-            byte[] bodyStartBytes = bodyStart.getBytes();
-            byte[] bodyEndBytes = bodyEnd.toString().getBytes();
-            byte[] body = new byte[bodyStartBytes.length + imageBytes.length + bodyEndBytes.length];
-            
-            System.arraycopy(bodyStartBytes, 0, body, 0, bodyStartBytes.length);
-            System.arraycopy(imageBytes, 0, body, bodyStartBytes.length, imageBytes.length);
-            System.arraycopy(bodyEndBytes, 0, body, bodyStartBytes.length + imageBytes.length, bodyEndBytes.length);
-            
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(baseUrl + "/api/monitoring/screenshots"))
-                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-                    .header("Authorization", "Bearer " + authToken)
-                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            // Ảnh được stream từ file tạm, không đọc cả file vào heap
+            MultipartBodyPublisher body = new MultipartBodyPublisher()
+                    .addFile("file", imagePath, "image/jpeg")
+                    .addField("submissionId", submissionId)
+                    .addField("screenResolution", screenResolution)
+                    .addField("windowTitle", windowTitle)
+                    .addField("metadata", metadata);
+            
+            HttpRequest request = transport.newRequest("/api/monitoring/screenshots", authToken, transport.uploadTimeout())
+                    .header("Content-Type", body.getContentType())
+                    .POST(body.build())
                     .build();
             
             HttpResponse<String> response = httpClient.send(request, 
@@ -153,20 +113,14 @@ public class MonitoringApiClient {
      * --------------------------------------------------- */
     public boolean logActivities(ActivityLogRequest request) {
         try {
-            String jsonBody = gson.toJson(request);
-            
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseUrl + "/api/monitoring/activities"))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + authToken)
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                    .build();
+            HttpRequest httpRequest = transport.postJson("/api/monitoring/activities", authToken, request,
+                    transport.defaultTimeout());
             
             HttpResponse<String> response = httpClient.send(httpRequest, 
                     HttpResponse.BodyHandlers.ofString());
             
-            // Backend returns 201 (CREATED) for successful activity log
-            if (response.statusCode() == 201 || response.statusCode() == 200) {
+            // Backend returns 202 (ACCEPTED) - activities được ghi bất đồng bộ; 429 = hàng đợi đầy, giữ lại gửi sau
+            if (response.statusCode() == 202 || response.statusCode() == 201 || response.statusCode() == 200) {
                 logger.info("Activities logged successfully. Count: {}", 
                         request.getActivities().size());
                 return true;
@@ -190,14 +144,8 @@ public class MonitoringApiClient {
      * --------------------------------------------------- */
     public boolean createAlert(AlertCreateRequest request) {
         try {
-            String jsonBody = gson.toJson(request);
-            
-            HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseUrl + "/api/monitoring/alerts"))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + authToken)
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                    .build();
+            HttpRequest httpRequest = transport.postJson("/api/monitoring/alerts", authToken, request,
+                    transport.defaultTimeout());
             
             HttpResponse<String> response = httpClient.send(httpRequest, 
                     HttpResponse.BodyHandlers.ofString());
@@ -225,8 +173,7 @@ public class MonitoringApiClient {
      * --------------------------------------------------- */
     public boolean testConnection() {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(baseUrl + "/api/health"))
+            HttpRequest request = transport.newRequest("/api/health", null, transport.healthTimeout())
                     .GET()
                     .build();
             
@@ -242,30 +189,4 @@ public class MonitoringApiClient {
             return false;
         }
     }
-
-    /* ---------------------------------------------------
-     * Gson TypeAdapter cho LocalDateTime
-     * @author: K24DTCN210-NVMANH (21/11/2025 10:43)
-     * --------------------------------------------------- */
-    private static class LocalDateTimeAdapter extends com.google.gson.TypeAdapter<LocalDateTime> {
-        private final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-
-        @Override
-        public void write(com.google.gson.stream.JsonWriter out, LocalDateTime value) throws IOException {
-            if (value == null) {
-                out.nullValue();
-            } else {
-                out.value(formatter.format(value));
-            }
-        }
-
-        @Override
-        public LocalDateTime read(com.google.gson.stream.JsonReader in) throws IOException {
-            if (in.peek() == com.google.gson.stream.JsonToken.NULL) {
-                in.nextNull();
-                return null;
-            }
-            return LocalDateTime.parse(in.nextString(), formatter);
-        }
-    }
 }
@@ -0,0 +1,102 @@
+package com.mstrust.client.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/* ---------------------------------------------------
+ * Dựng body multipart/form-data dạng stream cho java.net.http
+ * - Header/field text được encode UTF-8 thành các đoạn byte nhỏ, file được đọc dần từ đĩa
+ *   (BodyPublishers.ofFile) nên không bao giờ giữ cả ảnh trong heap
+ * - Content-Length được tính chính xác trước khi gửi (tổng các đoạn text + kích thước file)
+ * - Mỗi instance dùng cho 1 request
+ * @author: K24DTCN210-NVMANH (18/10/2026 09:30)
+ * --------------------------------------------------- */
+public class MultipartBodyPublisher {
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.UTF_8);
+
+    private final String boundary = "----" + UUID.randomUUID().toString().replace("-", "");
+    private final List<HttpRequest.BodyPublisher> parts = new ArrayList<>();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long contentLength;
+
+    /* ---------------------------------------------------
+     * Thêm field text (bỏ qua nếu value null)
+     * @param name Tên field
+     * @param value Giá trị
+     * @returns this
+     * @author: K24DTCN210-NVMANH (18/10/2026 09:30)
+     * --------------------------------------------------- */
+    public MultipartBodyPublisher addField(String name, Object value) {
+        if (value == null) {
+            return this;
+        }
+        writeText("--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+            + value);
+        pending.writeBytes(CRLF);
+        return this;
+    }
+
+    /* ---------------------------------------------------
+     * Thêm file part, nội dung được stream từ đĩa lúc gửi
+     * @param name Tên field
+     * @param file Đường dẫn file (phải còn tồn tại cho tới khi request gửi xong)
+     * @param contentType Content-Type của part
+     * @returns this
+     * @throws IOException nếu file không tồn tại
+     * @author: K24DTCN210-NVMANH (18/10/2026 09:30)
+     * --------------------------------------------------- */
+    public MultipartBodyPublisher addFile(String name, Path file, String contentType) throws IOException {
+        writeText("--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + file.getFileName() + "\"\r\n"
+            + "Content-Type: " + contentType + "\r\n\r\n");
+        flushPending();
+
+        HttpRequest.BodyPublisher filePart = HttpRequest.BodyPublishers.ofFile(file);
+        parts.add(filePart);
+        contentLength += filePart.contentLength();
+
+        pending.writeBytes(CRLF);
+        return this;
+    }
+
+    /* Giá trị cho header Content-Type */
+    public String getContentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    /* ---------------------------------------------------
+     * Đóng body (boundary kết thúc) và tạo BodyPublisher với Content-Length đã biết
+     * @returns BodyPublisher để truyền vào HttpRequest.Builder.POST
+     * @author: K24DTCN210-NVMANH (18/10/2026 09:30)
+     * --------------------------------------------------- */
+    public HttpRequest.BodyPublisher build() {
+        writeText("--" + boundary + "--\r\n");
+        flushPending();
+
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.concat(
+            parts.toArray(new HttpRequest.BodyPublisher[0]));
+        return HttpRequest.BodyPublishers.fromPublisher(body, contentLength);
+    }
+
+    private void writeText(String text) {
+        pending.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void flushPending() {
+        if (pending.size() == 0) {
+            return;
+        }
+        byte[] bytes = pending.toByteArray();
+        pending.reset();
+        parts.add(HttpRequest.BodyPublishers.ofByteArray(bytes));
+        contentLength += bytes.length;
+    }
+}
@@ -14,6 +14,9 @@ import java.util.Properties;
  * Quản lý cấu hình ứng dụng từ config.properties
  * Singleton pattern để truy cập global
  * @author: K24DTCN210-NVMANH (21/11/2025 10:36)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 13:40) - Thêm cấu hình dedup screenshot
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Thêm timeout theo loại endpoint cho ApiTransport
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 11:00) - Thêm cấu hình encoder screenshot thích ứng
  * --------------------------------------------------- */
 @Getter
 public class AppConfig {
@@ -23,6 +26,9 @@ public class AppConfig {
     // API Configuration
     private final String apiBaseUrl;
     private final int apiTimeoutSeconds;
+    private final int apiHealthTimeoutSeconds;
+    private final int apiSaveTimeoutSeconds;
+    private final int apiUploadTimeoutSeconds;
     
     // Monitoring Configuration
     private final int screenshotIntervalSeconds;
@@ -30,6 +36,12 @@ public class AppConfig {
     private final int screenshotMaxWidth;
     private final int screenshotMaxHeight;
     private final double screenshotJpegQuality;
+    private final boolean screenshotDedupEnabled;
+    private final int screenshotDedupThreshold;
+    private final int screenshotDedupMaxSkips;
+    private final int screenshotTargetKb;
+    private final double screenshotMinQuality;
+    private final long screenshotUploadSlowMillis;
     
     // Alert Thresholds
     private final int alertWindowSwitchThreshold;
@@ -71,6 +83,12 @@ public class AppConfig {
         this.apiBaseUrl = props.getProperty("api.base.url", "http://localhost:8080");
         this.apiTimeoutSeconds = Integer.parseInt(
             props.getProperty("api.timeout.seconds", "30"));
+        this.apiHealthTimeoutSeconds = Integer.parseInt(
+            props.getProperty("api.timeout.health.seconds", "5"));
+        this.apiSaveTimeoutSeconds = Integer.parseInt(
+            props.getProperty("api.timeout.save.seconds", "10"));
+        this.apiUploadTimeoutSeconds = Integer.parseInt(
+            props.getProperty("api.timeout.upload.seconds", "60"));
         
         // Load Monitoring Configuration
         this.screenshotIntervalSeconds = Integer.parseInt(
@@ -83,6 +101,18 @@ public class AppConfig {
             props.getProperty("monitoring.screenshot.max.height", "1080"));
         this.screenshotJpegQuality = Double.parseDouble(
             props.getProperty("monitoring.screenshot.jpeg.quality", "0.7"));
+        this.screenshotDedupEnabled = Boolean.parseBoolean(
+            props.getProperty("monitoring.screenshot.dedup.enabled", "true"));
+        this.screenshotDedupThreshold = Integer.parseInt(
+            props.getProperty("monitoring.screenshot.dedup.threshold", "6"));
+        this.screenshotDedupMaxSkips = Integer.parseInt(
+            props.getProperty("monitoring.screenshot.dedup.max.skips", "10"));
+        this.screenshotTargetKb = Integer.parseInt(
+            props.getProperty("monitoring.screenshot.target.kb", "150"));
+        this.screenshotMinQuality = Double.parseDouble(
+            props.getProperty("monitoring.screenshot.min.quality", "0.4"));
+        this.screenshotUploadSlowMillis = Long.parseLong(
+            props.getProperty("monitoring.screenshot.upload.slow.ms", "5000"));
         
         // Load Alert Thresholds
         this.alertWindowSwitchThreshold = Integer.parseInt(
@@ -166,9 +196,10 @@ public class AppConfig {
      * Get API timeout in seconds
      * @return API timeout seconds
      * @author: K24DTCN210-NVMANH (02/12/2025 00:30)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Đọc từ api.timeout.seconds thay vì hardcode
      * --------------------------------------------------- */
     public int getApiTimeoutSeconds() {
-        return 30; // Default 30 seconds
+        return apiTimeoutSeconds;
     }
     
     /* ---------------------------------------------------
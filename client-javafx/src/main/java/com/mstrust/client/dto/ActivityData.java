@@ -82,6 +82,21 @@ public class ActivityData {
         return data;
     }
     
+    /* ---------------------------------------------------
+     * Tạo ActivityData cho lần chụp màn hình không đổi (không upload ảnh)
+     * @param phash Perceptual hash của frame đã upload trước đó
+     * @param distance Khoảng cách Hamming so với frame đó
+     * @returns ActivityData instance
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:40)
+     * --------------------------------------------------- */
+    public static ActivityData screenshotUnchanged(String phash, int distance) {
+        ActivityData data = new ActivityData();
+        data.setActivityType(ActivityType.SCREENSHOT_UNCHANGED);
+        data.setDetails("{\"phash\":\"" + phash + "\",\"distance\":" + distance + "}");
+        data.setTimestamp(LocalDateTime.now());
+        return data;
+    }
+    
     // Manual getters/setters (backup for Lombok issues)
     public ActivityType getActivityType() { return activityType; }
     public void setActivityType(ActivityType activityType) { this.activityType = activityType; }
@@ -4,10 +4,12 @@ package com.mstrust.client.dto;
  * Enum định nghĩa các loại hoạt động giám sát
  * Mirror từ backend: com.mstrust.exam.entity.ActivityType
  * @author: K24DTCN210-NVMANH (21/11/2025 10:37)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 13:40) - Thêm SCREENSHOT_UNCHANGED
  * --------------------------------------------------- */
 public enum ActivityType {
     WINDOW_FOCUS,      // Chuyển cửa sổ (Alt+Tab)
     PROCESS_DETECTED,  // Phát hiện process đáng ngờ
     CLIPBOARD,         // Thao tác clipboard (Copy/Paste)
-    KEYSTROKE          // Phân tích keystroke pattern
+    KEYSTROKE,         // Phân tích keystroke pattern
+    SCREENSHOT_UNCHANGED // Màn hình không đổi, bỏ qua upload screenshot
 }
@@ -1,14 +1,16 @@
 package com.mstrust.client.exam.api;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
-import com.mstrust.client.config.AppConfig;
+import com.mstrust.client.api.ApiTransport;
+import com.mstrust.client.api.ApiTransport.ApiResponse;
 import com.mstrust.client.exam.dto.ExamInfoDTO;
 import com.mstrust.client.exam.dto.AvailableExamDTO;
 import com.mstrust.client.exam.dto.LoginResponse;
 import com.mstrust.client.exam.dto.QuestionDTO;
 import com.mstrust.client.exam.dto.SaveAnswerRequest;
+import com.mstrust.client.exam.dto.SaveAnswersBatchRequest;
+import com.mstrust.client.exam.dto.SaveAnswersBatchResponse;
 import com.mstrust.client.exam.dto.StartExamResponse;
 import com.mstrust.client.exam.exception.ExamTimeExpiredException;
 import org.slf4j.Logger;
@@ -16,48 +18,40 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import java.util.Map;
 
 /* ---------------------------------------------------
  * API Client cho Exam Taking APIs
  * - Quản lý HTTP requests tới backend exam endpoints
- * - Sử dụng Java 11+ HttpClient
+ * - Mỗi endpoint có bản xxxAsync (CompletableFuture) chạy trên ApiTransport dùng chung;
+ *   bản blocking cũ giữ nguyên signature, chỉ chờ kết quả của bản async
  * @author: K24DTCN210-NVMANH (23/11/2025 11:59)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Chuyển sang ApiTransport (sendAsync, decode streaming)
  * --------------------------------------------------- */
 public class ExamApiClient {
     private static final Logger logger = LoggerFactory.getLogger(ExamApiClient.class);
     
-    private final HttpClient httpClient;
+    private final ApiTransport transport;
     private final Gson gson;
     private final String baseUrl;
     private String authToken;
 
     /* ---------------------------------------------------
-     * Constructor - khởi tạo HTTP client và Gson
+     * Constructor - dùng ApiTransport chung của ứng dụng
      * @author: K24DTCN210-NVMANH (23/11/2025 11:59)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Không tự tạo HttpClient riêng nữa
      * --------------------------------------------------- */
     public ExamApiClient() {
-        AppConfig config = AppConfig.getInstance();
-        
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(config.getApiTimeoutSeconds()))
-                .build();
-        
-        this.gson = new GsonBuilder()
-                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                .create();
-        
-        this.baseUrl = config.getApiBaseUrl();
+        this.transport = ApiTransport.getInstance();
+        this.gson = transport.getGson();
+        this.baseUrl = transport.getBaseUrl();
         
         logger.info("ExamApiClient initialized with baseUrl: {}", baseUrl);
     }
@@ -145,65 +139,70 @@ public class ExamApiClient {
      * @returns LoginResponse chứa token và user info
      * @author: K24DTCN210-NVMANH (24/11/2025 08:03)
      * EditBy: K24DTCN210-NVMANH (25/11/2025 21:43) - Return LoginResponse with role
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Chờ kết quả của loginAsync
      * --------------------------------------------------- */
     public LoginResponse login(String email, String password) throws IOException, InterruptedException {
+        return await(loginAsync(email, password));
+    }
+
+    /* ---------------------------------------------------
+     * Login authentication (bất đồng bộ)
+     * @param email Email của user
+     * @param password Password
+     * @returns CompletableFuture<LoginResponse>; lỗi = IOException
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public CompletableFuture<LoginResponse> loginAsync(String email, String password) {
         Map<String, String> requestBody = new HashMap<>();
         requestBody.put("username", email); // Backend yêu cầu field "username" thay vì "email"
         requestBody.put("password", password);
         
-        String jsonBody = gson.toJson(requestBody);
-        
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/api/auth/login"))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, 
-                HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() == 200) {
-            Map<String, Object> responseMap = gson.fromJson(response.body(), 
-                    new TypeToken<Map<String, Object>>(){}.getType());
-            String token = (String) responseMap.get("token");
-            this.authToken = token;
-            
-            // Decode JWT to get role
-            String role = decodeJwtRole(token);
-            
-            // Extract user info
-            String userName = email.split("@")[0]; // Default fallback
-            String studentCode = "";
-            
-            try {
-                if (responseMap.containsKey("user")) {
-                    Object userObj = responseMap.get("user");
-                    if (userObj instanceof Map) {
-                        Map<?, ?> userMap = (Map<?, ?>) userObj;
-                        if (userMap.containsKey("fullName")) {
-                            userName = (String) userMap.get("fullName");
-                        }
-                        if (userMap.containsKey("studentCode")) {
-                            studentCode = (String) userMap.get("studentCode");
-                        }
-                        // Override email if available
-                        if (userMap.containsKey("email")) {
-                            email = (String) userMap.get("email");
+        Type mapType = new TypeToken<Map<String, Object>>(){}.getType();
+        return transport.<Map<String, Object>>send(
+                transport.postJson("/api/auth/login", null, requestBody, transport.defaultTimeout()), mapType)
+            .thenApply(response -> {
+                if (!response.isSuccess()) {
+                    logger.error("Login failed. Status: {}, Body: {}", 
+                            response.statusCode(), response.errorBody());
+                    throw failure("Login failed: " + response.statusCode());
+                }
+                Map<String, Object> responseMap = response.body();
+                String token = (String) responseMap.get("token");
+                this.authToken = token;
+                
+                // Decode JWT to get role
+                String role = decodeJwtRole(token);
+                
+                // Extract user info
+                String userEmail = email;
+                String userName = email.split("@")[0]; // Default fallback
+                String studentCode = "";
+                
+                try {
+                    if (responseMap.containsKey("user")) {
+                        Object userObj = responseMap.get("user");
+                        if (userObj instanceof Map) {
+                            Map<?, ?> userMap = (Map<?, ?>) userObj;
+                            if (userMap.containsKey("fullName")) {
+                                userName = (String) userMap.get("fullName");
+                            }
+                            if (userMap.containsKey("studentCode")) {
+                                studentCode = (String) userMap.get("studentCode");
+                            }
+                            // Override email if available
+                            if (userMap.containsKey("email")) {
+                                userEmail = (String) userMap.get("email");
+                            }
                         }
                     }
+                } catch (Exception e) {
+                    logger.warn("Failed to extract user details from login response", e);
                 }
-            } catch (Exception e) {
-                logger.warn("Failed to extract user details from login response", e);
-            }
-            
-            logger.info("Login successful for email: {} with role: {}, name: {}", email, role, userName);
-            
-            return new LoginResponse(token, userName, email, studentCode, role);
-        } else {
-            logger.error("Login failed. Status: {}, Body: {}", 
-                    response.statusCode(), response.body());
-            throw new IOException("Login failed: " + response.statusCode());
-        }
+                
+                logger.info("Login successful for email: {} with role: {}, name: {}", userEmail, role, userName);
+                
+                return new LoginResponse(token, userName, userEmail, studentCode, role);
+            });
     }
     
     /* ---------------------------------------------------
@@ -288,34 +287,35 @@ public class ExamApiClient {
      * GET /api/exam-taking/available
      * @returns List<ExamInfoDTO> danh sách đề thi
      * @author: K24DTCN210-NVMANH (23/11/2025 11:59)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Chờ kết quả của getAvailableExamsAsync
      * --------------------------------------------------- */
     public List<ExamInfoDTO> getAvailableExams() throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/api/exam-taking/available"))
-                .header("Authorization", "Bearer " + authToken)
-                .GET()
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, 
-                HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() == 200) {
-            // Backend trả về AvailableExamDTO, cần convert sang ExamInfoDTO
-            Type listType = new TypeToken<List<AvailableExamDTO>>(){}.getType();
-            List<AvailableExamDTO> availableExams = gson.fromJson(response.body(), listType);
-            
-            // Convert sang ExamInfoDTO
-            List<ExamInfoDTO> exams = availableExams.stream()
-                .map(this::convertToExamInfoDTO)
-                .collect(java.util.stream.Collectors.toList());
-            
-            logger.info("Retrieved {} available exams", exams.size());
-            return exams;
-        } else {
-            logger.error("Failed to get available exams. Status: {}, Body: {}", 
-                    response.statusCode(), response.body());
-            throw new IOException("Failed to get available exams: " + response.statusCode());
-        }
+        return await(getAvailableExamsAsync());
+    }
+
+    /* ---------------------------------------------------
+     * Lấy danh sách đề thi available (bất đồng bộ, GET trùng nhau được gộp)
+     * @returns CompletableFuture<List<ExamInfoDTO>>; lỗi = IOException
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public CompletableFuture<List<ExamInfoDTO>> getAvailableExamsAsync() {
+        Type listType = new TypeToken<List<AvailableExamDTO>>(){}.getType();
+        return transport.<List<AvailableExamDTO>>getJson("/api/exam-taking/available", authToken, listType,
+                transport.defaultTimeout())
+            .thenApply(response -> {
+                if (!response.isSuccess()) {
+                    logger.error("Failed to get available exams. Status: {}, Body: {}", 
+                            response.statusCode(), response.errorBody());
+                    throw failure("Failed to get available exams: " + response.statusCode());
+                }
+                // Backend trả về AvailableExamDTO, convert sang ExamInfoDTO (object mới cho mỗi caller)
+                List<ExamInfoDTO> exams = response.body().stream()
+                    .map(this::convertToExamInfoDTO)
+                    .collect(Collectors.toList());
+                
+                logger.info("Retrieved {} available exams", exams.size());
+                return exams;
+            });
     }
 
     /* ---------------------------------------------------
@@ -323,28 +323,30 @@ public class ExamApiClient {
      * GET /api/exam-taking/subjects
      * @returns List<Map<String, String>> với subjectCode và subjectName
      * @author: K24DTCN210-NVMANH (03/12/2025 16:55)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Chờ kết quả của getAvailableSubjectsAsync
      * --------------------------------------------------- */
     public List<Map<String, String>> getAvailableSubjects() throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/api/exam-taking/subjects"))
-                .header("Authorization", "Bearer " + authToken)
-                .GET()
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, 
-                HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() == 200) {
-            Type listType = new TypeToken<List<Map<String, String>>>(){}.getType();
-            List<Map<String, String>> subjects = gson.fromJson(response.body(), listType);
-            
-            logger.info("Retrieved {} available subjects", subjects.size());
-            return subjects;
-        } else {
-            logger.error("Failed to get available subjects. Status: {}, Body: {}", 
-                    response.statusCode(), response.body());
-            throw new IOException("Failed to get available subjects: " + response.statusCode());
-        }
+        return await(getAvailableSubjectsAsync());
+    }
+
+    /* ---------------------------------------------------
+     * Lấy danh sách môn học (bất đồng bộ, GET trùng nhau được gộp)
+     * @returns CompletableFuture<List<Map<String, String>>>; lỗi = IOException
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public CompletableFuture<List<Map<String, String>>> getAvailableSubjectsAsync() {
+        Type listType = new TypeToken<List<Map<String, String>>>(){}.getType();
+        return transport.<List<Map<String, String>>>getJson("/api/exam-taking/subjects", authToken, listType,
+                transport.defaultTimeout())
+            .thenApply(response -> {
+                if (!response.isSuccess()) {
+                    logger.error("Failed to get available subjects. Status: {}, Body: {}", 
+                            response.statusCode(), response.errorBody());
+                    throw failure("Failed to get available subjects: " + response.statusCode());
+                }
+                logger.info("Retrieved {} available subjects", response.body().size());
+                return response.body();
+            });
     }
 
     /* ---------------------------------------------------
@@ -355,41 +357,36 @@ public class ExamApiClient {
      * @throws ExamStartException nếu có lỗi từ backend (chứa error message)
      * @author: K24DTCN210-NVMANH (23/11/2025 11:59)
      * EditBy: K24DTCN210-NVMANH (24/11/2025 11:50) - Improved error handling
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Chờ kết quả của startExamAsync
      * --------------------------------------------------- */
     public StartExamResponse startExam(Long examId) throws IOException, InterruptedException, ExamStartException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/api/exam-taking/start/" + examId))
-                .header("Authorization", "Bearer " + authToken)
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.noBody())
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, 
-                HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() == 200) {
-            StartExamResponse result = gson.fromJson(response.body(), StartExamResponse.class);
-            logger.info("Started exam {}. SubmissionId: {}", examId, result.getSubmissionId());
-            return result;
-        } else {
-            // Parse error message from response body
-            String errorMessage = "Không thể bắt đầu bài thi";
-            try {
-                Map<String, Object> errorBody = gson.fromJson(response.body(), 
-                        new TypeToken<Map<String, Object>>(){}.getType());
-                if (errorBody != null && errorBody.containsKey("message")) {
-                    errorMessage = (String) errorBody.get("message");
+        return await(startExamAsync(examId), ExamStartException.class);
+    }
+
+    /* ---------------------------------------------------
+     * Bắt đầu làm bài thi (bất đồng bộ)
+     * @param examId ID của đề thi
+     * @returns CompletableFuture<StartExamResponse>; lỗi = ExamStartException / IOException
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public CompletableFuture<StartExamResponse> startExamAsync(Long examId) {
+        return transport.<StartExamResponse>send(
+                transport.postJson("/api/exam-taking/start/" + examId, authToken, null, transport.defaultTimeout()),
+                StartExamResponse.class)
+            .thenApply(response -> {
+                if (!response.isSuccess()) {
+                    // Parse error message from response body
+                    String errorMessage = response.errorMessage();
+                    if (errorMessage == null) {
+                        errorMessage = "Lỗi HTTP " + response.statusCode();
+                    }
+                    logger.error("Failed to start exam. Status: {}, Body: {}", 
+                            response.statusCode(), response.errorBody());
+                    throw new CompletionException(new ExamStartException(errorMessage, response.statusCode()));
                 }
-            } catch (Exception e) {
-                // If can't parse, use status code
-                errorMessage = "Lỗi HTTP " + response.statusCode();
-            }
-            
-            logger.error("Failed to start exam. Status: {}, Body: {}", 
-                    response.statusCode(), response.body());
-            
-            throw new ExamStartException(errorMessage, response.statusCode());
-        }
+                logger.info("Started exam {}. SubmissionId: {}", examId, response.body().getSubmissionId());
+                return response.body();
+            });
     }
 
     /* ---------------------------------------------------
@@ -410,25 +407,18 @@ public class ExamApiClient {
         requestBody.put("answerText", answerText);
         requestBody.put("isAutoSave", isAutoSave);
         
-        String jsonBody = gson.toJson(requestBody);
-        
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/api/exam-taking/save-answer/" + submissionId))
-                .header("Authorization", "Bearer " + authToken)
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, 
-                HttpResponse.BodyHandlers.ofString());
+        ApiResponse<Void> response = await(transport.send(
+                transport.postJson("/api/exam-taking/save-answer/" + submissionId, authToken, requestBody,
+                        transport.saveTimeout()),
+                Void.class));
         
-        if (response.statusCode() == 200) {
+        if (response.isSuccess()) {
             logger.debug("Saved answer for question {} (autoSave: {})", 
                     questionId, isAutoSave);
             return true;
         } else {
             logger.error("Failed to save answer. Status: {}, Body: {}", 
-                    response.statusCode(), response.body());
+                    response.statusCode(), response.errorBody());
             return false;
         }
     }
@@ -440,53 +430,96 @@ public class ExamApiClient {
      * @param request SaveAnswerRequest object
      * @author: K24DTCN210-NVMANH (23/11/2025 13:51)
      * EditBy: K24DTCN210-NVMANH (24/11/2025 15:26) - Added detailed logging
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Chờ kết quả của saveAnswerAsync
      * --------------------------------------------------- */
     public void saveAnswer(Long submissionId, SaveAnswerRequest request) 
                           throws IOException, InterruptedException, ExamTimeExpiredException {
-        String jsonBody = gson.toJson(request);
-        
+        await(saveAnswerAsync(submissionId, request), ExamTimeExpiredException.class);
+    }
+
+    /* ---------------------------------------------------
+     * Lưu câu trả lời (bất đồng bộ)
+     * @param submissionId ID của submission
+     * @param request SaveAnswerRequest object
+     * @returns CompletableFuture<Void>; lỗi = ExamTimeExpiredException / IOException
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public CompletableFuture<Void> saveAnswerAsync(Long submissionId, SaveAnswerRequest request) {
         logger.info("[API] Saving answer - SubmissionId: {}, QuestionId: {}, AutoSave: {}", 
             submissionId, request.getQuestionId(), request.getIsAutoSave());
-        logger.debug("[API] Request body: {}", jsonBody);
-        
-        HttpRequest httpRequest = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/api/exam-taking/save-answer/" + submissionId))
-                .header("Authorization", "Bearer " + authToken)
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .build();
         
-        HttpResponse<String> response = httpClient.send(httpRequest, 
-                HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() == 200) {
-            logger.info("[API] Save answer SUCCESS - Status: 200, QuestionId: {}", 
-                request.getQuestionId());
-            logger.debug("[API] Response body: {}", response.body());
-        } else {
-            logger.error("[API] Save answer FAILED - Status: {}, QuestionId: {}, Body: {}", 
-                    response.statusCode(), request.getQuestionId(), response.body());
-            
-            // Check for time expired error (400 + message)
-            if (response.statusCode() == 400) {
-                try {
-                    Map<String, Object> errorBody = gson.fromJson(response.body(), 
-                            new TypeToken<Map<String, Object>>(){}.getType());
-                    if (errorBody != null && errorBody.containsKey("message")) {
-                        String message = (String) errorBody.get("message");
-                        if (message != null && (message.contains("Hết thời gian") || message.contains("already submitted"))) {
-                            throw new ExamTimeExpiredException(message);
-                        }
-                    }
-                } catch (ExamTimeExpiredException e) {
-                    throw e;
-                } catch (Exception e) {
-                    // Ignore parse error
+        return transport.<Void>send(
+                transport.postJson("/api/exam-taking/save-answer/" + submissionId, authToken, request,
+                        transport.saveTimeout()),
+                Void.class)
+            .thenApply(response -> {
+                if (response.isSuccess()) {
+                    logger.info("[API] Save answer SUCCESS - Status: {}, QuestionId: {}", 
+                        response.statusCode(), request.getQuestionId());
+                    return null;
+                }
+                logger.error("[API] Save answer FAILED - Status: {}, QuestionId: {}, Body: {}", 
+                        response.statusCode(), request.getQuestionId(), response.errorBody());
+                throw saveFailure(response, "Failed to save answer: ");
+            });
+    }
+
+    /* ---------------------------------------------------
+     * Lưu nhiều câu trả lời trong 1 request (1 transaction phía backend)
+     * POST /api/exam-taking/save-answers/{submissionId}
+     * @param submissionId ID của submission
+     * @param answers Danh sách câu trả lời
+     * @returns SaveAnswersBatchResponse với kết quả từng câu
+     * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Chờ kết quả của saveAnswersBatchAsync
+     * --------------------------------------------------- */
+    public SaveAnswersBatchResponse saveAnswersBatch(Long submissionId, List<SaveAnswerRequest> answers)
+            throws IOException, InterruptedException, ExamTimeExpiredException {
+        return await(saveAnswersBatchAsync(submissionId, answers), ExamTimeExpiredException.class);
+    }
+
+    /* ---------------------------------------------------
+     * Lưu nhiều câu trả lời (bất đồng bộ)
+     * @param submissionId ID của submission
+     * @param answers Danh sách câu trả lời
+     * @returns CompletableFuture<SaveAnswersBatchResponse>; lỗi = ExamTimeExpiredException / IOException
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public CompletableFuture<SaveAnswersBatchResponse> saveAnswersBatchAsync(Long submissionId,
+                                                                              List<SaveAnswerRequest> answers) {
+        return transport.<SaveAnswersBatchResponse>send(
+                transport.postJson("/api/exam-taking/save-answers/" + submissionId, authToken,
+                        SaveAnswersBatchRequest.builder().answers(answers).build(), transport.saveTimeout()),
+                SaveAnswersBatchResponse.class)
+            .thenApply(response -> {
+                if (response.isSuccess()) {
+                    SaveAnswersBatchResponse result = response.body();
+                    logger.info("[API] Save answers batch - SubmissionId: {}, Saved: {}, Failed: {}",
+                        submissionId, result.getSavedCount(), result.getFailedCount());
+                    return result;
                 }
+                logger.error("[API] Save answers batch FAILED - Status: {}, Count: {}, Body: {}",
+                        response.statusCode(), answers.size(), response.errorBody());
+                throw saveFailure(response, "Failed to save answers: ");
+            });
+    }
+
+    /* ---------------------------------------------------
+     * Lỗi save: 400 với message hết giờ / đã nộp = ExamTimeExpiredException, còn lại IOException
+     * @param response Response lỗi từ save answer
+     * @param prefix Prefix message của IOException
+     * @returns CompletionException bọc exception tương ứng
+     * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Dùng ApiResponse.errorMessage
+     * --------------------------------------------------- */
+    private CompletionException saveFailure(ApiResponse<?> response, String prefix) {
+        if (response.statusCode() == 400) {
+            String message = response.errorMessage();
+            if (message != null && (message.contains("Hết thời gian") || message.contains("already submitted"))) {
+                return new CompletionException(new ExamTimeExpiredException(message));
             }
-            
-            throw new IOException("Failed to save answer: " + response.statusCode());
         }
+        return failure(prefix + response.statusCode());
     }
 
     /* ---------------------------------------------------
@@ -495,29 +528,33 @@ public class ExamApiClient {
      * @param submissionId ID của submission
      * @returns List<QuestionDTO> danh sách câu hỏi
      * @author: K24DTCN210-NVMANH (23/11/2025 13:51)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Chờ kết quả của getQuestionsForSubmissionAsync
      * --------------------------------------------------- */
     public List<QuestionDTO> getQuestionsForSubmission(Long submissionId) 
             throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/api/exam-taking/questions/" + submissionId))
-                .header("Authorization", "Bearer " + authToken)
-                .GET()
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, 
-                HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() == 200) {
-            Type listType = new TypeToken<List<QuestionDTO>>(){}.getType();
-            List<QuestionDTO> questions = gson.fromJson(response.body(), listType);
-            logger.info("Retrieved {} questions for submission {}", 
-                    questions.size(), submissionId);
-            return questions;
-        } else {
-            logger.error("Failed to get questions. Status: {}, Body: {}", 
-                    response.statusCode(), response.body());
-            throw new IOException("Failed to get questions: " + response.statusCode());
-        }
+        return await(getQuestionsForSubmissionAsync(submissionId));
+    }
+
+    /* ---------------------------------------------------
+     * Lấy danh sách questions (bất đồng bộ, GET trùng nhau được gộp)
+     * @param submissionId ID của submission
+     * @returns CompletableFuture<List<QuestionDTO>>; lỗi = IOException
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public CompletableFuture<List<QuestionDTO>> getQuestionsForSubmissionAsync(Long submissionId) {
+        Type listType = new TypeToken<List<QuestionDTO>>(){}.getType();
+        return transport.<List<QuestionDTO>>getJson("/api/exam-taking/questions/" + submissionId, authToken,
+                listType, transport.defaultTimeout())
+            .thenApply(response -> {
+                if (!response.isSuccess()) {
+                    logger.error("Failed to get questions. Status: {}, Body: {}", 
+                            response.statusCode(), response.errorBody());
+                    throw failure("Failed to get questions: " + response.statusCode());
+                }
+                logger.info("Retrieved {} questions for submission {}", 
+                        response.body().size(), submissionId);
+                return response.body();
+            });
     }
 
     /* ---------------------------------------------------
@@ -525,25 +562,32 @@ public class ExamApiClient {
      * POST /api/exam-taking/submit/{submissionId}
      * @param submissionId ID của submission
      * @author: K24DTCN210-NVMANH (23/11/2025 13:51)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Chờ kết quả của submitExamAsync
      * --------------------------------------------------- */
     public void submitExam(Long submissionId) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/api/exam-taking/submit/" + submissionId))
-                .header("Authorization", "Bearer " + authToken)
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.noBody())
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, 
-                HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() == 200) {
-            logger.info("Submitted exam. SubmissionId: {}", submissionId);
-        } else {
-            logger.error("Failed to submit exam. Status: {}, Body: {}", 
-                    response.statusCode(), response.body());
-            throw new IOException("Failed to submit exam: " + response.statusCode());
-        }
+        await(submitExamAsync(submissionId));
+    }
+
+    /* ---------------------------------------------------
+     * Nộp bài thi (bất đồng bộ)
+     * @param submissionId ID của submission
+     * @returns CompletableFuture<Void>; lỗi = IOException
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public CompletableFuture<Void> submitExamAsync(Long submissionId) {
+        return transport.<Void>send(
+                transport.postJson("/api/exam-taking/submit/" + submissionId, authToken, null,
+                        transport.defaultTimeout()),
+                Void.class)
+            .thenApply(response -> {
+                if (!response.isSuccess()) {
+                    logger.error("Failed to submit exam. Status: {}, Body: {}", 
+                            response.statusCode(), response.errorBody());
+                    throw failure("Failed to submit exam: " + response.statusCode());
+                }
+                logger.info("Submitted exam. SubmissionId: {}", submissionId);
+                return null;
+            });
     }
 
     /* ---------------------------------------------------
@@ -552,68 +596,50 @@ public class ExamApiClient {
      * @param submissionId ID của submission
      * @returns ExamResultResponse chứa điểm và answers
      * @author: K24DTCN210-NVMANH (23/11/2025 11:59)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Chờ kết quả của getExamResultAsync
      * --------------------------------------------------- */
     public ExamResultResponse getExamResult(Long submissionId) 
             throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/api/exam-taking/result/" + submissionId))
-                .header("Authorization", "Bearer " + authToken)
-                .GET()
-                .build();
-        
-        HttpResponse<String> response = httpClient.send(request, 
-                HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() == 200) {
-            ExamResultResponse result = gson.fromJson(response.body(), 
-                    ExamResultResponse.class);
-            logger.info("Retrieved exam result. Score: {}", result.getTotalScore());
-            return result;
-        } else {
-            String errorMessage = "Failed to get exam result: " + response.statusCode();
-            boolean isResultNotAvailable = false;
-            
-            if (response.statusCode() == 400) {
-                try {
-                    Map<String, Object> errorBody = gson.fromJson(response.body(), 
-                            new TypeToken<Map<String, Object>>(){}.getType());
-                    if (errorBody != null && errorBody.containsKey("message")) {
-                        String message = (String) errorBody.get("message");
-                        if (message != null && message.contains("Results are not available yet")) {
-                             isResultNotAvailable = true;
-                             errorMessage = "Results are not available yet";
-                        }
-                    }
-                } catch (Exception e) {
-                    // Ignore parse error
+        return await(getExamResultAsync(submissionId));
+    }
+
+    /* ---------------------------------------------------
+     * Lấy kết quả bài thi (bất đồng bộ, GET trùng nhau được gộp)
+     * @param submissionId ID của submission
+     * @returns CompletableFuture<ExamResultResponse>; lỗi = IOException
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public CompletableFuture<ExamResultResponse> getExamResultAsync(Long submissionId) {
+        return transport.<ExamResultResponse>getJson("/api/exam-taking/result/" + submissionId, authToken,
+                ExamResultResponse.class, transport.defaultTimeout())
+            .thenApply(response -> {
+                if (response.isSuccess()) {
+                    logger.info("Retrieved exam result. Score: {}", response.body().getTotalScore());
+                    return response.body();
                 }
-            }
-            
-            if (isResultNotAvailable) {
-                 logger.warn("Exam result not available yet for submission {}", submissionId);
-            } else {
-                 logger.error("Failed to get exam result. Status: {}, Body: {}", 
-                    response.statusCode(), response.body());
-            }
-            
-            throw new IOException(errorMessage);
-        }
+                
+                String message = response.statusCode() == 400 ? response.errorMessage() : null;
+                if (message != null && message.contains("Results are not available yet")) {
+                    logger.warn("Exam result not available yet for submission {}", submissionId);
+                    throw failure("Results are not available yet");
+                }
+                logger.error("Failed to get exam result. Status: {}, Body: {}", 
+                        response.statusCode(), response.errorBody());
+                throw failure("Failed to get exam result: " + response.statusCode());
+            });
     }
 
     /* ---------------------------------------------------
      * Test health check endpoint
      * @returns true nếu backend alive
      * @author: K24DTCN210-NVMANH (23/11/2025 11:59)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Dùng ApiTransport với timeout health check
      * --------------------------------------------------- */
     public boolean testConnection() {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(baseUrl + "/api/health"))
-                    .GET()
-                    .build();
-            
-            HttpResponse<String> response = httpClient.send(request, 
-                    HttpResponse.BodyHandlers.ofString());
+            ApiResponse<Void> response = await(transport.send(
+                    transport.newRequest("/api/health", null, transport.healthTimeout()).GET().build(),
+                    Void.class));
             
             boolean success = response.statusCode() == 200;
             logger.info("Connection test: {}", success ? "SUCCESS" : "FAILED");
@@ -625,6 +651,57 @@ public class ExamApiClient {
         }
     }
 
+    /* ---------------------------------------------------
+     * Lấy exception gốc từ lỗi của các future xxxAsync (bỏ lớp CompletionException)
+     * @param error Throwable nhận trong whenComplete / exceptionally
+     * @returns Exception gốc (IOException, ExamStartException, ...)
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    public static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static CompletionException failure(String message) {
+        return new CompletionException(new IOException(message));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        return await(future, IOException.class);
+    }
+
+    /* ---------------------------------------------------
+     * Chờ future của bản async cho các method blocking, ném lại exception gốc
+     * @param future Future cần chờ
+     * @param checked Checked exception riêng của endpoint (ExamStartException, ExamTimeExpiredException)
+     * @returns Kết quả của future
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    private static <T, E extends Exception> T await(CompletableFuture<T> future, Class<E> checked)
+            throws IOException, InterruptedException, E {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (checked.isInstance(cause)) {
+                throw checked.cast(cause);
+            }
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            throw new IOException(cause);
+        }
+    }
+
     /* ---------------------------------------------------
      * Response class cho Exam Result API
      * @author: K24DTCN210-NVMANH (23/11/2025 11:59)
@@ -727,29 +804,4 @@ public class ExamApiClient {
         }
     }
 
-    /* ---------------------------------------------------
-     * Gson TypeAdapter cho LocalDateTime
-     * @author: K24DTCN210-NVMANH (23/11/2025 11:59)
-     * --------------------------------------------------- */
-    private static class LocalDateTimeAdapter extends com.google.gson.TypeAdapter<LocalDateTime> {
-        private final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-
-        @Override
-        public void write(com.google.gson.stream.JsonWriter out, LocalDateTime value) throws IOException {
-            if (value == null) {
-                out.nullValue();
-            } else {
-                out.value(formatter.format(value));
-            }
-        }
-
-        @Override
-        public LocalDateTime read(com.google.gson.stream.JsonReader in) throws IOException {
-            if (in.peek() == com.google.gson.stream.JsonToken.NULL) {
-                in.nextNull();
-                return null;
-            }
-            return LocalDateTime.parse(in.nextString(), formatter);
-        }
-    }
 }
@@ -0,0 +1,175 @@
+package com.mstrust.client.exam.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.mstrust.client.exam.dto.ExamTimerSyncMessage;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/* ---------------------------------------------------
+ * STOMP client tối giản nhận deadline riêng của student trong lúc làm bài
+ * - Kết nối raw WebSocket /api/ws/websocket (JWT gửi ở header handshake), subscribe
+ *   /user/queue/timer; server gửi theo principal name nên chỉ session của student nhận được
+ * - Chỉ đẩy cho onCorrection các message của đúng submission đang làm
+ * - Mất kết nối thì tự kết nối lại sau RECONNECT_DELAY_SECONDS cho tới khi close();
+ *   server gửi lại deadline hiện tại mỗi lần subscribe
+ * @author: K24DTCN210-NVMANH (18/10/2026 14:00)
+ * --------------------------------------------------- */
+public class ExamTimerStompClient {
+    private static final Logger logger = LoggerFactory.getLogger(ExamTimerStompClient.class);
+    private static final char NUL = '\u0000';
+    private static final long RECONNECT_DELAY_SECONDS = 5;
+
+    private final OkHttpClient client;
+    private final String wsUrl;
+    private final String authToken;
+    private final Long submissionId;
+    private final Consumer<ExamTimerSyncMessage> onCorrection;
+    private final Gson gson = new Gson();
+    private final ScheduledExecutorService reconnector;
+    private final StringBuilder buffer = new StringBuilder();
+
+    private WebSocket webSocket;
+    private volatile boolean closedByUser;
+
+    /* ---------------------------------------------------
+     * @param baseUrl API base URL dạng http(s)://host:port (không có /api)
+     * @param authToken JWT token
+     * @param submissionId ID của submission đang làm
+     * @param onCorrection Nhận deadline của submission (chạy trên thread của OkHttp)
+     * @author: K24DTCN210-NVMANH (18/10/2026 14:00)
+     * --------------------------------------------------- */
+    public ExamTimerStompClient(String baseUrl, String authToken, Long submissionId,
+                                Consumer<ExamTimerSyncMessage> onCorrection) {
+        this.client = new OkHttpClient.Builder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(0, TimeUnit.SECONDS)
+            .build();
+        this.wsUrl = baseUrl.replaceFirst("^http", "ws") + "/api/ws/websocket";
+        this.authToken = authToken;
+        this.submissionId = submissionId;
+        this.onCorrection = onCorrection;
+        this.reconnector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ExamTimerStomp-Reconnect");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /* Mở kết nối và subscribe sau khi nhận CONNECTED */
+    public synchronized void connect() {
+        if (closedByUser) {
+            return;
+        }
+        synchronized (buffer) {
+            buffer.setLength(0);
+        }
+        Request request = new Request.Builder()
+            .url(wsUrl)
+            .header("Authorization", "Bearer " + authToken)
+            .build();
+        webSocket = client.newWebSocket(request, new Listener());
+    }
+
+    /* Đóng kết nối chủ động (nộp bài / thoát) */
+    public synchronized void close() {
+        closedByUser = true;
+        reconnector.shutdownNow();
+        if (webSocket != null) {
+            webSocket.send("DISCONNECT\n\n" + NUL);
+            webSocket.close(1000, "closed");
+        }
+        client.dispatcher().executorService().shutdown();
+    }
+
+    private void handleFrame(WebSocket ws, String frame) {
+        int headerEnd = frame.indexOf("\n\n");
+        String command = frame.substring(0, Math.max(0, frame.indexOf('\n'))).trim();
+        switch (command) {
+            case "CONNECTED" -> {
+                ws.send("SUBSCRIBE\nid:timer-" + submissionId + "\ndestination:/user/queue/timer\n\n" + NUL);
+                logger.info("Timer sync subscribed for submission {}", submissionId);
+            }
+            case "MESSAGE" -> {
+                if (headerEnd >= 0) {
+                    dispatch(frame.substring(headerEnd + 2));
+                }
+            }
+            case "ERROR" -> {
+                if (!closedByUser) {
+                    logger.warn("Timer sync STOMP error: {}", frame);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private void dispatch(String body) {
+        try {
+            ExamTimerSyncMessage message = gson.fromJson(body, ExamTimerSyncMessage.class);
+            if (message != null && Objects.equals(message.getSubmissionId(), submissionId)) {
+                onCorrection.accept(message);
+            }
+        } catch (JsonSyntaxException e) {
+            logger.warn("Invalid timer sync message: {}", e.getMessage());
+        }
+    }
+
+    private void scheduleReconnect(WebSocket ws) {
+        synchronized (this) {
+            if (closedByUser || ws != webSocket) {
+                return;
+            }
+            webSocket = null;
+            reconnector.schedule(this::connect, RECONNECT_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private class Listener extends WebSocketListener {
+        @Override
+        public void onOpen(WebSocket ws, Response response) {
+            ws.send("CONNECT\naccept-version:1.2\nheart-beat:0,0\nhost:localhost\n\n" + NUL);
+        }
+
+        @Override
+        public void onMessage(WebSocket ws, String text) {
+            synchronized (buffer) {
+                buffer.append(text);
+                int end;
+                while ((end = buffer.indexOf(String.valueOf(NUL))) >= 0) {
+                    String frame = buffer.substring(0, end);
+                    buffer.delete(0, end + 1);
+                    // Bỏ các dòng trống (heart-beat) trước frame
+                    handleFrame(ws, frame.replaceFirst("^[\\r\\n]+", ""));
+                }
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket ws, int code, String reason) {
+            ws.close(1000, null);
+        }
+
+        @Override
+        public void onClosed(WebSocket ws, int code, String reason) {
+            scheduleReconnect(ws);
+        }
+
+        @Override
+        public void onFailure(WebSocket ws, Throwable t, Response response) {
+            logger.warn("Timer sync connection failed: {}", t.getMessage());
+            scheduleReconnect(ws);
+        }
+    }
+}
@@ -257,6 +257,7 @@ public class ExamListController {
     /* ---------------------------------------------------
      * Load danh sách môn học từ API
      * @author: K24DTCN210-NVMANH (03/12/2025 16:55)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Dùng getAvailableSubjectsAsync thay vì thread riêng
      * --------------------------------------------------- */
     private void loadSubjectsFromAPI() {
         // Chỉ load subjects cho student mode
@@ -275,11 +276,9 @@ public class ExamListController {
             return;
         }
         
-        // Student mode - load từ API
-        new Thread(() -> {
-            try {
-                List<Map<String, String>> subjects = examApiClient.getAvailableSubjects();
-                
+        // Student mode - load từ API (async, chạy song song với loadExams)
+        examApiClient.getAvailableSubjectsAsync().whenComplete((subjects, error) -> {
+            if (error == null) {
                 Platform.runLater(() -> {
                     subjectFilterCombo.getItems().clear();
                     subjectFilterCombo.getItems().add("Tất cả môn học");
@@ -292,9 +291,8 @@ public class ExamListController {
                     subjectFilterCombo.setValue("Tất cả môn học");
                     logger.info("Loaded {} subjects for filter", subjects.size());
                 });
-                
-            } catch (Exception e) {
-                logger.error("Failed to load subjects for filter", e);
+            } else {
+                logger.error("Failed to load subjects for filter", ExamApiClient.unwrap(error));
                 Platform.runLater(() -> {
                     // Fallback to default subjects
                     subjectFilterCombo.getItems().addAll(
@@ -309,7 +307,7 @@ public class ExamListController {
                     subjectFilterCombo.setValue("Tất cả môn học");
                 });
             }
-        }).start();
+        });
     }
     
     /* ---------------------------------------------------
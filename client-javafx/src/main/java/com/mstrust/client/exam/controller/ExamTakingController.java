@@ -1,9 +1,12 @@
 package com.mstrust.client.exam.controller;
 
+import com.mstrust.client.api.ApiTransport;
 import com.mstrust.client.exam.api.ExamApiClient;
+import com.mstrust.client.exam.api.ExamTimerStompClient;
 import com.mstrust.client.exam.component.QuestionDisplayComponent;
 import com.mstrust.client.exam.component.QuestionPaletteComponent;
 import com.mstrust.client.exam.component.TimerComponent;
+import com.mstrust.client.exam.dto.ExamTimerSyncMessage;
 import com.mstrust.client.exam.dto.QuestionDTO;
 import com.mstrust.client.exam.dto.SaveAnswerRequest;
 import com.mstrust.client.exam.dto.StartExamResponse;
@@ -98,9 +101,11 @@ public class ExamTakingController {
     // Phase 8.6: Full-Screen Security
     private Stage stage;
     private FullScreenLockService fullScreenLockService;
+    private ExamTimerStompClient timerSyncClient; // Deadline riêng từ server qua /user/queue/timer
     
     // Phase 11: Monitoring System
-    private com.mstrust.client.monitoring.MonitoringCoordinator monitoringCoordinator;
+    private volatile com.mstrust.client.monitoring.MonitoringCoordinator monitoringCoordinator;
+    private volatile boolean examLoadFailed = false; // Load câu hỏi lỗi thì monitoring khởi động song song phải dừng
     
     // State tracking
     private Map<Long, String> answersCache; // questionId -> answer
@@ -352,6 +357,7 @@ public class ExamTakingController {
         if (timerComponent != null) {
             timerComponent.stop();
         }
+        stopTimerSync();
         
         // Phase 11: Stop monitoring
         if (monitoringCoordinator != null) {
@@ -369,6 +375,7 @@ public class ExamTakingController {
      * @param authToken Bearer token
      * @author: K24DTCN210-NVMANH (24/11/2025 13:42)
      * EditBy: K24DTCN210-NVMANH (25/11/2025 09:40) - Phase 8.6: Added loading overlay & isExamActive flag
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Tải câu hỏi async, khởi động monitoring song song
      * --------------------------------------------------- */
     public void initializeExamWithResponse(StartExamResponse response, String authToken) {
         this.apiClient = new ExamApiClient(authToken);
@@ -377,10 +384,13 @@ public class ExamTakingController {
         // Show loading
         showLoading("Đang tải câu hỏi...");
         
-        new Thread(() -> {
-            try {
-                // 1. Load questions (GET /api/exam-taking/questions/{submissionId})  
-                List<QuestionDTO> questions = apiClient.getQuestionsForSubmission(response.getSubmissionId());
+        // 1. Load questions (GET /api/exam-taking/questions/{submissionId}) - không chặn thread nào
+        apiClient.getQuestionsForSubmissionAsync(response.getSubmissionId())
+            .whenComplete((questions, error) -> {
+                if (error != null) {
+                    handleQuestionsLoadFailure(response.getSubmissionId(), ExamApiClient.unwrap(error));
+                    return;
+                }
                 
                 // 2. Create ExamSession model
                 examSession = new ExamSession();
@@ -396,33 +406,46 @@ public class ExamTakingController {
                         initializeComponents(response);
                         initializeAutoSaveServices(); // Phase 8.4
                         initializeFullScreenSecurity(); // Phase 8.6
-                        startMonitoringSystem(response.getSubmissionId(), authToken); // Phase 11
                         displayCurrentQuestion();
                         isExamActive = true; // Mark exam as active
+                        startTimerSync(response.getSubmissionId(), authToken);
                         hideLoading();
                     } catch (Exception e) {
                         showError("Lỗi khởi tạo UI", e.getMessage());
                         hideLoading();
                     }
                 });
-                
-            } catch (IOException e) {
-                logService.logError("ExamTakingController", "Load questions failed", e, response.getSubmissionId(), null);
-                Platform.runLater(() -> {
-                    showError("Lỗi tải câu hỏi", e.getMessage());
-                    hideLoading();
-                });
-            } catch (Exception e) {
-                logService.logError("ExamTakingController", "Unexpected error during init", e, response.getSubmissionId(), null);
-                if (e instanceof InterruptedException) {
-                    Thread.currentThread().interrupt();
-                }
-                Platform.runLater(() -> {
-                    showError("Lỗi tải câu hỏi", "Lỗi: " + e.getMessage());
-                    hideLoading();
-                });
-            }
-        }).start();
+            });
+        
+        // Monitoring (load native lib + gọi API monitoring) chạy song song với việc tải câu hỏi
+        startMonitoringSystem(response.getSubmissionId(), authToken); // Phase 11
+    }
+    
+    /* ---------------------------------------------------
+     * Xử lý lỗi tải câu hỏi khi khởi tạo bài thi: dừng monitoring đã khởi động song song + báo lỗi
+     * @param submissionId ID của submission
+     * @param error Exception gốc
+     * @author: K24DTCN210-NVMANH (18/10/2026 10:30)
+     * --------------------------------------------------- */
+    private void handleQuestionsLoadFailure(Long submissionId, Throwable error) {
+        examLoadFailed = true;
+        if (monitoringCoordinator != null) {
+            monitoringCoordinator.stopMonitoring();
+        }
+        
+        if (error instanceof IOException) {
+            logService.logError("ExamTakingController", "Load questions failed", error, submissionId, null);
+            Platform.runLater(() -> {
+                showError("Lỗi tải câu hỏi", error.getMessage());
+                hideLoading();
+            });
+        } else {
+            logService.logError("ExamTakingController", "Unexpected error during init", error, submissionId, null);
+            Platform.runLater(() -> {
+                showError("Lỗi tải câu hỏi", "Lỗi: " + error.getMessage());
+                hideLoading();
+            });
+        }
     }
     
     /* ---------------------------------------------------
@@ -467,6 +490,7 @@ public class ExamTakingController {
                         initializeFullScreenSecurity(); // Phase 8.6: NEW
                         displayCurrentQuestion();
                         isExamActive = true; // Mark exam as active
+                        startTimerSync(response.getSubmissionId(), authToken);
                         hideLoading();
                     } catch (Exception e) {
                         showError("Lỗi khởi tạo UI", e.getMessage());
@@ -655,6 +679,7 @@ public class ExamTakingController {
      * @param authToken JWT token
      * @author: K24DTCN210-NVMANH (01/12/2025 22:55)
      * EditBy: K24DTCN210-NVMANH (04/12/2025 21:30) - Fix UI freeze by moving to background thread
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Dừng lại nếu tải câu hỏi đã lỗi
      * --------------------------------------------------- */
     private void startMonitoringSystem(Long submissionId, String authToken) {
         // Run in background thread to prevent UI freeze during JNativeHook initialization
@@ -674,6 +699,12 @@ public class ExamTakingController {
                 // Start monitoring với 5 monitors
                 monitoringCoordinator.startMonitoring(submissionId, authToken);
                 
+                // Bài thi đã lỗi khi tải câu hỏi trong lúc monitoring đang khởi động
+                if (examLoadFailed) {
+                    monitoringCoordinator.stopMonitoring();
+                    return;
+                }
+                
                 System.out.println("[Phase 11] Monitoring system started successfully for submission: " + submissionId);
             } catch (Throwable e) {
                 System.err.println("[Phase 11] Failed to start monitoring: " + e.getMessage());
@@ -968,6 +999,7 @@ public class ExamTakingController {
                         timerComponent.stop();
                         System.out.println("[Phase 8.5] Timer stopped");
                     }
+                    stopTimerSync();
                     
                     // Phase 11: Stop monitoring
                     if (monitoringCoordinator != null) {
@@ -1046,6 +1078,55 @@ public class ExamTakingController {
         }
     }
 
+    /* ---------------------------------------------------
+     * Mở kết nối WebSocket nhận deadline riêng của submission (server gửi khi deadline
+     * mới/thay đổi và mỗi lần subscribe lại)
+     * @param submissionId ID của submission
+     * @param authToken Bearer token
+     * @author: K24DTCN210-NVMANH (18/10/2026 14:00)
+     * --------------------------------------------------- */
+    private void startTimerSync(Long submissionId, String authToken) {
+        stopTimerSync();
+        timerSyncClient = new ExamTimerStompClient(ApiTransport.getInstance().getBaseUrl(), authToken,
+            submissionId, this::handleTimerCorrection);
+        timerSyncClient.connect();
+    }
+    
+    private void stopTimerSync() {
+        if (timerSyncClient != null) {
+            timerSyncClient.close();
+            timerSyncClient = null;
+        }
+    }
+    
+    /* ---------------------------------------------------
+     * Deadline từ server (thread của OkHttp): chỉnh lại đồng hồ theo giờ server;
+     * EXPIRED nghĩa là server đã tự động nộp bài -> dừng bài thi ngay, không chờ polling
+     * @param message Deadline của submission
+     * @author: K24DTCN210-NVMANH (18/10/2026 14:00)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 14:30) - Xử lý EXPIRED từ deadline scheduler
+     * --------------------------------------------------- */
+    private void handleTimerCorrection(ExamTimerSyncMessage message) {
+        if ("EXPIRED".equals(message.getStatus())) {
+            Platform.runLater(() -> {
+                // Avoid multiple dialogs
+                if (!isExamActive) return;
+                
+                handleServerTimeExpired("Server đã nộp bài khi hết thời gian làm bài.");
+            });
+            return;
+        }
+        if (message.getRemainingSeconds() == null) {
+            return;
+        }
+        long remaining = message.getRemainingSeconds();
+        Platform.runLater(() -> {
+            if (isExamActive && timerComponent != null) {
+                timerComponent.setRemainingSeconds(remaining);
+            }
+        });
+    }
+
     /* ---------------------------------------------------
      * Handle khi hết giờ (auto-submit) - Client timer
      * @author: K24DTCN210-NVMANH (23/11/2025 13:49)
@@ -1253,6 +1334,7 @@ public class ExamTakingController {
         if (timerComponent != null) {
             timerComponent.stop();
         }
+        stopTimerSync();
         
         if (logService != null) {
             logService.shutdown();
@@ -0,0 +1,22 @@
+package com.mstrust.client.exam.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/* ---------------------------------------------------
+ * Deadline riêng của submission nhận qua WebSocket /user/queue/timer
+ * Map từ backend ExamTimerSyncMessage (chỉ các field client dùng)
+ * @author: K24DTCN210-NVMANH (18/10/2026 14:00)
+ * --------------------------------------------------- */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamTimerSyncMessage {
+    private Long examId;
+    private Long submissionId;
+    private Long remainingSeconds;
+
+    /* ACTIVE, ENDED, EXPIRED (server đã tự động nộp bài) */
+    private String status;
+}
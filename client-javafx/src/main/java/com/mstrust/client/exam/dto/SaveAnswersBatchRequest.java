@@ -0,0 +1,21 @@
+package com.mstrust.client.exam.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/* ---------------------------------------------------
+ * Request DTO để save nhiều câu trả lời trong 1 request
+ * Map từ backend SaveAnswersBatchRequest
+ * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+ * --------------------------------------------------- */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaveAnswersBatchRequest {
+    private List<SaveAnswerRequest> answers;
+}
@@ -0,0 +1,34 @@
+package com.mstrust.client.exam.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/* ---------------------------------------------------
+ * Kết quả save batch từ backend - mỗi câu trả lời có kết quả riêng
+ * Map từ backend SaveAnswersBatchResponse
+ * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+ * --------------------------------------------------- */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaveAnswersBatchResponse {
+    private int savedCount;
+    private int failedCount;
+    private boolean buffered;
+    private List<ItemResult> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        private Long questionId;
+        private boolean success;
+        private String message;
+        private Boolean isGraded;
+        private BigDecimal pointsEarned;
+    }
+}
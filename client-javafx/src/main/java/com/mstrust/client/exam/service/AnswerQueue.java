@@ -1,58 +1,150 @@
 package com.mstrust.client.exam.service;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.TypeAdapter;
-import com.google.gson.reflect.TypeToken;
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 /* ---------------------------------------------------
  * Answer Queue - Thread-safe queue cho pending answers
- * 
+ *
  * Features:
  * - In-memory queue sử dụng ConcurrentHashMap
  * - Thread-safe operations
- * - Auto-persist to JSON file
- * - Restore from JSON on startup
+ * - Write-ahead journal theo submission (answer-queue/submission-{id}.journal):
+ *   mỗi enqueue / acknowledge / remove chỉ append 1 record cố định định dạng
+ *   (O(kích thước answer), không ghi lại cả queue); dequeue / requeue không ghi journal
+ * - fsync gộp theo chu kỳ 200ms trên thread riêng, compact journal khi file lớn
+ *   gấp đôi dữ liệu còn sống
+ * - Restore bằng cách replay journal khi open(); record ghi dở (CRC sai / thiếu byte)
+ *   ở cuối file bị cắt bỏ
  * - Retry tracking với retry count
- * 
+ *
+ * Format record (big-endian):
+ *   type(1) questionId(8) queuedAt(8) retryCount(4) lastRetryAt(8) answerLength(4) answer(n) crc32(4)
+ *
  * @author: K24DTCN210-NVMANH (23/11/2025 17:38)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 19:50) - Thay file JSON ghi lại toàn bộ queue bằng
+ *         journal append-only theo submission
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 18:40) - dequeue chỉ chuyển answer sang in-flight,
+ *         record remove chỉ ghi khi AutoSaveService acknowledge() sau khi backend xác nhận
  * --------------------------------------------------- */
 public class AnswerQueue {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(AnswerQueue.class);
-    private static final String QUEUE_FILE = "exam_answer_queue.json";
-    
+    private static final String QUEUE_DIR = "answer-queue";
+
+    private static final int FILE_MAGIC = 0x4D53514A; // "MSQJ"
+    private static final short FILE_VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 4 + 2 + 8;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final int RECORD_HEADER_SIZE = 1 + 8 + 8 + 4 + 8 + 4;
+    private static final int RECORD_CRC_SIZE = 4;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final long FSYNC_INTERVAL_MS = 200;
+    private static final long COMPACT_MIN_BYTES = 256 * 1024;
+
     // Thread-safe queue storage
     private final ConcurrentHashMap<Long, QueuedAnswer> queue;
-    private final Gson gson;
-    
+
+    // Answer đã dequeue nhưng backend chưa xác nhận; journal vẫn giữ record PUT (bảo vệ bởi journalLock)
+    private final Map<Long, QueuedAnswer> inFlight = new HashMap<>();
+
+    // Journal của submission đang mở (null = chỉ giữ trong memory)
+    private final Object journalLock = new Object();
+    private Long submissionId;
+    private Path journalPath;
+    private FileChannel channel;
+    private ScheduledExecutorService flusher;
+    private long journalBytes;
+    private long liveBytes;
+    private boolean unsynced;
+
     /* ---------------------------------------------------
-     * Constructor - Khởi tạo queue và restore từ file
+     * Constructor - Khởi tạo queue rỗng, journal được mở khi biết submission (open)
      * @author: K24DTCN210-NVMANH (23/11/2025 17:38)
      * EditBy: K24DTCN210-NVMANH (24/11/2025 15:11) - Added LocalDateTime TypeAdapter for Java 17+
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 19:50) - Không restore ở constructor nữa, xem open()
      * --------------------------------------------------- */
     public AnswerQueue() {
         this.queue = new ConcurrentHashMap<>();
-        // Create Gson with LocalDateTime adapter to fix Java 17+ module restriction
-        this.gson = new GsonBuilder()
-            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-            .create();
-        restoreFromFile();
+    }
+
+    /* ---------------------------------------------------
+     * Mở journal của submission và replay các answer còn pending từ lần chạy trước
+     * @param submissionId ID của submission đang làm
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:50)
+     * --------------------------------------------------- */
+    public void open(Long submissionId) {
+        synchronized (journalLock) {
+            if (submissionId == null || submissionId.equals(this.submissionId)) {
+                return;
+            }
+            closeJournal();
+
+            // Answer enqueue trước khi open (nếu có) được ghi lại sau khi replay
+            Map<Long, QueuedAnswer> early = new HashMap<>(queue);
+            queue.clear();
+            inFlight.clear();
+            liveBytes = 0;
+
+            this.submissionId = submissionId;
+            this.journalPath = Paths.get(QUEUE_DIR, "submission-" + submissionId + ".journal");
+            try {
+                Files.createDirectories(journalPath.getParent());
+                replay();
+                for (QueuedAnswer qa : early.values()) {
+                    put(qa);
+                }
+                if (needsCompaction()) {
+                    compact();
+                }
+                logger.info("Answer journal opened for submission {}: {} pending answers", submissionId, queue.size());
+            } catch (IOException e) {
+                logger.error("Failed to open answer journal {}: {}", journalPath, e.getMessage());
+                closeChannelQuietly();
+                early.forEach(queue::putIfAbsent);
+            }
+
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "AnswerQueue-Journal");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::syncAndCompact, FSYNC_INTERVAL_MS, FSYNC_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Đóng journal: fsync lần cuối, queue rỗng thì xóa file, còn pending thì compact
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:50)
+     * --------------------------------------------------- */
+    public void close() {
+        synchronized (journalLock) {
+            closeJournal();
+        }
     }
 
     /* ---------------------------------------------------
@@ -63,46 +155,84 @@ public class AnswerQueue {
      * --------------------------------------------------- */
     public void enqueue(Long questionId, String answer) {
         QueuedAnswer qa = new QueuedAnswer(questionId, answer);
-        queue.put(questionId, qa);
-        persistToFile();
+        synchronized (journalLock) {
+            put(qa);
+        }
         logger.debug("Enqueued answer for question {}", questionId);
     }
 
     /* ---------------------------------------------------
      * Dequeue answers (lấy N answers cũ nhất từ queue)
+     * Answer chuyển sang in-flight, journal chưa ghi remove: crash giữa request thì
+     * lần mở sau vẫn replay lại. Caller phải acknowledge() hoặc requeue() từng answer
      * @param maxItems Số lượng tối đa cần lấy
      * @returns List các QueuedAnswer
      * @author: K24DTCN210-NVMANH (23/11/2025 17:38)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 18:40) - Không ghi record remove khi dequeue
      * --------------------------------------------------- */
     public List<QueuedAnswer> dequeue(int maxItems) {
-        // Sort by queuedAt (oldest first)
-        List<QueuedAnswer> sorted = queue.values().stream()
-            .sorted(Comparator.comparing(QueuedAnswer::getQueuedAt))
-            .limit(maxItems)
-            .collect(Collectors.toList());
-        
-        // Remove from queue
-        for (QueuedAnswer qa : sorted) {
-            queue.remove(qa.getQuestionId());
-        }
-        
-        persistToFile();
-        
+        List<QueuedAnswer> sorted;
+        synchronized (journalLock) {
+            // Sort by queuedAt (oldest first)
+            sorted = queue.values().stream()
+                .sorted(Comparator.comparing(QueuedAnswer::getQueuedAt))
+                .limit(maxItems)
+                .collect(Collectors.toList());
+
+            // Chuyển sang in-flight, liveBytes giữ nguyên vì record PUT vẫn còn sống trong journal
+            for (QueuedAnswer qa : sorted) {
+                queue.remove(qa.getQuestionId());
+                inFlight.put(qa.getQuestionId(), qa);
+            }
+        }
+
         logger.debug("Dequeued {} answers", sorted.size());
         return sorted;
     }
 
+    /* ---------------------------------------------------
+     * Acknowledge answer đã dequeue: backend đã lưu (hoặc bỏ hẳn sau khi hết lượt retry)
+     * -> ghi record remove vào journal. Nếu student đã sửa lại câu này trong lúc gửi thì
+     * record PUT mới hơn là record sống, không ghi remove
+     * @param answer QueuedAnswer lấy từ dequeue()
+     * @author: K24DTCN210-NVMANH (18/10/2026 18:40)
+     * --------------------------------------------------- */
+    public void acknowledge(QueuedAnswer answer) {
+        synchronized (journalLock) {
+            if (inFlight.remove(answer.getQuestionId(), answer)) {
+                liveBytes -= recordSize(answer.getAnswer());
+                if (!queue.containsKey(answer.getQuestionId())) {
+                    append(RECORD_REMOVE, new QueuedAnswer(answer.getQuestionId(), null));
+                }
+            }
+        }
+    }
+
     /* ---------------------------------------------------
      * Requeue answer (put back if save failed)
+     * Không ghi journal: record PUT của answer vẫn còn sống từ lúc enqueue
      * @param answer QueuedAnswer cần requeue
      * @author: K24DTCN210-NVMANH (23/11/2025 17:38)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 18:40) - Chuyển từ in-flight về queue, không append record
      * --------------------------------------------------- */
     public void requeue(QueuedAnswer answer) {
         answer.incrementRetryCount();
         answer.setLastRetryAt(LocalDateTime.now());
-        queue.put(answer.getQuestionId(), answer);
-        persistToFile();
-        logger.debug("Requeued answer for question {} (retry {})", 
+        synchronized (journalLock) {
+            if (inFlight.remove(answer.getQuestionId(), answer)) {
+                liveBytes -= recordSize(answer.getAnswer());
+            }
+            // Đã có bản mới hơn (student sửa lại trong lúc đang gửi) thì giữ bản mới
+            QueuedAnswer current = queue.get(answer.getQuestionId());
+            if (current == null || !current.getQueuedAt().isAfter(answer.getQueuedAt())) {
+                QueuedAnswer previous = queue.put(answer.getQuestionId(), answer);
+                if (previous != null) {
+                    liveBytes -= recordSize(previous.getAnswer());
+                }
+                liveBytes += recordSize(answer.getAnswer());
+            }
+        }
+        logger.debug("Requeued answer for question {} (retry {})",
             answer.getQuestionId(), answer.getRetryCount());
     }
 
@@ -122,8 +252,9 @@ public class AnswerQueue {
      * @author: K24DTCN210-NVMANH (23/11/2025 17:38)
      * --------------------------------------------------- */
     public void remove(Long questionId) {
-        queue.remove(questionId);
-        persistToFile();
+        synchronized (journalLock) {
+            delete(questionId);
+        }
         logger.debug("Removed answer for question {}", questionId);
     }
 
@@ -139,62 +270,293 @@ public class AnswerQueue {
     /* ---------------------------------------------------
      * Clear toàn bộ queue
      * @author: K24DTCN210-NVMANH (23/11/2025 17:38)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 19:50) - Cắt journal về header thay vì xóa file
      * --------------------------------------------------- */
     public void clear() {
-        queue.clear();
-        deleteFile();
+        synchronized (journalLock) {
+            queue.clear();
+            inFlight.clear();
+            liveBytes = 0;
+            if (channel != null) {
+                try {
+                    channel.truncate(FILE_HEADER_SIZE);
+                    channel.force(false);
+                    journalBytes = FILE_HEADER_SIZE;
+                    unsynced = false;
+                } catch (IOException e) {
+                    logger.error("Failed to truncate answer journal: {}", e.getMessage());
+                }
+            }
+        }
         logger.info("Queue cleared");
     }
 
-    /* ---------------------------------------------------
-     * Persist queue to JSON file
-     * @author: K24DTCN210-NVMANH (23/11/2025 17:38)
-     * --------------------------------------------------- */
-    private void persistToFile() {
+    // =============== JOURNAL ===============
+
+    private void put(QueuedAnswer qa) {
+        QueuedAnswer previous = queue.put(qa.getQuestionId(), qa);
+        if (previous != null) {
+            liveBytes -= recordSize(previous.getAnswer());
+        }
+        liveBytes += recordSize(qa.getAnswer());
+        append(RECORD_PUT, qa);
+    }
+
+    private void delete(Long questionId) {
+        QueuedAnswer previous = queue.remove(questionId);
+        if (previous != null) {
+            liveBytes -= recordSize(previous.getAnswer());
+            append(RECORD_REMOVE, new QueuedAnswer(questionId, null));
+        }
+    }
+
+    /* Append 1 record; fsync để flusher làm theo chu kỳ */
+    private void append(byte type, QueuedAnswer qa) {
+        if (channel == null) {
+            return;
+        }
         try {
-            File file = new File(QUEUE_FILE);
-            String json = gson.toJson(queue);
-            Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
-            logger.trace("Queue persisted to file: {} items", queue.size());
+            ByteBuffer record = encode(type, qa);
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            journalBytes += record.limit();
+            unsynced = true;
         } catch (IOException e) {
-            logger.error("Failed to persist queue to file: {}", e.getMessage());
+            logger.error("Failed to append to answer journal: {}", e.getMessage());
         }
     }
 
+    private static ByteBuffer encode(byte type, QueuedAnswer qa) {
+        byte[] answer = qa.getAnswer() != null ? qa.getAnswer().getBytes(StandardCharsets.UTF_8) : null;
+        int length = answer != null ? answer.length : -1;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + Math.max(length, 0) + RECORD_CRC_SIZE);
+        buffer.put(type)
+            .putLong(qa.getQuestionId())
+            .putLong(toMillis(qa.getQueuedAt()))
+            .putInt(qa.getRetryCount())
+            .putLong(toMillis(qa.getLastRetryAt()))
+            .putInt(length);
+        if (answer != null) {
+            buffer.put(answer);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
     /* ---------------------------------------------------
-     * Restore queue from JSON file
-     * @author: K24DTCN210-NVMANH (23/11/2025 17:38)
+     * Đọc lại journal vào queue. Header sai thì bỏ file cũ sang .corrupt;
+     * record cuối ghi dở thì cắt file tại record hợp lệ cuối cùng
      * --------------------------------------------------- */
-    private void restoreFromFile() {
-        try {
-            File file = new File(QUEUE_FILE);
-            if (!file.exists()) {
-                logger.info("No queue file found, starting fresh");
+    private void replay() throws IOException {
+        if (Files.exists(journalPath)) {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+            boolean validHeader = data.remaining() >= FILE_HEADER_SIZE
+                && data.getInt() == FILE_MAGIC
+                && data.getShort() == FILE_VERSION
+                && data.getLong() == submissionId;
+            if (!validHeader) {
+                Path corrupt = journalPath.resolveSibling(journalPath.getFileName() + ".corrupt");
+                Files.move(journalPath, corrupt, StandardCopyOption.REPLACE_EXISTING);
+                logger.warn("Answer journal header invalid, moved to {}", corrupt);
+            } else {
+                int validEnd = replayRecords(data);
+                channel = FileChannel.open(journalPath, StandardOpenOption.WRITE);
+                if (validEnd < data.limit()) {
+                    logger.warn("Answer journal {}: dropped {} bytes of incomplete record",
+                        journalPath, data.limit() - validEnd);
+                    channel.truncate(validEnd);
+                    channel.force(false);
+                }
+                channel.position(validEnd);
+                journalBytes = validEnd;
                 return;
             }
-            
-            String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-            Type type = new TypeToken<ConcurrentHashMap<Long, QueuedAnswer>>(){}.getType();
-            ConcurrentHashMap<Long, QueuedAnswer> restored = gson.fromJson(json, type);
-            
-            if (restored != null) {
-                queue.putAll(restored);
-                logger.info("Restored {} answers from queue file", queue.size());
+        }
+
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        writeFully(channel, fileHeader(submissionId));
+        channel.force(false);
+        journalBytes = FILE_HEADER_SIZE;
+    }
+
+    /* Áp dụng các record hợp lệ, trả về offset kết thúc record hợp lệ cuối cùng */
+    private int replayRecords(ByteBuffer data) {
+        int validEnd = data.position();
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= RECORD_HEADER_SIZE + RECORD_CRC_SIZE) {
+            int start = data.position();
+            byte type = data.get();
+            long questionId = data.getLong();
+            long queuedAt = data.getLong();
+            int retryCount = data.getInt();
+            long lastRetryAt = data.getLong();
+            int length = data.getInt();
+            if ((type != RECORD_PUT && type != RECORD_REMOVE) || length < -1
+                    || data.remaining() < Math.max(length, 0) + RECORD_CRC_SIZE) {
+                break;
+            }
+            data.position(data.position() + Math.max(length, 0));
+            crc.reset();
+            crc.update(data.array(), start, data.position() - start);
+            if (data.getInt() != (int) crc.getValue()) {
+                break;
             }
-        } catch (IOException e) {
-            logger.error("Failed to restore queue from file: {}", e.getMessage());
+
+            if (type == RECORD_PUT) {
+                String answer = length >= 0
+                    ? new String(data.array(), start + RECORD_HEADER_SIZE, length, StandardCharsets.UTF_8) : null;
+                QueuedAnswer qa = new QueuedAnswer(questionId, answer);
+                qa.setQueuedAt(fromMillis(queuedAt));
+                qa.setRetryCount(retryCount);
+                qa.setLastRetryAt(fromMillis(lastRetryAt));
+                QueuedAnswer previous = queue.put(questionId, qa);
+                if (previous != null) {
+                    liveBytes -= recordSize(previous.getAnswer());
+                }
+                liveBytes += recordSize(answer);
+            } else {
+                QueuedAnswer previous = queue.remove(questionId);
+                if (previous != null) {
+                    liveBytes -= recordSize(previous.getAnswer());
+                }
+            }
+            validEnd = data.position();
         }
+        return validEnd;
     }
 
     /* ---------------------------------------------------
-     * Delete queue file
-     * @author: K24DTCN210-NVMANH (23/11/2025 17:38)
+     * Chạy trên thread flusher: fsync các record mới, compact khi journal quá lớn
      * --------------------------------------------------- */
-    private void deleteFile() {
-        File file = new File(QUEUE_FILE);
-        if (file.exists() && file.delete()) {
-            logger.info("Queue file deleted");
+    private void syncAndCompact() {
+        synchronized (journalLock) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                if (needsCompaction()) {
+                    compact();
+                } else if (unsynced) {
+                    channel.force(false);
+                    unsynced = false;
+                }
+            } catch (IOException e) {
+                logger.error("Failed to sync answer journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    private boolean needsCompaction() {
+        return journalBytes > COMPACT_MIN_BYTES && journalBytes > 2 * (FILE_HEADER_SIZE + liveBytes);
+    }
+
+    /* Ghi snapshot các answer còn pending ra file tạm rồi thay file journal (atomic move) */
+    private void compact() throws IOException {
+        Path tmp = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        long size = FILE_HEADER_SIZE;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, fileHeader(submissionId));
+            // In-flight chưa được xác nhận nên vẫn giữ; bản trong queue (nếu có) ghi sau để đè khi replay
+            for (QueuedAnswer qa : inFlight.values()) {
+                if (queue.containsKey(qa.getQuestionId())) {
+                    continue;
+                }
+                ByteBuffer record = encode(RECORD_PUT, qa);
+                size += record.limit();
+                writeFully(out, record);
+            }
+            for (QueuedAnswer qa : queue.values()) {
+                ByteBuffer record = encode(RECORD_PUT, qa);
+                size += record.limit();
+                writeFully(out, record);
+            }
+            out.force(false);
+        }
+
+        closeChannelQuietly();
+        try {
+            Files.move(tmp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, journalPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = FileChannel.open(journalPath, StandardOpenOption.WRITE);
+        channel.position(size);
+        logger.debug("Answer journal compacted: {} -> {} bytes", journalBytes, size);
+        journalBytes = size;
+        unsynced = false;
+    }
+
+    private void closeJournal() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        if (channel != null) {
+            try {
+                if (queue.isEmpty() && inFlight.isEmpty()) {
+                    closeChannelQuietly();
+                    Files.deleteIfExists(journalPath);
+                } else {
+                    compact();
+                    closeChannelQuietly();
+                }
+            } catch (IOException e) {
+                logger.error("Failed to close answer journal: {}", e.getMessage());
+                closeChannelQuietly();
+            }
         }
+        inFlight.clear();
+        submissionId = null;
+        journalPath = null;
+        journalBytes = 0;
+        unsynced = false;
+    }
+
+    private void closeChannelQuietly() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (unsynced) {
+                channel.force(false);
+            }
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close answer journal channel: {}", e.getMessage());
+        }
+        channel = null;
+    }
+
+    private static ByteBuffer fileHeader(Long submissionId) {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.putInt(FILE_MAGIC).putShort(FILE_VERSION).putLong(submissionId);
+        header.flip();
+        return header;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static long recordSize(String answer) {
+        // Ước lượng theo số char, đủ để quyết định khi nào compact
+        return RECORD_HEADER_SIZE + (answer != null ? answer.length() : 0) + RECORD_CRC_SIZE;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time == null ? NO_TIME : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis == NO_TIME ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
     }
 
     /* ---------------------------------------------------
@@ -280,32 +642,4 @@ public class AnswerQueue {
                     '}';
         }
     }
-    
-    /* ---------------------------------------------------
-     * LocalDateTime TypeAdapter for Gson (Java 17+ compatibility)
-     * Fixes: module java.base does not "opens java.time" to module com.google.gson
-     * @author: K24DTCN210-NVMANH (24/11/2025 15:11)
-     * --------------------------------------------------- */
-    private static class LocalDateTimeAdapter extends TypeAdapter<LocalDateTime> {
-        private static final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-        
-        @Override
-        public void write(JsonWriter out, LocalDateTime value) throws IOException {
-            if (value == null) {
-                out.nullValue();
-            } else {
-                out.value(value.format(formatter));
-            }
-        }
-        
-        @Override
-        public LocalDateTime read(JsonReader in) throws IOException {
-            if (in.peek() == com.google.gson.stream.JsonToken.NULL) {
-                in.nextNull();
-                return null;
-            }
-            String dateTimeStr = in.nextString();
-            return LocalDateTime.parse(dateTimeStr, formatter);
-        }
-    }
 }
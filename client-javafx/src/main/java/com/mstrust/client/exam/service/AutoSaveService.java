@@ -2,6 +2,7 @@ package com.mstrust.client.exam.service;
 
 import com.mstrust.client.exam.api.ExamApiClient;
 import com.mstrust.client.exam.dto.SaveAnswerRequest;
+import com.mstrust.client.exam.dto.SaveAnswersBatchResponse;
 import com.mstrust.client.exam.exception.ExamTimeExpiredException;
 import com.mstrust.client.exam.model.ExamSession;
 import javafx.application.Platform;
@@ -10,7 +11,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.function.Consumer;
 
@@ -25,6 +29,8 @@ import java.util.function.Consumer;
  * - Notify UI về save status
  * 
  * @author: K24DTCN210-NVMANH (23/11/2025 17:35)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 19:50) - Mở / đóng journal của AnswerQueue theo submission
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 09:10) - Flush hàng đợi bằng batch save endpoint
  * --------------------------------------------------- */
 public class AutoSaveService {
     
@@ -34,6 +40,7 @@ public class AutoSaveService {
     private static final int PERIODIC_SAVE_INTERVAL_SECONDS = 30;
     private static final int DEBOUNCE_DELAY_SECONDS = 3;
     private static final int MAX_RETRY_ATTEMPTS = 3;
+    private static final int BATCH_SIZE = 50;
     
     // Dependencies
     private final ExamApiClient apiClient;
@@ -92,6 +99,9 @@ public class AutoSaveService {
         this.session = session;
         this.isRunning = true;
         
+        // Replay các answer chưa gửi được của submission này (lần chạy trước bị tắt ngang)
+        answerQueue.open(session.getSubmissionId());
+        
         logger.info("Starting AutoSaveService - Periodic interval: {}s", PERIODIC_SAVE_INTERVAL_SECONDS);
         
         // Start periodic save task
@@ -128,6 +138,7 @@ public class AutoSaveService {
         
         // Final save attempt
         saveAllPendingAnswers();
+        answerQueue.close();
         
         // Shutdown schedulers (wait for completion)
         shutdownScheduler(periodicScheduler, "Periodic");
@@ -172,37 +183,45 @@ public class AutoSaveService {
 
     /* ---------------------------------------------------
      * Save all pending answers (periodic + retry failed)
+     * Gửi theo batch (1 request / BATCH_SIZE câu) cho tới khi hết queue hoặc gặp lỗi;
+     * chỉ requeue những câu backend báo lỗi
+     * @returns true nếu tất cả câu đã gửi đều save thành công
      * @author: K24DTCN210-NVMANH (23/11/2025 17:35)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 09:10) - Dùng batch endpoint thay vì save từng câu
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 18:40) - Chỉ acknowledge (xóa khỏi journal) câu backend đã lưu
      * --------------------------------------------------- */
-    public void saveAllPendingAnswers() {
+    public synchronized boolean saveAllPendingAnswers() {
         if (session == null) {
             logger.warn("Session null, không thể save");
-            return;
+            return false;
         }
         
         int pendingCount = answerQueue.getPendingCount();
         if (pendingCount == 0) {
             logger.debug("Không có pending answers");
-            return;
+            return true;
         }
         
         logger.info("Saving {} pending answers...", pendingCount);
         notifyStatus(SaveStatus.SAVING);
         
-        // Dequeue tối đa 10 answers mỗi lần
-        List<AnswerQueue.QueuedAnswer> queuedAnswers = answerQueue.dequeue(10);
-        
         int successCount = 0;
         int failCount = 0;
         
-        for (AnswerQueue.QueuedAnswer qa : queuedAnswers) {
-            boolean success = saveToBackend(qa.getQuestionId(), qa.getAnswer(), true);
+        // Mỗi vòng gửi 1 batch; dừng khi có câu lỗi để không gửi lại ngay câu vừa requeue
+        while (failCount == 0) {
+            List<AnswerQueue.QueuedAnswer> queuedAnswers = answerQueue.dequeue(BATCH_SIZE);
+            if (queuedAnswers.isEmpty()) {
+                break;
+            }
+            Set<Long> savedIds = saveBatchToBackend(queuedAnswers);
             
-            if (success) {
-                successCount++;
-                logger.debug("Saved answer for question {} (retry {})", 
-                    qa.getQuestionId(), qa.getRetryCount());
-            } else {
+            for (AnswerQueue.QueuedAnswer qa : queuedAnswers) {
+                if (savedIds.contains(qa.getQuestionId())) {
+                    answerQueue.acknowledge(qa);
+                    successCount++;
+                    continue;
+                }
                 failCount++;
                 
                 // Requeue if under retry limit
@@ -211,6 +230,7 @@ public class AutoSaveService {
                     logger.warn("Save failed for question {}, requeued (retry {})", 
                         qa.getQuestionId(), qa.getRetryCount());
                 } else {
+                    answerQueue.acknowledge(qa);
                     logger.error("Save failed for question {} after {} attempts, DROPPED", 
                         qa.getQuestionId(), MAX_RETRY_ATTEMPTS);
                     
@@ -235,6 +255,7 @@ public class AutoSaveService {
         } else {
             notifyStatus(SaveStatus.SUCCESS);
         }
+        return failCount == 0;
     }
 
     /* ---------------------------------------------------
@@ -322,6 +343,57 @@ public class AutoSaveService {
         }
     }
 
+    /* ---------------------------------------------------
+     * Save một batch câu trả lời lên backend (1 request)
+     * @param queuedAnswers Các câu vừa dequeue
+     * @returns Tập questionId đã save thành công (rỗng nếu cả request lỗi)
+     * @author: K24DTCN210-NVMANH (18/10/2026 09:10)
+     * --------------------------------------------------- */
+    private Set<Long> saveBatchToBackend(List<AnswerQueue.QueuedAnswer> queuedAnswers) {
+        List<SaveAnswerRequest> requests = new ArrayList<>(queuedAnswers.size());
+        for (AnswerQueue.QueuedAnswer qa : queuedAnswers) {
+            requests.add(SaveAnswerRequest.builder()
+                .questionId(qa.getQuestionId())
+                .answerText(qa.getAnswer())
+                .isAutoSave(true)
+                .build());
+        }
+        
+        Set<Long> savedIds = new HashSet<>();
+        try {
+            SaveAnswersBatchResponse response = apiClient.saveAnswersBatch(session.getSubmissionId(), requests);
+            if (response.getResults() != null) {
+                for (SaveAnswersBatchResponse.ItemResult result : response.getResults()) {
+                    if (result.isSuccess()) {
+                        savedIds.add(result.getQuestionId());
+                    } else {
+                        logger.warn("Save failed for question {}: {}", result.getQuestionId(), result.getMessage());
+                    }
+                }
+            }
+        } catch (ExamTimeExpiredException e) {
+            logger.error("Save failed - Exam time expired: {}", e.getMessage());
+            if (onTimeExpired != null) {
+                Platform.runLater(() -> onTimeExpired.accept(e.getMessage()));
+            }
+        } catch (IOException e) {
+            logger.error("Save batch of {} answers failed: {}", requests.size(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("Unexpected error saving batch of {} answers: {}", requests.size(), e.getMessage());
+            logService.logError(
+                "AutoSaveService",
+                "Unexpected error saving batch of " + requests.size() + " answers",
+                e,
+                session.getSubmissionId(),
+                null
+            );
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return savedIds;
+    }
+
     /* ---------------------------------------------------
      * Shutdown scheduler gracefully
      * @param scheduler Scheduler cần shutdown
@@ -380,6 +452,15 @@ public class AutoSaveService {
         return answerQueue.getPendingCount();
     }
 
+    /* ---------------------------------------------------
+     * Queue dùng chung với ConnectionRecoveryService (1 journal / submission)
+     * @returns AnswerQueue
+     * @author: K24DTCN210-NVMANH (17/10/2026 19:50)
+     * --------------------------------------------------- */
+    public AnswerQueue getAnswerQueue() {
+        return answerQueue;
+    }
+
     /* ---------------------------------------------------
      * Check xem service đang running không
      * @returns true nếu đang running
@@ -1,6 +1,7 @@
 package com.mstrust.client.exam.service;
 
 import com.google.gson.Gson;
+import com.mstrust.client.api.ApiTransport;
 import com.mstrust.client.exam.api.ExamApiClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,12 +9,8 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -23,6 +20,7 @@ import java.util.concurrent.Executors;
  * Client Log Service - Gửi log lỗi từ client về backend
  * 
  * @author: K24DTCN210-NVMANH (04/12/2025 22:15)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Gửi qua ApiTransport chung (base URL từ config)
  * --------------------------------------------------- */
 public class ClientLogService {
     
@@ -32,7 +30,7 @@ public class ClientLogService {
     private final ExamApiClient apiClient;
     private final Gson gson;
     private final ExecutorService executorService;
-    private final HttpClient httpClient;
+    private final ApiTransport transport;
     
     public ClientLogService(ExamApiClient apiClient) {
         this.apiClient = apiClient;
@@ -42,9 +40,7 @@ public class ClientLogService {
             t.setDaemon(true);
             return t;
         });
-        this.httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+        this.transport = ApiTransport.getInstance();
     }
     
     /* ---------------------------------------------------
@@ -92,33 +88,10 @@ public class ClientLogService {
     }
     
     private void sendToBackend(Map<String, Object> logRequest) throws IOException, InterruptedException {
-        String jsonBody = gson.toJson(logRequest);
-        String baseUrl = apiClient.getBaseUrl(); // Cần đảm bảo ExamApiClient có phương thức này hoặc tự construct
-        if (baseUrl == null || baseUrl.isEmpty()) {
-             // Fallback nếu không lấy được base URL từ apiClient (vì field thường private)
-             // Giả định localhost hoặc config
-             baseUrl = "http://localhost:8080"; 
-        }
-        
-        // Nếu apiClient expose baseUrl thì tốt, nếu không ta dùng reflection hoặc hardcode tạm thời cho dev env
-        // Tốt nhất là thêm getBaseUrl vào ExamApiClient, nhưng để tránh sửa nhiều file, ta thử dùng baseUrl từ config.properties nếu có.
-        // Ở đây tôi sẽ dùng URI resolve từ apiClient nếu có thể, nhưng ExamApiClient dùng okhttp/apache bên trong.
-        // Cách đơn giản nhất: assume apiClient đã init đúng, ta dùng lại token của nó.
-        
-        // Tuy nhiên, ExamApiClient.java chưa chắc expose getBaseUrl().
-        // Tôi sẽ dùng hardcode URL + context path "/api" vì project này đang chạy localhost:8080
-        // Cần cẩn thận với môi trường PROD.
-        
-        String url = baseUrl + LOG_ENDPOINT;
-        
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(url))
-            .header("Content-Type", "application/json")
-            .header("Authorization", "Bearer " + apiClient.getAuthToken())
-            .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
-            .build();
+        HttpRequest request = transport.postJson(LOG_ENDPOINT, apiClient.getAuthToken(), logRequest,
+            transport.defaultTimeout());
             
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = transport.getHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
         
         if (response.statusCode() >= 400) {
             logger.error("Backend rejected log: {} - {}", response.statusCode(), response.body());
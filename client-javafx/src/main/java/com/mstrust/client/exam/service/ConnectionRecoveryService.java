@@ -36,10 +36,11 @@ public class ConnectionRecoveryService implements NetworkMonitor.NetworkStatusLi
      * Constructor
      * @param autoSaveService AutoSaveService instance
      * @author: K24DTCN210-NVMANH (23/11/2025 17:41)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 19:50) - Dùng chung queue của AutoSaveService thay vì tạo queue mới
      * --------------------------------------------------- */
     public ConnectionRecoveryService(AutoSaveService autoSaveService) {
         this.autoSaveService = autoSaveService;
-        this.answerQueue = new AnswerQueue(); // Use same queue instance
+        this.answerQueue = autoSaveService.getAnswerQueue();
     }
 
     /* ---------------------------------------------------
@@ -119,6 +120,7 @@ public class ConnectionRecoveryService implements NetworkMonitor.NetworkStatusLi
     /* ---------------------------------------------------
      * Perform recovery operations
      * @author: K24DTCN210-NVMANH (23/11/2025 17:41)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 09:10) - Replay bằng batch save, bỏ sleep chờ kết quả
      * --------------------------------------------------- */
     private void performRecovery() {
         int pendingCount = answerQueue.getPendingCount();
@@ -131,17 +133,9 @@ public class ConnectionRecoveryService implements NetworkMonitor.NetworkStatusLi
         
         logger.info("Attempting to flush {} pending answers", pendingCount);
         
-        // Trigger auto-save to flush all pending
+        // Flush toàn bộ pending bằng batch save (chạy đồng bộ, câu lỗi đã được requeue)
         autoSaveService.saveAllPendingAnswers();
         
-        // Wait a moment for save to complete
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return;
-        }
-        
         // Check results
         int remainingCount = answerQueue.getPendingCount();
         int successCount = pendingCount - remainingCount;
@@ -1,12 +1,12 @@
 package com.mstrust.client.exam.service;
 
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
+import com.mstrust.client.api.ApiTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
@@ -23,6 +23,7 @@ import java.util.concurrent.TimeUnit;
  * - Support multiple listeners
  * 
  * @author: K24DTCN210-NVMANH (23/11/2025 17:39)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Ping qua ApiTransport chung thay vì OkHttp riêng
  * --------------------------------------------------- */
 public class NetworkMonitor {
     
@@ -30,8 +31,6 @@ public class NetworkMonitor {
     
     // Configuration
     private static final int HEALTH_CHECK_INTERVAL_SECONDS = 10;
-    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 5;
-    private static final String API_BASE_URL = "http://localhost:8080/api";
     
     // Scheduler
     private final ScheduledExecutorService scheduler;
@@ -41,8 +40,8 @@ public class NetworkMonitor {
     private boolean isConnected = true;
     private final List<NetworkStatusListener> listeners;
     
-    // HTTP Client for health checks
-    private final OkHttpClient httpClient;
+    // Transport chung (cùng connection pool với các API client)
+    private final ApiTransport transport;
 
     /* ---------------------------------------------------
      * Constructor
@@ -55,10 +54,7 @@ public class NetworkMonitor {
             return t;
         });
         this.listeners = new CopyOnWriteArrayList<>();
-        this.httpClient = new OkHttpClient.Builder()
-            .connectTimeout(HEALTH_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-            .readTimeout(HEALTH_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-            .build();
+        this.transport = ApiTransport.getInstance();
     }
 
     /* ---------------------------------------------------
@@ -135,18 +131,18 @@ public class NetworkMonitor {
      * @returns true nếu server reachable
      * @author: K24DTCN210-NVMANH (23/11/2025 17:39)
      * EditBy: K24DTCN210-NVMANH (24/11/2025 14:18) - Changed to public health check endpoint
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 10:30) - Dùng base URL từ config + timeout health của ApiTransport
      * --------------------------------------------------- */
     private boolean checkConnection() {
         try {
             // Simple HEAD request to public health check endpoint (no auth required)
-            Request request = new Request.Builder()
-                .url(API_BASE_URL + "/health/ping")
-                .head()
+            HttpRequest request = transport.newRequest("/api/health/ping", null, transport.healthTimeout())
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
                 .build();
             
-            Response response = httpClient.newCall(request).execute();
-            boolean success = response.isSuccessful();
-            response.close();
+            HttpResponse<Void> response = transport.getHttpClient()
+                .send(request, HttpResponse.BodyHandlers.discarding());
+            boolean success = response.statusCode() >= 200 && response.statusCode() < 300;
             
             logger.trace("Health check result: {}", success ? "SUCCESS" : "FAILED");
             return success;
@@ -154,6 +150,9 @@ public class NetworkMonitor {
         } catch (IOException e) {
             logger.debug("Health check failed: {}", e.getMessage());
             return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
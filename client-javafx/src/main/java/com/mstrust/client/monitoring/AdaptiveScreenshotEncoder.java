@@ -0,0 +1,251 @@
+package com.mstrust.client.monitoring;
+
+import com.mstrust.client.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/* ---------------------------------------------------
+ * Encoder JPEG cho screenshot, tự chọn độ phân giải + quality để mỗi frame ~ngân sách byte
+ * - Giữ 1 ImageWriter và các buffer pixel (ảnh đã scale, ảnh grayscale) dùng lại giữa các lần chụp
+ * - Mức (scale, quality) được nhớ giữa các frame: frame vượt ngân sách thì giảm quality trước,
+ *   hết quality mới giảm độ phân giải; frame nhỏ hơn nhiều thì nâng dần lên lại
+ * - Mỗi frame encode tối đa MAX_ATTEMPTS lần để CPU chụp có giới hạn trên máy yếu
+ * - Upload lỗi/chậm (onUploadResult) tăng mức áp lực: 1 = grayscale, 2 = grayscale + độ phân giải
+ *   tối thiểu; upload nhanh trở lại thì giảm dần
+ * - Không thread-safe: dùng trên 1 thread chụp duy nhất
+ * @author: K24DTCN210-NVMANH (18/10/2026 11:00)
+ * --------------------------------------------------- */
+public class AdaptiveScreenshotEncoder {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveScreenshotEncoder.class);
+
+    /* Hệ số thu nhỏ so với kích thước đã giới hạn theo max width/height */
+    private static final double[] SCALES = {1.0, 0.75, 0.5};
+    private static final float QUALITY_STEP = 0.1f;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_PRESSURE = 2;
+
+    /* Vượt ngân sách > 15% thì encode lại; nhỏ hơn 60% thì frame sau nâng chất lượng */
+    private static final double OVER_BUDGET = 1.15;
+    private static final double UNDER_BUDGET = 0.6;
+
+    private final int maxWidth;
+    private final int maxHeight;
+    private final float maxQuality;
+    private final float minQuality;
+    private final long targetBytes;
+    private final long slowUploadMillis;
+
+    private ImageWriter writer;
+    private BufferedImage scaledBuffer;
+    private BufferedImage grayBuffer;
+
+    private int scaleIndex = 0;
+    private float quality;
+    private int pressure = 0;
+
+    /* Frame đang encode: ảnh gốc + ảnh đã scale theo mức hiện tại */
+    private BufferedImage source;
+    private BufferedImage frame;
+
+    /* ---------------------------------------------------
+     * Constructor - đọc giới hạn từ AppConfig
+     * @author: K24DTCN210-NVMANH (18/10/2026 11:00)
+     * --------------------------------------------------- */
+    public AdaptiveScreenshotEncoder() {
+        AppConfig config = AppConfig.getInstance();
+        this.maxWidth = config.getScreenshotMaxWidth();
+        this.maxHeight = config.getScreenshotMaxHeight();
+        this.maxQuality = config.getScreenshotJpegQuality();
+        this.minQuality = (float) Math.min(config.getScreenshotMinQuality(), maxQuality);
+        this.targetBytes = config.getScreenshotTargetKb() * 1024L;
+        this.slowUploadMillis = config.getScreenshotUploadSlowMillis();
+        this.quality = maxQuality;
+    }
+
+    /* ---------------------------------------------------
+     * Scale ảnh chụp về độ phân giải hiện tại (dùng buffer có sẵn)
+     * Ảnh trả về dùng để tính perceptual hash; chỉ hợp lệ tới lần prepare() kế tiếp
+     * @param screenshot Ảnh chụp màn hình gốc
+     * @returns Frame đã scale
+     * @author: K24DTCN210-NVMANH (18/10/2026 11:00)
+     * --------------------------------------------------- */
+    public BufferedImage prepare(BufferedImage screenshot) {
+        this.source = screenshot;
+        this.frame = scale(screenshot);
+        return frame;
+    }
+
+    /* ---------------------------------------------------
+     * Encode frame đã prepare() ra file JPEG, tự hạ quality/độ phân giải nếu vượt ngân sách
+     * @param target File đích (bị ghi đè)
+     * @returns Kích thước file (byte)
+     * @throws IOException nếu encode lỗi
+     * @author: K24DTCN210-NVMANH (18/10/2026 11:00)
+     * --------------------------------------------------- */
+    public long encode(Path target) throws IOException {
+        if (frame == null) {
+            throw new IllegalStateException("prepare() must be called before encode()");
+        }
+
+        long size = 0;
+        try {
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                size = write(pressure > 0 ? toGray(frame) : frame, target);
+                if (size <= targetBytes * OVER_BUDGET || attempt == MAX_ATTEMPTS || !stepDown()) {
+                    break;
+                }
+                frame = scale(source);
+            }
+
+            if (size < targetBytes * UNDER_BUDGET) {
+                stepUp();
+            }
+            logger.debug("Screenshot encoded: {}x{}, quality {}, gray {}, {} KB",
+                    frame.getWidth(), frame.getHeight(), String.format("%.2f", quality), pressure > 0, size / 1024);
+            return size;
+        } finally {
+            source = null;
+            frame = null;
+        }
+    }
+
+    /* ---------------------------------------------------
+     * Phản hồi kết quả upload để điều chỉnh mức áp lực
+     * @param success Upload thành công
+     * @param elapsedMillis Thời gian upload
+     * @author: K24DTCN210-NVMANH (18/10/2026 11:00)
+     * --------------------------------------------------- */
+    public void onUploadResult(boolean success, long elapsedMillis) {
+        int previous = pressure;
+        if (!success || elapsedMillis > slowUploadMillis) {
+            pressure = Math.min(MAX_PRESSURE, pressure + 1);
+        } else if (elapsedMillis < slowUploadMillis / 2) {
+            pressure = Math.max(0, pressure - 1);
+        }
+        if (pressure != previous) {
+            logger.info("Screenshot upload pressure {} -> {} (success: {}, {} ms)",
+                    previous, pressure, success, elapsedMillis);
+        }
+    }
+
+    /* Bỏ frame đã prepare() mà không encode (vd màn hình không đổi), không giữ ảnh gốc trong heap */
+    public void discard() {
+        source = null;
+        frame = null;
+    }
+
+    /* Giải phóng ImageWriter và buffer */
+    public void close() {
+        if (writer != null) {
+            writer.dispose();
+            writer = null;
+        }
+        scaledBuffer = null;
+        grayBuffer = null;
+    }
+
+    // =============== INTERNAL ===============
+
+    private long write(BufferedImage image, Path target) throws IOException {
+        if (writer == null) {
+            writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        }
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        // Ghi thẳng ra file (không qua buffer byte[]), cắt file cũ khi encode lại
+        try (RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw");
+             FileImageOutputStream output = new FileImageOutputStream(file)) {
+            file.setLength(0);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.reset();
+        }
+        return Files.size(target);
+    }
+
+    private BufferedImage scale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double fit = Math.min(1.0, Math.min((double) maxWidth / width, (double) maxHeight / height));
+        double factor = fit * SCALES[effectiveScaleIndex()];
+        if (factor >= 1.0) {
+            return image;
+        }
+
+        int newWidth = Math.max(1, (int) (width * factor));
+        int newHeight = Math.max(1, (int) (height * factor));
+        if (scaledBuffer == null || scaledBuffer.getWidth() != newWidth || scaledBuffer.getHeight() != newHeight) {
+            scaledBuffer = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+        }
+
+        Graphics2D g = scaledBuffer.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, newWidth, newHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return scaledBuffer;
+    }
+
+    private BufferedImage toGray(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (grayBuffer == null || grayBuffer.getWidth() != width || grayBuffer.getHeight() != height) {
+            grayBuffer = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        }
+
+        Graphics2D g = grayBuffer.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return grayBuffer;
+    }
+
+    /* Áp lực tối đa buộc dùng độ phân giải thấp nhất */
+    private int effectiveScaleIndex() {
+        return pressure >= MAX_PRESSURE ? SCALES.length - 1 : scaleIndex;
+    }
+
+    /* Giảm quality trước, hết thì giảm độ phân giải; false nếu đã ở mức thấp nhất */
+    private boolean stepDown() {
+        if (quality - QUALITY_STEP >= minQuality - 0.001f) {
+            quality -= QUALITY_STEP;
+            return true;
+        }
+        if (scaleIndex < SCALES.length - 1) {
+            scaleIndex++;
+            quality = maxQuality;
+            return true;
+        }
+        return false;
+    }
+
+    /* Ngược lại stepDown: nâng quality trong mức độ phân giải hiện tại, đủ rồi mới lên độ phân giải */
+    private void stepUp() {
+        if (quality < maxQuality - 0.001f) {
+            quality = Math.min(maxQuality, quality + QUALITY_STEP);
+        } else if (scaleIndex > 0) {
+            scaleIndex--;
+            quality = minQuality;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.mstrust.client.monitoring;
+
+import java.awt.image.BufferedImage;
+
+/* ---------------------------------------------------
+ * Perceptual hash (dHash) cho screenshot để phát hiện màn hình không đổi
+ * - Thu ảnh về lưới grayscale (size+1) x size bằng trung bình từng ô
+ * - Mỗi bit = ô bên trái sáng hơn ô bên phải (so sánh gradient ngang)
+ * - 2 ảnh gần giống nhau (nén JPEG, con trỏ chuột nhấp nháy...) có khoảng cách Hamming nhỏ
+ * @author: K24DTCN210-NVMANH (17/10/2026 13:40)
+ * --------------------------------------------------- */
+public final class PerceptualHash {
+
+    /* Lưới 16x16 = 256 bit: đủ nhạy với thay đổi nội dung bài làm, vẫn bỏ qua nhiễu nhỏ */
+    public static final int DEFAULT_SIZE = 16;
+
+    private PerceptualHash() {
+    }
+
+    /* ---------------------------------------------------
+     * Tính dHash của ảnh
+     * @param image Ảnh cần hash
+     * @param size Số bit mỗi chiều (hash dài size*size bit)
+     * @returns Hash dạng hex (size*size/4 ký tự)
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:40)
+     * --------------------------------------------------- */
+    public static String compute(BufferedImage image, int size) {
+        int cols = size + 1;
+        int rows = size;
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        long[] sums = new long[cols * rows];
+        int[] counts = new int[cols * rows];
+        int[] rowPixels = new int[width];
+        int[] cellOfX = new int[width];
+        for (int x = 0; x < width; x++) {
+            cellOfX[x] = Math.min(cols - 1, x * cols / width);
+        }
+
+        for (int y = 0; y < height; y++) {
+            int cellRow = Math.min(rows - 1, y * rows / height) * cols;
+            image.getRGB(0, y, width, 1, rowPixels, 0, width);
+            for (int x = 0; x < width; x++) {
+                int rgb = rowPixels[x];
+                // Luma xấp xỉ (0.299R + 0.587G + 0.114B) * 1000
+                int luma = ((rgb >> 16) & 0xFF) * 299 + ((rgb >> 8) & 0xFF) * 587 + (rgb & 0xFF) * 114;
+                int cell = cellRow + cellOfX[x];
+                sums[cell] += luma;
+                counts[cell]++;
+            }
+        }
+
+        long[] bits = new long[(size * size + 63) / 64];
+        int bit = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < size; c++) {
+                int left = r * cols + c;
+                long leftMean = counts[left] > 0 ? sums[left] / counts[left] : 0;
+                long rightMean = counts[left + 1] > 0 ? sums[left + 1] / counts[left + 1] : 0;
+                if (leftMean > rightMean) {
+                    bits[bit >> 6] |= 1L << (bit & 63);
+                }
+                bit++;
+            }
+        }
+
+        StringBuilder hex = new StringBuilder(bits.length * 16);
+        for (long word : bits) {
+            hex.append(String.format("%016x", word));
+        }
+        return hex.toString();
+    }
+
+    /* ---------------------------------------------------
+     * Khoảng cách Hamming giữa 2 hash cùng độ dài
+     * @param a Hash hex
+     * @param b Hash hex
+     * @returns Số bit khác nhau, Integer.MAX_VALUE nếu không so sánh được
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:40)
+     * --------------------------------------------------- */
+    public static int distance(String a, String b) {
+        if (a == null || b == null || a.length() != b.length() || a.length() % 16 != 0) {
+            return Integer.MAX_VALUE;
+        }
+        int distance = 0;
+        for (int i = 0; i < a.length(); i += 16) {
+            long wordA = Long.parseUnsignedLong(a.substring(i, i + 16), 16);
+            long wordB = Long.parseUnsignedLong(b.substring(i, i + 16), 16);
+            distance += Long.bitCount(wordA ^ wordB);
+        }
+        return distance;
+    }
+}
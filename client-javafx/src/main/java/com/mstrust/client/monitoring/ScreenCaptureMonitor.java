@@ -2,18 +2,20 @@ package com.mstrust.client.monitoring;
 
 import com.mstrust.client.api.MonitoringApiClient;
 import com.mstrust.client.config.AppConfig;
+import com.mstrust.client.dto.ActivityData;
+import com.mstrust.client.dto.ActivityLogRequest;
 import com.mstrust.client.util.PlatformUtil;
 import com.mstrust.client.util.WindowDetector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -22,8 +24,10 @@ import java.util.concurrent.TimeUnit;
 /* ---------------------------------------------------
  * Monitor chụp màn hình tự động với random interval
  * Random interval: 30-120s (configurable)
- * JPEG compression 70%, max resolution 1920x1080
+ * JPEG tối đa 1920x1080, quality/độ phân giải do AdaptiveScreenshotEncoder chọn theo ngân sách byte
  * @author: K24DTCN210-NVMANH (01/12/2025 10:10)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 13:40) - Bỏ qua upload khi màn hình không đổi (perceptual hash)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 11:00) - Encode qua AdaptiveScreenshotEncoder, phản hồi kết quả upload
  * --------------------------------------------------- */
 public class ScreenCaptureMonitor implements Monitor {
     private static final Logger logger = LoggerFactory.getLogger(ScreenCaptureMonitor.class);
@@ -33,12 +37,18 @@ public class ScreenCaptureMonitor implements Monitor {
     private ScheduledExecutorService scheduler;
     private final Path tempDir;
     private final Random random;
+    private final AdaptiveScreenshotEncoder encoder;
     
     private Long currentSubmissionId;
     private boolean isRunning = false;
     private LocalDateTime lastCaptureTime;
     private int captureCount = 0;
     private int nextIntervalSeconds;
+    
+    // Dedup: hash của frame đã upload gần nhất + số lần bỏ qua liên tiếp
+    private String lastUploadedHash;
+    private int consecutiveSkips = 0;
+    private int skippedCount = 0;
 
     /* ---------------------------------------------------
      * Constructor
@@ -50,6 +60,7 @@ public class ScreenCaptureMonitor implements Monitor {
         this.config = AppConfig.getInstance();
         this.scheduler = null;
         this.random = new Random();
+        this.encoder = new AdaptiveScreenshotEncoder();
         
         // Tạo temp directory
         this.tempDir = Paths.get(System.getProperty("java.io.tmpdir"), "mstrust-screenshots");
@@ -71,6 +82,9 @@ public class ScreenCaptureMonitor implements Monitor {
         this.currentSubmissionId = submissionId;
         this.isRunning = true;
         this.captureCount = 0;
+        this.skippedCount = 0;
+        this.consecutiveSkips = 0;
+        this.lastUploadedHash = null;
         
         // Create new scheduler
         this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
@@ -112,12 +126,14 @@ public class ScreenCaptureMonitor implements Monitor {
             }
         }
         
-        logger.info("ScreenCaptureMonitor stopped. Total captures: {}", captureCount);
+        logger.info("ScreenCaptureMonitor stopped. Total captures: {}, skipped unchanged: {}",
+                captureCount, skippedCount);
     }
 
     @Override
     public void shutdown() {
         stop();
+        encoder.close();
         cleanupTempFiles();
         logger.info("ScreenCaptureMonitor shutdown complete");
     }
@@ -174,6 +190,8 @@ public class ScreenCaptureMonitor implements Monitor {
     /* ---------------------------------------------------
      * Chụp màn hình và upload
      * @author: K24DTCN210-NVMANH (01/12/2025 10:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 11:00) - Scale/encode bằng encoder dùng lại buffer,
+     *   thời gian + kết quả upload được báo lại để encoder giảm tải khi mạng nghẽn
      * --------------------------------------------------- */
     private void captureAndUpload() {
         try {
@@ -184,108 +202,99 @@ public class ScreenCaptureMonitor implements Monitor {
                 return;
             }
             
-            // Resize nếu cần (max 1920x1080)
-            screenshot = resizeIfNeeded(screenshot);
+            // Scale về độ phân giải hiện tại của encoder (max 1920x1080)
+            BufferedImage frame = encoder.prepare(screenshot);
+            
+            // Màn hình gần như không đổi -> chỉ gửi activity nhỏ thay vì upload ảnh
+            String hash = config.isScreenshotDedupEnabled()
+                ? PerceptualHash.compute(frame, PerceptualHash.DEFAULT_SIZE) : null;
+            if (hash != null && reportUnchangedIfSimilar(hash)) {
+                encoder.discard();
+                return;
+            }
             
             // Get screen info
             String screenResolution = PlatformUtil.getScreenResolution();
             String windowTitle = WindowDetector.getActiveWindowTitle();
             
-            // Save to temp file với compression
-            Path imagePath = saveTempImage(screenshot);
-            
-            // Upload
-            boolean success = apiClient.uploadScreenshot(
-                imagePath, 
-                currentSubmissionId, 
-                screenResolution, 
-                windowTitle
-            );
-            
-            if (success) {
-                captureCount++;
-                lastCaptureTime = LocalDateTime.now();
-                logger.info("Screenshot uploaded successfully. Count: {}", captureCount);
-            } else {
-                logger.error("Failed to upload screenshot");
+            Path imagePath = newTempImagePath();
+            try {
+                encoder.encode(imagePath);
+                
+                // Upload (stream từ file tạm)
+                long started = System.currentTimeMillis();
+                boolean success = apiClient.uploadScreenshot(
+                    imagePath, 
+                    currentSubmissionId, 
+                    screenResolution, 
+                    windowTitle,
+                    hash != null ? "{\"phash\":\"" + hash + "\"}" : null
+                );
+                encoder.onUploadResult(success, System.currentTimeMillis() - started);
+                
+                if (success) {
+                    captureCount++;
+                    lastCaptureTime = LocalDateTime.now();
+                    lastUploadedHash = hash;
+                    consecutiveSkips = 0;
+                    logger.info("Screenshot uploaded successfully. Count: {}", captureCount);
+                } else {
+                    logger.error("Failed to upload screenshot");
+                }
+            } finally {
+                java.nio.file.Files.deleteIfExists(imagePath);
             }
             
-            // Delete temp file
-            imagePath.toFile().delete();
-            
         } catch (Exception e) {
+            encoder.discard();
             logger.error("Error in captureAndUpload", e);
         }
     }
 
     /* ---------------------------------------------------
-     * Resize image nếu vượt quá max resolution
-     * @param image BufferedImage gốc
-     * @returns BufferedImage đã resize
-     * @author: K24DTCN210-NVMANH (01/12/2025 10:10)
+     * So sánh hash với frame đã upload gần nhất, nếu đủ giống thì gửi activity
+     * SCREENSHOT_UNCHANGED (server cộng repeatCount cho frame đó)
+     * - Sau maxSkips lần bỏ qua liên tiếp vẫn upload lại 1 frame đầy đủ
+     * - Gửi activity lỗi thì upload ảnh như bình thường
+     * Gửi trực tiếp trên thread chụp để luôn đến server trước frame upload kế tiếp
+     * @param hash Perceptual hash của frame hiện tại
+     * @returns true nếu đã bỏ qua upload
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:40)
      * --------------------------------------------------- */
-    private BufferedImage resizeIfNeeded(BufferedImage image) {
-        int maxWidth = config.getScreenshotMaxWidth();
-        int maxHeight = config.getScreenshotMaxHeight();
-        
-        int width = image.getWidth();
-        int height = image.getHeight();
-        
-        if (width <= maxWidth && height <= maxHeight) {
-            return image; // Không cần resize
+    private boolean reportUnchangedIfSimilar(String hash) {
+        if (lastUploadedHash == null || consecutiveSkips >= config.getScreenshotDedupMaxSkips()) {
+            return false;
+        }
+        int distance = PerceptualHash.distance(hash, lastUploadedHash);
+        if (distance > config.getScreenshotDedupThreshold()) {
+            return false;
         }
         
-        // Calculate new dimensions (maintain aspect ratio)
-        double scale = Math.min(
-            (double) maxWidth / width,
-            (double) maxHeight / height
-        );
-        
-        int newWidth = (int) (width * scale);
-        int newHeight = (int) (height * scale);
-        
-        // Resize
-        BufferedImage resized = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-        java.awt.Graphics2D g = resized.createGraphics();
-        g.setRenderingHint(java.awt.RenderingHints.KEY_INTERPOLATION, 
-                         java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g.drawImage(image, 0, 0, newWidth, newHeight, null);
-        g.dispose();
+        ActivityLogRequest request = ActivityLogRequest.of(currentSubmissionId,
+            List.of(ActivityData.screenshotUnchanged(lastUploadedHash, distance)));
+        if (!apiClient.logActivities(request)) {
+            return false;
+        }
         
-        logger.debug("Screenshot resized: {}x{} -> {}x{}", width, height, newWidth, newHeight);
-        return resized;
+        consecutiveSkips++;
+        skippedCount++;
+        lastCaptureTime = LocalDateTime.now();
+        logger.info("Screen unchanged (distance {}), skipped upload. Skipped: {}", distance, skippedCount);
+        return true;
     }
 
     /* ---------------------------------------------------
-     * Save image to temp file với JPEG compression
-     * @param image BufferedImage to save
-     * @returns Path to saved file
+     * Tạo đường dẫn file tạm cho screenshot (encoder ghi vào, xóa sau khi upload)
+     * @returns Path file tạm
      * @author: K24DTCN210-NVMANH (01/12/2025 10:10)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 11:00) - Chỉ tạo path, encode chuyển sang AdaptiveScreenshotEncoder
      * --------------------------------------------------- */
-    private Path saveTempImage(BufferedImage image) throws Exception {
+    private Path newTempImagePath() {
         String filename = String.format("screenshot_%s_%d.jpg",
             LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")),
             System.currentTimeMillis()
         );
-        
-        Path imagePath = tempDir.resolve(filename);
-        File outputFile = imagePath.toFile();
-        
-        // JPEG compression với quality từ config
-        javax.imageio.ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
-        javax.imageio.ImageWriteParam param = writer.getDefaultWriteParam();
-        if (param.canWriteCompressed()) {
-            param.setCompressionMode(javax.imageio.ImageWriteParam.MODE_EXPLICIT);
-            param.setCompressionQuality((float) config.getScreenshotJpegQuality());
-        }
-        
-        javax.imageio.stream.ImageOutputStream ios = ImageIO.createImageOutputStream(outputFile);
-        writer.setOutput(ios);
-        writer.write(null, new javax.imageio.IIOImage(image, null, null), param);
-        writer.dispose();
-        ios.close();
-        
-        return imagePath;
+        return tempDir.resolve(filename);
     }
 
     /* ---------------------------------------------------
@@ -317,6 +326,15 @@ public class ScreenCaptureMonitor implements Monitor {
         return captureCount;
     }
 
+    /* ---------------------------------------------------
+     * Get số lần chụp bị bỏ qua vì màn hình không đổi
+     * @returns int skipped count
+     * @author: K24DTCN210-NVMANH (17/10/2026 13:40)
+     * --------------------------------------------------- */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
     /* ---------------------------------------------------
      * Get thời gian chụp gần nhất
      * @returns LocalDateTime
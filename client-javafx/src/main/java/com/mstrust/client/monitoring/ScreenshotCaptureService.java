@@ -6,7 +6,6 @@ import com.mstrust.client.util.WindowDetector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import java.awt.Rectangle;
 import java.awt.Robot;
 import java.awt.Toolkit;
@@ -24,6 +23,7 @@ import java.util.concurrent.TimeUnit;
  * Service chụp màn hình tự động và upload lên backend
  * Chụp mỗi 30 giây, compress và upload via API
  * @author: K24DTCN210-NVMANH (21/11/2025 11:20)
+ * EditBy: K24DTCN210-NVMANH (18/10/2026 11:00) - Encode qua AdaptiveScreenshotEncoder thay vì ImageIO.write
  * --------------------------------------------------- */
 public class ScreenshotCaptureService {
     private static final Logger logger = LoggerFactory.getLogger(ScreenshotCaptureService.class);
@@ -32,6 +32,7 @@ public class ScreenshotCaptureService {
     private final AppConfig config;
     private ScheduledExecutorService scheduler;
     private final Path tempDir;
+    private final AdaptiveScreenshotEncoder encoder;
     
     private Long currentSubmissionId;
     private boolean isRunning = false;
@@ -47,6 +48,7 @@ public class ScreenshotCaptureService {
         this.apiClient = apiClient;
         this.config = AppConfig.getInstance();
         this.scheduler = null; // Will be created on start
+        this.encoder = new AdaptiveScreenshotEncoder();
         
         // Tạo temp directory
         this.tempDir = Paths.get(System.getProperty("java.io.tmpdir"), "mstrust-screenshots");
@@ -131,6 +133,7 @@ public class ScreenshotCaptureService {
      * --------------------------------------------------- */
     public void shutdown() {
         stop(); // stop() already shuts down scheduler
+        encoder.close();
         
         // Cleanup temp files
         cleanupTempFiles();
@@ -141,6 +144,7 @@ public class ScreenshotCaptureService {
     /* ---------------------------------------------------
      * Chụp màn hình và upload
      * @author: K24DTCN210-NVMANH (21/11/2025 11:20)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 11:00) - Encoder thích ứng + báo kết quả upload, luôn xóa file tạm
      * --------------------------------------------------- */
     private void captureAndUpload() {
         try {
@@ -155,28 +159,34 @@ public class ScreenshotCaptureService {
             String screenResolution = getScreenResolution();
             String windowTitle = WindowDetector.getActiveWindowTitle();
             
-            // Save to temp file
-            Path imagePath = saveTempImage(screenshot);
-            
-            // Upload
-            boolean success = apiClient.uploadScreenshot(
-                imagePath, 
-                currentSubmissionId, 
-                screenResolution, 
-                windowTitle
-            );
-            
-            if (success) {
-                captureCount++;
-                lastCaptureTime = LocalDateTime.now();
-                logger.info("Screenshot uploaded successfully. Count: {}", captureCount);
-            } else {
-                logger.error("Failed to upload screenshot");
+            // Scale + encode ra file tạm theo ngân sách byte của encoder
+            Path imagePath = newTempImagePath();
+            try {
+                encoder.prepare(screenshot);
+                encoder.encode(imagePath);
+                
+                // Upload
+                long started = System.currentTimeMillis();
+                boolean success = apiClient.uploadScreenshot(
+                    imagePath, 
+                    currentSubmissionId, 
+                    screenResolution, 
+                    windowTitle
+                );
+                encoder.onUploadResult(success, System.currentTimeMillis() - started);
+                
+                if (success) {
+                    captureCount++;
+                    lastCaptureTime = LocalDateTime.now();
+                    logger.info("Screenshot uploaded successfully. Count: {}", captureCount);
+                } else {
+                    logger.error("Failed to upload screenshot");
+                }
+            } finally {
+                encoder.discard();
+                java.nio.file.Files.deleteIfExists(imagePath);
             }
             
-            // Delete temp file
-            imagePath.toFile().delete();
-            
         } catch (Exception e) {
             logger.error("Error in captureAndUpload", e);
         }
@@ -215,23 +225,17 @@ public class ScreenshotCaptureService {
     }
 
     /* ---------------------------------------------------
-     * Save image to temp file
-     * @param image BufferedImage to save
-     * @returns Path to saved file
+     * Tạo đường dẫn file tạm cho screenshot
+     * @returns Path file tạm
      * @author: K24DTCN210-NVMANH (21/11/2025 11:20)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 11:00) - Chỉ tạo path, encode chuyển sang AdaptiveScreenshotEncoder
      * --------------------------------------------------- */
-    private Path saveTempImage(BufferedImage image) throws Exception {
+    private Path newTempImagePath() {
         String filename = String.format("screenshot_%s_%d.jpg",
             LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")),
             System.currentTimeMillis()
         );
-        
-        Path imagePath = tempDir.resolve(filename);
-        File outputFile = imagePath.toFile();
-        
-        ImageIO.write(image, "jpg", outputFile);
-        
-        return imagePath;
+        return tempDir.resolve(filename);
     }
 
     /* ---------------------------------------------------
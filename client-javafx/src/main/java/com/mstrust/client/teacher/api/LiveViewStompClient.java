@@ -0,0 +1,144 @@
+package com.mstrust.client.teacher.api;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/* ---------------------------------------------------
+ * STOMP client tối giản cho live view của giáo viên
+ * - Kết nối raw WebSocket /api/ws/websocket (JWT gửi ở header handshake)
+ * - Subscribe /topic/exam/{examId}/live, mỗi MESSAGE đẩy body JSON cho onMessage
+ * - Mất kết nối thì gọi onClosed 1 lần; controller tự lấy lại snapshot và mở kết nối mới
+ * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+ * --------------------------------------------------- */
+public class LiveViewStompClient {
+    private static final Logger logger = LoggerFactory.getLogger(LiveViewStompClient.class);
+    private static final char NUL = '\u0000';
+
+    private final OkHttpClient client;
+    private final String wsUrl;
+    private final String authToken;
+    private final Long examId;
+    private final Consumer<String> onMessage;
+    private final Runnable onClosed;
+    private final StringBuilder buffer = new StringBuilder();
+
+    private WebSocket webSocket;
+    private volatile boolean open;
+    private volatile boolean closedByUser;
+
+    /* ---------------------------------------------------
+     * @param baseUrl API base URL dạng http(s)://host:port (không có /api)
+     * @param authToken JWT token
+     * @param examId ID của exam cần theo dõi
+     * @param onMessage Nhận body JSON của LiveViewDeltaMessage (chạy trên thread của OkHttp)
+     * @param onClosed Gọi khi kết nối đóng/lỗi (không gọi khi close() chủ động)
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    public LiveViewStompClient(String baseUrl, String authToken, Long examId,
+                               Consumer<String> onMessage, Runnable onClosed) {
+        this.client = new OkHttpClient.Builder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(0, TimeUnit.SECONDS)
+            .build();
+        this.wsUrl = baseUrl.replaceFirst("^http", "ws") + "/api/ws/websocket";
+        this.authToken = authToken;
+        this.examId = examId;
+        this.onMessage = onMessage;
+        this.onClosed = onClosed;
+    }
+
+    /* Mở kết nối và subscribe sau khi nhận CONNECTED */
+    public void connect() {
+        Request request = new Request.Builder()
+            .url(wsUrl)
+            .header("Authorization", "Bearer " + authToken)
+            .build();
+        webSocket = client.newWebSocket(request, new Listener());
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /* Đóng kết nối chủ động (đổi exam / đóng dashboard) */
+    public void close() {
+        closedByUser = true;
+        open = false;
+        if (webSocket != null) {
+            webSocket.send("DISCONNECT\n\n" + NUL);
+            webSocket.close(1000, "closed");
+        }
+        client.dispatcher().executorService().shutdown();
+    }
+
+    private void handleFrame(WebSocket ws, String frame) {
+        int headerEnd = frame.indexOf("\n\n");
+        String command = frame.substring(0, Math.max(0, frame.indexOf('\n'))).trim();
+        switch (command) {
+            case "CONNECTED" -> {
+                open = true;
+                ws.send("SUBSCRIBE\nid:live-" + examId + "\ndestination:/topic/exam/" + examId + "/live\n\n" + NUL);
+                logger.info("Live view subscribed for exam {}", examId);
+            }
+            case "MESSAGE" -> {
+                if (headerEnd >= 0) {
+                    onMessage.accept(frame.substring(headerEnd + 2));
+                }
+            }
+            case "ERROR" -> logger.warn("Live view STOMP error: {}", frame);
+            default -> { }
+        }
+    }
+
+    private void notifyClosed() {
+        boolean wasActive = !closedByUser;
+        open = false;
+        closedByUser = true;
+        if (wasActive) {
+            onClosed.run();
+        }
+    }
+
+    private class Listener extends WebSocketListener {
+        @Override
+        public void onOpen(WebSocket ws, Response response) {
+            ws.send("CONNECT\naccept-version:1.2\nheart-beat:0,0\nhost:localhost\n\n" + NUL);
+        }
+
+        @Override
+        public void onMessage(WebSocket ws, String text) {
+            buffer.append(text);
+            int end;
+            while ((end = buffer.indexOf(String.valueOf(NUL))) >= 0) {
+                String frame = buffer.substring(0, end);
+                buffer.delete(0, end + 1);
+                // Bỏ các dòng trống (heart-beat) trước frame
+                handleFrame(ws, frame.replaceFirst("^[\\r\\n]+", ""));
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket ws, int code, String reason) {
+            ws.close(1000, null);
+        }
+
+        @Override
+        public void onClosed(WebSocket ws, int code, String reason) {
+            notifyClosed();
+        }
+
+        @Override
+        public void onFailure(WebSocket ws, Throwable t, Response response) {
+            logger.warn("Live view connection failed: {}", t.getMessage());
+            notifyClosed();
+        }
+    }
+}
@@ -45,6 +45,7 @@ import javafx.scene.image.ImageView;
  * Controller cho Monitoring Dashboard
  * Hiển thị real-time monitoring cho teachers
  * @author: K24DTCN210-NVMANH (01/12/2025 12:00)
+ * EditBy: K24DTCN210-NVMANH (17/10/2026 17:30) - Snapshot 1 lần + delta qua WebSocket thay cho polling 5 giây
  * --------------------------------------------------- */
 public class MonitoringDashboardController {
     private static final Logger logger = LoggerFactory.getLogger(MonitoringDashboardController.class);
@@ -75,13 +76,19 @@ public class MonitoringDashboardController {
     private Gson gson;
     private ScheduledExecutorService refreshScheduler;
     private com.mstrust.client.teacher.api.ExamManagementApiClient examApiClient;
-    private com.mstrust.client.teacher.api.GradingApiClient gradingApiClient;
+    private com.mstrust.client.teacher.api.LiveViewStompClient liveViewClient;
     
     // State
     private Long selectedExamId;
     private ObservableList<AlertItem> alerts = FXCollections.observableArrayList();
     private ObservableList<StudentTableItem> studentTableItems = FXCollections.observableArrayList();
     private Map<Long, StudentCard> studentCards = new HashMap<>();
+    private Map<Long, StudentTableItem> studentIndex = new HashMap<>();
+    
+    // Live view (chỉ đọc/ghi trên FX thread)
+    private Long liveEpoch;
+    private long liveSeq;
+    private List<LiveDeltaDTO> pendingDeltas; // != null: đang chờ snapshot, giữ lại delta nhận được
     
     /* ---------------------------------------------------
      * Initialize controller
@@ -98,10 +105,6 @@ public class MonitoringDashboardController {
         this.examApiClient = new com.mstrust.client.teacher.api.ExamManagementApiClient();
         this.examApiClient.setToken(authToken);
         
-        // Initialize GradingApiClient để load submissions
-        this.gradingApiClient = new com.mstrust.client.teacher.api.GradingApiClient();
-        this.gradingApiClient.setToken(authToken);
-        
         this.httpClient = HttpClient.newBuilder()
             .connectTimeout(java.time.Duration.ofSeconds(30))
             .build();
@@ -113,15 +116,15 @@ public class MonitoringDashboardController {
         setupUI();
         loadExams();
         
-        // Auto-refresh mỗi 10 giây
         refreshScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread thread = new Thread(r, "Monitoring-Refresh-Thread");
             thread.setDaemon(true);
             return thread;
         });
         
-        // Refresh mỗi 5 giây để realtime hơn
-        refreshScheduler.scheduleAtFixedRate(this::refreshData, 5, 5, TimeUnit.SECONDS);
+        // Thay đổi tới qua WebSocket; định kỳ lấy lại snapshot để tự sửa nếu lỡ delta
+        // (mất kết nối, backend nhiều node) và mở lại kết nối nếu đã đóng
+        refreshScheduler.scheduleAtFixedRate(this::resyncLiveView, 60, 60, TimeUnit.SECONDS);
     }
     
     /* ---------------------------------------------------
@@ -190,6 +193,10 @@ public class MonitoringDashboardController {
                                 setStyle("-fx-text-fill: #27ae60; -fx-font-weight: bold;");
                             } else if (status.contains("Đã nộp")) {
                                 setStyle("-fx-text-fill: #3498db; -fx-font-weight: bold;");
+                            } else if (status.contains("Tạm dừng")) {
+                                setStyle("-fx-text-fill: #e67e22; -fx-font-weight: bold;");
+                            } else {
+                                setStyle("");
                             }
                         }
                     }
@@ -305,216 +312,267 @@ public class MonitoringDashboardController {
         ExamOption selected = examComboBox.getSelectionModel().getSelectedItem();
         if (selected != null) {
             selectedExamId = selected.getExamId();
+            liveEpoch = null;
             statusLabel.setText("Trạng thái: Đang giám sát đề thi: " + selected.getTitle());
+            connectLiveView(selectedExamId);
             refreshData();
             updateButtonStates();
         }
     }
     
     /* ---------------------------------------------------
-     * Refresh monitoring data
+     * Refresh monitoring data: lấy snapshot live view của exam đang chọn
      * @author: K24DTCN210-NVMANH (01/12/2025 12:00)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 17:30) - 1 request snapshot thay cho alerts + 2 lần load submissions
      * --------------------------------------------------- */
     private void refreshData() {
         if (selectedExamId == null) {
             return;
         }
         
+        Long examId = selectedExamId;
+        // Delta tới trong lúc chờ snapshot được giữ lại, áp sau snapshot nếu seq mới hơn
+        pendingDeltas = new ArrayList<>();
+        
         new Thread(() -> {
             try {
-                // Load alerts
-                loadAlerts();
-                
-                // Load students và screenshots
-                loadStudents();
+                LiveSnapshotDTO snapshot = fetchSnapshot(examId);
+                Platform.runLater(() -> applySnapshot(snapshot));
                 
             } catch (Exception e) {
                 logger.error("Error refreshing data", e);
+                Platform.runLater(() -> {
+                    // Không có snapshot: vẫn áp các delta đã giữ (mỗi dòng là trạng thái đầy đủ)
+                    List<LiveDeltaDTO> buffered = pendingDeltas;
+                    pendingDeltas = null;
+                    if (buffered != null) {
+                        liveEpoch = null; // nhận epoch của delta, không lấy lại snapshot liên tục khi server lỗi
+                        buffered.forEach(this::applyDelta);
+                        updateLiveLabels();
+                    }
+                });
             }
         }).start();
     }
     
     /* ---------------------------------------------------
-     * Load alerts từ API
-     * @author: K24DTCN210-NVMANH (01/12/2025 12:00)
+     * Lấy snapshot live view (students + alerts chưa review) từ API
+     * @param examId ID của exam
+     * @returns LiveSnapshotDTO
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
      * --------------------------------------------------- */
-    private void loadAlerts() {
-        try {
-            String url = baseUrl + "/api/alerts/exam/" + selectedExamId + "/unreviewed";
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + authToken)
-                .GET()
-                .build();
-            
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            if (response.statusCode() == 200) {
-                List<AlertDTO> alertDTOs = gson.fromJson(response.body(), 
-                    new TypeToken<List<AlertDTO>>(){}.getType());
-                
-                Platform.runLater(() -> {
-                    alerts.clear();
-                    for (AlertDTO dto : alertDTOs) {
-                        alerts.add(new AlertItem(dto));
-                    }
-                    alertsCountLabel.setText("Cảnh báo: " + alerts.size());
-                    updateEmptyStates();
-                    
-                    // Highlight student cards có alerts
-                    highlightStudentsWithAlerts();
-                });
-            }
-        } catch (Exception e) {
-            logger.error("Error loading alerts", e);
+    private LiveSnapshotDTO fetchSnapshot(Long examId) throws Exception {
+        String url = baseUrl + "/api/exam-sessions/live/" + examId + "/snapshot";
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .header("Authorization", "Bearer " + authToken)
+            .GET()
+            .build();
+        
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Snapshot status " + response.statusCode() + ": " + response.body());
         }
+        return gson.fromJson(response.body(), LiveSnapshotDTO.class);
     }
     
     /* ---------------------------------------------------
-     * Load students và screenshots từ API
-     * Điều kiện:
-     * - selectedExamId phải được set (từ examComboBox selection)
-     * - GradingApiClient đã được initialize với authToken
-     * - Backend API /api/grading/submissions?examId={examId} phải accessible
-     * - Phải có submissions với status IN_PROGRESS hoặc SUBMITTED
-     * - Backend API /api/monitoring/screenshots/{submissionId} để load screenshots
-     * @author: K24DTCN210-NVMANH (01/12/2025 12:00)
-     * EditBy: K24DTCN210-NVMANH (01/12/2025 12:45) - Implement load từ GradingApiClient
+     * Dựng lại bảng students + danh sách alerts từ snapshot (FX thread),
+     * sau đó áp các delta đã nhận trong lúc chờ có seq mới hơn snapshot
+     * @param snapshot Snapshot vừa lấy
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
      * --------------------------------------------------- */
-    private void loadStudents() {
-        if (selectedExamId == null) {
-            logger.warn("selectedExamId is null, cannot load students");
+    private void applySnapshot(LiveSnapshotDTO snapshot) {
+        if (!Objects.equals(snapshot.getExamId(), selectedExamId)) {
             return;
         }
         
-        logger.info("Loading students for examId: {}", selectedExamId);
+        studentTableItems.clear();
+        studentCards.clear();
+        studentIndex.clear();
+        if (snapshot.getRows() != null) {
+            for (LiveRowDTO row : snapshot.getRows()) {
+                upsertRow(row);
+            }
+        }
         
-        new Thread(() -> {
-            try {
-                // Load submissions của exam này
-                // Gọi 2 API: một cho IN_PROGRESS và một cho SUBMITTED
-                // Vì GradingService filter out IN_PROGRESS khi status=null
-                logger.debug("Calling gradingApiClient.getSubmissionsForGrading for exam {}", selectedExamId);
-                
-                List<com.mstrust.client.teacher.dto.grading.GradingSubmissionListDTO> allSubmissions = 
-                    new ArrayList<>();
-                
-                // Load IN_PROGRESS submissions
-                try {
-                    List<com.mstrust.client.teacher.dto.grading.GradingSubmissionListDTO> inProgress = 
-                        gradingApiClient.getSubmissionsForGrading("IN_PROGRESS", selectedExamId);
-                    logger.info("Found {} IN_PROGRESS submissions", inProgress.size());
-                    allSubmissions.addAll(inProgress);
-                } catch (com.mstrust.client.teacher.api.GradingApiClient.ApiException e) {
-                    logger.warn("Error loading IN_PROGRESS submissions: {} - {}", 
-                        e.getStatusCode(), e.getResponseBody());
-                } catch (Exception e) {
-                    logger.warn("Error loading IN_PROGRESS submissions: {}", e.getMessage());
+        alerts.clear();
+        if (snapshot.getAlerts() != null) {
+            for (AlertDTO dto : snapshot.getAlerts()) {
+                alerts.add(new AlertItem(dto));
+            }
+        }
+        
+        liveEpoch = snapshot.getEpoch();
+        liveSeq = snapshot.getSeq() != null ? snapshot.getSeq() : 0L;
+        List<LiveDeltaDTO> buffered = pendingDeltas;
+        pendingDeltas = null;
+        if (buffered != null) {
+            for (LiveDeltaDTO delta : buffered) {
+                applyDelta(delta);
+            }
+        }
+        
+        updateLiveLabels();
+        logger.info("Live view snapshot for exam {}: {} students, {} alerts (epoch {}, seq {})",
+            snapshot.getExamId(), studentTableItems.size(), alerts.size(), liveEpoch, liveSeq);
+    }
+    
+    /* ---------------------------------------------------
+     * Mở kết nối WebSocket nhận delta của exam (đóng kết nối của exam cũ)
+     * @param examId ID của exam
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    private void connectLiveView(Long examId) {
+        if (liveViewClient != null) {
+            liveViewClient.close();
+        }
+        liveViewClient = new com.mstrust.client.teacher.api.LiveViewStompClient(baseUrl, authToken, examId,
+            this::onLiveMessage,
+            () -> Platform.runLater(() -> statusLabel.setText("Trạng thái: Mất kết nối realtime, đang thử lại...")));
+        liveViewClient.connect();
+    }
+    
+    /* Delta từ WebSocket (thread của OkHttp) */
+    private void onLiveMessage(String body) {
+        try {
+            LiveDeltaDTO delta = gson.fromJson(body, LiveDeltaDTO.class);
+            Platform.runLater(() -> {
+                if (!Objects.equals(delta.getExamId(), selectedExamId)) {
+                    return;
                 }
-                
-                // Load SUBMITTED submissions
-                try {
-                    List<com.mstrust.client.teacher.dto.grading.GradingSubmissionListDTO> submitted = 
-                        gradingApiClient.getSubmissionsForGrading("SUBMITTED", selectedExamId);
-                    logger.info("Found {} SUBMITTED submissions", submitted.size());
-                    allSubmissions.addAll(submitted);
-                } catch (com.mstrust.client.teacher.api.GradingApiClient.ApiException e) {
-                    logger.warn("Error loading SUBMITTED submissions: {} - {}", 
-                        e.getStatusCode(), e.getResponseBody());
-                } catch (Exception e) {
-                    logger.warn("Error loading SUBMITTED submissions: {}", e.getMessage());
+                if (pendingDeltas != null) {
+                    pendingDeltas.add(delta);
+                    return;
                 }
-                
-                // Remove duplicates (nếu có)
-                Map<Long, com.mstrust.client.teacher.dto.grading.GradingSubmissionListDTO> uniqueSubmissions = 
-                    new HashMap<>();
-                for (com.mstrust.client.teacher.dto.grading.GradingSubmissionListDTO sub : allSubmissions) {
-                    uniqueSubmissions.put(sub.getId(), sub);
+                applyDelta(delta);
+                updateLiveLabels();
+            });
+        } catch (Exception e) {
+            logger.warn("Invalid live view message: {}", e.getMessage());
+        }
+    }
+    
+    /* ---------------------------------------------------
+     * Áp 1 delta: cập nhật tại chỗ các dòng thay đổi, thêm alert mới, bỏ alert đã review
+     * Delta của epoch cũ bị bỏ; epoch mới hơn nghĩa là server đã nạp lại trạng thái (seq đánh
+     * lại từ đầu) nên lấy lại snapshot thay vì so seq
+     * @param delta Delta nhận từ /topic/exam/{examId}/live
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * EditBy: K24DTCN210-NVMANH (18/10/2026 17:10) - Resync khi epoch thay đổi
+     * --------------------------------------------------- */
+    private void applyDelta(LiveDeltaDTO delta) {
+        Long epoch = delta.getEpoch();
+        if (epoch != null && !epoch.equals(liveEpoch)) {
+            if (liveEpoch != null && epoch < liveEpoch) {
+                return; // delta của lần nạp trước, snapshot đã mới hơn
+            }
+            if (liveEpoch != null) {
+                if (pendingDeltas == null) {
+                    logger.info("Live view epoch changed for exam {} ({} -> {}), reloading snapshot",
+                        delta.getExamId(), liveEpoch, epoch);
+                    refreshData();
                 }
-                List<com.mstrust.client.teacher.dto.grading.GradingSubmissionListDTO> submissions = 
-                    new ArrayList<>(uniqueSubmissions.values());
-                
-                logger.info("API returned {} total submissions ({} unique) for exam {}", 
-                    allSubmissions.size(), submissions.size(), selectedExamId);
-                
-                // Log tất cả submissions để debug
-                for (com.mstrust.client.teacher.dto.grading.GradingSubmissionListDTO sub : submissions) {
-                    logger.debug("Submission: id={}, studentName={}, status={}, examId={}", 
-                        sub.getId(), sub.getStudentName(), sub.getStatus(), sub.getExamId());
+                pendingDeltas.add(delta);
+                return;
+            }
+            // Chưa có snapshot (lấy snapshot lỗi): nhận epoch của delta
+            liveEpoch = epoch;
+            liveSeq = 0L;
+        }
+        if (delta.getSeq() != null && delta.getSeq() <= liveSeq) {
+            return; // đã có trong snapshot
+        }
+        if (delta.getSeq() != null) {
+            liveSeq = delta.getSeq();
+        }
+        
+        if (delta.getRows() != null) {
+            for (LiveRowDTO row : delta.getRows()) {
+                upsertRow(row);
+            }
+        }
+        
+        if (delta.getNewAlerts() != null) {
+            Set<Long> known = new HashSet<>();
+            for (AlertItem item : alerts) {
+                known.add(item.getDto().getId());
+            }
+            for (AlertDTO dto : delta.getNewAlerts()) {
+                if (known.add(dto.getId())) {
+                    alerts.add(0, new AlertItem(dto));
                 }
-                
-                Platform.runLater(() -> {
-                    studentTableItems.clear();
-                    studentCards.clear();
-                    
-                    int studentsCount = 0;
-                    int filteredCount = 0;
-                    
-                    // Count alerts per student
-                    Map<Long, Integer> alertsCountMap = new HashMap<>();
-                    for (AlertItem alert : alerts) {
-                        Long submissionId = alert.getDto().getSubmissionId();
-                        if (submissionId != null) {
-                            alertsCountMap.put(submissionId, alertsCountMap.getOrDefault(submissionId, 0) + 1);
-                        }
-                    }
-                    
-                    for (com.mstrust.client.teacher.dto.grading.GradingSubmissionListDTO submission : submissions) {
-                        String status = submission.getStatus();
-                        logger.debug("Processing submission {} with status: {}", submission.getId(), status);
-                        
-                        // Chỉ hiển thị students đang làm bài (IN_PROGRESS) hoặc đã nộp (SUBMITTED)
-                        if (status != null && (
-                            "IN_PROGRESS".equalsIgnoreCase(status) || 
-                            "SUBMITTED".equalsIgnoreCase(status))) {
-                            
-                            logger.debug("Adding student: {} (status: {})", submission.getStudentName(), status);
-                            
-                            // Create table item
-                            String statusText = "IN_PROGRESS".equalsIgnoreCase(status) ? "🟢 Đang làm" : 
-                                               "SUBMITTED".equalsIgnoreCase(status) ? "📝 Đã nộp" : status;
-                            
-                            int alertsCount = alertsCountMap.getOrDefault(submission.getId(), 0);
-                            
-                            StudentTableItem item = new StudentTableItem(
-                                submission.getId(),
-                                submission.getStudentName(),
-                                submission.getStudentCode(),
-                                statusText,
-                                alertsCount
-                            );
-                            
-                            studentTableItems.add(item);
-                            
-                            // Store card info
-                            studentCards.put(submission.getId(), new StudentCard(
-                                submission.getId(), 
-                                submission.getStudentName()
-                            ));
-                            
-                            studentsCount++;
-                        } else {
-                            filteredCount++;
-                            logger.debug("Filtered out submission {} with status: {}", submission.getId(), status);
-                        }
-                    }
-                    
-                    studentsCountLabel.setText("Số học sinh: " + studentsCount);
-                    updateEmptyStates();
-                    
-                    logger.info("Loaded {} students (filtered out {}) for exam {}", 
-                        studentsCount, filteredCount, selectedExamId);
-                });
-                
-            } catch (Exception e) {
-                logger.error("Error loading students", e);
-                Platform.runLater(() -> {
-                    studentTableItems.clear();
-                    studentsCountLabel.setText("Số học sinh: 0 (Lỗi)");
-                    updateEmptyStates();
-                });
             }
-        }).start();
+        }
+        
+        if (delta.getReviewedAlertIds() != null && !delta.getReviewedAlertIds().isEmpty()) {
+            Set<Long> reviewed = new HashSet<>(delta.getReviewedAlertIds());
+            alerts.removeIf(item -> reviewed.contains(item.getDto().getId()));
+        }
+    }
+    
+    /* Thêm mới hoặc cập nhật tại chỗ dòng của 1 submission */
+    private void upsertRow(LiveRowDTO row) {
+        StudentTableItem item = studentIndex.get(row.getSubmissionId());
+        String statusText = formatStatus(row);
+        int alertsCount = row.getUnreviewedAlerts() != null ? row.getUnreviewedAlerts() : 0;
+        if (item == null) {
+            item = new StudentTableItem(row.getSubmissionId(), row.getStudentName(), row.getStudentCode(),
+                statusText, alertsCount);
+            studentIndex.put(row.getSubmissionId(), item);
+            studentTableItems.add(item);
+            studentCards.put(row.getSubmissionId(), new StudentCard(row.getSubmissionId(), row.getStudentName()));
+        } else {
+            item.setStatus(statusText);
+            item.setAlertsCount(alertsCount);
+        }
+    }
+    
+    /* Text cột trạng thái: trạng thái + tiến độ + không hoạt động / đang kết nối */
+    private String formatStatus(LiveRowDTO row) {
+        String status = row.getStatus();
+        if ("SUBMITTED".equalsIgnoreCase(status)) {
+            return "📝 Đã nộp";
+        }
+        if ("PAUSED".equalsIgnoreCase(status)) {
+            return "⏸ Tạm dừng";
+        }
+        StringBuilder text = new StringBuilder("🟢 Đang làm");
+        if (row.getTotalQuestions() != null && row.getTotalQuestions() > 0) {
+            int answered = row.getAnsweredQuestions() != null ? row.getAnsweredQuestions() : 0;
+            text.append(" (").append(answered).append('/').append(row.getTotalQuestions()).append(')');
+        }
+        if (Boolean.TRUE.equals(row.getInactive())) {
+            text.append(" · ⚠ Không hoạt động");
+        }
+        if (Boolean.TRUE.equals(row.getConnected())) {
+            text.append(" · 📶");
+        }
+        return text.toString();
+    }
+    
+    /* Cập nhật labels, empty states và bảng sau khi áp snapshot/delta */
+    private void updateLiveLabels() {
+        studentsCountLabel.setText("Số học sinh: " + studentTableItems.size());
+        alertsCountLabel.setText("Cảnh báo: " + alerts.size());
+        updateEmptyStates();
+        studentsTable.refresh();
+    }
+    
+    /* ---------------------------------------------------
+     * Đồng bộ định kỳ (60 giây): mở lại WebSocket nếu đã đóng và lấy lại snapshot
+     * @author: K24DTCN210-NVMANH (17/10/2026 17:30)
+     * --------------------------------------------------- */
+    private void resyncLiveView() {
+        Platform.runLater(() -> {
+            if (selectedExamId == null) {
+                return;
+            }
+            if (liveViewClient == null || !liveViewClient.isOpen()) {
+                connectLiveView(selectedExamId);
+            }
+            refreshData();
+        });
     }
     
     /* ---------------------------------------------------
@@ -1094,31 +1152,6 @@ public class MonitoringDashboardController {
         emptyAlertsPane.setManaged(!hasAlerts);
     }
     
-    /* ---------------------------------------------------
-     * Highlight student cards có alerts
-     * @author: K24DTCN210-NVMANH (01/12/2025 23:20)
-     * EditBy: K24DTCN210-NVMANH (01/12/2025 23:30) - Update alerts count trong table
-     * --------------------------------------------------- */
-    private void highlightStudentsWithAlerts() {
-        // Count alerts per student
-        Map<Long, Integer> alertsCountMap = new HashMap<>();
-        for (AlertItem alert : alerts) {
-            Long submissionId = alert.getDto().getSubmissionId();
-            if (submissionId != null) {
-                alertsCountMap.put(submissionId, alertsCountMap.getOrDefault(submissionId, 0) + 1);
-            }
-        }
-        
-        // Update alerts count trong table items
-        for (StudentTableItem item : studentTableItems) {
-            int count = alertsCountMap.getOrDefault(item.getSubmissionId(), 0);
-            item.setAlertsCount(count);
-        }
-        
-        // Refresh table để hiển thị updated counts
-        studentsTable.refresh();
-    }
-    
     /* ---------------------------------------------------
      * Handle refresh button
      * @author: K24DTCN210-NVMANH (01/12/2025 12:00)
@@ -1210,11 +1243,15 @@ public class MonitoringDashboardController {
     /* ---------------------------------------------------
      * Cleanup resources
      * @author: K24DTCN210-NVMANH (01/12/2025 12:00)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 17:30) - Đóng kết nối live view
      * --------------------------------------------------- */
     public void shutdown() {
         if (refreshScheduler != null && !refreshScheduler.isShutdown()) {
             refreshScheduler.shutdown();
         }
+        if (liveViewClient != null) {
+            liveViewClient.close();
+        }
     }
     
     // Inner classes cho data models
@@ -1326,12 +1363,13 @@ public class MonitoringDashboardController {
     /* ---------------------------------------------------
      * Model class cho TableView row
      * @author: K24DTCN210-NVMANH (01/12/2025 23:30)
+     * EditBy: K24DTCN210-NVMANH (17/10/2026 17:30) - Status cập nhật tại chỗ theo delta
      * --------------------------------------------------- */
     public static class StudentTableItem {
         private final Long submissionId;
         private final String studentName;
         private final String studentCode;
-        private final String status;
+        private String status;
         private Integer alertsCount;
         
         public StudentTableItem(Long submissionId, String studentName, String studentCode, 
@@ -1347,6 +1385,7 @@ public class MonitoringDashboardController {
         public String getStudentName() { return studentName; }
         public String getStudentCode() { return studentCode; }
         public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
         public Integer getAlertsCount() { return alertsCount; }
         public void setAlertsCount(Integer alertsCount) { this.alertsCount = alertsCount; }
     }
@@ -1383,6 +1422,59 @@ public class MonitoringDashboardController {
         void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     }
     
+    // Live view DTOs (khớp LiveViewSnapshotDTO / LiveViewDeltaMessage / LiveSessionRow của backend)
+    private static class LiveRowDTO {
+        private Long submissionId;
+        private String studentName;
+        private String studentCode;
+        private String status;
+        private Integer totalQuestions;
+        private Integer answeredQuestions;
+        private Boolean inactive;
+        private Boolean connected;
+        private Integer unreviewedAlerts;
+        
+        Long getSubmissionId() { return submissionId; }
+        String getStudentName() { return studentName; }
+        String getStudentCode() { return studentCode; }
+        String getStatus() { return status; }
+        Integer getTotalQuestions() { return totalQuestions; }
+        Integer getAnsweredQuestions() { return answeredQuestions; }
+        Boolean getInactive() { return inactive; }
+        Boolean getConnected() { return connected; }
+        Integer getUnreviewedAlerts() { return unreviewedAlerts; }
+    }
+    
+    private static class LiveSnapshotDTO {
+        private Long examId;
+        private Long epoch;
+        private Long seq;
+        private List<LiveRowDTO> rows;
+        private List<AlertDTO> alerts;
+        
+        Long getExamId() { return examId; }
+        Long getEpoch() { return epoch; }
+        Long getSeq() { return seq; }
+        List<LiveRowDTO> getRows() { return rows; }
+        List<AlertDTO> getAlerts() { return alerts; }
+    }
+    
+    private static class LiveDeltaDTO {
+        private Long examId;
+        private Long epoch;
+        private Long seq;
+        private List<LiveRowDTO> rows;
+        private List<AlertDTO> newAlerts;
+        private List<Long> reviewedAlertIds;
+        
+        Long getExamId() { return examId; }
+        Long getEpoch() { return epoch; }
+        Long getSeq() { return seq; }
+        List<LiveRowDTO> getRows() { return rows; }
+        List<AlertDTO> getNewAlerts() { return newAlerts; }
+        List<Long> getReviewedAlertIds() { return reviewedAlertIds; }
+    }
+    
     private static class ScreenshotDTO {
         private Long id;
         private Long submissionId;